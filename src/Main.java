@@ -1,4 +1,10 @@
 import dao.DBConnection;
+import offline.PurchaseJournal;
+import offline.SyncManager;
+import repository.Repositories;
+import service.ChangeNotifier;
+import service.LowStockMonitor;
+import service.ReorderAdvisor;
 import view.LoginFrame;
 
 import javax.swing.*;
@@ -9,8 +15,23 @@ import javax.swing.*;
  */
 public class Main {
     public static void main(String[] args) {
-        // Initialize the database schema and insert initial data
-        DBConnection.initializeDatabase();
+        if (!Repositories.isInMemory()) {
+            // Initialize the database schema and insert initial data
+            DBConnection.initializeDatabase();
+
+            // Optional low-latency checkout: purchases journaled locally, applied to the database in batches.
+            // Started first, so the replica's stock accounts for purchases recovered from the journal
+            PurchaseJournal.getInstance().start();
+            // Keep a local catalogue replica and replay writes queued while the database was unreachable
+            SyncManager.getInstance().start();
+            // Tell the other terminals about catalogue changes and follow theirs (LISTEN/NOTIFY)
+            ChangeNotifier.getInstance().start();
+        }
+
+        // Low-stock alerts, evaluated incrementally on every stock change
+        LowStockMonitor.getInstance().start();
+        // Sales velocity per book for reorder suggestions, kept current from new purchases
+        ReorderAdvisor.getInstance().start();
 
         // Ensure GUI updates are done on the Event Dispatch Thread
         SwingUtilities.invokeLater(new Runnable() {
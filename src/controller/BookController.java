@@ -1,82 +1,299 @@
 package controller;
 
-import dao.BookDAO;
-import dao.CategoryDAO;
-import dao.PurchaseDAO;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.PurchaseRecordedEvent;
+import event.StockChangedEvent;
+import model.BasketLine;
 import model.Book;
+import model.BookField;
+import model.BookFilter;
+import model.BookUpdateResult;
 import model.Category;
+import model.CheckoutResult;
+import model.FacetQuery;
+import model.FacetResult;
 import model.Purchase;
+import model.RepricePreview;
+import model.RepriceResult;
+import model.RepriceRule;
+import offline.PurchaseJournal;
+import offline.SyncManager;
+import repository.BookRepository;
+import repository.CategoryRepository;
+import repository.PurchaseRepository;
+import repository.Repositories;
+import service.FuzzyMatcher;
+import service.IsbnIndex;
+import service.LowStockMonitor;
 
 import javax.swing.table.DefaultTableModel;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Vector;
 
 public class BookController {
-    private BookDAO bookDAO;
-    private CategoryDAO categoryDAO;
-    private PurchaseDAO purchaseDAO;
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+    private static final Object JOURNAL_LOCK = new Object();
+
+    private BookRepository bookRepository;
+    private CategoryRepository categoryRepository;
+    private PurchaseRepository purchaseRepository;
+    private SyncManager sync;
 
     public BookController() {
-        this.bookDAO = new BookDAO();
-        this.categoryDAO = new CategoryDAO();
-        this.purchaseDAO = new PurchaseDAO();
+        this(Repositories.books(), Repositories.categories(), Repositories.purchases());
     }
 
-    public void populateBookTable(DefaultTableModel tableModel) {
-        tableModel.setRowCount(0);
-        List<Book> books = bookDAO.getAllBooks();
-
-        for (Book book : books) {
-            Vector<Object> row = new Vector<>();
-            row.add(book.getId());
-            row.add(book.getTitle());
-            row.add(book.getAuthor());
-
-            Category category = categoryDAO.getCategoryById(book.getCategoryId());
-            row.add(category != null ? category.getName() : "N/A");
+    /**
+     * Creates a controller on the given storage, e.g. the in-memory repositories in tests.
+     */
+    public BookController(BookRepository bookRepository, CategoryRepository categoryRepository, PurchaseRepository purchaseRepository) {
+        this.bookRepository = bookRepository;
+        this.categoryRepository = categoryRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.sync = SyncManager.getInstance();
+    }
 
-            row.add(book.getPrice());
-            row.add(book.getQuantity());
-            row.add(book.getIsbn());
-            row.add(book.getPublicationDate());
-            row.add(book.getDescription());
-            row.add(book.getImageUrl());
+    public List<Book> getAllBooks() {
+        if (!sync.isOnline()) {
+            return sync.getLocalStore().getAllBooks();
+        }
+        return bookRepository.getAllBooks();
+    }
 
-            tableModel.addRow(row);
+    /**
+     * Loads every category name once, so tables can resolve the Category column without a query per book.
+     * @return Category names by category ID.
+     */
+    public Map<Integer, String> getCategoryNamesById() {
+        Map<Integer, String> names = new HashMap<>();
+        List<Category> categories = sync.isOnline() ? categoryRepository.getAllCategories() : sync.getLocalStore().getAllCategories();
+        for (Category category : categories) {
+            names.put(category.getId(), category.getName());
         }
+        return names;
     }
 
     public boolean addBook(String title, String author, String categoryName, BigDecimal price, int quantity,
                            String isbn, Date publicationDate, String description, String imageUrl) {
 
-        Category category = categoryDAO.getCategoryByName(categoryName);
+        Category category = categoryRepository.getCategoryByName(categoryName);
         int categoryId = (category != null) ? category.getId() : 0;
 
         // ✅ This constructor must exist in model.Book
         Book book = new Book(title, author, categoryId, price, quantity, isbn, publicationDate, description, imageUrl);
-        return bookDAO.addBook(book);
+        if (bookRepository.addBook(book)) {
+            EventBus.getInstance().publish(new BookAddedEvent(book));
+            return true;
+        }
+        return false;
     }
 
-    public boolean updateBook(int id, String title, String author, String categoryName, BigDecimal price, int quantity,
-                              String isbn, Date publicationDate, String description, String imageUrl) {
+    /**
+     * Saves an edited book, writing only the fields that differ from the state the edit started from.
+     * If someone else changed the book in the meantime (e.g. a till sold copies), their changes are kept:
+     * when they touched different fields the edit is re-applied on top of their version automatically,
+     * otherwise a CONFLICT with their version is returned so the user can decide.
+     * @param original The book as it was loaded for editing (its version is the expected version).
+     * @param edited The book with the user's changes.
+     * @return The outcome of the update.
+     */
+    public BookUpdateResult updateBook(Book original, Book edited) {
+        Map<BookField, Object> changes = BookField.diff(original, edited);
+        if (changes.isEmpty()) {
+            return new BookUpdateResult(BookUpdateResult.Status.UPDATED, original);
+        }
 
-        Category category = categoryDAO.getCategoryByName(categoryName);
-        int categoryId = (category != null) ? category.getId() : 0;
+        Book base = original;
+        for (int attempt = 0; attempt < MAX_MERGE_ATTEMPTS; attempt++) {
+            BookUpdateResult result = bookRepository.updateBookFields(base.getId(), base.getVersion(), changes);
+            if (result.getStatus() == BookUpdateResult.Status.UPDATED) {
+                EventBus.getInstance().publish(new BookUpdatedEvent(result.getBook()));
+            }
+            if (result.getStatus() != BookUpdateResult.Status.CONFLICT) {
+                return result;
+            }
+            Book latest = result.getBook();
+            Map<BookField, Object> theirs = BookField.diff(original, latest);
+            if (!Collections.disjoint(theirs.keySet(), changes.keySet())) {
+                return result; // Both sides changed the same field
+            }
+            base = latest; // Retry against their version; only our own fields are written
+        }
+        return new BookUpdateResult(BookUpdateResult.Status.CONFLICT, bookRepository.getBookById(original.getId()));
+    }
 
-        Book book = new Book(id, title, author, categoryId, price, quantity, isbn, publicationDate, description, imageUrl);
-        return bookDAO.updateBook(book);
+    /**
+     * Applies the changes made between original and edited on top of another version of the book.
+     * @param original The state the edit started from.
+     * @param edited The edited state.
+     * @param latest The version to apply the changes to.
+     * @return A copy of latest with the edited fields applied.
+     */
+    public static Book rebase(Book original, Book edited, Book latest) {
+        Book rebased = new Book(latest);
+        for (Map.Entry<BookField, Object> change : BookField.diff(original, edited).entrySet()) {
+            change.getKey().set(rebased, change.getValue());
+        }
+        return rebased;
     }
 
     public boolean deleteBook(int id) {
-        return bookDAO.deleteBook(id);
+        if (bookRepository.deleteBook(id)) {
+            EventBus.getInstance().publish(new BookDeletedEvent(id));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Deletes several books at once and publishes a single change event.
+     * @param ids The IDs of the books to delete.
+     * @return The number of books deleted.
+     */
+    public int deleteBooks(List<Integer> ids) {
+        List<Integer> deleted = bookRepository.deleteBooks(ids);
+        if (!deleted.isEmpty()) {
+            EventBus.getInstance().publish(new BooksChangedEvent(Collections.emptyList(), deleted));
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Moves several books to a category at once and publishes a single change event.
+     * @param ids The IDs of the books.
+     * @param categoryName The name of the new category.
+     * @return The number of books updated.
+     */
+    public int changeBooksCategory(List<Integer> ids, String categoryName) {
+        Category category = categoryRepository.getCategoryByName(categoryName);
+        int categoryId = (category != null) ? category.getId() : 0;
+        return publishBatchUpdate(bookRepository.updateBooksCategory(ids, categoryId));
+    }
+
+    /**
+     * Sets or removes the low-stock threshold of several books.
+     * @param ids The IDs of the books.
+     * @param threshold The threshold, or null to use the category or default threshold.
+     * @return The number of books whose threshold was saved.
+     */
+    public int setLowStockThreshold(List<Integer> ids, Integer threshold) {
+        int saved = 0;
+        for (int id : ids) {
+            if (LowStockMonitor.getInstance().setBookThreshold(id, threshold)) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Adjusts the price and quantity of several books at once and publishes a single change event.
+     * @param ids The IDs of the books.
+     * @param priceChange The amount added to each price.
+     * @param quantityChange The amount added to each quantity.
+     * @return The number of books updated.
+     */
+    public int adjustBooksPriceAndQuantity(List<Integer> ids, BigDecimal priceChange, int quantityChange) {
+        if (!sync.isOnline() && priceChange.signum() == 0) {
+            return adjustStockOffline(ids, quantityChange);
+        }
+        return publishBatchUpdate(bookRepository.adjustBooksPriceAndQuantity(ids, priceChange, quantityChange));
+    }
+
+    /**
+     * Queues stock changes in the offline outbox; they are applied when the database is reachable again.
+     */
+    private int adjustStockOffline(List<Integer> ids, int quantityChange) {
+        int adjusted = 0;
+        for (int id : ids) {
+            Integer newQuantity = sync.recordStockAdjustment(id, quantityChange);
+            if (newQuantity != null) {
+                EventBus.getInstance().publish(new StockChangedEvent(id, newQuantity, quantityChange));
+                adjusted++;
+            }
+        }
+        return adjusted;
+    }
+
+    private int publishBatchUpdate(List<Book> updated) {
+        if (!updated.isEmpty()) {
+            EventBus.getInstance().publish(new BooksChangedEvent(updated, new ArrayList<>()));
+        }
+        return updated.size();
+    }
+
+    /**
+     * Shows how many books a bulk repricing would change, with a sample of old and new prices.
+     * @param filter The books to reprice.
+     * @param rule How prices change.
+     * @return The preview.
+     */
+    public RepricePreview previewReprice(BookFilter filter, RepriceRule rule) {
+        return bookRepository.previewReprice(filter, rule, 10);
+    }
+
+    /**
+     * Reprices all books matching a filter in one UPDATE and publishes the new prices.
+     * @param filter The books to reprice.
+     * @param rule How prices change.
+     * @return The number of books changed and how long the update took.
+     */
+    public RepriceResult repriceBooks(BookFilter filter, RepriceRule rule) {
+        long start = System.nanoTime();
+        Map<Integer, BigDecimal> newPrices = bookRepository.repriceBooks(filter, rule);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (newPrices == null) {
+            return new RepriceResult(false, 0, elapsedMillis);
+        }
+        if (!newPrices.isEmpty()) {
+            EventBus.getInstance().publish(new PricesChangedEvent(newPrices));
+        }
+        return new RepriceResult(true, newPrices.size(), elapsedMillis);
+    }
+
+    /**
+     * Runs a faceted browse: one page of matching books plus the counts of every facet value.
+     * @param query The keyword, facet selections and page.
+     * @return The result; empty if the query failed.
+     */
+    public FacetResult browseBooks(FacetQuery query) {
+        return bookRepository.browseBooks(query);
+    }
+
+    /**
+     * Finds the books closest to a possibly misspelt title or author.
+     * @param keyword The search text.
+     * @param limit The maximum number of books.
+     * @return The books, best match first.
+     */
+    public List<Book> findSimilarBooks(String keyword, int limit) {
+        return FuzzyMatcher.getInstance().findBooks(keyword, limit);
+    }
+
+    /**
+     * @param keyword The search text.
+     * @return The text with misspelt words corrected, or null if nothing was corrected.
+     */
+    public String suggestCorrection(String keyword) {
+        return FuzzyMatcher.getInstance().suggestCorrection(keyword);
     }
 
     public void searchBooks(DefaultTableModel tableModel, String keyword) {
         tableModel.setRowCount(0);
-        List<Book> books = bookDAO.searchBooks(keyword);
+        List<Book> books = bookRepository.searchBooks(keyword);
 
         for (Book book : books) {
             Vector<Object> row = new Vector<>();
@@ -84,7 +301,7 @@ public class BookController {
             row.add(book.getTitle());
             row.add(book.getAuthor());
 
-            Category category = categoryDAO.getCategoryById(book.getCategoryId());
+            Category category = categoryRepository.getCategoryById(book.getCategoryId());
             row.add(category != null ? category.getName() : "N/A");
 
             row.add(book.getPrice());
@@ -99,48 +316,217 @@ public class BookController {
     }
 
     public Book getBookById(int bookId) {
-        return bookDAO.getBookById(bookId);
+        if (!sync.isOnline()) {
+            return sync.getLocalStore().getBook(bookId);
+        }
+        return bookRepository.getBookById(bookId);
     }
 
     public List<Book> getBooksByCategoryPaginated(int categoryId, int offset, int limit) {
-        return bookDAO.getBooksByCategory(categoryId, offset, limit);
+        if (!sync.isOnline()) {
+            return sync.getLocalStore().getBooksByCategory(categoryId, offset, limit);
+        }
+        return bookRepository.getBooksByCategory(categoryId, offset, limit);
     }
 
     public int getTotalBooksInCategory(int categoryId) {
-        return bookDAO.getTotalBooksInCategory(categoryId);
+        if (!sync.isOnline()) {
+            return sync.getLocalStore().countBooksInCategory(categoryId);
+        }
+        return bookRepository.getTotalBooksInCategory(categoryId);
     }
 
     public boolean processPurchase(int bookId, int quantity, int userId) {
-        Book book = bookDAO.getBookById(bookId);
-        if (book == null || book.getQuantity() < quantity) {
-            System.err.println("Purchase failed: Book not found or insufficient stock.");
+        if (PurchaseJournal.getInstance().isEnabled()) {
+            Boolean journaled = processJournaledPurchase(bookId, quantity, userId);
+            if (journaled != null) {
+                return journaled;
+            }
+        }
+        if (!sync.isOnline()) {
+            return processOfflinePurchase(bookId, quantity, userId);
+        }
+        Book book = bookRepository.getBookById(bookId);
+        if (book == null && !sync.checkConnectivity()) {
+            return processOfflinePurchase(bookId, quantity, userId); // Nothing was written yet
+        }
+        if (book == null) {
+            System.err.println("Purchase failed: Book not found.");
             return false;
         }
 
-        BigDecimal itemPrice = book.getPrice();
-        BigDecimal totalPrice = itemPrice.multiply(new BigDecimal(quantity));
-
-        Purchase purchase = new Purchase(
-                book.getId(),
-                book.getTitle(),
-                book.getImageUrl(),
-                itemPrice,
-                quantity,
-                totalPrice,
-                new Timestamp(System.currentTimeMillis()),
-                userId
-        );
-
-        boolean purchaseAdded = purchaseDAO.addPurchase(purchase);
-        if (purchaseAdded) {
-            boolean quantityUpdated = bookDAO.updateBookQuantity(bookId, -quantity);
-            if (quantityUpdated) {
-                return true;
+        // A one-line checkout: the stock check and the decrement are one conditional update, so two
+        // tills selling the last copy cannot both succeed, and the purchase row commits with it.
+        // The stock of the book read above may come from the book cache, so it is not checked here.
+        BasketLine line = new BasketLine(book.getId(), book.getIsbn(), book.getTitle(), book.getPrice(), quantity);
+        CheckoutResult result = purchaseRepository.checkout(Collections.singletonList(line), userId);
+        if (!result.isSuccess()) {
+            System.err.println("Purchase failed: " + result.getMessage());
+            return false;
+        }
+        Purchase purchase = result.getPurchases().get(0);
+        ReportController.invalidateCurrentRanges(); // Reports covering today are now stale
+        EventBus.getInstance().publish(new PurchaseRecordedEvent(purchase));
+        EventBus.getInstance().publish(new StockChangedEvent(bookId, result.getQuantities().get(bookId), -quantity));
+        return true;
+    }
+
+    /**
+     * Resolves a scanned or typed ISBN from the in-memory ISBN index; no database query.
+     * @param isbn The ISBN, with or without separators; ISBN-10 and ISBN-13 forms are equivalent.
+     * @return The book, or null if no book has that ISBN.
+     */
+    public Book findBookByIsbn(String isbn) {
+        return IsbnIndex.getInstance().find(isbn);
+    }
+
+    /**
+     * Sells a checkout basket: every line is sold or none is. Online, the basket is one transaction; with the
+     * purchase journal or offline, every line is checked before the basket is journaled or queued at once.
+     * @param lines The basket.
+     * @param userId The buyer.
+     * @return The outcome, with the stock left of each book sold.
+     */
+    public CheckoutResult checkout(List<BasketLine> lines, int userId) {
+        if (PurchaseJournal.getInstance().isEnabled()) {
+            CheckoutResult journaled = checkoutJournaled(lines, userId);
+            if (journaled != null) {
+                return journaled;
+            }
+        }
+        CheckoutResult result;
+        if (!sync.isOnline()) {
+            result = sync.recordPurchases(lines, userId);
+        } else {
+            result = purchaseRepository.checkout(lines, userId);
+            if (result.isSuccess()) {
+                ReportController.invalidateCurrentRanges(); // Reports covering today are now stale
+            }
+        }
+        if (result.isSuccess()) {
+            publishCheckout(result);
+        }
+        return result;
+    }
+
+    /**
+     * Journals a basket. Every line is checked against the database stock less the sales still in the
+     * journal (or against the local replica, which already reflects them), then all lines are appended at once.
+     * @return The outcome, or null if the journal is full and the basket must be written directly.
+     */
+    private CheckoutResult checkoutJournaled(List<BasketLine> lines, int userId) {
+        Map<Integer, Integer> requested = new TreeMap<>();
+        for (BasketLine line : lines) {
+            requested.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
+        PurchaseJournal journal = PurchaseJournal.getInstance();
+        synchronized (JOURNAL_LOCK) { // Stock checks, append and local decrements happen as one step
+            Map<Integer, Book> books = new HashMap<>();
+            if (sync.getLocalStore() != null) {
+                for (int bookId : requested.keySet()) {
+                    Book book = sync.getLocalStore().getBook(bookId);
+                    if (book != null) {
+                        books.put(bookId, book);
+                    }
+                }
             } else {
-                System.err.println("Warning: Purchase recorded but book quantity update failed.");
+                Map<Integer, Integer> pending = new HashMap<>();
+                for (int bookId : requested.keySet()) {
+                    pending.put(bookId, journal.getPendingQuantity(bookId)); // Before the stock is read
+                }
+                List<Book> loaded = bookRepository.getBooksByIds(new ArrayList<>(requested.keySet()));
+                if (loaded == null) {
+                    return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), 0, "The sale could not be saved. Please try again.");
+                }
+                for (Book book : loaded) {
+                    book.setQuantity(book.getQuantity() - pending.get(book.getId()));
+                    books.put(book.getId(), book);
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                Book book = books.get(entry.getKey());
+                if (book == null) {
+                    return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(),
+                            "Book " + entry.getKey() + " no longer exists.");
+                }
+                if (book.getQuantity() < entry.getValue()) {
+                    return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(), "Not enough stock for \""
+                            + book.getTitle() + "\": " + entry.getValue() + " requested, " + book.getQuantity() + " available.");
+                }
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            List<Purchase> purchases = new ArrayList<>();
+            for (BasketLine line : lines) {
+                Book book = books.get(line.getBookId());
+                purchases.add(new Purchase(book.getId(), book.getTitle(), book.getImageUrl(), book.getPrice(), line.getQuantity(),
+                        book.getPrice().multiply(new BigDecimal(line.getQuantity())), now, userId));
+            }
+            if (!journal.appendAll(purchases)) {
+                return null;
+            }
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            requested.forEach((bookId, quantity) -> quantities.put(bookId, books.get(bookId).getQuantity() - quantity));
+            CheckoutResult result = new CheckoutResult(purchases, quantities, 0, null);
+            publishCheckout(result); // Inside the lock, so the local replica is decremented before the next check
+            return result;
+        }
+    }
+
+    private void publishCheckout(CheckoutResult result) {
+        Map<Integer, Integer> sold = new HashMap<>();
+        for (Purchase purchase : result.getPurchases()) {
+            EventBus.getInstance().publish(new PurchaseRecordedEvent(purchase));
+            sold.merge(purchase.getBookId(), purchase.getQuantity(), Integer::sum);
+        }
+        sold.forEach((bookId, quantity) ->
+                EventBus.getInstance().publish(new StockChangedEvent(bookId, result.getQuantities().get(bookId), -quantity)));
+    }
+
+    /**
+     * Records a purchase in the local purchase journal; the database is updated by its drainer.
+     * Stock is checked against the local catalogue replica, which already reflects journaled sales;
+     * when offline mode is not running, against the database less the sales still in the journal.
+     * @return The outcome, or null if the journal is full and the purchase must be written directly.
+     */
+    private Boolean processJournaledPurchase(int bookId, int quantity, int userId) {
+        synchronized (JOURNAL_LOCK) { // Stock check, append and local decrement happen as one step
+            Book book;
+            if (sync.getLocalStore() != null) {
+                book = sync.getLocalStore().getBook(bookId);
+            } else {
+                int pending = PurchaseJournal.getInstance().getPendingQuantity(bookId);
+                book = bookRepository.getBookById(bookId);
+                if (book != null) {
+                    book.setQuantity(book.getQuantity() - pending);
+                }
+            }
+            if (book == null || book.getQuantity() < quantity) {
+                System.err.println("Purchase failed: Book not found or insufficient stock.");
                 return false;
             }
+            Purchase purchase = new Purchase(book.getId(), book.getTitle(), book.getImageUrl(), book.getPrice(), quantity,
+                    book.getPrice().multiply(new BigDecimal(quantity)), new Timestamp(System.currentTimeMillis()), userId);
+            if (!PurchaseJournal.getInstance().append(purchase)) {
+                return null;
+            }
+            EventBus.getInstance().publish(new PurchaseRecordedEvent(purchase));
+            EventBus.getInstance().publish(new StockChangedEvent(bookId, book.getQuantity() - quantity, -quantity));
+            return true;
         }
-        return false;
+    }
+
+    /**
+     * Records a purchase in the offline outbox against the local catalogue replica.
+     */
+    private boolean processOfflinePurchase(int bookId, int quantity, int userId) {
+        Purchase purchase = sync.recordPurchase(bookId, quantity, userId);
+        if (purchase == null) {
+            System.err.println("Offline purchase failed: Book not found or insufficient stock.");
+            return false;
+        }
+        Book book = sync.getLocalStore().getBook(bookId);
+        EventBus.getInstance().publish(new PurchaseRecordedEvent(purchase));
+        EventBus.getInstance().publish(new StockChangedEvent(bookId, book.getQuantity(), -quantity));
+        return true;
     }
 }
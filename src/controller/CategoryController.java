@@ -1,38 +1,29 @@
 package controller;
 
-import dao.CategoryDAO;
+import event.CategoryChangedEvent;
+import event.EventBus;
 import model.Category;
+import offline.SyncManager;
+import repository.CategoryRepository;
+import repository.Repositories;
+import service.LowStockMonitor;
 
 import javax.swing.DefaultComboBoxModel;
-import javax.swing.table.DefaultTableModel;
 import java.util.List;
-import java.util.Vector;
 
 /**
  * Controller for managing Category-related operations.
  * Acts as an intermediary between the CategoryPanel (view) and CategoryDAO (model/data).
  */
 public class CategoryController {
-    private CategoryDAO categoryDAO;
+    private CategoryRepository categoryRepository;
 
     public CategoryController() {
-        this.categoryDAO = new CategoryDAO();
+        this(Repositories.categories());
     }
 
-    /**
-     * Populates the category table model with data from the database.
-     * @param tableModel The DefaultTableModel to populate.
-     */
-    public void populateCategoryTable(DefaultTableModel tableModel) {
-        tableModel.setRowCount(0); // Clear existing data
-        List<Category> categories = categoryDAO.getAllCategories();
-
-        for (Category category : categories) {
-            Vector<Object> row = new Vector<>();
-            row.add(category.getId());
-            row.add(category.getName());
-            tableModel.addRow(row);
-        }
+    public CategoryController(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
     }
 
     /**
@@ -41,7 +32,7 @@ public class CategoryController {
      */
     public void populateCategoryComboBox(DefaultComboBoxModel<Category> comboBoxModel) {
         comboBoxModel.removeAllElements(); // Clear existing items
-        List<Category> categories = categoryDAO.getAllCategories();
+        List<Category> categories = getAllCategories();
         for (Category category : categories) {
             comboBoxModel.addElement(category);
         }
@@ -54,7 +45,11 @@ public class CategoryController {
      */
     public boolean addCategory(String name) {
         Category category = new Category(name);
-        return categoryDAO.addCategory(category);
+        if (categoryRepository.addCategory(category)) {
+            EventBus.getInstance().publish(new CategoryChangedEvent(category, CategoryChangedEvent.ChangeType.ADDED));
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -65,7 +60,11 @@ public class CategoryController {
      */
     public boolean updateCategory(int id, String name) {
         Category category = new Category(id, name);
-        return categoryDAO.updateCategory(category);
+        if (categoryRepository.updateCategory(category)) {
+            EventBus.getInstance().publish(new CategoryChangedEvent(category, CategoryChangedEvent.ChangeType.UPDATED));
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -74,7 +73,28 @@ public class CategoryController {
      * @return true if category was deleted, false otherwise.
      */
     public boolean deleteCategory(int id) {
-        return categoryDAO.deleteCategory(id);
+        if (categoryRepository.deleteCategory(id)) {
+            EventBus.getInstance().publish(new CategoryChangedEvent(new Category(id, null), CategoryChangedEvent.ChangeType.DELETED));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets or removes the low-stock threshold of the books of a category.
+     * @param id The ID of the category.
+     * @param threshold The threshold, or null to use the default threshold.
+     * @return true if the threshold was saved.
+     */
+    public boolean setLowStockThreshold(int id, Integer threshold) {
+        return LowStockMonitor.getInstance().setCategoryThreshold(id, threshold);
+    }
+
+    /**
+     * @return The low-stock threshold of the category, or null if its books use the default.
+     */
+    public Integer getLowStockThreshold(int id) {
+        return LowStockMonitor.getInstance().getCategoryThreshold(id);
     }
 
     /**
@@ -83,7 +103,7 @@ public class CategoryController {
      * @return The Category object, or null if not found.
      */
     public Category getCategoryByName(String name) {
-        return categoryDAO.getCategoryByName(name);
+        return categoryRepository.getCategoryByName(name);
     }
 
     /**
@@ -92,7 +112,7 @@ public class CategoryController {
      * @return The Category object, or null if not found.
      */
     public Category getCategoryById(int id) {
-        return categoryDAO.getCategoryById(id);
+        return categoryRepository.getCategoryById(id);
     }
 
     /**
@@ -100,6 +120,10 @@ public class CategoryController {
      * @return A list of all Category objects.
      */
     public List<Category> getAllCategories() {
-        return categoryDAO.getAllCategories();
+        SyncManager sync = SyncManager.getInstance();
+        if (!sync.isOnline()) {
+            return sync.getLocalStore().getAllCategories(); // Served from the local replica while offline
+        }
+        return categoryRepository.getAllCategories();
     }
 }
@@ -0,0 +1,41 @@
+package controller;
+
+import model.PurchasePage;
+import model.PurchaseQuery;
+import model.User;
+import offline.SyncManager;
+import repository.PurchaseRepository;
+import repository.Repositories;
+
+import java.util.ArrayList;
+
+/**
+ * Controller for browsing purchase history.
+ */
+public class PurchaseController {
+    private PurchaseRepository purchaseRepository;
+
+    public PurchaseController() {
+        this(Repositories.purchases());
+    }
+
+    public PurchaseController(PurchaseRepository purchaseRepository) {
+        this.purchaseRepository = purchaseRepository;
+    }
+
+    /**
+     * Retrieves one page of purchase history. Users other than the owner only see their own purchases.
+     * @param query The criteria and page position; pass the next query of a page to continue after it.
+     * @param user The logged in user.
+     * @return The page; empty while the database is unreachable, since history is not kept offline.
+     */
+    public PurchasePage findPurchases(PurchaseQuery query, User user) {
+        if (!"Owner".equals(user.getRole())) {
+            query.setUserId(user.getId());
+        }
+        if (!SyncManager.getInstance().isOnline()) {
+            return new PurchasePage(new ArrayList<>(), null);
+        }
+        return purchaseRepository.findPurchases(query);
+    }
+}
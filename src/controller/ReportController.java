@@ -0,0 +1,146 @@
+package controller;
+
+import dao.SalesReportDAO;
+import model.ReorderSuggestion;
+import model.SalesSummary;
+import service.ReorderAdvisor;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Controller for sales reports.
+ * Results are cached per report and date range. Ranges that include today expire after a minute. Ranges
+ * that end before today change only when purchases of their days are replayed from the journal or the
+ * offline outbox, which drop them, or by changes this terminal does not see (purchases deleted with their
+ * book or user, replays on other terminals), so they expire after ten minutes.
+ */
+public class ReportController {
+    private static final int MAX_CACHED_REPORTS = 100;
+    private static final long CURRENT_RANGE_TTL_MILLIS = 60_000;
+    private static final long PAST_RANGE_TTL_MILLIS = 600_000;
+
+    // Shared by all panels; access-ordered so the least recently used report is evicted first
+    private static final Map<String, CachedReport> CACHE = new LinkedHashMap<String, CachedReport>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedReport> eldest) {
+            return size() > MAX_CACHED_REPORTS;
+        }
+    };
+
+    private SalesReportDAO salesReportDAO;
+
+    public ReportController() {
+        this.salesReportDAO = new SalesReportDAO();
+    }
+
+    /**
+     * Retrieves the best selling books of a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @param limit The maximum number of books.
+     * @return The books ordered by units sold, or null if the report could not be loaded.
+     */
+    public List<SalesSummary> getTopSellers(LocalDate from, LocalDate to, int limit) {
+        return cached("top:" + limit, from, to, () -> salesReportDAO.getTopSellers(from, to, limit));
+    }
+
+    /**
+     * Retrieves the revenue per category of a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return The categories ordered by revenue, or null if the report could not be loaded.
+     */
+    public List<SalesSummary> getRevenueByCategory(LocalDate from, LocalDate to) {
+        return cached("category", from, to, () -> salesReportDAO.getRevenueByCategory(from, to));
+    }
+
+    /**
+     * Retrieves the units sold per author of a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @param limit The maximum number of authors.
+     * @return The authors ordered by units sold, or null if the report could not be loaded.
+     */
+    public List<SalesSummary> getUnitsByAuthor(LocalDate from, LocalDate to, int limit) {
+        return cached("author:" + limit, from, to, () -> salesReportDAO.getUnitsByAuthor(from, to, limit));
+    }
+
+    /**
+     * Retrieves units and revenue per day of a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return One row per day with sales, or null if the report could not be loaded.
+     */
+    public List<SalesSummary> getDailyRevenue(LocalDate from, LocalDate to) {
+        return cached("daily", from, to, () -> salesReportDAO.getDailyRevenue(from, to));
+    }
+
+    /**
+     * Retrieves the books to reorder, ranked by projected days until stockout.
+     * Answered from the sales velocities kept in memory, so it is not cached.
+     * @param limit The maximum number of books.
+     * @return The suggestions, soonest stockout first.
+     */
+    public List<ReorderSuggestion> getReorderSuggestions(int limit) {
+        return ReorderAdvisor.getInstance().getSuggestions(limit);
+    }
+
+    /**
+     * Drops every cached report whose range includes today, e.g. after a purchase was recorded.
+     */
+    public static void invalidateCurrentRanges() {
+        invalidateRangesCovering(LocalDate.now());
+    }
+
+    /**
+     * Drops every cached report whose range includes the given day, e.g. after purchases made offline
+     * were recorded with that date.
+     * @param day The day of the purchases.
+     */
+    public static void invalidateRangesCovering(LocalDate day) {
+        synchronized (CACHE) {
+            CACHE.values().removeIf(report -> !report.from.isAfter(day) && !report.to.isBefore(day));
+        }
+    }
+
+    private List<SalesSummary> cached(String report, LocalDate from, LocalDate to, Supplier<List<SalesSummary>> loader) {
+        String key = report + "|" + from + "|" + to;
+        long now = System.currentTimeMillis();
+        synchronized (CACHE) {
+            CachedReport hit = CACHE.get(key);
+            if (hit != null && hit.expiresAt > now) {
+                return hit.rows;
+            }
+        }
+
+        List<SalesSummary> loaded = loader.get();
+        if (loaded == null) {
+            return null; // Not cached: a failed load must not stand in for a past period's sales
+        }
+        List<SalesSummary> rows = Collections.unmodifiableList(loaded);
+        long expiresAt = now + (to.isBefore(LocalDate.now()) ? PAST_RANGE_TTL_MILLIS : CURRENT_RANGE_TTL_MILLIS);
+        synchronized (CACHE) {
+            CACHE.put(key, new CachedReport(rows, from, to, expiresAt));
+        }
+        return rows;
+    }
+
+    private static class CachedReport {
+        final List<SalesSummary> rows;
+        final LocalDate from;
+        final LocalDate to;
+        final long expiresAt;
+
+        CachedReport(List<SalesSummary> rows, LocalDate from, LocalDate to, long expiresAt) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
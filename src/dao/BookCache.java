@@ -0,0 +1,186 @@
+package dao;
+
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Books by ID, shared by all threads of this terminal, so hot titles are not read from the database
+ * on every lookup.
+ *
+ * Entries expire after a TTL, which bounds how stale a book changed by another terminal can be; writes
+ * made through the DAOs of this terminal invalidate their books as soon as they commit. When several
+ * threads miss the same book at once only one of them queries the database and the others wait for
+ * its result (single flight). A load that overlaps an invalidation is returned to its callers but not
+ * cached, so a write is never undone by a read that started before it. When the cache is full, expired
+ * entries and then the least recently used ones are evicted.
+ *
+ * Cached stock is for display and quick checks only; checkout always decrements stock with a
+ * conditional update, so a stale quantity can never oversell.
+ *
+ * Configuration (system properties):
+ *   bookstore.bookCache.size  - maximum number of books, 0 disables the cache (default 10000)
+ *   bookstore.bookCache.ttlMs - time a book is served from the cache (default 30000)
+ */
+public final class BookCache {
+    private static final BookCache INSTANCE = new BookCache(
+            Integer.getInteger("bookstore.bookCache.size", 10_000),
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("bookstore.bookCache.ttlMs", 30_000L)));
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<Book>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong(); // Loads started before the last one are not cached
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private BookCache(int maxSize, long ttlNanos) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+    }
+
+    public static BookCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param id The ID of the book.
+     * @param loader Reads the book from the database; returns null if it does not exist or cannot be read.
+     * @return A copy of the book the caller may modify, or null if it does not exist.
+     */
+    public Book get(int id, IntFunction<Book> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(id);
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(id);
+        if (entry != null && now - entry.loadedAt < ttlNanos) {
+            entry.lastUsed = now;
+            hits.increment();
+            return new Book(entry.book);
+        }
+        misses.increment();
+
+        CompletableFuture<Book> flight = new CompletableFuture<>();
+        CompletableFuture<Book> running = loading.putIfAbsent(id, flight);
+        if (running != null) {
+            Book book = running.join(); // Another thread is reading this book
+            return book != null ? new Book(book) : null;
+        }
+        long generation = invalidations.get();
+        try {
+            Book book = loader.apply(id);
+            Book shared = book != null ? new Book(book) : null;
+            if (shared != null && invalidations.get() == generation) {
+                Entry loaded = new Entry(shared, now);
+                entries.put(id, loaded);
+                if (invalidations.get() != generation) {
+                    // An invalidation ran between the check and the put; its removal may have come first
+                    entries.remove(id, loaded);
+                } else if (entries.size() > maxSize) {
+                    evict();
+                }
+            }
+            flight.complete(shared);
+            return book;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, flight);
+        }
+    }
+
+    /**
+     * Drops a book after it was written. Call it once the write has committed.
+     * @param id The ID of the book.
+     */
+    public void invalidate(int id) {
+        invalidations.incrementAndGet();
+        entries.remove(id);
+        loading.remove(id); // Later callers start a fresh load
+    }
+
+    /**
+     * @param ids The IDs of the books written.
+     */
+    public void invalidate(Collection<Integer> ids) {
+        invalidations.incrementAndGet();
+        for (Integer id : ids) {
+            entries.remove(id);
+            loading.remove(id);
+        }
+    }
+
+    /**
+     * Drops every book, after a write that may have changed books not known by ID.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+        loading.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Brings the cache down to 90% of its size in one pass, so eviction runs once per many inserts.
+     * Only one thread evicts at a time; the others carry on.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.entrySet().removeIf(e -> now - e.getValue().loadedAt >= ttlNanos);
+            int excess = entries.size() - maxSize * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            // Last use and ID pairs, copied so concurrent hits cannot reorder them during the sort
+            List<long[]> byLastUse = new ArrayList<>(entries.size());
+            entries.forEach((id, entry) -> byLastUse.add(new long[]{entry.lastUsed, id}));
+            byLastUse.sort((a, b) -> Long.compare(a[0], b[0]));
+            for (int i = 0; i < excess && i < byLastUse.size(); i++) {
+                entries.remove((int) byLastUse.get(i)[1]);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        final Book book;
+        final long loadedAt;
+        volatile long lastUsed;
+
+        Entry(Book book, long loadedAt) {
+            this.book = book;
+            this.loadedAt = loadedAt;
+            this.lastUsed = loadedAt;
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package dao;
 
 import model.Book;
+import model.BookField;
+import model.BookFilter;
+import model.BookUpdateResult;
+import model.CatalogueSnapshot;
+import model.FacetQuery;
+import model.FacetResult;
+import model.PriceBand;
+import model.RepricePreview;
+import model.RepriceRule;
+import repository.BookRepository;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.math.BigDecimal;
 
 /**
  * Data Access Object for Book entities.
  * Handles CRUD operations for Books in the database.
  */
-public class BookDAO {
+public class BookDAO implements BookRepository {
 
     /**
      * Adds a new book to the database.
@@ -54,19 +69,26 @@ public class BookDAO {
     }
 
     /**
-     * Retrieves a book by its ID.
+     * Retrieves a book by its ID, from the book cache when it holds a recent copy.
      * @param id The ID of the book to retrieve.
      * @return The Book object if found, null otherwise.
      */
     public Book getBookById(int id) {
-        String sql = "SELECT * FROM Books WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        return BookCache.getInstance().get(id, this::loadBookById);
+    }
+
+    /**
+     * Reads a book from the database, bypassing the cache.
+     */
+    private Book loadBookById(int id) {
+        String sql = "SELECT " + Projections.BOOK.columns() + " FROM Books WHERE id = ?";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractBookFromResultSet(rs);
+                    return Projections.BOOK.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -82,13 +104,14 @@ public class BookDAO {
      */
     public List<Book> getAllBooks() {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM Books ORDER BY title";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.BOOK.columns() + " FROM Books ORDER BY title";
+        try (Connection conn = DBConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
             while (rs.next()) {
-                books.add(extractBookFromResultSet(rs));
+                books.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all books: " + e.getMessage());
@@ -97,6 +120,97 @@ public class BookDAO {
         return books;
     }
 
+    /**
+     * Streams the Books table into a columnar snapshot. Rows are fetched in chunks through a cursor,
+     * so no list of Book objects is ever held for the whole catalogue.
+     * @return The snapshot, or null if the catalogue could not be read.
+     */
+    public CatalogueSnapshot loadCatalogueSnapshot() {
+        String sql = "SELECT id, title, author, category_id, price, quantity, isbn, publication_date FROM Books ORDER BY id";
+        try (Connection conn = DBConnection.getReadConnection()) {
+            CatalogueSnapshot.Builder builder = new CatalogueSnapshot.Builder();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id, name FROM Categories")) {
+                while (rs.next()) {
+                    builder.addCategory(rs.getInt("id"), rs.getString("name"));
+                }
+            }
+            conn.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(10_000);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) { // By position: the select list above fixes the column order
+                        builder.addBook(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                                rs.getBigDecimal(5), rs.getInt(6), rs.getString(7), rs.getDate(8));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+            return builder.build();
+        } catch (SQLException e) {
+            System.err.println("Error loading catalogue snapshot: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Streams the ID and version of every book, in ID order, through a cursor.
+     * Used to find the books a local copy of the catalogue lacks or holds an older version of.
+     * @param visitor Called with the ID and version of each book.
+     * @return true if the whole table was read.
+     */
+    public boolean scanBookVersions(BiConsumer<Integer, Integer> visitor) {
+        try (Connection conn = DBConnection.getPrimaryReadConnection()) {
+            conn.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, version FROM Books ORDER BY id")) {
+                pstmt.setFetchSize(10_000);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.accept(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error scanning book versions: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves several books by ID.
+     * @param ids The IDs of the books.
+     * @return The books that exist, in no particular order, or null if the query failed.
+     */
+    @Override
+    public List<Book> getBooksByIds(List<Integer> ids) {
+        List<Book> books = new ArrayList<>();
+        String sql = "SELECT " + Projections.BOOK.columns() + " FROM Books WHERE id = ANY(?)";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
+                while (rs.next()) {
+                    books.add(mapper.map(rs));
+                }
+            }
+            return books;
+        } catch (SQLException e) {
+            System.err.println("Error getting books by ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     /**
      * Retrieves books by category with pagination.
      * @param categoryId The ID of the category.
@@ -107,8 +221,8 @@ public class BookDAO {
     public List<Book> getBooksByCategory(int categoryId, int offset, int limit) {
         List<Book> books = new ArrayList<>();
         // Corrected SQL for PostgreSQL: LIMIT count OFFSET offset
-        String sql = "SELECT * FROM Books WHERE category_id = ? ORDER BY title LIMIT ? OFFSET ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.BOOK.columns() + " FROM Books WHERE category_id = ? ORDER BY title LIMIT ? OFFSET ?";
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, categoryId);
@@ -116,8 +230,9 @@ public class BookDAO {
             pstmt.setInt(3, offset); // The OFFSET value (starting index)
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
                 while (rs.next()) {
-                    books.add(extractBookFromResultSet(rs));
+                    books.add(mapper.map(rs));
                 }
             }
         } catch (SQLException e) {
@@ -134,7 +249,7 @@ public class BookDAO {
      */
     public int getTotalBooksInCategory(int categoryId) {
         String sql = "SELECT COUNT(*) FROM Books WHERE category_id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, categoryId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -150,12 +265,67 @@ public class BookDAO {
     }
 
     /**
-     * Updates an existing book in the database.
+     * Updates only the given fields of a book, provided nobody else updated it since it was read
+     * (optimistic locking on the version column). No table or row lock is held between read and write.
+     * @param id The ID of the book.
+     * @param expectedVersion The version the changes are based on.
+     * @param changes The changed fields and their new values.
+     * @return UPDATED with the row after the update, CONFLICT with the current row, NOT_FOUND or FAILED.
+     */
+    public BookUpdateResult updateBookFields(int id, int expectedVersion, Map<BookField, Object> changes) {
+        StringBuilder sql = new StringBuilder("UPDATE Books SET ");
+        for (BookField field : changes.keySet()) {
+            sql.append(field.getColumn()).append(" = ?, ");
+        }
+        sql.append("version = version + 1 WHERE id = ? AND version = ? RETURNING " + Projections.BOOK.columns());
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            for (Map.Entry<BookField, Object> change : changes.entrySet()) {
+                Object value = change.getValue();
+                if (change.getKey() == BookField.CATEGORY_ID && (Integer) value == 0) {
+                    pstmt.setNull(index++, Types.INTEGER); // 0 means no category
+                } else if (value instanceof java.util.Date && !(value instanceof Date)) {
+                    pstmt.setDate(index++, new Date(((java.util.Date) value).getTime()));
+                } else if (value == null && change.getKey() == BookField.PUBLICATION_DATE) {
+                    pstmt.setNull(index++, Types.DATE);
+                } else {
+                    pstmt.setObject(index++, value);
+                }
+            }
+            pstmt.setInt(index++, id);
+            pstmt.setInt(index, expectedVersion);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new BookUpdateResult(BookUpdateResult.Status.UPDATED, Projections.BOOK.mapperFor(rs).map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating book: " + e.getMessage());
+            e.printStackTrace();
+            return new BookUpdateResult(BookUpdateResult.Status.FAILED, null);
+        } finally {
+            BookCache.getInstance().invalidate(id);
+        }
+
+        // No row matched: either the version moved on or the book is gone
+        Book current = loadBookById(id);
+        return current != null
+                ? new BookUpdateResult(BookUpdateResult.Status.CONFLICT, current)
+                : new BookUpdateResult(BookUpdateResult.Status.NOT_FOUND, null);
+    }
+
+    /**
+     * Updates an existing book in the database, overwriting every column regardless of concurrent changes.
+     * Prefer {@link #updateBookFields} for edits made in the UI.
      * @param book The Book object with updated information.
      * @return true if the book was updated successfully, false otherwise.
      */
     public boolean updateBook(Book book) {
-        String sql = "UPDATE Books SET title = ?, author = ?, category_id = ?, price = ?, quantity = ?, isbn = ?, publication_date = ?, description = ?, image_url = ? WHERE id = ?";
+        String sql = "UPDATE Books SET title = ?, author = ?, category_id = ?, price = ?, quantity = ?, isbn = ?, publication_date = ?, description = ?, image_url = ?, version = version + 1 WHERE id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -179,6 +349,8 @@ public class BookDAO {
         } catch (SQLException e) {
             System.err.println("Error updating book: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(book.getId());
         }
         return false;
     }
@@ -199,10 +371,234 @@ public class BookDAO {
         } catch (SQLException e) {
             System.err.println("Error deleting book: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(id);
         }
         return false;
     }
 
+    /**
+     * Deletes several books in one statement.
+     * @param ids The IDs of the books to delete.
+     * @return The IDs that were actually deleted, empty if the statement failed.
+     */
+    public List<Integer> deleteBooks(List<Integer> ids) {
+        List<Integer> deleted = new ArrayList<>();
+        String sql = "DELETE FROM Books WHERE id = ANY(?) RETURNING id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error deleting books: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(ids);
+        }
+        return deleted;
+    }
+
+    /**
+     * Moves several books to another category in one statement.
+     * @param ids The IDs of the books.
+     * @param categoryId The new category ID, 0 for no category.
+     * @return The updated books, empty if the statement failed.
+     */
+    public List<Book> updateBooksCategory(List<Integer> ids, int categoryId) {
+        List<Book> books = new ArrayList<>();
+        String sql = "UPDATE Books SET category_id = ?, version = version + 1 WHERE id = ANY(?) RETURNING " + Projections.BOOK.columns();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (categoryId == 0) {
+                pstmt.setNull(1, Types.INTEGER);
+            } else {
+                pstmt.setInt(1, categoryId);
+            }
+            pstmt.setArray(2, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
+                while (rs.next()) {
+                    books.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating book categories: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(ids);
+        }
+        return books;
+    }
+
+    /**
+     * Adjusts the price and quantity of several books in one statement.
+     * Prices and quantities never drop below zero.
+     * @param ids The IDs of the books.
+     * @param priceChange The amount added to each price (negative to reduce).
+     * @param quantityChange The amount added to each quantity (negative to reduce).
+     * @return The updated books, empty if the statement failed.
+     */
+    public List<Book> adjustBooksPriceAndQuantity(List<Integer> ids, BigDecimal priceChange, int quantityChange) {
+        List<Book> books = new ArrayList<>();
+        String sql = "UPDATE Books SET price = GREATEST(price + ?, 0), quantity = GREATEST(quantity + ?, 0), version = version + 1 " +
+                "WHERE id = ANY(?) RETURNING " + Projections.BOOK.columns();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setBigDecimal(1, priceChange);
+            pstmt.setInt(2, quantityChange);
+            pstmt.setArray(3, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
+                while (rs.next()) {
+                    books.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error adjusting books: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(ids);
+        }
+        return books;
+    }
+
+    /**
+     * Previews a bulk repricing without changing anything.
+     * The match count and the sample are read in one query (COUNT(*) OVER () is computed before the LIMIT).
+     * Like {@link #repriceBooks}, books whose price would not change are left out, so the count is the
+     * number of books the repricing writes.
+     * @param filter The books to reprice.
+     * @param rule How prices change.
+     * @param sampleSize The maximum number of sample books.
+     * @return The number of books whose price changes and a sample of old and new prices.
+     */
+    public RepricePreview previewReprice(BookFilter filter, RepriceRule rule, int sampleSize) {
+        RepricePreview preview = new RepricePreview();
+        List<Object> params = new ArrayList<>();
+        params.add(rule.getAmount());
+        String expression = newPriceExpression(rule);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) OVER (), id, title, price, ")
+                .append(expression).append(" FROM Books");
+        appendFilter(sql, params, filter);
+        sql.append(" AND price <> ").append(expression);
+        params.add(rule.getAmount());
+        sql.append(" ORDER BY id LIMIT ?");
+        params.add(sampleSize);
+
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            bindParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    preview.setMatchCount(rs.getInt(1));
+                    preview.getSamples().add(new RepricePreview.Sample(
+                            rs.getInt(2), rs.getString(3), rs.getBigDecimal(4), rs.getBigDecimal(5)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error previewing reprice: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return preview;
+    }
+
+    /**
+     * Reprices all books matching a filter with a single UPDATE statement.
+     * Books whose price would not change are not written.
+     * @param filter The books to reprice.
+     * @param rule How prices change.
+     * @return The new prices by book ID, or null if the update failed.
+     */
+    public Map<Integer, BigDecimal> repriceBooks(BookFilter filter, RepriceRule rule) {
+        Map<Integer, BigDecimal> newPrices = new LinkedHashMap<>();
+        List<Object> params = new ArrayList<>();
+        params.add(rule.getAmount());
+        String expression = newPriceExpression(rule);
+        StringBuilder sql = new StringBuilder("UPDATE Books SET version = version + 1, price = ").append(expression);
+        appendFilter(sql, params, filter);
+        sql.append(" AND price <> ").append(expression).append(" RETURNING id, price");
+        params.add(rule.getAmount());
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            bindParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    newPrices.put(rs.getInt(1), rs.getBigDecimal(2));
+                }
+            }
+            return newPrices;
+        } catch (SQLException e) {
+            System.err.println("Error repricing books: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidateAll(); // Matched by filter, so any cached book may have changed
+        }
+        return null;
+    }
+
+    /**
+     * Builds the SQL expression of the new price; the rule amount is its single parameter.
+     */
+    private String newPriceExpression(RepriceRule rule) {
+        String base = rule.getMode() == RepriceRule.Mode.PERCENT
+                ? "price * (1 + CAST(? AS NUMERIC) / 100)"
+                : "price + CAST(? AS NUMERIC)";
+        String rounded;
+        switch (rule.getRounding()) {
+            case FIVE_CENTS:
+                rounded = "ROUND((" + base + ") / 0.05) * 0.05";
+                break;
+            case WHOLE:
+                rounded = "ROUND(" + base + ", 0)";
+                break;
+            case ENDING_99:
+                rounded = "FLOOR(" + base + ") + 0.99";
+                break;
+            default:
+                rounded = "ROUND(" + base + ", 2)";
+        }
+        return "GREATEST(" + rounded + ", 0)";
+    }
+
+    /**
+     * Appends the WHERE clause of a filter; always emits a WHERE so callers can append further AND terms.
+     */
+    private void appendFilter(StringBuilder sql, List<Object> params, BookFilter filter) {
+        sql.append(" WHERE TRUE");
+        if (filter.getCategoryId() != 0) {
+            sql.append(" AND category_id = ?");
+            params.add(filter.getCategoryId());
+        }
+        if (filter.getAuthor() != null && !filter.getAuthor().isEmpty()) {
+            sql.append(" AND author ILIKE ?");
+            params.add("%" + filter.getAuthor() + "%");
+        }
+        if (filter.getMinPrice() != null) {
+            sql.append(" AND price >= ?");
+            params.add(filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            sql.append(" AND price <= ?");
+            params.add(filter.getMaxPrice());
+        }
+    }
+
+    private void bindParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
     /**
      * Searches for books based on a keyword in title, author, ISBN, or ID.
      * @param keyword The keyword to search for.
@@ -210,9 +606,9 @@ public class BookDAO {
      */
     public List<Book> searchBooks(String keyword) {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT b.*, c.name AS category_name FROM Books b LEFT JOIN Categories c ON b.category_id = c.id " +
+        String sql = "SELECT " + Projections.BOOK.columns("b") + " FROM Books b LEFT JOIN Categories c ON b.category_id = c.id " +
                 "WHERE b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ? OR b.id::text LIKE ? OR c.name LIKE ?"; // Corrected: b.id::text
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             String searchKeyword = "%" + keyword + "%";
@@ -223,8 +619,9 @@ public class BookDAO {
             pstmt.setString(5, searchKeyword); // Search by Category name
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
                 while (rs.next()) {
-                    books.add(extractBookFromResultSet(rs));
+                    books.add(mapper.map(rs));
                 }
             }
         } catch (SQLException e) {
@@ -235,24 +632,157 @@ public class BookDAO {
     }
 
     /**
-     * Helper method to extract a Book object from a ResultSet.
-     * @param rs The ResultSet containing book data.
-     * @return A Book object.
-     * @throws SQLException If a database access error occurs.
+     * Runs a faceted browse in one statement and one round trip. A single GROUPING SETS pass over the books
+     * matching the keyword counts every facet, each count ignoring its own facet's selection (FILTER clauses);
+     * the page of results is appended to the same result set with UNION ALL.
+     * @param query The keyword, facet selections and page.
+     * @return The page, total and facet counts; empty if the query failed.
+     */
+    public FacetResult browseBooks(FacetQuery query) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("WITH base AS (SELECT ").append(Projections.BOOK.columns("b"))
+                .append(", COALESCE(b.category_id, 0) AS f_category, b.author AS f_author, ")
+                .append(priceBandExpression("b.price")).append(" AS f_band, ")
+                .append("COALESCE(EXTRACT(YEAR FROM b.publication_date)::int / 10 * 10, ").append(FacetQuery.UNKNOWN_DECADE)
+                .append(") AS f_decade FROM Books b LEFT JOIN Categories c ON b.category_id = c.id");
+        if (query.hasKeyword()) {
+            // Same semantics as searchBooks
+            sql.append(" WHERE b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ? OR b.id::text LIKE ? OR c.name LIKE ?");
+            String searchKeyword = "%" + query.getKeyword() + "%";
+            for (int i = 0; i < 5; i++) {
+                params.add(searchKeyword);
+            }
+        }
+        sql.append("), matched AS (SELECT base.*, ")
+                .append(selectionPredicate("f_category", "integer", query.getCategoryIds(), params)).append(" AS m_category, ")
+                .append(selectionPredicate("f_author", "varchar", query.getAuthors(), params)).append(" AS m_author, ");
+        List<Integer> bandOrdinals = new ArrayList<>();
+        for (PriceBand band : query.getPriceBands()) {
+            bandOrdinals.add(band.ordinal());
+        }
+        sql.append(selectionPredicate("f_band", "integer", bandOrdinals, params)).append(" AS m_band, ")
+                .append(selectionPredicate("f_decade", "integer", query.getDecades(), params)).append(" AS m_decade FROM base), ");
+
+        sql.append("facets AS (SELECT CASE WHEN GROUPING(f_category) = 0 THEN 'category' WHEN GROUPING(f_author) = 0 THEN 'author' " +
+                "WHEN GROUPING(f_band) = 0 THEN 'band' WHEN GROUPING(f_decade) = 0 THEN 'decade' ELSE 'total' END AS facet, " +
+                "f_category, f_author, f_band, f_decade, " +
+                "CASE WHEN GROUPING(f_category) = 0 THEN COUNT(*) FILTER (WHERE m_author AND m_band AND m_decade) " +
+                "WHEN GROUPING(f_author) = 0 THEN COUNT(*) FILTER (WHERE m_category AND m_band AND m_decade) " +
+                "WHEN GROUPING(f_band) = 0 THEN COUNT(*) FILTER (WHERE m_category AND m_author AND m_decade) " +
+                "WHEN GROUPING(f_decade) = 0 THEN COUNT(*) FILTER (WHERE m_category AND m_author AND m_band) " +
+                "ELSE COUNT(*) FILTER (WHERE m_category AND m_author AND m_band AND m_decade) END AS n, " +
+                // True for a selected value, or for every value of a facet without selection
+                "CASE WHEN GROUPING(f_category) = 0 THEN BOOL_AND(m_category) WHEN GROUPING(f_author) = 0 THEN BOOL_AND(m_author) " +
+                "WHEN GROUPING(f_band) = 0 THEN BOOL_AND(m_band) ELSE BOOL_AND(m_decade) END AS selected " +
+                "FROM matched GROUP BY GROUPING SETS ((f_category), (f_author), (f_band), (f_decade), ())), ");
+        sql.append("ranked AS (SELECT facets.*, ROW_NUMBER() OVER (PARTITION BY facet ORDER BY selected DESC, n DESC, " +
+                "f_category, f_author, f_band, f_decade) AS facet_rank FROM facets) ");
+
+        // The page first, so its typed NULLs fix the types of the facet columns
+        sql.append("(SELECT 'book' AS facet, NULL::int AS f_category, NULL::varchar AS f_author, NULL::int AS f_band, " +
+                "NULL::int AS f_decade, NULL::bigint AS n, ").append(Projections.BOOK.columns())
+                .append(" FROM matched WHERE m_category AND m_author AND m_band AND m_decade ORDER BY title, id LIMIT ? OFFSET ?)");
+        params.add(query.getLimit());
+        params.add(query.getOffset());
+        sql.append(" UNION ALL SELECT facet, f_category, f_author, f_band, f_decade, n");
+        for (int i = 0; i < Projections.BOOK.size(); i++) {
+            sql.append(", NULL");
+        }
+        sql.append(" FROM ranked WHERE facet = 'total' OR facet_rank <= ?");
+        params.add(query.getFacetLimit() + query.getCategoryIds().size() + query.getAuthors().size());
+
+        List<Book> books = new ArrayList<>();
+        int total = 0;
+        Map<Integer, Integer> categoryCounts = new HashMap<>();
+        Map<String, Integer> authorCounts = new HashMap<>();
+        Map<PriceBand, Integer> priceBandCounts = new HashMap<>();
+        Map<Integer, Integer> decadeCounts = new HashMap<>();
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                Object param = params.get(i);
+                if (param instanceof SelectionArray) {
+                    SelectionArray array = (SelectionArray) param;
+                    pstmt.setArray(i + 1, conn.createArrayOf(array.type, array.values));
+                } else {
+                    pstmt.setObject(i + 1, param);
+                }
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
+                while (rs.next()) {
+                    String facet = rs.getString("facet");
+                    int count = rs.getInt("n");
+                    switch (facet) {
+                        case "book":
+                            books.add(mapper.map(rs));
+                            break;
+                        case "category":
+                            categoryCounts.put(rs.getInt("f_category"), count);
+                            break;
+                        case "author":
+                            authorCounts.put(rs.getString("f_author"), count);
+                            break;
+                        case "band":
+                            priceBandCounts.put(PriceBand.values()[rs.getInt("f_band")], count);
+                            break;
+                        case "decade":
+                            decadeCounts.put(rs.getInt("f_decade"), count);
+                            break;
+                        default:
+                            total = count;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error browsing books: " + e.getMessage());
+            e.printStackTrace();
+            books.clear();
+            total = 0;
+            categoryCounts.clear();
+            authorCounts.clear();
+            priceBandCounts.clear();
+            decadeCounts.clear();
+        }
+        return new FacetResult(books, total, query, categoryCounts, authorCounts, priceBandCounts, decadeCounts);
+    }
+
+    /**
+     * @return A CASE expression giving the ordinal of the PriceBand of a price.
+     */
+    private static String priceBandExpression(String price) {
+        StringBuilder sb = new StringBuilder("CASE");
+        PriceBand[] bands = PriceBand.values();
+        for (int i = 0; i < bands.length - 1; i++) {
+            sb.append(" WHEN ").append(price).append(" < ").append(bands[i].getMax().toPlainString())
+                    .append(" THEN ").append(i);
+        }
+        return sb.append(" ELSE ").append(bands.length - 1).append(" END").toString();
+    }
+
+    /**
+     * @return TRUE if nothing is selected, else a membership test bound to an array parameter.
      */
-    private Book extractBookFromResultSet(ResultSet rs) throws SQLException {
-        Book book = new Book();
-        book.setId(rs.getInt("id"));
-        book.setTitle(rs.getString("title"));
-        book.setAuthor(rs.getString("author"));
-        book.setCategoryId(rs.getInt("category_id"));
-        book.setPrice(rs.getBigDecimal("price"));
-        book.setQuantity(rs.getInt("quantity"));
-        book.setIsbn(rs.getString("isbn"));
-        book.setPublicationDate(rs.getDate("publication_date"));
-        book.setDescription(rs.getString("description"));
-        book.setImageUrl(rs.getString("image_url"));
-        return book;
+    private static String selectionPredicate(String column, String type, Collection<?> selected, List<Object> params) {
+        if (selected.isEmpty()) {
+            return "TRUE";
+        }
+        params.add(new SelectionArray(type, selected.toArray()));
+        return column + " = ANY(?)";
+    }
+
+    /**
+     * An array parameter; created from the connection when the statement is bound.
+     */
+    private static final class SelectionArray {
+        final String type;
+        final Object[] values;
+
+        SelectionArray(String type, Object[] values) {
+            this.type = type;
+            this.values = values;
+        }
     }
 
     /**
@@ -262,19 +792,34 @@ public class BookDAO {
      * @return true if the quantity was updated successfully, false otherwise.
      */
     public boolean updateBookQuantity(int bookId, int quantityChange) {
-        String sql = "UPDATE Books SET quantity = quantity + ? WHERE id = ?";
+        return adjustBookQuantity(bookId, quantityChange) != null;
+    }
+
+    /**
+     * Changes the quantity of a book and returns the resulting quantity.
+     * @param bookId The ID of the book.
+     * @param quantityChange The amount to change the quantity by (negative for purchase).
+     * @return The quantity after the change, or null if the book was not found or the update failed.
+     */
+    public Integer adjustBookQuantity(int bookId, int quantityChange) {
+        String sql = "UPDATE Books SET quantity = quantity + ?, version = version + 1 WHERE id = ? RETURNING quantity";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, quantityChange);
             pstmt.setInt(2, bookId);
 
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
         } catch (SQLException e) {
             System.err.println("Error updating book quantity: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            BookCache.getInstance().invalidate(bookId);
         }
-        return false;
+        return null;
     }
 }
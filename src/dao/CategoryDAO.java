@@ -1,6 +1,7 @@
 package dao;
 
 import model.Category;
+import repository.CategoryRepository;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,7 +10,7 @@ import java.util.List;
  * Data Access Object for Category entities.
  * Handles CRUD operations for Categories in the database.
  */
-public class CategoryDAO {
+public class CategoryDAO implements CategoryRepository {
 
     /**
      * Adds a new category to the database.
@@ -45,14 +46,14 @@ public class CategoryDAO {
      * @return The Category object if found, null otherwise.
      */
     public Category getCategoryById(int id) {
-        String sql = "SELECT * FROM Categories WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.CATEGORY.columns() + " FROM Categories WHERE id = ?";
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractCategoryFromResultSet(rs);
+                    return Projections.CATEGORY.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -68,14 +69,14 @@ public class CategoryDAO {
      * @return The Category object if found, null otherwise.
      */
     public Category getCategoryByName(String name) {
-        String sql = "SELECT * FROM Categories WHERE name = ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.CATEGORY.columns() + " FROM Categories WHERE name = ?";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, name);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractCategoryFromResultSet(rs);
+                    return Projections.CATEGORY.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -91,13 +92,14 @@ public class CategoryDAO {
      */
     public List<Category> getAllCategories() {
         List<Category> categories = new ArrayList<>();
-        String sql = "SELECT * FROM Categories ORDER BY name";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.CATEGORY.columns() + " FROM Categories ORDER BY name";
+        try (Connection conn = DBConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            RowMapper<Category> mapper = Projections.CATEGORY.mapperFor(rs);
             while (rs.next()) {
-                categories.add(extractCategoryFromResultSet(rs));
+                categories.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all categories: " + e.getMessage());
@@ -129,36 +131,40 @@ public class CategoryDAO {
     }
 
     /**
-     * Deletes a category from the database by its ID.
+     * Deletes a category from the database by its ID. Its books are left without a category and get a new
+     * version in the same transaction, so replicas comparing versions pick up the change.
      * @param id The ID of the category to delete.
      * @return true if the category was deleted successfully, false otherwise.
      */
     public boolean deleteCategory(int id) {
-        String sql = "DELETE FROM Categories WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, id);
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement lock = conn.prepareStatement("SELECT id FROM Categories WHERE id = ? FOR UPDATE");
+                 PreparedStatement books = conn.prepareStatement(
+                         "UPDATE Books SET category_id = NULL, version = version + 1 WHERE category_id = ?");
+                 PreparedStatement category = conn.prepareStatement("DELETE FROM Categories WHERE id = ?")) {
+                // Locked first, so no book joins the category meanwhile
+                lock.setInt(1, id);
+                lock.executeQuery().close();
+                // Done here rather than by ON DELETE SET NULL, which would leave the versions alone
+                books.setInt(1, id);
+                books.executeUpdate();
+                category.setInt(1, id);
+                int affectedRows = category.executeUpdate();
+                conn.commit();
+                if (affectedRows > 0) {
+                    BookCache.getInstance().invalidateAll(); // Its books lost their category
+                }
+                return affectedRows > 0;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             System.err.println("Error deleting category: " + e.getMessage());
             e.printStackTrace();
         }
         return false;
     }
-
-    /**
-     * Helper method to extract a Category object from a ResultSet.
-     * @param rs The ResultSet containing category data.
-     * @return A Category object.
-     * @throws SQLException If a database access error occurs.
-     */
-    private Category extractCategoryFromResultSet(ResultSet rs) throws SQLException {
-        Category category = new Category();
-        category.setId(rs.getInt("id"));
-        category.setName(rs.getString("name"));
-        return category;
-    }
 }
 
@@ -5,15 +5,22 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Handles database connection and initialization for PostgreSQL.
  */
 public class DBConnection {
-    // PostgreSQL database details
-    private static final String JDBC_URL = "jdbc:postgresql://localhost:5432/bookstore";
+    // PostgreSQL database details. Read replicas are optional, e.g.
+    // -Dbookstore.db.readUrls=jdbc:postgresql://localhost:5433/bookstore,jdbc:postgresql://localhost:5434/bookstore
+    private static final String JDBC_URL = System.getProperty("bookstore.db.url", "jdbc:postgresql://localhost:5432/bookstore");
     private static final String USER = "postgres";
     private static final String PASSWORD = "qwer";
+    // Date given to old purchases recorded without one, far outside any sales report
+    private static final String UNKNOWN_PURCHASE_DATE = "1970-01-01 00:00:00";
+
+    private static final ReplicaRouter READ_ROUTER;
 
     static {
         try {
@@ -24,12 +31,86 @@ public class DBConnection {
             e.printStackTrace();
             System.exit(1);
         }
+
+        List<String> readUrls = new ArrayList<>();
+        for (String url : System.getProperty("bookstore.db.readUrls", "").split(",")) {
+            if (!url.trim().isEmpty()) {
+                readUrls.add(url.trim());
+            }
+        }
+        READ_ROUTER = new ReplicaRouter(JDBC_URL, readUrls,
+                url -> DriverManager.getConnection(url, USER, PASSWORD),
+                Long.getLong("bookstore.db.stickyMs", 5000L),
+                Long.getLong("bookstore.db.maxReplicaLagMs", 5000L),
+                Long.getLong("bookstore.db.healthCheckMs", 5000L));
     }
 
+    /**
+     * Opens a connection to the primary. Use it for every operation that writes;
+     * reads issued shortly afterwards are kept on the primary so they see the write.
+     * @return A new database connection.
+     * @throws SQLException If a database access error occurs.
+     */
     public static Connection getConnection() throws SQLException {
+        READ_ROUTER.writeStarted();
+        return SlowQueryLog.wrap(DriverManager.getConnection(JDBC_URL, USER, PASSWORD));
+    }
+
+    /**
+     * Opens a read-only connection to the primary, for reads that must see every committed write,
+     * e.g. a row about to be cached. Unlike {@link #getConnection()} it does not keep later reads on the primary.
+     * @return A new read-only database connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Connection getPrimaryReadConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+        conn.setReadOnly(true);
+        return SlowQueryLog.wrap(conn);
+    }
+
+    /**
+     * Opens a read-only connection, served by a read replica when one is configured and healthy.
+     * Data may be slightly stale, so do not use it to read a value that is about to be written back.
+     * @return A new read-only database connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection conn = READ_ROUTER.openReadConnection();
+        conn.setReadOnly(true);
+        return SlowQueryLog.wrap(conn);
+    }
+
+    /**
+     * Opens a connection that is not reported to the slow query log.
+     * Used by the log itself when it runs EXPLAIN for a recorded statement.
+     * @return A new database connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    static Connection openUntracedConnection() throws SQLException {
         return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
     }
 
+    /**
+     * Checks whether the primary database can be reached, without affecting read routing or the slow query log.
+     * @param timeoutSeconds How long to wait for the server to answer.
+     * @return true if a connection could be opened and validated.
+     */
+    public static boolean isPrimaryReachable(int timeoutSeconds) {
+        try (Connection conn = openUntracedConnection()) {
+            return conn.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Used by tools that write test data or simulated sales, which must never run against a shared server.
+     * @return true if the primary is on this machine.
+     */
+    public static boolean isLocalDatabase() {
+        return JDBC_URL.contains("//localhost") || JDBC_URL.contains("//127.0.0.1") || JDBC_URL.contains("//[::1]");
+    }
+
     /**
      * Initializes the database schema for PostgreSQL.
      * This method should be called once when the application starts.
@@ -70,6 +151,13 @@ public class DBConnection {
                     "FOREIGN KEY (category_id) REFERENCES Categories(id) ON DELETE SET NULL" +
                     ")");
 
+            // Row version for optimistic locking (added to existing databases as well)
+            stmt.execute("ALTER TABLE Books ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0");
+            // Category pages (ordered by title) and counts, and the ON DELETE SET NULL of a category
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_books_category_title ON Books (category_id, title)");
+            // Low-stock alerts: the few books below the highest stock threshold
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_books_quantity ON Books (quantity)");
+
             // Create Purchases table
             stmt.execute("CREATE TABLE IF NOT EXISTS Purchases (" +
                     "id SERIAL PRIMARY KEY," +
@@ -79,15 +167,91 @@ public class DBConnection {
                     "book_price DECIMAL(10, 2) NOT NULL," +
                     "quantity INT NOT NULL," +
                     "total_price DECIMAL(10, 2) NOT NULL," +
-                    "purchase_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "purchase_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP," +
                     "user_id INT NOT NULL," +
                     "FOREIGN KEY (book_id) REFERENCES Books(id) ON DELETE CASCADE," +
                     "FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE" +
                     ")");
 
+            // Writes replayed from an offline outbox, so a replay never applies the same operation twice
+            stmt.execute("CREATE TABLE IF NOT EXISTS applied_operations (" +
+                    "operation_id VARCHAR(64) PRIMARY KEY," +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+            // Offline sales that exceeded the stock left in the database, for the owner to resolve
+            stmt.execute("CREATE TABLE IF NOT EXISTS stock_conflicts (" +
+                    "id SERIAL PRIMARY KEY," +
+                    "operation_id VARCHAR(64) NOT NULL," +
+                    "book_id INT NOT NULL," + // No foreign key: the book may have been deleted
+                    "requested INT NOT NULL," +
+                    "available INT NOT NULL," +
+                    "detected_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+
+            // Low-stock thresholds; books and categories without a row use the default threshold
+            stmt.execute("CREATE TABLE IF NOT EXISTS book_stock_thresholds (" +
+                    "book_id INT PRIMARY KEY," +
+                    "threshold INT NOT NULL," +
+                    "FOREIGN KEY (book_id) REFERENCES Books(id) ON DELETE CASCADE" +
+                    ")");
+            stmt.execute("CREATE TABLE IF NOT EXISTS category_stock_thresholds (" +
+                    "category_id INT PRIMARY KEY," +
+                    "threshold INT NOT NULL," +
+                    "FOREIGN KEY (category_id) REFERENCES Categories(id) ON DELETE CASCADE" +
+                    ")");
+
+            // Purchase history is paged by (purchase_date, id); a purchase always has a date
+            requirePurchaseDate(conn);
+            // Date-range and keyset indexes for reports and purchase history queries, overall, per user and per book
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_purchases_date_id ON Purchases (purchase_date, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_purchases_user_date_id ON Purchases (user_id, purchase_date, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_purchases_book_date_id ON Purchases (book_id, purchase_date, id)");
+            stmt.execute("DROP INDEX IF EXISTS idx_purchases_purchase_date"); // Prefix of idx_purchases_date_id
+
+            // Daily sales rollup (day x book x category), kept current by a trigger on Purchases
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales_daily (" +
+                    "sale_date DATE NOT NULL," +
+                    "book_id INT NOT NULL," +
+                    "category_id INT NOT NULL DEFAULT 0," + // 0 = book had no category at purchase time
+                    "units BIGINT NOT NULL DEFAULT 0," +
+                    "revenue DECIMAL(14, 2) NOT NULL DEFAULT 0," +
+                    "PRIMARY KEY (sale_date, book_id, category_id)," +
+                    "FOREIGN KEY (book_id) REFERENCES Books(id) ON DELETE CASCADE" +
+                    ")");
+            // Adds inserted purchases to the rollup and takes deleted ones out of it; an update does both.
+            // A purchase was counted under its book's category at the time, so it is taken out of the row
+            // of the book's current category if there is one that day, else of the book's largest row.
+            stmt.execute("CREATE OR REPLACE FUNCTION sales_daily_apply() RETURNS trigger AS $$ " +
+                    "DECLARE counted INT; " +
+                    "BEGIN " +
+                    "IF TG_OP IN ('UPDATE', 'DELETE') THEN " +
+                    "SELECT category_id INTO counted FROM sales_daily " +
+                    "WHERE sale_date = CAST(OLD.purchase_date AS DATE) AND book_id = OLD.book_id " +
+                    "ORDER BY category_id = COALESCE((SELECT category_id FROM Books WHERE id = OLD.book_id), 0) DESC, units DESC " +
+                    "LIMIT 1; " +
+                    "IF FOUND THEN " +
+                    "UPDATE sales_daily SET units = units - OLD.quantity, revenue = revenue - OLD.total_price " +
+                    "WHERE sale_date = CAST(OLD.purchase_date AS DATE) AND book_id = OLD.book_id AND category_id = counted; " +
+                    "DELETE FROM sales_daily WHERE sale_date = CAST(OLD.purchase_date AS DATE) AND book_id = OLD.book_id " +
+                    "AND category_id = counted AND units = 0 AND revenue = 0; " +
+                    "END IF; " +
+                    "END IF; " +
+                    "IF TG_OP IN ('INSERT', 'UPDATE') THEN " +
+                    "INSERT INTO sales_daily (sale_date, book_id, category_id, units, revenue) " +
+                    "SELECT CAST(COALESCE(NEW.purchase_date, CURRENT_TIMESTAMP) AS DATE), NEW.book_id, " +
+                    "COALESCE((SELECT category_id FROM Books WHERE id = NEW.book_id), 0), NEW.quantity, NEW.total_price " +
+                    "ON CONFLICT (sale_date, book_id, category_id) DO UPDATE SET " +
+                    "units = sales_daily.units + EXCLUDED.units, revenue = sales_daily.revenue + EXCLUDED.revenue; " +
+                    "END IF; " +
+                    "RETURN NULL; " + // AFTER trigger: the result is ignored
+                    "END; $$ LANGUAGE plpgsql");
+
             // Insert initial data if tables are empty
             insertInitialData(conn); // Call the helper method to insert data
 
+            // Attach the trigger, catching up the rollup for purchases recorded before it existed
+            new SalesRollupDAO().installTrigger(conn);
+
             System.out.println("PostgreSQL database schema initialized successfully.");
 
         } catch (SQLException e) {
@@ -97,6 +261,39 @@ public class DBConnection {
         }
     }
 
+    /**
+     * Makes Purchases.purchase_date NOT NULL on databases created before it was required. Purchases without
+     * a date get {@link #UNKNOWN_PURCHASE_DATE}, so they do not count as sales of any recent day. Runs only
+     * while the column is still nullable: the update scans the table and the ALTER locks it.
+     * @param conn The database connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void requirePurchaseDate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT is_nullable FROM information_schema.columns " +
+                     "WHERE table_schema = current_schema() AND table_name = 'purchases' AND column_name = 'purchase_date'")) {
+            if (!rs.next() || !"YES".equals(rs.getString(1))) {
+                return;
+            }
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            int rows = stmt.executeUpdate("UPDATE Purchases SET purchase_date = TIMESTAMP '" + UNKNOWN_PURCHASE_DATE +
+                    "' WHERE purchase_date IS NULL");
+            stmt.execute("ALTER TABLE Purchases ALTER COLUMN purchase_date SET NOT NULL");
+            conn.commit();
+            if (rows > 0) {
+                System.out.println(rows + " purchases without a date were dated " + UNKNOWN_PURCHASE_DATE + ".");
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
     /**
      * Inserts initial data into Categories, Users, and Books tables if they are empty.
      * @param conn The database connection.
@@ -0,0 +1,131 @@
+package dao;
+
+import model.OutboxEntry;
+import model.ReplayResult;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object that applies writes queued locally (offline outbox, purchase journal).
+ * Each entry is applied in its own transaction together with a row in applied_operations, so an
+ * entry replayed twice (e.g. after a crash between commit and removing it from the outbox) is skipped.
+ */
+public class OutboxReplayDAO {
+
+    /**
+     * Applies one outbox entry.
+     * A purchase of more copies than the database has in stock is still recorded (the sale happened),
+     * the stock is set to 0 and the shortfall is logged in stock_conflicts for the owner to resolve.
+     * @param entry The entry to apply.
+     * @return The outcome, or null if the database could not be reached or the write failed.
+     */
+    public ReplayResult apply(OutboxEntry entry) {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                ReplayResult result = apply(conn, entry);
+                conn.commit();
+                BookCache.getInstance().invalidate(entry.getBookId());
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error replaying outbox entry " + entry.getOperationId() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Applies several entries, in order, in a single transaction.
+     * @param entries The entries to apply.
+     * @return One outcome per entry, or null if nothing was written because the database failed.
+     */
+    public List<ReplayResult> applyBatch(List<OutboxEntry> entries) {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<ReplayResult> results = new ArrayList<>(entries.size());
+                for (OutboxEntry entry : entries) {
+                    results.add(apply(conn, entry));
+                }
+                conn.commit();
+                for (OutboxEntry entry : entries) {
+                    BookCache.getInstance().invalidate(entry.getBookId());
+                }
+                return results;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error replaying " + entries.size() + " journal entries: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Applies one outbox entry within the caller's transaction.
+     * @param conn A connection with auto-commit disabled.
+     * @param entry The entry to apply.
+     * @return The outcome.
+     * @throws SQLException If a database access error occurs.
+     */
+    ReplayResult apply(Connection conn, OutboxEntry entry) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO applied_operations (operation_id) VALUES (?) ON CONFLICT DO NOTHING")) {
+            pstmt.setString(1, entry.getOperationId());
+            if (pstmt.executeUpdate() == 0) {
+                return new ReplayResult(ReplayResult.Outcome.DUPLICATE, -1, 0);
+            }
+        }
+
+        int available;
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT quantity FROM Books WHERE id = ? FOR UPDATE")) {
+            pstmt.setInt(1, entry.getBookId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    recordConflict(conn, entry, 0);
+                    return new ReplayResult(ReplayResult.Outcome.BOOK_MISSING, -1, 0);
+                }
+                available = rs.getInt(1);
+            }
+        }
+
+        int delta = entry.getType() == OutboxEntry.Type.PURCHASE ? -entry.getQuantity() : entry.getQuantity();
+        int quantity = Math.max(available + delta, 0);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE Books SET quantity = ?, version = version + 1 WHERE id = ?")) {
+            pstmt.setInt(1, quantity);
+            pstmt.setInt(2, entry.getBookId());
+            pstmt.executeUpdate();
+        }
+
+        if (entry.getType() == OutboxEntry.Type.PURCHASE) {
+            PurchaseDAO.insertPurchase(conn, entry.toPurchase());
+        }
+
+        int shortfall = -Math.min(available + delta, 0);
+        if (shortfall > 0) {
+            recordConflict(conn, entry, available);
+            return new ReplayResult(ReplayResult.Outcome.OVERSOLD, quantity, shortfall);
+        }
+        return new ReplayResult(ReplayResult.Outcome.APPLIED, quantity, 0);
+    }
+
+    private void recordConflict(Connection conn, OutboxEntry entry, int available) throws SQLException {
+        String sql = "INSERT INTO stock_conflicts (operation_id, book_id, requested, available) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, entry.getOperationId());
+            pstmt.setInt(2, entry.getBookId());
+            pstmt.setInt(3, entry.getQuantity());
+            pstmt.setInt(4, available);
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package dao;
+
+import event.ChangeTransport;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A {@link ChangeTransport} over PostgreSQL LISTEN/NOTIFY, so terminals learn about each other's changes
+ * through the database they already share.
+ *
+ * A background thread holds a LISTEN connection and waits for notifications, which arrive within
+ * milliseconds of the NOTIFY without polling queries. If that connection breaks it is reopened; since
+ * notifications sent meanwhile are lost, the receiver is told so. Messages are sent with pg_notify on a
+ * second connection that is kept open. Neither connection is reported to the slow query log.
+ */
+public class PgNotifyTransport implements ChangeTransport {
+    private static final int MAX_MESSAGE_BYTES = 7999; // PostgreSQL rejects payloads of 8000 bytes or more
+    private static final int WAIT_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = Long.getLong("bookstore.changes.reconnectMs", 5000L);
+
+    private final String channel;
+    private volatile boolean running;
+    private Thread listener;
+    private Connection sendConnection;
+    private PreparedStatement sendStatement;
+
+    /**
+     * @param channel The notification channel, a lower-case SQL identifier.
+     */
+    public PgNotifyTransport(String channel) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.channel = channel;
+    }
+
+    @Override
+    public synchronized void start(Receiver receiver) {
+        if (running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(() -> listen(receiver), "change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public synchronized void send(String message) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                if (sendStatement == null) {
+                    sendConnection = DBConnection.openUntracedConnection();
+                    sendStatement = sendConnection.prepareStatement("SELECT pg_notify(?, ?)");
+                }
+                sendStatement.setString(1, channel);
+                sendStatement.setString(2, message);
+                sendStatement.executeQuery().close();
+                return;
+            } catch (SQLException e) {
+                closeSendConnection(); // Retried once on a fresh connection
+                if (attempt == 1) {
+                    System.err.println("Error sending change notification: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getMaxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        closeSendConnection();
+    }
+
+    private void listen(Receiver receiver) {
+        boolean interrupted = false; // Set once a session failed, so the next one may have missed messages
+        while (running) {
+            try (Connection conn = DBConnection.openUntracedConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("LISTEN " + channel);
+                if (interrupted) {
+                    receiver.messagesLost();
+                }
+                PGConnection pgConnection = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(WAIT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receiver.messageReceived(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Error listening for change notifications, reconnecting: " + e.getMessage());
+                interrupted = true;
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void closeSendConnection() {
+        if (sendConnection != null) {
+            try {
+                sendConnection.close();
+            } catch (SQLException e) {
+                // The connection is dropped either way
+            }
+        }
+        sendConnection = null;
+        sendStatement = null;
+    }
+}
@@ -0,0 +1,97 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The columns a query selects for one type, and how a row of them becomes an object.
+ *
+ * Queries put {@link #columns()} in their select list instead of SELECT *, so only the mapped columns are
+ * transferred. {@link #mapperFor(ResultSet)} resolves each column to its index once per result set and
+ * returns a mapper that reads every row by index; name lookups per row and per column are avoided.
+ * @param <T> The mapped type.
+ */
+public final class Projection<T> {
+
+    /**
+     * Creates the row mapper for resolved column indexes, given in the order the columns were declared.
+     */
+    @FunctionalInterface
+    public interface Binder<T> {
+        RowMapper<T> bind(int[] columnIndexes);
+    }
+
+    private final String[] columns;
+    private final Binder<T> binder;
+    private final String selectList;
+
+    public Projection(Binder<T> binder, String... columns) {
+        this.binder = binder;
+        this.columns = columns.clone();
+        this.selectList = String.join(", ", columns);
+    }
+
+    /**
+     * @return The select list, e.g. "id, title, author".
+     */
+    public String columns() {
+        return selectList;
+    }
+
+    /**
+     * @param alias The table alias.
+     * @return The select list qualified with a table alias, e.g. "b.id, b.title, b.author".
+     */
+    public String columns(String alias) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(alias).append('.').append(column);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The number of columns.
+     */
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Resolves the declared columns against a result set.
+     * @param rs The result set; it may contain further columns.
+     * @return A mapper to be reused for every row of this result set.
+     * @throws SQLException If a declared column is missing.
+     */
+    public RowMapper<T> mapperFor(ResultSet rs) throws SQLException {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = rs.findColumn(columns[i]);
+        }
+        return binder.bind(indexes);
+    }
+
+    /**
+     * @return Every remaining row of the result set, mapped.
+     */
+    public List<T> list(ResultSet rs) throws SQLException {
+        List<T> result = new ArrayList<>();
+        RowMapper<T> mapper = mapperFor(rs);
+        while (rs.next()) {
+            result.add(mapper.map(rs));
+        }
+        return result;
+    }
+
+    /**
+     * @return The next row of the result set mapped, or null if there is none.
+     */
+    public T first(ResultSet rs) throws SQLException {
+        return rs.next() ? mapperFor(rs).map(rs) : null;
+    }
+}
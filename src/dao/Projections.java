@@ -0,0 +1,53 @@
+package dao;
+
+import model.Book;
+import model.Category;
+import model.Purchase;
+import model.User;
+
+/**
+ * Projections of the entity tables, shared by the DAOs.
+ */
+public final class Projections {
+
+    public static final Projection<Book> BOOK = new Projection<>(c -> {
+        int id = c[0], title = c[1], author = c[2], categoryId = c[3], price = c[4], quantity = c[5],
+                isbn = c[6], publicationDate = c[7], description = c[8], imageUrl = c[9], version = c[10];
+        return rs -> {
+            Book book = new Book();
+            book.setId(rs.getInt(id));
+            book.setTitle(rs.getString(title));
+            book.setAuthor(rs.getString(author));
+            book.setCategoryId(rs.getInt(categoryId));
+            book.setPrice(rs.getBigDecimal(price));
+            book.setQuantity(rs.getInt(quantity));
+            book.setIsbn(rs.getString(isbn));
+            book.setPublicationDate(rs.getDate(publicationDate));
+            book.setDescription(rs.getString(description));
+            book.setImageUrl(rs.getString(imageUrl));
+            book.setVersion(rs.getInt(version));
+            return book;
+        };
+    }, "id", "title", "author", "category_id", "price", "quantity", "isbn", "publication_date", "description", "image_url", "version");
+
+    public static final Projection<Category> CATEGORY = new Projection<>(c -> {
+        int id = c[0], name = c[1];
+        return rs -> new Category(rs.getInt(id), rs.getString(name));
+    }, "id", "name");
+
+    public static final Projection<User> USER = new Projection<>(c -> {
+        int id = c[0], username = c[1], password = c[2], role = c[3];
+        return rs -> new User(rs.getInt(id), rs.getString(username), rs.getString(password), rs.getString(role));
+    }, "id", "username", "password", "role");
+
+    public static final Projection<Purchase> PURCHASE = new Projection<>(c -> {
+        int id = c[0], bookId = c[1], bookTitle = c[2], bookImage = c[3], bookPrice = c[4], quantity = c[5],
+                totalPrice = c[6], purchaseDate = c[7], userId = c[8];
+        return rs -> new Purchase(rs.getInt(id), rs.getInt(bookId), rs.getString(bookTitle), rs.getString(bookImage),
+                rs.getBigDecimal(bookPrice), rs.getInt(quantity), rs.getBigDecimal(totalPrice),
+                rs.getTimestamp(purchaseDate), rs.getInt(userId));
+    }, "id", "book_id", "book_title", "book_image", "book_price", "quantity", "total_price", "purchase_date", "user_id");
+
+    private Projections() {
+    }
+}
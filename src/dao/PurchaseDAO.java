@@ -1,16 +1,23 @@
 package dao;
 
+import model.BasketLine;
+import model.CheckoutResult;
 import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+import repository.PurchaseRepository;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.math.BigDecimal;
 
 /**
  * Data Access Object for Purchase entities.
  * Handles CRUD operations for Purchases in the database.
  */
-public class PurchaseDAO {
+public class PurchaseDAO implements PurchaseRepository {
 
     /**
      * Adds a new purchase record to the database.
@@ -18,9 +25,95 @@ public class PurchaseDAO {
      * @return true if the purchase was added successfully, false otherwise.
      */
     public boolean addPurchase(Purchase purchase) {
-        String sql = "INSERT INTO Purchases (book_id, book_title, book_image, book_price, quantity, total_price, purchase_date, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return insertPurchase(conn, purchase);
+        } catch (SQLException e) {
+            System.err.println("Error adding purchase: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sells a basket in one transaction. Each book is decremented with a conditional update
+     * (quantity >= requested), in ascending ID order so concurrent checkouts lock rows in the same order.
+     * The first line without enough stock rolls everything back.
+     * @param lines The basket; several lines for the same book are added up.
+     * @param userId The buyer.
+     * @return The recorded purchases and new stock, or the failed line.
+     */
+    public CheckoutResult checkout(List<BasketLine> lines, int userId) {
+        Map<Integer, Integer> requested = new TreeMap<>();
+        for (BasketLine line : lines) {
+            requested.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
+        String sql = "UPDATE Books SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ? " +
+                "RETURNING title, image_url, price, quantity";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Purchase> purchases = new ArrayList<>();
+                Map<Integer, Integer> quantities = new TreeMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                        int bookId = entry.getKey();
+                        int quantity = entry.getValue();
+                        pstmt.setInt(1, quantity);
+                        pstmt.setInt(2, bookId);
+                        pstmt.setInt(3, quantity);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (!rs.next()) {
+                                conn.rollback();
+                                return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), bookId, shortfallMessage(conn, bookId, quantity));
+                            }
+                            BigDecimal price = rs.getBigDecimal("price");
+                            purchases.add(new Purchase(bookId, rs.getString("title"), rs.getString("image_url"), price,
+                                    quantity, price.multiply(new BigDecimal(quantity)), now, userId));
+                            quantities.put(bookId, rs.getInt("quantity"));
+                        }
+                    }
+                }
+                for (Purchase purchase : purchases) {
+                    insertPurchase(conn, purchase);
+                }
+                conn.commit();
+                BookCache.getInstance().invalidate(quantities.keySet());
+                return new CheckoutResult(purchases, quantities, 0, null);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error committing checkout: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), 0, "The sale could not be saved. Please try again.");
+    }
+
+    private static String shortfallMessage(Connection conn, int bookId, int requested) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT title, quantity FROM Books WHERE id = ?")) {
+            pstmt.setInt(1, bookId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return "Book " + bookId + " no longer exists.";
+                }
+                return "Not enough stock for \"" + rs.getString("title") + "\": " + requested + " requested, "
+                        + rs.getInt("quantity") + " available.";
+            }
+        }
+    }
+
+    /**
+     * Inserts a purchase record on the given connection and sets its generated ID.
+     * @param conn The database connection (may be inside a transaction).
+     * @param purchase The Purchase object to add.
+     * @return true if a row was inserted.
+     * @throws SQLException If a database access error occurs.
+     */
+    static boolean insertPurchase(Connection conn, Purchase purchase) throws SQLException {
+        String sql = "INSERT INTO Purchases (book_id, book_title, book_image, book_price, quantity, total_price, purchase_date, user_id) VALUES (?, ?, ?, ?, ?, ?, COALESCE(CAST(? AS TIMESTAMP), CURRENT_TIMESTAMP), ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setInt(1, purchase.getBookId());
             pstmt.setString(2, purchase.getBookTitle());
@@ -40,9 +133,6 @@ public class PurchaseDAO {
                 }
                 return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error adding purchase: " + e.getMessage());
-            e.printStackTrace();
         }
         return false;
     }
@@ -53,14 +143,14 @@ public class PurchaseDAO {
      * @return The Purchase object if found, null otherwise.
      */
     public Purchase getPurchaseById(int id) {
-        String sql = "SELECT * FROM Purchases WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.PURCHASE.columns() + " FROM Purchases WHERE id = ?";
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractPurchaseFromResultSet(rs);
+                    return Projections.PURCHASE.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -76,13 +166,14 @@ public class PurchaseDAO {
      */
     public List<Purchase> getAllPurchases() {
         List<Purchase> purchases = new ArrayList<>();
-        String sql = "SELECT * FROM Purchases ORDER BY purchase_date DESC";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.PURCHASE.columns() + " FROM Purchases ORDER BY purchase_date DESC";
+        try (Connection conn = DBConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            RowMapper<Purchase> mapper = Projections.PURCHASE.mapperFor(rs);
             while (rs.next()) {
-                purchases.add(extractPurchaseFromResultSet(rs));
+                purchases.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all purchases: " + e.getMessage());
@@ -98,14 +189,15 @@ public class PurchaseDAO {
      */
     public List<Purchase> getPurchasesByUserId(int userId) {
         List<Purchase> purchases = new ArrayList<>();
-        String sql = "SELECT * FROM Purchases WHERE user_id = ? ORDER BY purchase_date DESC";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.PURCHASE.columns() + " FROM Purchases WHERE user_id = ? ORDER BY purchase_date DESC";
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userId);
             try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Purchase> mapper = Projections.PURCHASE.mapperFor(rs);
                 while (rs.next()) {
-                    purchases.add(extractPurchaseFromResultSet(rs));
+                    purchases.add(mapper.map(rs));
                 }
             }
         } catch (SQLException e) {
@@ -116,22 +208,58 @@ public class PurchaseDAO {
     }
 
     /**
-     * Helper method to extract a Purchase object from a ResultSet.
-     * @param rs The ResultSet containing purchase data.
-     * @return A Purchase object.
-     * @throws SQLException If a database access error occurs.
+     * Retrieves one page of purchases matching a query, newest first (purchase date, then ID).
+     * Pages are addressed by the last purchase of the previous page rather than an offset, so every page
+     * is a range scan on one of the composite indexes (user_id, purchase_date, id), (book_id, purchase_date, id)
+     * or (purchase_date, id).
+     * @param query The criteria and page position.
+     * @return The page; empty without a next query if the query failed.
      */
-    private Purchase extractPurchaseFromResultSet(ResultSet rs) throws SQLException {
-        Purchase purchase = new Purchase();
-        purchase.setId(rs.getInt("id"));
-        purchase.setBookId(rs.getInt("book_id"));
-        purchase.setBookTitle(rs.getString("book_title"));
-        purchase.setBookImage(rs.getString("book_image"));
-        purchase.setBookPrice(rs.getBigDecimal("book_price"));
-        purchase.setQuantity(rs.getInt("quantity"));
-        purchase.setTotalPrice(rs.getBigDecimal("total_price"));
-        purchase.setPurchaseDate(rs.getTimestamp("purchase_date"));
-        purchase.setUserId(rs.getInt("user_id"));
-        return purchase;
+    public PurchasePage findPurchases(PurchaseQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT " + Projections.PURCHASE.columns() + " FROM Purchases WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+        if (query.getUserId() != 0) {
+            sql.append(" AND user_id = ?");
+            params.add(query.getUserId());
+        }
+        if (query.getBookId() != 0) {
+            sql.append(" AND book_id = ?");
+            params.add(query.getBookId());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND purchase_date >= ?");
+            params.add(Timestamp.valueOf(query.getFrom().atStartOfDay()));
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND purchase_date < ?");
+            params.add(Timestamp.valueOf(query.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (query.getAfterDate() != null) {
+            sql.append(" AND (purchase_date, id) < (?, ?)");
+            params.add(query.getAfterDate());
+            params.add(query.getAfterId());
+        }
+        sql.append(" ORDER BY purchase_date DESC, id DESC LIMIT ?");
+        params.add(query.getPageSize() + 1); // One extra row tells whether there is a next page
+
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Purchase> purchases = Projections.PURCHASE.list(rs);
+                if (purchases.size() > query.getPageSize()) {
+                    purchases.remove(purchases.size() - 1);
+                    return new PurchasePage(purchases, query.after(purchases.get(purchases.size() - 1)));
+                }
+                return new PurchasePage(purchases, null);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding purchases: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new PurchasePage(new ArrayList<>(), null);
     }
 }
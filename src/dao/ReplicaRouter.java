@@ -0,0 +1,140 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the database endpoint for read-only operations.
+ *
+ * Reads are spread round-robin over the healthy read replicas. They fall back to the primary when
+ * no replica is configured or healthy, and for a short window after every write connection, so this
+ * terminal always reads its own writes (e.g. the stock after a purchase) even if replicas lag behind.
+ * A background check marks replicas down when they are unreachable or lag too far behind, and up again
+ * once they recover; a replica that fails to connect is also marked down immediately.
+ */
+final class ReplicaRouter {
+    /**
+     * Opens a raw connection to a JDBC URL.
+     */
+    interface ConnectionFactory {
+        Connection open(String url) throws SQLException;
+    }
+
+    // Lag of a streaming replica; 0 when it has replayed everything it received, and for a plain
+    // (non-standby) server, so two independent local instances can be used for testing.
+    private static final String LAG_QUERY =
+            "SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, 0)";
+
+    private static final class Replica {
+        private final String url;
+        private volatile boolean healthy = true;
+
+        Replica(String url) {
+            this.url = url;
+        }
+    }
+
+    private final String primaryUrl;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ConnectionFactory factory;
+    private final long stickyMillis;
+    private final long maxLagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile long primaryUntil; // Reads go to the primary until this time (millis)
+
+    /**
+     * @param primaryUrl The JDBC URL of the primary.
+     * @param replicaUrls The JDBC URLs of the read replicas, possibly empty.
+     * @param factory Opens raw connections.
+     * @param stickyMillis How long reads stay on the primary after a write connection.
+     * @param maxLagMillis Replicas lagging more than this are not used.
+     * @param healthCheckMillis Interval of the background health check.
+     */
+    ReplicaRouter(String primaryUrl, List<String> replicaUrls, ConnectionFactory factory,
+                  long stickyMillis, long maxLagMillis, long healthCheckMillis) {
+        this.primaryUrl = primaryUrl;
+        this.factory = factory;
+        this.stickyMillis = stickyMillis;
+        this.maxLagMillis = maxLagMillis;
+        for (String url : replicaUrls) {
+            replicas.add(new Replica(url));
+        }
+        if (!replicas.isEmpty()) {
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "replica-health-check");
+                t.setDaemon(true);
+                return t;
+            });
+            checker.scheduleWithFixedDelay(this::checkReplicas, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records that a write connection was handed out, keeping reads on the primary for the sticky window.
+     */
+    void writeStarted() {
+        primaryUntil = System.currentTimeMillis() + stickyMillis;
+    }
+
+    /**
+     * Opens a connection for a read-only operation.
+     * @return A raw connection to a healthy replica, or to the primary.
+     * @throws SQLException If the primary cannot be reached either.
+     */
+    Connection openReadConnection() throws SQLException {
+        if (!replicas.isEmpty() && System.currentTimeMillis() >= primaryUntil) {
+            int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return factory.open(replica.url);
+                } catch (SQLException e) {
+                    markDown(replica, e.getMessage());
+                }
+            }
+        }
+        return factory.open(primaryUrl);
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conn = factory.open(replica.url);
+                 Statement stmt = conn.createStatement()) {
+                stmt.setQueryTimeout(5);
+                try (ResultSet rs = stmt.executeQuery(LAG_QUERY)) {
+                    double lagMillis = rs.next() ? rs.getDouble(1) : 0;
+                    if (lagMillis > maxLagMillis) {
+                        markDown(replica, "lagging " + (long) lagMillis + " ms behind the primary");
+                    } else if (!replica.healthy) {
+                        replica.healthy = true;
+                        System.err.println("Read replica back in service: " + replica.url);
+                    }
+                }
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error checking read replica " + replica.url + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("Read replica out of service (" + reason + "): " + replica.url);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object.
+ * Obtained from {@link Projection#mapperFor(ResultSet)} with the column indexes already resolved.
+ * @param <T> The mapped type.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
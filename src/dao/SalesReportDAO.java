@@ -0,0 +1,111 @@
+package dao;
+
+import model.SalesSummary;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for sales reports.
+ * All reports are server-side aggregates over the sales_daily rollup, whose primary key
+ * starts with sale_date, so a date range only touches the rollup rows of that range.
+ */
+public class SalesReportDAO {
+
+    /**
+     * Retrieves the best selling books of a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @param limit The maximum number of books to return.
+     * @return The books ordered by units sold, highest first, or null if the query failed.
+     */
+    public List<SalesSummary> getTopSellers(LocalDate from, LocalDate to, int limit) {
+        String sql = "SELECT s.book_id, b.title, SUM(s.units) AS units, SUM(s.revenue) AS revenue " +
+                "FROM sales_daily s JOIN Books b ON b.id = s.book_id " +
+                "WHERE s.sale_date BETWEEN ? AND ? " +
+                "GROUP BY s.book_id, b.title ORDER BY units DESC, revenue DESC LIMIT ?";
+        return runReport(sql, from, to, limit, true, "Error getting top sellers: ");
+    }
+
+    /**
+     * Retrieves the revenue of each category in a period.
+     * Books without a category are reported as "Uncategorized".
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return The categories ordered by revenue, highest first, or null if the query failed.
+     */
+    public List<SalesSummary> getRevenueByCategory(LocalDate from, LocalDate to) {
+        String sql = "SELECT s.category_id, COALESCE(c.name, 'Uncategorized'), SUM(s.units) AS units, SUM(s.revenue) AS revenue " +
+                "FROM sales_daily s LEFT JOIN Categories c ON c.id = s.category_id " +
+                "WHERE s.sale_date BETWEEN ? AND ? " +
+                "GROUP BY s.category_id, c.name ORDER BY revenue DESC";
+        return runReport(sql, from, to, 0, true, "Error getting revenue by category: ");
+    }
+
+    /**
+     * Retrieves the units sold per author in a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @param limit The maximum number of authors to return.
+     * @return The authors ordered by units sold, highest first, or null if the query failed.
+     */
+    public List<SalesSummary> getUnitsByAuthor(LocalDate from, LocalDate to, int limit) {
+        String sql = "SELECT b.author, SUM(s.units) AS units, SUM(s.revenue) AS revenue " +
+                "FROM sales_daily s JOIN Books b ON b.id = s.book_id " +
+                "WHERE s.sale_date BETWEEN ? AND ? " +
+                "GROUP BY b.author ORDER BY units DESC, revenue DESC LIMIT ?";
+        return runReport(sql, from, to, limit, false, "Error getting units by author: ");
+    }
+
+    /**
+     * Retrieves units and revenue per day of a period, for plotting revenue over time.
+     * Days without sales are omitted.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return One row per day with sales, in date order, or null if the query failed.
+     */
+    public List<SalesSummary> getDailyRevenue(LocalDate from, LocalDate to) {
+        String sql = "SELECT CAST(sale_date AS VARCHAR), SUM(units) AS units, SUM(revenue) AS revenue " +
+                "FROM sales_daily WHERE sale_date BETWEEN ? AND ? " +
+                "GROUP BY sale_date ORDER BY sale_date";
+        return runReport(sql, from, to, 0, false, "Error getting daily revenue: ");
+    }
+
+    /**
+     * Runs a report query whose parameters are the date range and, if limit is positive, the row limit.
+     * @param keyedById true if the first column is an ID followed by the label, false if it is the label only.
+     * @return The rows, or null if the query failed (an empty list means no sales).
+     */
+    private List<SalesSummary> runReport(String sql, LocalDate from, LocalDate to, int limit,
+                                         boolean keyedById, String errorMessage) {
+        List<SalesSummary> rows = new ArrayList<>();
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            if (limit > 0) {
+                pstmt.setInt(3, limit);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int col = 1;
+                    SalesSummary row = new SalesSummary();
+                    if (keyedById) {
+                        row.setId(rs.getInt(col++));
+                    }
+                    row.setLabel(rs.getString(col++));
+                    row.setUnits(rs.getLong(col++));
+                    row.setRevenue(rs.getBigDecimal(col));
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
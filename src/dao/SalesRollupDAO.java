@@ -0,0 +1,234 @@
+package dao;
+
+import model.SalesVelocity;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the sales_daily rollup table.
+ * The rollup holds units and revenue per day, book and category. It is maintained by the
+ * purchases_sales_daily trigger on every Purchases insert, delete (including those cascaded from
+ * deleted books and users) and update of the counted columns, so revenue for a period is answered
+ * from a few hundred rollup rows instead of summing every purchase.
+ */
+public class SalesRollupDAO {
+
+    private static final String BACKFILL_SQL =
+            "INSERT INTO sales_daily (sale_date, book_id, category_id, units, revenue) " +
+            "SELECT CAST(p.purchase_date AS DATE), p.book_id, COALESCE(b.category_id, 0), SUM(p.quantity), SUM(p.total_price) " +
+            "FROM Purchases p LEFT JOIN Books b ON b.id = p.book_id " +
+            "GROUP BY CAST(p.purchase_date AS DATE), p.book_id, COALESCE(b.category_id, 0)";
+
+    // Bits of pg_trigger.tgtype for the events the trigger must fire on
+    private static final int TRIGGER_EVENTS = 4 | 8 | 16; // INSERT, DELETE, UPDATE
+
+    /**
+     * Creates the purchases_sales_daily trigger if it does not exist yet, and fills the rollup from the
+     * Purchases table in the same transaction, e.g. on the first start after upgrading an existing database.
+     * A trigger from an older version that does not fire on deletes and updates is replaced the same way:
+     * the purchases deleted or changed meanwhile are still counted in the rollup, so it is refilled.
+     * Purchase inserts are blocked meanwhile, so every purchase is counted exactly once: by the backfill
+     * if it committed before, by the trigger if after. The trigger itself marks the rollup as complete,
+     * so a purchase recorded by another terminal can never make the backfill look unnecessary.
+     * @param conn The database connection.
+     * @throws SQLException If a database access error occurs.
+     */
+    void installTrigger(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            // SHARE ROW EXCLUSIVE blocks inserts and is what CREATE TRIGGER takes, so two terminals
+            // starting at once queue here instead of deadlocking on a lock upgrade
+            stmt.execute("LOCK TABLE Purchases IN SHARE ROW EXCLUSIVE MODE");
+            try (ResultSet rs = stmt.executeQuery("SELECT tgtype FROM pg_trigger " +
+                    "WHERE tgname = 'purchases_sales_daily' AND tgrelid = 'purchases'::regclass")) {
+                if (rs.next() && (rs.getInt(1) & TRIGGER_EVENTS) == TRIGGER_EVENTS) {
+                    conn.commit();
+                    return;
+                }
+            }
+            stmt.execute("DROP TRIGGER IF EXISTS purchases_sales_daily ON Purchases");
+            stmt.execute("CREATE TRIGGER purchases_sales_daily " +
+                    "AFTER INSERT OR DELETE OR UPDATE OF book_id, quantity, total_price, purchase_date ON Purchases " +
+                    "FOR EACH ROW EXECUTE FUNCTION sales_daily_apply()");
+            stmt.executeUpdate("DELETE FROM sales_daily"); // Rows written without the trigger are incomplete
+            int rows = stmt.executeUpdate(BACKFILL_SQL);
+            conn.commit();
+            if (rows > 0) {
+                System.out.println("Sales rollup backfilled with " + rows + " rows.");
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Rebuilds the whole rollup from the Purchases table in one transaction.
+     * Only needed to repair the rollup, the trigger keeps it current otherwise.
+     * @return true if the rollup was rebuilt successfully, false otherwise.
+     */
+    public boolean rebuild() {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Block concurrent purchase inserts so none are counted twice or missed
+                stmt.execute("LOCK TABLE Purchases IN SHARE MODE");
+                stmt.execute("DELETE FROM sales_daily");
+                stmt.executeUpdate(BACKFILL_SQL);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding sales rollup: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Gets the total revenue of all purchases.
+     * @return The total revenue, or zero if there are no purchases.
+     */
+    public BigDecimal getTotalRevenue() {
+        String sql = "SELECT COALESCE(SUM(revenue), 0) FROM sales_daily";
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getBigDecimal(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting total revenue: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Gets the revenue for a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return The revenue of the period, or zero if there were no purchases.
+     */
+    public BigDecimal getRevenue(LocalDate from, LocalDate to) {
+        String sql = "SELECT COALESCE(SUM(revenue), 0) FROM sales_daily WHERE sale_date BETWEEN ? AND ?";
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBigDecimal(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting revenue for period: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Gets the number of units sold in a period.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return The number of units sold.
+     */
+    public long getUnitsSold(LocalDate from, LocalDate to) {
+        String sql = "SELECT COALESCE(SUM(units), 0) FROM sales_daily WHERE sale_date BETWEEN ? AND ?";
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting units sold for period: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the sales velocity of every book sold since a day, in one aggregate pass over the rollup.
+     * The daily rate is the exponentially weighted moving average of units per day over the closed days
+     * (since .. today - 1): alpha * sum(units(d) * (1 - alpha)^(today - 1 - d)), days without sales counting as zero.
+     * @param today The current day; its units are returned separately.
+     * @param since The first day of the window.
+     * @param alpha The weight of the most recent day, between 0 and 1.
+     * @return One entry per book with sales in the window, or null if the rollup could not be read.
+     */
+    public List<SalesVelocity> getSalesVelocities(LocalDate today, LocalDate since, double alpha) {
+        String sql = "SELECT d.book_id, b.title, b.quantity, " +
+                "? * SUM(CASE WHEN d.sale_date < ? THEN d.units * POWER(?, (CAST(? AS DATE) - d.sale_date) - 1) ELSE 0 END) AS daily_rate, " +
+                "SUM(CASE WHEN d.sale_date = ? THEN d.units ELSE 0 END) AS today_units " +
+                "FROM sales_daily d JOIN Books b ON b.id = d.book_id " +
+                "WHERE d.sale_date >= ? " +
+                "GROUP BY d.book_id, b.title, b.quantity";
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDouble(1, alpha);
+            pstmt.setDate(2, Date.valueOf(today));
+            pstmt.setDouble(3, 1 - alpha);
+            pstmt.setDate(4, Date.valueOf(today));
+            pstmt.setDate(5, Date.valueOf(today));
+            pstmt.setDate(6, Date.valueOf(since));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<SalesVelocity> velocities = new ArrayList<>();
+                while (rs.next()) {
+                    velocities.add(new SalesVelocity(rs.getInt("book_id"), rs.getString("title"), rs.getInt("quantity"),
+                            rs.getDouble("daily_rate"), rs.getInt("today_units")));
+                }
+                return velocities;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting sales velocities: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the units sold per book on one day, with the current stock of those books.
+     * @param day The day.
+     * @return One entry per book sold on that day (daily rate not set), or null if the rollup could not be read.
+     */
+    public List<SalesVelocity> getUnitsSoldOn(LocalDate day) {
+        String sql = "SELECT d.book_id, b.title, b.quantity, SUM(d.units) AS units " +
+                "FROM sales_daily d JOIN Books b ON b.id = d.book_id " +
+                "WHERE d.sale_date = ? " +
+                "GROUP BY d.book_id, b.title, b.quantity";
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(day));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<SalesVelocity> sold = new ArrayList<>();
+                while (rs.next()) {
+                    sold.add(new SalesVelocity(rs.getInt("book_id"), rs.getString("title"), rs.getInt("quantity"),
+                            0, rs.getInt("units")));
+                }
+                return sold;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting units sold on day: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,281 @@
+package dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records DAO statements that take longer than a configurable threshold.
+ * Entries contain the SQL, its bound parameters (with Users.password redacted), the row count,
+ * the duration and optionally the EXPLAIN output. They are written to a rolling file in
+ * the logs/ directory by a background thread, so the calling thread never waits on disk I/O.
+ *
+ * Configuration (system properties):
+ *   bookstore.slowQuery.thresholdMs  - threshold in milliseconds, negative disables the log (default 500)
+ *   bookstore.slowQuery.explain      - off | plan | analyze (default off), only applied to SELECT statements
+ *   bookstore.slowQuery.dir          - directory of the log files (default logs)
+ *   bookstore.slowQuery.maxBytes     - size of one log file before it rolls (default 5 MB)
+ *   bookstore.slowQuery.files        - number of rolled files kept (default 5)
+ */
+public final class SlowQueryLog {
+    private static final long THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("bookstore.slowQuery.thresholdMs", 500L));
+    private static final String EXPLAIN_MODE =
+            System.getProperty("bookstore.slowQuery.explain", "off").toLowerCase(Locale.ROOT);
+    private static final int MAX_PARAM_LENGTH = 200;
+    private static final String REDACTED = "<redacted>";
+
+    // Matches "column = ?" style comparisons so that the placeholder can be attributed to a column
+    private static final Pattern COLUMN_BEFORE_PLACEHOLDER =
+            Pattern.compile("([A-Za-z_][A-Za-z0-9_.]*)\\s*(=|<>|!=|<=|>=|<|>|\\s+like|\\s+ilike)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_COLUMNS =
+            Pattern.compile("insert\\s+into\\s+\\S+\\s*\\(([^)]*)\\)\\s*values", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, boolean[]> REDACTION_CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static volatile BiConsumer<String, Object[]> captureListener;
+
+    private static final Logger LOGGER = Logger.getLogger("bookstore.slowquery");
+    private static final ThreadPoolExecutor WRITER;
+
+    static {
+        LOGGER.setUseParentHandlers(false);
+        if (isEnabled()) {
+            try {
+                File dir = new File(System.getProperty("bookstore.slowQuery.dir", "logs"));
+                dir.mkdirs();
+                FileHandler handler = new FileHandler(
+                        new File(dir, "slow-queries.%g.log").getPath(),
+                        Integer.getInteger("bookstore.slowQuery.maxBytes", 5 * 1024 * 1024),
+                        Integer.getInteger("bookstore.slowQuery.files", 5),
+                        true);
+                handler.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return record.getMessage() + System.lineSeparator();
+                    }
+                });
+                LOGGER.addHandler(handler);
+            } catch (IOException e) {
+                System.err.println("Could not open slow query log file: " + e.getMessage());
+            }
+        }
+        // One daemon thread with a bounded queue: when the writer falls behind, entries are dropped
+        // (and counted) instead of blocking the thread that executed the statement.
+        WRITER = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000),
+                r -> {
+                    Thread t = new Thread(r, "slow-query-log");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> DROPPED.incrementAndGet());
+    }
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * @return true if slow statements are being recorded.
+     */
+    public static boolean isEnabled() {
+        return THRESHOLD_NANOS >= 0;
+    }
+
+    /**
+     * @return The number of entries discarded because the writer queue was full.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    /**
+     * Wraps a connection so that every statement created from it is timed.
+     * Returns the connection unchanged when the log is disabled.
+     * @param conn The connection to wrap.
+     * @return A connection that reports slow statements to this log.
+     */
+    static Connection wrap(Connection conn) {
+        return isEnabled() || captureListener != null ? StatementTracer.trace(conn) : conn;
+    }
+
+    /**
+     * Reports every statement run on connections opened from now on, whatever its duration, to a listener
+     * on the thread that ran it. Used by tools.QueryPlanCheck to collect the SQL issued by each DAO method.
+     * @param listener Receives the SQL and its bound parameters (1-based; index 0 unused), or null to stop.
+     */
+    public static void setCaptureListener(BiConsumer<String, Object[]> listener) {
+        captureListener = listener;
+    }
+
+    /**
+     * Called by the statement tracer when a statement completes.
+     * Statements below the threshold return immediately; others are handed to the writer thread.
+     */
+    static void statementCompleted(String sql, Object[] params, long rows, long elapsedNanos) {
+        BiConsumer<String, Object[]> listener = captureListener;
+        if (listener != null) {
+            listener.accept(sql, params != null ? params.clone() : new Object[0]);
+        }
+        if (!isEnabled() || elapsedNanos < THRESHOLD_NANOS) {
+            return;
+        }
+        String threadName = Thread.currentThread().getName();
+        LocalDateTime finishedAt = LocalDateTime.now();
+        Object[] snapshot = params != null ? params.clone() : new Object[0];
+        WRITER.execute(() -> write(finishedAt, threadName, sql, snapshot, rows, elapsedNanos));
+    }
+
+    private static void write(LocalDateTime finishedAt, String threadName, String sql, Object[] params,
+                              long rows, long elapsedNanos) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(finishedAt)
+                .append(String.format(Locale.ROOT, " duration=%.1fms", elapsedNanos / 1_000_000.0))
+                .append(" rows=").append(rows)
+                .append(" thread=").append(threadName)
+                .append(System.lineSeparator())
+                .append("  sql: ").append(sql.replaceAll("\\s+", " ").trim())
+                .append(System.lineSeparator())
+                .append("  params: ").append(formatParams(sql, params));
+
+        String plan = explain(sql, params);
+        if (plan != null) {
+            entry.append(System.lineSeparator()).append("  plan:");
+            for (String line : plan.split("\n")) {
+                entry.append(System.lineSeparator()).append("    ").append(line);
+            }
+        }
+        long dropped = DROPPED.get();
+        if (dropped > 0) {
+            entry.append(System.lineSeparator()).append("  (entries dropped so far: ").append(dropped).append(')');
+        }
+        LOGGER.log(Level.INFO, entry.toString());
+    }
+
+    /**
+     * Formats bound parameters, replacing values bound to a password column with a placeholder.
+     */
+    static String formatParams(String sql, Object[] params) {
+        boolean[] redacted = redactedParameters(sql);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i < params.length; i++) {
+            if (i > 1) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            if (i < redacted.length && redacted[i]) {
+                sb.append(REDACTED);
+            } else if (value == null) {
+                sb.append("NULL");
+            } else if (value instanceof String) {
+                String s = (String) value;
+                if (s.length() > MAX_PARAM_LENGTH) {
+                    s = s.substring(0, MAX_PARAM_LENGTH) + "...";
+                }
+                sb.append('\'').append(s).append('\'');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Works out which 1-based placeholders of a statement are bound to Users.password.
+     * Statements that mention the Users table and a password column but whose placeholders
+     * cannot be attributed are redacted entirely.
+     */
+    private static boolean[] redactedParameters(String sql) {
+        return REDACTION_CACHE.computeIfAbsent(sql, s -> {
+            String lower = s.toLowerCase(Locale.ROOT);
+            int placeholders = 0;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) == '?') placeholders++;
+            }
+            boolean[] redacted = new boolean[placeholders + 1];
+            if (!lower.matches("(?s).*\\busers\\b.*") || !lower.contains("password")) {
+                return redacted;
+            }
+
+            Matcher insert = INSERT_COLUMNS.matcher(s);
+            if (insert.find()) {
+                String[] columns = insert.group(1).split(",");
+                for (int i = 0; i < columns.length && i < placeholders; i++) {
+                    redacted[i + 1] = columns[i].trim().equalsIgnoreCase("password");
+                }
+                return redacted;
+            }
+
+            int index = 0;
+            boolean attributed = true;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) != '?') continue;
+                index++;
+                Matcher m = COLUMN_BEFORE_PLACEHOLDER.matcher(s.substring(0, i));
+                if (m.find()) {
+                    String column = m.group(1);
+                    column = column.substring(column.lastIndexOf('.') + 1);
+                    redacted[index] = column.equalsIgnoreCase("password");
+                } else {
+                    attributed = false;
+                }
+            }
+            if (!attributed) {
+                java.util.Arrays.fill(redacted, true);
+            }
+            return redacted;
+        });
+    }
+
+    /**
+     * Runs EXPLAIN (or EXPLAIN ANALYZE) for a SELECT on a separate, untraced connection.
+     * @return The plan text, or null if explaining is disabled or not applicable.
+     */
+    private static String explain(String sql, Object[] params) {
+        if ("off".equals(EXPLAIN_MODE)) {
+            return null;
+        }
+        String trimmed = sql.trim().toLowerCase(Locale.ROOT);
+        if (!trimmed.startsWith("select") && !trimmed.startsWith("with")) {
+            return null; // Never re-run writes just to get a plan
+        }
+        String prefix = "analyze".equals(EXPLAIN_MODE) ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ";
+        try (Connection conn = DBConnection.openUntracedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(prefix + sql)) {
+            int count = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                pstmt.setObject(i, i < params.length ? params[i] : null);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (plan.length() > 0) plan.append('\n');
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Dynamic proxies that time JDBC statements and report them to {@link SlowQueryLog}.
+ * Bound parameters are captured from the set* calls, row counts from executeUpdate/executeBatch
+ * or from the number of rows read before the ResultSet is closed.
+ */
+final class StatementTracer {
+
+    private StatementTracer() {
+    }
+
+    static Connection trace(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(conn));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && args[0] == Connection.class) {
+                return target;
+            }
+            Object result = StatementTracer.invoke(target, method, args);
+            if (result instanceof PreparedStatement && (name.equals("prepareStatement") || name.equals("prepareCall"))) {
+                return Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new StatementHandler((Statement) result, (String) args[0]));
+            }
+            if (result instanceof Statement && name.equals("createStatement")) {
+                return Proxy.newProxyInstance(
+                        Statement.class.getClassLoader(),
+                        new Class<?>[]{Statement.class},
+                        new StatementHandler((Statement) result, null));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private Object[] params = new Object[8];
+        private int paramCount; // Highest index bound, params beyond it are spare capacity
+        private int batchSize;
+        private ResultHandler openResult;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && preparedSql != null) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return StatementTracer.invoke(target, method, args);
+            }
+            if (name.equals("clearParameters")) {
+                Arrays.fill(params, null);
+                paramCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("close")) {
+                finishOpenResult();
+            }
+
+            if (!name.startsWith("execute")) {
+                return StatementTracer.invoke(target, method, args);
+            }
+
+            String sql = preparedSql != null ? preparedSql : (args != null && args.length > 0 ? (String) args[0] : "");
+            finishOpenResult();
+            long start = System.nanoTime();
+            Object result = StatementTracer.invoke(target, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            if (result instanceof ResultSet) {
+                // Timing continues until the caller has finished reading the rows
+                openResult = new ResultHandler((ResultSet) result, sql, boundParams(), start);
+                return Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class},
+                        openResult);
+            }
+            long rows;
+            if (result instanceof int[]) {
+                rows = Arrays.stream((int[]) result).filter(n -> n > 0).sum();
+                batchSize = 0;
+            } else if (result instanceof Number) {
+                rows = ((Number) result).longValue();
+            } else {
+                rows = target.getUpdateCount();
+            }
+            SlowQueryLog.statementCompleted(sql, boundParams(), rows, elapsed);
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index >= params.length) {
+                params = Arrays.copyOf(params, Math.max(index + 1, params.length * 2));
+            }
+            params[index] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        /**
+         * @return The bound parameters by index (element 0 unused), without spare capacity.
+         */
+        private Object[] boundParams() {
+            return Arrays.copyOf(params, paramCount + 1);
+        }
+
+        private void finishOpenResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+    }
+
+    private static final class ResultHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final String sql;
+        private final Object[] params;
+        private final long start;
+        private long rows;
+        private boolean finished;
+
+        ResultHandler(ResultSet target, String sql, Object[] params, long start) {
+            this.target = target;
+            this.sql = sql;
+            this.params = params;
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementTracer.invoke(target, method, args);
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (name.equals("close")) {
+                finish();
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                SlowQueryLog.statementCompleted(sql, params, rows, System.nanoTime() - start);
+            }
+        }
+    }
+}
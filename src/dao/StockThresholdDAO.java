@@ -0,0 +1,136 @@
+package dao;
+
+import model.LowStockAlert;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for per-book and per-category low-stock thresholds.
+ * Books and categories without a row use the default threshold.
+ */
+public class StockThresholdDAO {
+
+    /**
+     * @return The threshold of every book that has one, by book ID.
+     */
+    public Map<Integer, Integer> getBookThresholds() {
+        return loadThresholds("SELECT book_id, threshold FROM book_stock_thresholds");
+    }
+
+    /**
+     * @return The threshold of every category that has one, by category ID.
+     */
+    public Map<Integer, Integer> getCategoryThresholds() {
+        return loadThresholds("SELECT category_id, threshold FROM category_stock_thresholds");
+    }
+
+    /**
+     * Sets or removes the threshold of a book.
+     * @param bookId The book.
+     * @param threshold The threshold, or null to use the category or default threshold.
+     * @return true if the threshold was saved.
+     */
+    public boolean setBookThreshold(int bookId, Integer threshold) {
+        return saveThreshold("book_stock_thresholds", "book_id", bookId, threshold);
+    }
+
+    /**
+     * Sets or removes the threshold of a category.
+     * @param categoryId The category.
+     * @param threshold The threshold, or null to use the default threshold.
+     * @return true if the threshold was saved.
+     */
+    public boolean setCategoryThreshold(int categoryId, Integer threshold) {
+        return saveThreshold("category_stock_thresholds", "category_id", categoryId, threshold);
+    }
+
+    /**
+     * Finds the books below their threshold; the filtering is done by the database. Only books below the
+     * highest threshold in use can qualify, which the quantity index finds without reading every book.
+     * @param defaultThreshold The threshold of books with neither a book nor a category threshold.
+     * @return The alerts, or null if the database could not be queried.
+     */
+    public List<LowStockAlert> getBooksBelowThreshold(int defaultThreshold) {
+        String maxSql = "SELECT GREATEST(?, " +
+                "COALESCE((SELECT MAX(threshold) FROM book_stock_thresholds), 0), " +
+                "COALESCE((SELECT MAX(threshold) FROM category_stock_thresholds), 0))";
+        String sql = "SELECT b.id, b.title, COALESCE(b.category_id, 0) AS category_id, b.quantity, " +
+                "COALESCE(bt.threshold, ct.threshold, ?) AS threshold " +
+                "FROM Books b " +
+                "LEFT JOIN book_stock_thresholds bt ON bt.book_id = b.id " +
+                "LEFT JOIN category_stock_thresholds ct ON ct.category_id = b.category_id " +
+                "WHERE b.quantity < ? AND b.quantity < COALESCE(bt.threshold, ct.threshold, ?)";
+        try (Connection conn = DBConnection.getPrimaryReadConnection()) { // Primary: the alert set must not start out stale
+            int maxThreshold;
+            try (PreparedStatement pstmt = conn.prepareStatement(maxSql)) {
+                pstmt.setInt(1, defaultThreshold);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    maxThreshold = rs.getInt(1);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, defaultThreshold);
+                pstmt.setInt(2, maxThreshold); // A literal bound, so the planner can estimate it
+                pstmt.setInt(3, defaultThreshold);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    List<LowStockAlert> alerts = new ArrayList<>();
+                    while (rs.next()) {
+                        alerts.add(new LowStockAlert(rs.getInt("id"), rs.getString("title"), rs.getInt("category_id"),
+                                rs.getInt("quantity"), rs.getInt("threshold")));
+                    }
+                    return alerts;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting low-stock books: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private Map<Integer, Integer> loadThresholds(String sql) {
+        Map<Integer, Integer> thresholds = new HashMap<>();
+        try (Connection conn = DBConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                thresholds.put(rs.getInt(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting stock thresholds: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return thresholds;
+    }
+
+    private boolean saveThreshold(String table, String keyColumn, int id, Integer threshold) {
+        String sql = threshold == null
+                ? "DELETE FROM " + table + " WHERE " + keyColumn + " = ?"
+                : "INSERT INTO " + table + " (" + keyColumn + ", threshold) VALUES (?, ?) " +
+                  "ON CONFLICT (" + keyColumn + ") DO UPDATE SET threshold = EXCLUDED.threshold";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, id);
+            if (threshold != null) {
+                pstmt.setInt(2, threshold);
+            }
+            pstmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error saving stock threshold: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+}
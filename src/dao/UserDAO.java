@@ -2,6 +2,7 @@ package dao;
 
 
 import model.User;
+import repository.UserRepository;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,7 +11,7 @@ import java.util.List;
  * Data Access Object for User entities.
  * Handles CRUD operations for Users in the database.
  */
-public class UserDAO {
+public class UserDAO implements UserRepository {
 
     /**
      * Adds a new user to the database.
@@ -48,14 +49,14 @@ public class UserDAO {
      * @return The User object if found, null otherwise.
      */
     public User getUserById(int id) {
-        String sql = "SELECT * FROM Users WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.USER.columns() + " FROM Users WHERE id = ?";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractUserFromResultSet(rs);
+                    return Projections.USER.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -71,14 +72,14 @@ public class UserDAO {
      * @return The User object if found, null otherwise.
      */
     public User getUserByUsername(String username) {
-        String sql = "SELECT * FROM Users WHERE username = ?";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.USER.columns() + " FROM Users WHERE username = ?";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, username);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return extractUserFromResultSet(rs);
+                    return Projections.USER.mapperFor(rs).map(rs);
                 }
             }
         } catch (SQLException e) {
@@ -94,13 +95,14 @@ public class UserDAO {
      */
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM Users";
-        try (Connection conn = DBConnection.getConnection();
+        String sql = "SELECT " + Projections.USER.columns() + " FROM Users";
+        try (Connection conn = DBConnection.getPrimaryReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
+            RowMapper<User> mapper = Projections.USER.mapperFor(rs);
             while (rs.next()) {
-                users.add(extractUserFromResultSet(rs));
+                users.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
@@ -152,19 +154,4 @@ public class UserDAO {
         }
         return false;
     }
-
-    /**
-     * Helper method to extract a User object from a ResultSet.
-     * @param rs The ResultSet containing user data.
-     * @return A User object.
-     * @throws SQLException If a database access error occurs.
-     */
-    private User extractUserFromResultSet(ResultSet rs) throws SQLException {
-        User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setUsername(rs.getString("username"));
-        user.setPassword(rs.getString("password"));
-        user.setRole(rs.getString("role"));
-        return user;
-    }
 }
@@ -0,0 +1,18 @@
+package event;
+
+import model.Book;
+
+/**
+ * Published after a book was added. The book carries its generated ID.
+ */
+public class BookAddedEvent extends DomainEvent {
+    private final Book book;
+
+    public BookAddedEvent(Book book) {
+        this.book = book;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
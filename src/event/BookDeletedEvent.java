@@ -0,0 +1,16 @@
+package event;
+
+/**
+ * Published after a book was deleted.
+ */
+public class BookDeletedEvent extends DomainEvent {
+    private final int bookId;
+
+    public BookDeletedEvent(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+}
@@ -0,0 +1,18 @@
+package event;
+
+import model.Book;
+
+/**
+ * Published after the details of a book were updated.
+ */
+public class BookUpdatedEvent extends DomainEvent {
+    private final Book book;
+
+    public BookUpdatedEvent(Book book) {
+        this.book = book;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
@@ -0,0 +1,31 @@
+package event;
+
+import model.Book;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published once after a batch operation changed or deleted several books,
+ * so subscribers refresh once for the whole batch instead of once per book.
+ */
+public class BooksChangedEvent extends DomainEvent {
+    private final List<Book> updatedBooks;
+    private final List<Integer> deletedBookIds;
+
+    public BooksChangedEvent(List<Book> updatedBooks, List<Integer> deletedBookIds) {
+        this.updatedBooks = Collections.unmodifiableList(updatedBooks);
+        this.deletedBookIds = Collections.unmodifiableList(deletedBookIds);
+    }
+
+    /**
+     * @return The updated books with their values after the batch.
+     */
+    public List<Book> getUpdatedBooks() {
+        return updatedBooks;
+    }
+
+    public List<Integer> getDeletedBookIds() {
+        return deletedBookIds;
+    }
+}
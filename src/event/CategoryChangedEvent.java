@@ -0,0 +1,29 @@
+package event;
+
+import model.Category;
+
+/**
+ * Published after a category was added, renamed or deleted.
+ */
+public class CategoryChangedEvent extends DomainEvent {
+    public enum ChangeType { ADDED, UPDATED, DELETED }
+
+    private final Category category;
+    private final ChangeType changeType;
+
+    public CategoryChangedEvent(Category category, ChangeType changeType) {
+        this.category = category;
+        this.changeType = changeType;
+    }
+
+    /**
+     * @return The category; for deletions only the ID is guaranteed to be set.
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+}
@@ -0,0 +1,43 @@
+package event;
+
+/**
+ * Carries short text messages between running instances of the application, used to tell the other
+ * terminals which books and categories changed. Implemented by {@link dao.PgNotifyTransport}
+ * (PostgreSQL LISTEN/NOTIFY) and {@link LocalChangeTransport} (in-process, for tests).
+ *
+ * A message sent is delivered to every instance listening on the same channel, the sender included,
+ * in the order it was sent.
+ */
+public interface ChangeTransport {
+
+    /**
+     * Receives the messages of a transport, on a thread of the transport.
+     */
+    interface Receiver {
+        void messageReceived(String message);
+
+        /**
+         * Called when messages may have been lost, e.g. after the transport reconnected.
+         */
+        void messagesLost();
+    }
+
+    /**
+     * Starts delivering messages to the receiver.
+     * @param receiver The receiver.
+     */
+    void start(Receiver receiver);
+
+    /**
+     * Sends a message to all instances. A message that cannot be sent is reported and dropped.
+     * @param message The message, at most {@link #getMaxMessageBytes()} bytes in UTF-8.
+     */
+    void send(String message);
+
+    int getMaxMessageBytes();
+
+    /**
+     * Stops receiving and releases the connection.
+     */
+    void close();
+}
@@ -0,0 +1,23 @@
+package event;
+
+/**
+ * Published when the database becomes unreachable or reachable again, and when the number of
+ * writes waiting in the offline outbox changes.
+ */
+public class ConnectivityChangedEvent extends DomainEvent {
+    private final boolean online;
+    private final int pendingOperations;
+
+    public ConnectivityChangedEvent(boolean online, int pendingOperations) {
+        this.online = online;
+        this.pendingOperations = pendingOperations;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public int getPendingOperations() {
+        return pendingOperations;
+    }
+}
@@ -0,0 +1,16 @@
+package event;
+
+/**
+ * Base class of all events published on the {@link EventBus}.
+ */
+public abstract class DomainEvent {
+    private final long timestamp;
+
+    protected DomainEvent() {
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
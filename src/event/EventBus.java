@@ -0,0 +1,104 @@
+package event;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process publish/subscribe bus for domain changes.
+ * Controllers publish an event after each successful write; panels subscribe to the event types
+ * they display and patch the affected rows or labels instead of reloading everything.
+ *
+ * A listener registered for a type also receives events of its subclasses, so subscribing to
+ * {@link DomainEvent} receives every event. Listeners registered with {@link #subscribeOnEdt}
+ * are always called on the Swing Event Dispatch Thread; others on the publishing thread.
+ */
+public final class EventBus {
+    private static final EventBus INSTANCE = new EventBus();
+
+    private final Map<Class<?>, List<Registration>> listeners = new ConcurrentHashMap<>();
+
+    private EventBus() {
+    }
+
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a listener that is called on the publishing thread.
+     * @param type The event type to receive (subclasses included).
+     * @param listener The listener.
+     * @return A subscription used to unregister the listener.
+     */
+    public <T extends DomainEvent> Subscription subscribe(Class<T> type, EventListener<? super T> listener) {
+        return register(type, listener, false);
+    }
+
+    /**
+     * Registers a listener that is always called on the Event Dispatch Thread.
+     * @param type The event type to receive (subclasses included).
+     * @param listener The listener.
+     * @return A subscription used to unregister the listener.
+     */
+    public <T extends DomainEvent> Subscription subscribeOnEdt(Class<T> type, EventListener<? super T> listener) {
+        return register(type, listener, true);
+    }
+
+    /**
+     * Delivers an event to every listener registered for its type or one of its supertypes.
+     * A failing listener is reported and does not prevent delivery to the others.
+     * @param event The event to publish.
+     */
+    public void publish(DomainEvent event) {
+        for (Class<?> type = event.getClass(); DomainEvent.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            List<Registration> registrations = listeners.get(type);
+            if (registrations == null) {
+                continue;
+            }
+            for (Registration registration : registrations) {
+                if (registration.onEdt && !SwingUtilities.isEventDispatchThread()) {
+                    SwingUtilities.invokeLater(() -> registration.deliver(event));
+                } else {
+                    registration.deliver(event);
+                }
+            }
+        }
+    }
+
+    private Subscription register(Class<?> type, EventListener<?> listener, boolean onEdt) {
+        Registration registration = new Registration(listener, onEdt);
+        List<Registration> registrations = listeners.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>());
+        registrations.add(registration);
+        return () -> {
+            registration.active = false;
+            registrations.remove(registration);
+        };
+    }
+
+    private static final class Registration {
+        private final EventListener<?> listener;
+        private final boolean onEdt;
+        private volatile boolean active = true;
+
+        Registration(EventListener<?> listener, boolean onEdt) {
+            this.listener = listener;
+            this.onEdt = onEdt;
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver(DomainEvent event) {
+            if (!active) {
+                return; // Unsubscribed while the event was queued for the EDT
+            }
+            try {
+                ((EventListener<DomainEvent>) listener).onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering " + event.getClass().getSimpleName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package event;
+
+/**
+ * Receives domain events of one type from the {@link EventBus}.
+ * @param <T> The event type.
+ */
+@FunctionalInterface
+public interface EventListener<T extends DomainEvent> {
+    void onEvent(T event);
+}
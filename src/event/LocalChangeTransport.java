@@ -0,0 +1,82 @@
+package event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link ChangeTransport} between endpoints in the same process, for testing change notifications
+ * without a database. Like NOTIFY, every message is delivered to all endpoints on the channel, the
+ * sender included, each on its own delivery thread and in the order sent.
+ */
+public class LocalChangeTransport implements ChangeTransport {
+    private static final int MAX_MESSAGE_BYTES = 7999; // Same limit as a PostgreSQL NOTIFY payload
+    private static final Map<String, List<LocalChangeTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private volatile Receiver receiver;
+    private ExecutorService delivery;
+
+    public LocalChangeTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public synchronized void start(Receiver receiver) {
+        if (this.receiver != null) {
+            return;
+        }
+        this.receiver = receiver;
+        delivery = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "local-changes-" + channel);
+            t.setDaemon(true);
+            return t;
+        });
+        CHANNELS.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void send(String message) {
+        if (message.getBytes(StandardCharsets.UTF_8).length > MAX_MESSAGE_BYTES) {
+            throw new IllegalArgumentException("Message longer than " + MAX_MESSAGE_BYTES + " bytes");
+        }
+        for (LocalChangeTransport endpoint : CHANNELS.getOrDefault(channel, List.of())) {
+            endpoint.deliver(message);
+        }
+    }
+
+    @Override
+    public int getMaxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public synchronized void close() {
+        List<LocalChangeTransport> endpoints = CHANNELS.get(channel);
+        if (endpoints != null) {
+            endpoints.remove(this);
+        }
+        if (delivery != null) {
+            delivery.shutdown();
+        }
+    }
+
+    /**
+     * Simulates a dropped connection: the receiver is told that messages may have been lost.
+     */
+    public synchronized void simulateReconnect() {
+        if (delivery != null) {
+            delivery.execute(() -> receiver.messagesLost());
+        }
+    }
+
+    private synchronized void deliver(String message) {
+        if (delivery != null && !delivery.isShutdown()) {
+            delivery.execute(() -> receiver.messageReceived(message));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package event;
+
+import model.LowStockAlert;
+
+/**
+ * Published when a book drops below its low-stock threshold, when the stock of a book already
+ * below it changes, and when a book is back at or above its threshold (or was deleted).
+ */
+public class LowStockAlertEvent extends DomainEvent {
+    public enum Kind { RAISED, UPDATED, CLEARED }
+
+    private final LowStockAlert alert;
+    private final Kind kind;
+
+    public LowStockAlertEvent(LowStockAlert alert, Kind kind) {
+        this.alert = alert;
+        this.kind = kind;
+    }
+
+    /**
+     * @return The alert; for CLEARED the last alert raised for the book.
+     */
+    public LowStockAlert getAlert() {
+        return alert;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+}
@@ -0,0 +1,23 @@
+package event;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Published once after a bulk repricing, with the new price of every changed book.
+ */
+public class PricesChangedEvent extends DomainEvent {
+    private final Map<Integer, BigDecimal> newPrices;
+
+    public PricesChangedEvent(Map<Integer, BigDecimal> newPrices) {
+        this.newPrices = Collections.unmodifiableMap(newPrices);
+    }
+
+    /**
+     * @return New prices by book ID.
+     */
+    public Map<Integer, BigDecimal> getNewPrices() {
+        return newPrices;
+    }
+}
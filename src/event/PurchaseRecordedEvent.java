@@ -0,0 +1,18 @@
+package event;
+
+import model.Purchase;
+
+/**
+ * Published after a purchase was recorded.
+ */
+public class PurchaseRecordedEvent extends DomainEvent {
+    private final Purchase purchase;
+
+    public PurchaseRecordedEvent(Purchase purchase) {
+        this.purchase = purchase;
+    }
+
+    public Purchase getPurchase() {
+        return purchase;
+    }
+}
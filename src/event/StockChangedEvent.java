@@ -0,0 +1,28 @@
+package event;
+
+/**
+ * Published after the stock quantity of a book changed, e.g. by a purchase.
+ */
+public class StockChangedEvent extends DomainEvent {
+    private final int bookId;
+    private final int quantity; // Quantity after the change
+    private final int delta;
+
+    public StockChangedEvent(int bookId, int quantity, int delta) {
+        this.bookId = bookId;
+        this.quantity = quantity;
+        this.delta = delta;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+}
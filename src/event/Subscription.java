@@ -0,0 +1,9 @@
+package event;
+
+/**
+ * Handle returned by {@link EventBus#subscribe}, used to stop receiving events.
+ */
+@FunctionalInterface
+public interface Subscription {
+    void unsubscribe();
+}
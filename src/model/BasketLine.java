@@ -0,0 +1,72 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a checkout basket: a book and the number of copies being bought.
+ * The price is the one shown while scanning; the sale is charged at the price stored when it is committed.
+ */
+public class BasketLine {
+    private int bookId;
+    private String isbn;
+    private String title;
+    private BigDecimal unitPrice;
+    private int quantity;
+
+    // Constructors
+    public BasketLine() {
+    }
+
+    public BasketLine(int bookId, String isbn, String title, BigDecimal unitPrice, int quantity) {
+        this.bookId = bookId;
+        this.isbn = isbn;
+        this.title = title;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getLineTotal() {
+        return unitPrice.multiply(new BigDecimal(quantity));
+    }
+
+    // Getters and Setters
+    public int getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
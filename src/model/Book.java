@@ -1,9 +1,10 @@
 package model;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Date;
 
-public class Book {
+public class Book implements Serializable {
     private int id;
     private String title;
     private String author;
@@ -14,6 +15,7 @@ public class Book {
     private Date publicationDate;
     private String description;
     private String imageUrl;
+    private int version; // Incremented by every update, used for optimistic locking
 
     // No-argument constructor
     public Book() {
@@ -48,6 +50,13 @@ public class Book {
         this.imageUrl = imageUrl;
     }
 
+    // Copy constructor (e.g. to keep the state a form was loaded from)
+    public Book(Book other) {
+        this(other.id, other.title, other.author, other.categoryId, other.price, other.quantity,
+                other.isbn, other.publicationDate, other.description, other.imageUrl);
+        this.version = other.version;
+    }
+
     // Getters and Setters
     public int getId() {
         return id;
@@ -128,4 +137,12 @@ public class Book {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The editable columns of a book, used to write only the fields an edit actually changed.
+ */
+public enum BookField {
+    TITLE("title", Book::getTitle, (b, v) -> b.setTitle((String) v)),
+    AUTHOR("author", Book::getAuthor, (b, v) -> b.setAuthor((String) v)),
+    CATEGORY_ID("category_id", Book::getCategoryId, (b, v) -> b.setCategoryId((Integer) v)),
+    PRICE("price", Book::getPrice, (b, v) -> b.setPrice((BigDecimal) v)),
+    QUANTITY("quantity", Book::getQuantity, (b, v) -> b.setQuantity((Integer) v)),
+    ISBN("isbn", Book::getIsbn, (b, v) -> b.setIsbn((String) v)),
+    PUBLICATION_DATE("publication_date", Book::getPublicationDate, (b, v) -> b.setPublicationDate((Date) v)),
+    DESCRIPTION("description", Book::getDescription, (b, v) -> b.setDescription((String) v)),
+    IMAGE_URL("image_url", Book::getImageUrl, (b, v) -> b.setImageUrl((String) v));
+
+    private final String column;
+    private final Function<Book, Object> getter;
+    private final BiConsumer<Book, Object> setter;
+
+    BookField(String column, Function<Book, Object> getter, BiConsumer<Book, Object> setter) {
+        this.column = column;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Object get(Book book) {
+        return getter.apply(book);
+    }
+
+    public void set(Book book, Object value) {
+        setter.accept(book, value);
+    }
+
+    /**
+     * Compares two states of a book.
+     * @param before The earlier state.
+     * @param after The later state.
+     * @return The fields whose value differs, with their value in the later state.
+     */
+    public static Map<BookField, Object> diff(Book before, Book after) {
+        Map<BookField, Object> changes = new EnumMap<>(BookField.class);
+        for (BookField field : values()) {
+            Object oldValue = field.get(before);
+            Object newValue = field.get(after);
+            boolean equal;
+            if (oldValue instanceof BigDecimal && newValue instanceof BigDecimal) {
+                equal = ((BigDecimal) oldValue).compareTo((BigDecimal) newValue) == 0; // 12.5 equals 12.50
+            } else if (oldValue == null && "".equals(newValue) || "".equals(oldValue) && newValue == null) {
+                equal = true; // Empty form fields for NULL columns are not an edit
+            } else {
+                equal = Objects.equals(oldValue, newValue);
+            }
+            if (!equal) {
+                changes.put(field, newValue);
+            }
+        }
+        return changes;
+    }
+}
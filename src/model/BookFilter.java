@@ -0,0 +1,71 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Criteria selecting a set of books. Unset criteria (null, or 0 for the category) match every book.
+ */
+public class BookFilter {
+    private int categoryId; // 0 = any category
+    private String author;  // Case-insensitive substring of the author
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+
+    // Constructors
+    public BookFilter() {
+    }
+
+    public BookFilter(int categoryId, String author, BigDecimal minPrice, BigDecimal maxPrice) {
+        this.categoryId = categoryId;
+        this.author = author;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Evaluates the filter in memory, with the same semantics as the SQL used by BookDAO.
+     * @param book The book to test.
+     * @return true if the book matches every set criterion.
+     */
+    public boolean matches(Book book) {
+        return (categoryId == 0 || book.getCategoryId() == categoryId)
+                && (author == null || author.isEmpty()
+                    || book.getAuthor().toLowerCase(Locale.ROOT).contains(author.toLowerCase(Locale.ROOT)))
+                && (minPrice == null || book.getPrice().compareTo(minPrice) >= 0)
+                && (maxPrice == null || book.getPrice().compareTo(maxPrice) <= 0);
+    }
+
+    // Getters and Setters
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * Outcome of an optimistic-lock book update.
+ */
+public class BookUpdateResult {
+    public enum Status {
+        UPDATED,   // Written; the book is the row after the update
+        CONFLICT,  // Someone else changed the book first; the book is their current version
+        NOT_FOUND, // The book was deleted
+        FAILED     // Database error
+    }
+
+    private final Status status;
+    private final Book book;
+
+    public BookUpdateResult(Status status, Book book) {
+        this.status = status;
+        this.book = book;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The book after the update (UPDATED), the current book (CONFLICT), or null.
+     */
+    public Book getBook() {
+        return book;
+    }
+}
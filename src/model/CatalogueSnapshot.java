@@ -0,0 +1,455 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Columnar, compact copy of the catalogue for analytics and in-memory search.
+ *
+ * Each field is a primitive array indexed by row; rows are sorted by book ID. Prices are stored as cents,
+ * publication dates as epoch days, authors as codes into a dictionary of distinct names, and titles and
+ * ISBNs as UTF-8 bytes in one shared array per column. A book costs well under 100 bytes instead of the
+ * kilobyte or so of a {@link Book} with its BigDecimal, Date and Strings. Descriptions and image URLs are
+ * not kept; load the full book by ID when needed.
+ *
+ * Built once by {@link Builder}; afterwards only quantities and prices can be patched in place.
+ * Scans take row indexes (int[]) and return row indexes, so filters can be chained without copying books.
+ */
+public final class CatalogueSnapshot {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final int size;
+    private final int[] ids;
+    private final long[] priceCents;
+    private final int[] quantities;
+    private final int[] categoryIds;     // 0 = no category
+    private final int[] authorCodes;
+    private final String[] authors;      // Dictionary: distinct author names
+    private final int[] publicationDays; // Epoch day, or NO_DATE
+    private final byte[] titleBytes;
+    private final int[] titleOffsets;    // size + 1 offsets into titleBytes
+    private final byte[] isbnBytes;
+    private final int[] isbnOffsets;
+    private final Map<Integer, String> categoryNames;
+    private final long builtAt;
+
+    private CatalogueSnapshot(Builder b, int[] order) {
+        size = b.size;
+        ids = new int[size];
+        priceCents = new long[size];
+        quantities = new int[size];
+        categoryIds = new int[size];
+        authorCodes = new int[size];
+        publicationDays = new int[size];
+        titleOffsets = new int[size + 1];
+        isbnOffsets = new int[size + 1];
+        titleBytes = new byte[b.titleLength];
+        isbnBytes = new byte[b.isbnLength];
+        int titlePos = 0;
+        int isbnPos = 0;
+        for (int row = 0; row < size; row++) {
+            int src = order != null ? order[row] : row;
+            ids[row] = b.ids[src];
+            priceCents[row] = b.priceCents[src];
+            quantities[row] = b.quantities[src];
+            categoryIds[row] = b.categoryIds[src];
+            authorCodes[row] = b.authorCodes[src];
+            publicationDays[row] = b.publicationDays[src];
+            titlePos = copySlice(b.titleBytes, b.titleOffsets, src, titleBytes, titlePos);
+            titleOffsets[row + 1] = titlePos;
+            isbnPos = copySlice(b.isbnBytes, b.isbnOffsets, src, isbnBytes, isbnPos);
+            isbnOffsets[row + 1] = isbnPos;
+        }
+        authors = b.authorList.toArray(new String[0]);
+        categoryNames = new HashMap<>(b.categoryNames);
+        builtAt = System.currentTimeMillis();
+    }
+
+    private static int copySlice(byte[] src, int[] srcOffsets, int index, byte[] dst, int pos) {
+        int length = srcOffsets[index + 1] - srcOffsets[index];
+        System.arraycopy(src, srcOffsets[index], dst, pos, length);
+        return pos + length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return When the snapshot was built, in epoch milliseconds.
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * @return The row of the book, or -1 if the book is not in the snapshot.
+     */
+    public int rowOf(int bookId) {
+        int row = Arrays.binarySearch(ids, 0, size, bookId);
+        return row >= 0 ? row : -1;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getTitle(int row) {
+        return new String(titleBytes, titleOffsets[row], titleOffsets[row + 1] - titleOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    public String getAuthor(int row) {
+        return authors[authorCodes[row]];
+    }
+
+    public int getCategoryId(int row) {
+        return categoryIds[row];
+    }
+
+    /**
+     * @return The category name, or null if the book has no category.
+     */
+    public String getCategoryName(int row) {
+        return categoryNames.get(categoryIds[row]);
+    }
+
+    public long getPriceCents(int row) {
+        return priceCents[row];
+    }
+
+    public BigDecimal getPrice(int row) {
+        return BigDecimal.valueOf(priceCents[row], 2);
+    }
+
+    public int getQuantity(int row) {
+        return quantities[row];
+    }
+
+    public String getIsbn(int row) {
+        int length = isbnOffsets[row + 1] - isbnOffsets[row];
+        return length > 0 ? new String(isbnBytes, isbnOffsets[row], length, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * @return The publication date, or null if unknown.
+     */
+    public LocalDate getPublicationDate(int row) {
+        return publicationDays[row] != NO_DATE ? LocalDate.ofEpochDay(publicationDays[row]) : null;
+    }
+
+    /**
+     * @return The book of a row, without description and image URL.
+     */
+    public Book toBook(int row) {
+        LocalDate date = getPublicationDate(row);
+        Book book = new Book(getTitle(row), getAuthor(row), categoryIds[row], getPrice(row), quantities[row],
+                getIsbn(row), date != null ? Date.valueOf(date) : null, null, null);
+        book.setId(ids[row]);
+        return book;
+    }
+
+    /**
+     * Patches the stock of a book, e.g. after a purchase.
+     * @return true if the book is in the snapshot.
+     */
+    public boolean updateQuantity(int bookId, int quantity) {
+        int row = rowOf(bookId);
+        if (row < 0) {
+            return false;
+        }
+        quantities[row] = quantity;
+        return true;
+    }
+
+    /**
+     * Patches the price of a book, e.g. after a repricing.
+     * @return true if the book is in the snapshot.
+     */
+    public boolean updatePrice(int bookId, BigDecimal price) {
+        int row = rowOf(bookId);
+        if (row < 0) {
+            return false;
+        }
+        priceCents[row] = toCents(price);
+        return true;
+    }
+
+    /**
+     * @return Every row, for use as the input of further scans.
+     */
+    public int[] allRows() {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    /**
+     * @return The rows, in ID order, for which the predicate on the row index is true.
+     */
+    public int[] select(IntPredicate rowPredicate) {
+        int[] result = new int[16];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (rowPredicate.test(row)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = row;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Evaluates a filter with the same semantics as {@link BookFilter#matches}. The author criterion is
+     * tested once per distinct author, then rows are matched by author code.
+     * @return The matching rows in ID order.
+     */
+    public int[] select(BookFilter filter) {
+        int categoryId = filter.getCategoryId();
+        long minCents = filter.getMinPrice() != null ? toCents(filter.getMinPrice()) : Long.MIN_VALUE;
+        long maxCents = filter.getMaxPrice() != null ? toCents(filter.getMaxPrice()) : Long.MAX_VALUE;
+        boolean[] authorMatches = filter.getAuthor() == null || filter.getAuthor().isEmpty()
+                ? null : matchAuthors(filter.getAuthor());
+        return select(row -> (categoryId == 0 || categoryIds[row] == categoryId)
+                && priceCents[row] >= minCents && priceCents[row] <= maxCents
+                && (authorMatches == null || authorMatches[authorCodes[row]]));
+    }
+
+    /**
+     * Case-insensitive substring search on title, author and ISBN, without the database. Unlike the SQL keyword
+     * search, which uses case-sensitive LIKE and also matches IDs and category names, "tolkien" finds "Tolkien".
+     * Titles and ISBNs are matched on their UTF-8 bytes (ASCII letters fold case); authors once per distinct name.
+     * @return The matching rows in ID order.
+     */
+    public int[] search(String keyword) {
+        byte[] needle = keyword.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        boolean[] authorMatches = matchAuthors(keyword);
+        return select(row -> authorMatches[authorCodes[row]]
+                || containsIgnoreCase(titleBytes, titleOffsets[row], titleOffsets[row + 1], needle)
+                || containsIgnoreCase(isbnBytes, isbnOffsets[row], isbnOffsets[row + 1], needle));
+    }
+
+    /**
+     * @return The sum of the quantities of the rows.
+     */
+    public long sumQuantity(int[] rows) {
+        long total = 0;
+        for (int row : rows) {
+            total += quantities[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return The value of the stock (price x quantity) of the rows, in cents.
+     */
+    public long stockValueCents(int[] rows) {
+        long total = 0;
+        for (int row : rows) {
+            total += priceCents[row] * quantities[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return The value of the whole stock, in cents.
+     */
+    public long stockValueCents() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += priceCents[row] * quantities[row];
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of books per category ID (0 = no category), in ascending category order.
+     */
+    public Map<Integer, Integer> countByCategory() {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            max = Math.max(max, categoryIds[row]);
+        }
+        int[] counts = new int[max + 1];
+        for (int row = 0; row < size; row++) {
+            counts[categoryIds[row]]++;
+        }
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int categoryId = 0; categoryId < counts.length; categoryId++) {
+            if (counts[categoryId] > 0) {
+                result.put(categoryId, counts[categoryId]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return An estimate of the heap used by the columns, in bytes.
+     */
+    public long estimatedBytes() {
+        long bytes = (long) size * (4 + 8 + 4 + 4 + 4 + 4) + 8L * (size + 1) + titleBytes.length + isbnBytes.length;
+        for (String author : authors) {
+            bytes += 40 + author.length();
+        }
+        return bytes;
+    }
+
+    private boolean[] matchAuthors(String keyword) {
+        String lower = keyword.toLowerCase(Locale.ROOT);
+        boolean[] matches = new boolean[authors.length];
+        for (int code = 0; code < authors.length; code++) {
+            matches[code] = authors[code].toLowerCase(Locale.ROOT).contains(lower);
+        }
+        return matches;
+    }
+
+    private static boolean containsIgnoreCase(byte[] haystack, int from, int to, byte[] needle) {
+        if (needle.length == 0) {
+            return true;
+        }
+        outer:
+        for (int i = from; i <= to - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                byte b = haystack[i + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Accumulates rows in any order; {@link #build()} sorts them by ID.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private long[] priceCents = new long[1024];
+        private int[] quantities = new int[1024];
+        private int[] categoryIds = new int[1024];
+        private int[] authorCodes = new int[1024];
+        private int[] publicationDays = new int[1024];
+        private byte[] titleBytes = new byte[32 * 1024];
+        private int[] titleOffsets = new int[1025];
+        private int titleLength;
+        private byte[] isbnBytes = new byte[16 * 1024];
+        private int[] isbnOffsets = new int[1025];
+        private int isbnLength;
+        private final Map<String, Integer> authorCodeByName = new HashMap<>();
+        private final List<String> authorList = new ArrayList<>();
+        private final Map<Integer, String> categoryNames = new HashMap<>();
+
+        public Builder addCategory(int categoryId, String name) {
+            categoryNames.put(categoryId, name);
+            return this;
+        }
+
+        /**
+         * Adds one book.
+         * @param categoryId The category, or 0 for none.
+         * @param publicationDate The publication date, or null.
+         */
+        public Builder addBook(int id, String title, String author, int categoryId, BigDecimal price, int quantity,
+                               String isbn, Date publicationDate) {
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = id;
+            priceCents[size] = price != null ? toCents(price) : 0;
+            quantities[size] = quantity;
+            categoryIds[size] = Math.max(categoryId, 0);
+            String authorName = author != null ? author : "";
+            Integer code = authorCodeByName.get(authorName);
+            if (code == null) {
+                code = authorList.size();
+                authorList.add(authorName);
+                authorCodeByName.put(authorName, code);
+            }
+            authorCodes[size] = code;
+            publicationDays[size] = publicationDate != null ? (int) publicationDate.toLocalDate().toEpochDay() : NO_DATE;
+            titleLength = append(title, true);
+            titleOffsets[size + 1] = titleLength;
+            isbnLength = append(isbn, false);
+            isbnOffsets[size + 1] = isbnLength;
+            size++;
+            return this;
+        }
+
+        public Builder addBook(Book book) {
+            return addBook(book.getId(), book.getTitle(), book.getAuthor(), book.getCategoryId(), book.getPrice(),
+                    book.getQuantity(), book.getIsbn(), book.getPublicationDate());
+        }
+
+        private int append(String value, boolean title) {
+            byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            byte[] target = title ? titleBytes : isbnBytes;
+            int length = title ? titleLength : isbnLength;
+            if (length + bytes.length > target.length) {
+                target = Arrays.copyOf(target, Math.max(target.length * 2, length + bytes.length));
+                if (title) {
+                    titleBytes = target;
+                } else {
+                    isbnBytes = target;
+                }
+            }
+            System.arraycopy(bytes, 0, target, length, bytes.length);
+            return length + bytes.length;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            authorCodes = Arrays.copyOf(authorCodes, capacity);
+            publicationDays = Arrays.copyOf(publicationDays, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity + 1);
+            isbnOffsets = Arrays.copyOf(isbnOffsets, capacity + 1);
+        }
+
+        public CatalogueSnapshot build() {
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = ids[i - 1] < ids[i];
+            }
+            int[] order = null;
+            if (!sorted) {
+                // Sort row numbers by ID: pack (id, row) into longs so no boxing is needed
+                long[] keyed = new long[size];
+                for (int i = 0; i < size; i++) {
+                    keyed[i] = ((long) ids[i] << 32) | i;
+                }
+                Arrays.sort(keyed);
+                order = new int[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = (int) keyed[i];
+                }
+            }
+            return new CatalogueSnapshot(this, order);
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package model;
 
+import java.io.Serializable;
 import lombok.Data;
 
-public class Category {
+public class Category implements Serializable {
     private int id;
     private String name;
 
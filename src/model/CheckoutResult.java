@@ -0,0 +1,43 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of committing a checkout basket. Either every line was sold or none was, whether the
+ * basket went to the database, the purchase journal or the offline outbox.
+ */
+public class CheckoutResult {
+    private final List<Purchase> purchases;         // Recorded purchases, at the prices charged
+    private final Map<Integer, Integer> quantities; // Stock after the sale by book ID
+    private final int failedBookId;                 // The book that could not be sold, 0 if none
+    private final String message;                   // Why it could not be sold, null if none
+
+    public CheckoutResult(List<Purchase> purchases, Map<Integer, Integer> quantities, int failedBookId, String message) {
+        this.purchases = Collections.unmodifiableList(purchases);
+        this.quantities = Collections.unmodifiableMap(quantities);
+        this.failedBookId = failedBookId;
+        this.message = message;
+    }
+
+    public boolean isSuccess() {
+        return message == null;
+    }
+
+    public List<Purchase> getPurchases() {
+        return purchases;
+    }
+
+    public Map<Integer, Integer> getQuantities() {
+        return quantities;
+    }
+
+    public int getFailedBookId() {
+        return failedBookId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,134 @@
+package model;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A faceted browse: an optional keyword, the selected values of each facet and the page of results wanted.
+ * Values selected within one facet are alternatives (OR); different facets must all match (AND).
+ * The count of a facet value is the number of books it would match given the keyword and the
+ * selections of the other facets, so selecting a value never hides the alternatives of its facet.
+ */
+public class FacetQuery {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_FACET_LIMIT = 15;
+    public static final int UNKNOWN_DECADE = -1; // Books without a publication date
+
+    private String keyword;                                              // Null or empty = every book
+    private Set<Integer> categoryIds = new LinkedHashSet<>();            // 0 = uncategorized
+    private Set<String> authors = new LinkedHashSet<>();
+    private Set<PriceBand> priceBands = EnumSet.noneOf(PriceBand.class);
+    private Set<Integer> decades = new LinkedHashSet<>();                // 1990 = 1990-1999
+    private int offset;
+    private int limit = DEFAULT_PAGE_SIZE;
+    private int facetLimit = DEFAULT_FACET_LIMIT;                        // Values listed per facet
+
+    // Constructors
+    public FacetQuery() {
+    }
+
+    public FacetQuery(String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * @param publicationDate The publication date of a book, or null.
+     * @return The first year of its decade, or UNKNOWN_DECADE.
+     */
+    public static int decadeOf(Date publicationDate) {
+        if (publicationDate == null) {
+            return UNKNOWN_DECADE;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(publicationDate);
+        return calendar.get(Calendar.YEAR) / 10 * 10;
+    }
+
+    public boolean hasKeyword() {
+        return keyword != null && !keyword.isEmpty();
+    }
+
+    public boolean matchesCategory(Book book) {
+        return categoryIds.isEmpty() || categoryIds.contains(book.getCategoryId());
+    }
+
+    public boolean matchesAuthor(Book book) {
+        return authors.isEmpty() || authors.contains(book.getAuthor());
+    }
+
+    public boolean matchesPriceBand(Book book) {
+        return priceBands.isEmpty() || priceBands.contains(PriceBand.of(book.getPrice()));
+    }
+
+    public boolean matchesDecade(Book book) {
+        return decades.isEmpty() || decades.contains(decadeOf(book.getPublicationDate()));
+    }
+
+    // Getters and Setters
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public Set<Integer> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public void setCategoryIds(Set<Integer> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+
+    public Set<String> getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(Set<String> authors) {
+        this.authors = authors;
+    }
+
+    public Set<PriceBand> getPriceBands() {
+        return priceBands;
+    }
+
+    public void setPriceBands(Set<PriceBand> priceBands) {
+        this.priceBands = priceBands;
+    }
+
+    public Set<Integer> getDecades() {
+        return decades;
+    }
+
+    public void setDecades(Set<Integer> decades) {
+        this.decades = decades;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getFacetLimit() {
+        return facetLimit;
+    }
+
+    public void setFacetLimit(int facetLimit) {
+        this.facetLimit = facetLimit;
+    }
+}
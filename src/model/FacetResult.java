@@ -0,0 +1,114 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The result of a {@link FacetQuery}: one page of matching books, the total number of matches and
+ * the count of every listed facet value.
+ */
+public class FacetResult {
+    private final List<Book> books;
+    private final int totalMatches;
+    private final Map<Integer, Integer> categoryCounts;
+    private final Map<String, Integer> authorCounts;
+    private final Map<PriceBand, Integer> priceBandCounts;
+    private final Map<Integer, Integer> decadeCounts;
+
+    /**
+     * Orders the counts for display: selected values, then the most frequent; values without matches
+     * are dropped unless selected, so they can still be deselected.
+     */
+    public FacetResult(List<Book> books, int totalMatches, FacetQuery query, Map<Integer, Integer> categoryCounts,
+                       Map<String, Integer> authorCounts, Map<PriceBand, Integer> priceBandCounts,
+                       Map<Integer, Integer> decadeCounts) {
+        this.books = Collections.unmodifiableList(books);
+        this.totalMatches = totalMatches;
+        this.categoryCounts = ranked(categoryCounts, query.getCategoryIds(), query.getFacetLimit());
+        this.authorCounts = ranked(authorCounts, query.getAuthors(), query.getFacetLimit());
+        this.priceBandCounts = inKeyOrder(priceBandCounts, query.getPriceBands());
+        this.decadeCounts = inKeyOrder(decadeCounts, query.getDecades());
+    }
+
+    private static <K extends Comparable<K>> Map<K, Integer> ranked(Map<K, Integer> counts, Set<K> selected, int limit) {
+        List<Map.Entry<K, Integer>> entries = new ArrayList<>(withSelected(counts, selected).entrySet());
+        entries.sort((a, b) -> {
+            boolean aSelected = selected.contains(a.getKey());
+            if (aSelected != selected.contains(b.getKey())) {
+                return aSelected ? -1 : 1;
+            }
+            int byCount = Integer.compare(b.getValue(), a.getValue());
+            return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+        });
+        Map<K, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<K, Integer> entry : entries) {
+            if (result.size() >= Math.max(limit, selected.size())) {
+                break;
+            }
+            if (entry.getValue() > 0 || selected.contains(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static <K extends Comparable<K>> Map<K, Integer> inKeyOrder(Map<K, Integer> counts, Set<K> selected) {
+        Map<K, Integer> result = new TreeMap<>();
+        withSelected(counts, selected).forEach((key, count) -> {
+            if (count > 0 || selected.contains(key)) {
+                result.put(key, count);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Selected values the keyword excludes entirely have no count; list them with 0.
+     */
+    private static <K> Map<K, Integer> withSelected(Map<K, Integer> counts, Set<K> selected) {
+        Map<K, Integer> all = new HashMap<>(counts);
+        for (K key : selected) {
+            all.putIfAbsent(key, 0);
+        }
+        return all;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public int getTotalMatches() {
+        return totalMatches;
+    }
+
+    /**
+     * @return Counts by category ID (0 = uncategorized), most frequent first.
+     */
+    public Map<Integer, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    /**
+     * @return Counts by author, most frequent first.
+     */
+    public Map<String, Integer> getAuthorCounts() {
+        return authorCounts;
+    }
+
+    public Map<PriceBand, Integer> getPriceBandCounts() {
+        return priceBandCounts;
+    }
+
+    /**
+     * @return Counts by decade, oldest first; FacetQuery.UNKNOWN_DECADE sorts first.
+     */
+    public Map<Integer, Integer> getDecadeCounts() {
+        return decadeCounts;
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * A book whose stock is below its low-stock threshold.
+ */
+public class LowStockAlert {
+    private final int bookId;
+    private final String title;
+    private final int categoryId;
+    private final int quantity;
+    private final int threshold;
+
+    public LowStockAlert(int bookId, String title, int categoryId, int quantity, int threshold) {
+        this.bookId = bookId;
+        this.title = title;
+        this.categoryId = categoryId;
+        this.quantity = quantity;
+        this.threshold = threshold;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return title + " (" + quantity + " left, threshold " + threshold + ")";
+    }
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * A write made while the database was unreachable, waiting in the local outbox to be replayed.
+ * The operation ID makes the replay idempotent: an entry that was already applied is skipped.
+ */
+public class OutboxEntry {
+    public enum Type {
+        PURCHASE,        // A sale; records the purchase and takes the quantity out of stock
+        STOCK_ADJUSTMENT // A manual stock change by quantity (positive or negative)
+    }
+
+    private String operationId;
+    private Type type;
+    private int bookId;
+    private int quantity;
+    private String bookTitle;
+    private String bookImage;
+    private BigDecimal bookPrice;
+    private int userId;
+    private Timestamp createdAt;
+
+    // Constructors
+    public OutboxEntry() {
+    }
+
+    public OutboxEntry(String operationId, Type type, int bookId, int quantity, Timestamp createdAt) {
+        this.operationId = operationId;
+        this.type = type;
+        this.bookId = bookId;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @param operationId Unique ID of the operation.
+     * @param purchase The purchase made offline.
+     * @return A PURCHASE entry.
+     */
+    public static OutboxEntry forPurchase(String operationId, Purchase purchase) {
+        OutboxEntry entry = new OutboxEntry(operationId, Type.PURCHASE, purchase.getBookId(), purchase.getQuantity(), purchase.getPurchaseDate());
+        entry.setBookTitle(purchase.getBookTitle());
+        entry.setBookImage(purchase.getBookImage());
+        entry.setBookPrice(purchase.getBookPrice());
+        entry.setUserId(purchase.getUserId());
+        return entry;
+    }
+
+    /**
+     * @return The purchase recorded by a PURCHASE entry.
+     */
+    public Purchase toPurchase() {
+        return new Purchase(bookId, bookTitle, bookImage, bookPrice, quantity,
+                bookPrice.multiply(new BigDecimal(quantity)), createdAt, userId);
+    }
+
+    // Getters and Setters
+    public String getOperationId() {
+        return operationId;
+    }
+
+    public void setOperationId(String operationId) {
+        this.operationId = operationId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public String getBookImage() {
+        return bookImage;
+    }
+
+    public void setBookImage(String bookImage) {
+        this.bookImage = bookImage;
+    }
+
+    public BigDecimal getBookPrice() {
+        return bookPrice;
+    }
+
+    public void setBookPrice(BigDecimal bookPrice) {
+        this.bookPrice = bookPrice;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+}
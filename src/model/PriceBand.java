@@ -0,0 +1,50 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * Price ranges offered as a browse facet. Each band includes its lower bound and excludes its upper bound.
+ */
+public enum PriceBand {
+    UNDER_10(null, "10", "Under $10"),
+    FROM_10_TO_20("10", "20", "$10 - $20"),
+    FROM_20_TO_50("20", "50", "$20 - $50"),
+    FROM_50_TO_100("50", "100", "$50 - $100"),
+    FROM_100("100", null, "$100 and over");
+
+    private final BigDecimal min; // Null = no lower bound
+    private final BigDecimal max; // Null = no upper bound
+    private final String label;
+
+    PriceBand(String min, String max, String label) {
+        this.min = min != null ? new BigDecimal(min) : null;
+        this.max = max != null ? new BigDecimal(max) : null;
+        this.label = label;
+    }
+
+    /**
+     * @param price The price of a book.
+     * @return The band containing the price.
+     */
+    public static PriceBand of(BigDecimal price) {
+        for (PriceBand band : values()) {
+            if (band.max == null || price.compareTo(band.max) < 0) {
+                return band;
+            }
+        }
+        throw new IllegalStateException("The last band has no upper bound");
+    }
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of purchase history and the query of the page after it.
+ */
+public class PurchasePage {
+    private final List<Purchase> purchases;
+    private final PurchaseQuery nextQuery;
+
+    public PurchasePage(List<Purchase> purchases, PurchaseQuery nextQuery) {
+        this.purchases = Collections.unmodifiableList(purchases);
+        this.nextQuery = nextQuery;
+    }
+
+    public List<Purchase> getPurchases() {
+        return purchases;
+    }
+
+    /**
+     * @return The query of the next page, or null if this is the last page.
+     */
+    public PurchaseQuery getNextQuery() {
+        return nextQuery;
+    }
+
+    public boolean hasMore() {
+        return nextQuery != null;
+    }
+}
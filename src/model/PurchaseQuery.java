@@ -0,0 +1,123 @@
+package model;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Criteria and position of one page of purchase history, newest first.
+ * Unset criteria (0 for user and book, null for dates) match every purchase. Pages continue after the
+ * last purchase of the previous page (keyset pagination), so fetching page n costs the same as page 1.
+ */
+public class PurchaseQuery {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private int userId;          // 0 = any user
+    private int bookId;          // 0 = any book
+    private LocalDate from;      // Inclusive
+    private LocalDate to;        // Inclusive
+    private Timestamp afterDate; // Keyset position: purchase date and ID of the last purchase already shown
+    private int afterId;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    // Constructors
+    public PurchaseQuery() {
+    }
+
+    public PurchaseQuery(int userId, int bookId, LocalDate from, LocalDate to) {
+        this.userId = userId;
+        this.bookId = bookId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param last The last purchase of the current page.
+     * @return The query of the page after it.
+     */
+    public PurchaseQuery after(Purchase last) {
+        PurchaseQuery next = new PurchaseQuery(userId, bookId, from, to);
+        next.setPageSize(pageSize);
+        next.setAfterDate(last.getPurchaseDate());
+        next.setAfterId(last.getId());
+        return next;
+    }
+
+    /**
+     * @return true if the purchase matches the criteria, ignoring the page position.
+     */
+    public boolean matches(Purchase purchase) {
+        LocalDate day = purchase.getPurchaseDate() != null ? purchase.getPurchaseDate().toLocalDateTime().toLocalDate() : null;
+        return (userId == 0 || purchase.getUserId() == userId)
+                && (bookId == 0 || purchase.getBookId() == bookId)
+                && (from == null || (day != null && !day.isBefore(from)))
+                && (to == null || (day != null && !day.isAfter(to)));
+    }
+
+    /**
+     * @return true if the purchase comes after the keyset position, in newest-first order.
+     */
+    public boolean isAfterPosition(Purchase purchase) {
+        if (afterDate == null) {
+            return true;
+        }
+        int byDate = purchase.getPurchaseDate().compareTo(afterDate);
+        return byDate < 0 || (byDate == 0 && purchase.getId() < afterId);
+    }
+
+    // Getters and Setters
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public Timestamp getAfterDate() {
+        return afterDate;
+    }
+
+    public void setAfterDate(Timestamp afterDate) {
+        this.afterDate = afterDate;
+    }
+
+    public int getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(int afterId) {
+        this.afterId = afterId;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
@@ -0,0 +1,47 @@
+package model;
+
+/**
+ * A book that should be reordered, with the figures the suggestion is based on.
+ */
+public class ReorderSuggestion {
+    private final int bookId;
+    private final String title;
+    private final int quantity;
+    private final double unitsPerDay;
+    private final double daysUntilStockout;
+    private final int suggestedQuantity;
+
+    public ReorderSuggestion(int bookId, String title, int quantity, double unitsPerDay,
+                             double daysUntilStockout, int suggestedQuantity) {
+        this.bookId = bookId;
+        this.title = title;
+        this.quantity = quantity;
+        this.unitsPerDay = unitsPerDay;
+        this.daysUntilStockout = daysUntilStockout;
+        this.suggestedQuantity = suggestedQuantity;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public double getUnitsPerDay() {
+        return unitsPerDay;
+    }
+
+    public double getDaysUntilStockout() {
+        return daysUntilStockout;
+    }
+
+    public int getSuggestedQuantity() {
+        return suggestedQuantity;
+    }
+}
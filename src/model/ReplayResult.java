@@ -0,0 +1,35 @@
+package model;
+
+/**
+ * Outcome of replaying one outbox entry against the database.
+ */
+public class ReplayResult {
+    public enum Outcome {
+        APPLIED,      // Written as recorded
+        OVERSOLD,     // Purchase recorded, but the database had less stock than was sold; stock set to 0
+        BOOK_MISSING, // The book was deleted meanwhile; nothing written
+        DUPLICATE     // Applied by an earlier replay; nothing written
+    }
+
+    private final Outcome outcome;
+    private final int quantity;  // Stock after the replay, or -1 if unknown
+    private final int shortfall; // Units sold beyond the available stock (OVERSOLD only)
+
+    public ReplayResult(Outcome outcome, int quantity, int shortfall) {
+        this.outcome = outcome;
+        this.quantity = quantity;
+        this.shortfall = shortfall;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getShortfall() {
+        return shortfall;
+    }
+}
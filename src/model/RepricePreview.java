@@ -0,0 +1,59 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of previewing a bulk repricing: how many books get a new price and a sample of old and new prices.
+ * Books matching the filter whose price would not change are not counted.
+ */
+public class RepricePreview {
+    private int matchCount;
+    private List<Sample> samples = new ArrayList<>();
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public void setMatchCount(int matchCount) {
+        this.matchCount = matchCount;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * One book of the preview sample.
+     */
+    public static class Sample {
+        private final int bookId;
+        private final String title;
+        private final BigDecimal oldPrice;
+        private final BigDecimal newPrice;
+
+        public Sample(int bookId, String title, BigDecimal oldPrice, BigDecimal newPrice) {
+            this.bookId = bookId;
+            this.title = title;
+            this.oldPrice = oldPrice;
+            this.newPrice = newPrice;
+        }
+
+        public int getBookId() {
+            return bookId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public BigDecimal getOldPrice() {
+            return oldPrice;
+        }
+
+        public BigDecimal getNewPrice() {
+            return newPrice;
+        }
+    }
+}
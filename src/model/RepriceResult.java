@@ -0,0 +1,31 @@
+package model;
+
+/**
+ * Outcome of a bulk repricing.
+ */
+public class RepriceResult {
+    private final boolean success;
+    private final int updatedCount;
+    private final long elapsedMillis;
+
+    public RepriceResult(boolean success, int updatedCount, long elapsedMillis) {
+        this.success = success;
+        this.updatedCount = updatedCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * @return The duration of the UPDATE statement including the transfer of the new prices.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
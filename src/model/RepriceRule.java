@@ -0,0 +1,89 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Describes how a bulk repricing changes the price of each matching book.
+ */
+public class RepriceRule {
+    public enum Mode {
+        PERCENT,  // price * (1 + amount / 100)
+        ABSOLUTE  // price + amount
+    }
+
+    public enum Rounding {
+        CENT,         // Nearest cent
+        FIVE_CENTS,   // Nearest 0.05
+        WHOLE,        // Nearest whole amount
+        ENDING_99     // x.99 within the same whole amount, so 10.00 becomes 10.99
+    }
+
+    private static final BigDecimal FIVE_CENT_STEP = new BigDecimal("0.05");
+    private static final BigDecimal NINETY_NINE_CENTS = new BigDecimal("0.99");
+
+    private Mode mode;
+    private BigDecimal amount;
+    private Rounding rounding;
+
+    // Constructors
+    public RepriceRule() {
+    }
+
+    public RepriceRule(Mode mode, BigDecimal amount, Rounding rounding) {
+        this.mode = mode;
+        this.amount = amount;
+        this.rounding = rounding;
+    }
+
+    /**
+     * Computes the new price in memory, with the same arithmetic as the SQL used by BookDAO.
+     * @param price The current price.
+     * @return The new price, never negative, with two decimals.
+     */
+    public BigDecimal apply(BigDecimal price) {
+        BigDecimal raw = mode == Mode.PERCENT
+                ? price.multiply(BigDecimal.ONE.add(amount.movePointLeft(2)))
+                : price.add(amount);
+        BigDecimal rounded;
+        switch (rounding) {
+            case FIVE_CENTS:
+                rounded = raw.divide(FIVE_CENT_STEP).setScale(0, RoundingMode.HALF_UP).multiply(FIVE_CENT_STEP);
+                break;
+            case WHOLE:
+                rounded = raw.setScale(0, RoundingMode.HALF_UP);
+                break;
+            case ENDING_99:
+                rounded = raw.setScale(0, RoundingMode.FLOOR).add(NINETY_NINE_CENTS);
+                break;
+            default:
+                rounded = raw.setScale(2, RoundingMode.HALF_UP);
+        }
+        return rounded.max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Getters and Setters
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Rounding getRounding() {
+        return rounding;
+    }
+
+    public void setRounding(Rounding rounding) {
+        this.rounding = rounding;
+    }
+}
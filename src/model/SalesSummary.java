@@ -0,0 +1,67 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of a sales report: a book, category, author or day with the units sold and revenue.
+ */
+public class SalesSummary {
+    private int id; // Book or category ID, 0 when the row is keyed by a label only
+    private String label;
+    private long units;
+    private BigDecimal revenue;
+
+    // Constructors
+    public SalesSummary() {
+    }
+
+    public SalesSummary(int id, String label, long units, BigDecimal revenue) {
+        this.id = id;
+        this.label = label;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    @Override
+    public String toString() {
+        return "SalesSummary{" +
+                "id=" + id +
+                ", label='" + label + '\'' +
+                ", units=" + units +
+                ", revenue=" + revenue +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+/**
+ * Sales rate of one book: an exponentially weighted moving average of the units sold per day
+ * over the closed days, plus the units sold so far today.
+ */
+public class SalesVelocity {
+    private int bookId;
+    private String title;
+    private int quantity;       // Current stock
+    private double dailyRate;   // EWMA of units per day, through yesterday
+    private int todayUnits;
+
+    // Constructors
+    public SalesVelocity() {
+    }
+
+    public SalesVelocity(int bookId, String title, int quantity, double dailyRate, int todayUnits) {
+        this.bookId = bookId;
+        this.title = title;
+        this.quantity = quantity;
+        this.dailyRate = dailyRate;
+        this.todayUnits = todayUnits;
+    }
+
+    // Getters and Setters
+    public int getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(int bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public double getDailyRate() {
+        return dailyRate;
+    }
+
+    public void setDailyRate(double dailyRate) {
+        this.dailyRate = dailyRate;
+    }
+
+    public int getTodayUnits() {
+        return todayUnits;
+    }
+
+    public void setTodayUnits(int todayUnits) {
+        this.todayUnits = todayUnits;
+    }
+}
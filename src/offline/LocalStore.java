@@ -0,0 +1,255 @@
+package offline;
+
+import model.Book;
+import model.Category;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local replica of the catalogue (books and categories), kept in memory and saved to a file,
+ * so the Home tab and purchases keep working while the database is unreachable.
+ * Returned objects are copies; change the replica through the mutators only.
+ *
+ * Stored books are never modified in place: a change replaces the entry with a new copy. Saving can
+ * therefore serialize a list of the current entries without holding the lock, and readers are not
+ * blocked while a large catalogue is written to disk.
+ */
+public class LocalStore {
+    private static final Comparator<Book> BY_TITLE = Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER);
+
+    private final Path file;
+    private final Map<Integer, Book> books = new TreeMap<>();
+    private final Map<Integer, Category> categories = new TreeMap<>();
+    private final Object flushLock = new Object(); // One save at a time
+    private boolean dirty;
+
+    /**
+     * Opens the replica, loading the last saved catalogue if there is one.
+     * @param dir The directory holding the replica file.
+     */
+    public LocalStore(Path dir) {
+        this.file = dir.resolve("catalogue.bin");
+        if (Files.exists(file)) {
+            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+                @SuppressWarnings("unchecked")
+                List<Book> savedBooks = (List<Book>) in.readObject();
+                @SuppressWarnings("unchecked")
+                List<Category> savedCategories = (List<Category>) in.readObject();
+                savedBooks.forEach(book -> books.put(book.getId(), book));
+                savedCategories.forEach(category -> categories.put(category.getId(), category));
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error loading local catalogue (it will be reloaded from the database): " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Saves the replica if it changed since the last save. Written to a temporary file first,
+     * so a crash never leaves a half-written replica behind.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Book> savedBooks;
+            List<Category> savedCategories;
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                savedBooks = new ArrayList<>(books.values());
+                savedCategories = new ArrayList<>(categories.values());
+                dirty = false;
+            }
+            try {
+                Files.createDirectories(file.getParent());
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tmp))) {
+                    out.writeObject(savedBooks);
+                    out.writeObject(savedCategories);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                synchronized (this) {
+                    dirty = true;
+                }
+                System.err.println("Error saving local catalogue: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return The ID and version of every book, in ID order, for comparing the replica with the database.
+     */
+    public synchronized BookVersions getBookVersions() {
+        int[] ids = new int[books.size()];
+        int[] versions = new int[books.size()];
+        int i = 0;
+        for (Book book : books.values()) {
+            ids[i] = book.getId();
+            versions[i] = book.getVersion();
+            i++;
+        }
+        return new BookVersions(ids, versions);
+    }
+
+    public synchronized boolean isEmpty() {
+        return books.isEmpty() && categories.isEmpty();
+    }
+
+    public synchronized Book getBook(int bookId) {
+        Book book = books.get(bookId);
+        return book != null ? new Book(book) : null;
+    }
+
+    /**
+     * @return All books, sorted by title like {@code BookDAO.getAllBooks}.
+     */
+    public synchronized List<Book> getAllBooks() {
+        List<Book> result = new ArrayList<>();
+        books.values().forEach(book -> result.add(new Book(book)));
+        result.sort(BY_TITLE);
+        return result;
+    }
+
+    /**
+     * @return One page of the books of a category, sorted by title like {@code BookDAO.getBooksByCategory}.
+     */
+    public synchronized List<Book> getBooksByCategory(int categoryId, int offset, int limit) {
+        List<Book> result = new ArrayList<>();
+        books.values().stream()
+                .filter(book -> book.getCategoryId() == categoryId)
+                .sorted(BY_TITLE)
+                .skip(offset)
+                .limit(limit)
+                .forEach(book -> result.add(new Book(book)));
+        return result;
+    }
+
+    public synchronized int countBooksInCategory(int categoryId) {
+        return (int) books.values().stream().filter(book -> book.getCategoryId() == categoryId).count();
+    }
+
+    /**
+     * @return All categories, sorted by name like {@code CategoryDAO.getAllCategories}.
+     */
+    public synchronized List<Category> getAllCategories() {
+        List<Category> result = new ArrayList<>();
+        categories.values().forEach(category -> result.add(new Category(category.getId(), category.getName())));
+        result.sort(Comparator.comparing(Category::getName));
+        return result;
+    }
+
+    public synchronized void putBook(Book book) {
+        books.put(book.getId(), new Book(book));
+        dirty = true;
+    }
+
+    /**
+     * Adds or replaces books read from the database. A book the replica already holds in a newer
+     * version, e.g. from an event received while the rows were read, is kept.
+     */
+    public synchronized void putBooks(Collection<Book> newBooks) {
+        for (Book book : newBooks) {
+            Book current = books.get(book.getId());
+            if (current == null || current.getVersion() <= book.getVersion()) {
+                books.put(book.getId(), new Book(book));
+                dirty = true;
+            }
+        }
+    }
+
+    public synchronized void removeBook(int bookId) {
+        dirty |= books.remove(bookId) != null;
+    }
+
+    public synchronized void removeBooks(Collection<Integer> bookIds) {
+        bookIds.forEach(this::removeBook);
+    }
+
+    public synchronized void setQuantity(int bookId, int quantity) {
+        Book book = books.get(bookId);
+        if (book != null) {
+            Book changed = new Book(book);
+            changed.setQuantity(quantity);
+            books.put(bookId, changed);
+            dirty = true;
+        }
+    }
+
+    public synchronized void setPrice(int bookId, BigDecimal price) {
+        Book book = books.get(bookId);
+        if (book != null) {
+            Book changed = new Book(book);
+            changed.setPrice(price);
+            books.put(bookId, changed);
+            dirty = true;
+        }
+    }
+
+    public synchronized void putCategory(Category category) {
+        categories.put(category.getId(), new Category(category.getId(), category.getName()));
+        dirty = true;
+    }
+
+    /**
+     * Replaces all categories, e.g. with a fresh copy from the database.
+     * @param newCategories All categories.
+     */
+    public synchronized void replaceCategories(List<Category> newCategories) {
+        categories.clear();
+        newCategories.forEach(this::putCategory);
+        dirty = true;
+    }
+
+    /**
+     * Removes a category; its books are kept without a category, as in the database.
+     */
+    public synchronized void removeCategory(int categoryId) {
+        categories.remove(categoryId);
+        for (Map.Entry<Integer, Book> entry : books.entrySet()) {
+            if (entry.getValue().getCategoryId() == categoryId) {
+                Book changed = new Book(entry.getValue());
+                changed.setCategoryId(0);
+                entry.setValue(changed);
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Book IDs in ascending order with the version of each.
+     */
+    public static final class BookVersions {
+        private final int[] ids;
+        private final int[] versions;
+
+        BookVersions(int[] ids, int[] versions) {
+            this.ids = ids;
+            this.versions = versions;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public int getId(int index) {
+            return ids[index];
+        }
+
+        public int getVersion(int index) {
+            return versions[index];
+        }
+    }
+}
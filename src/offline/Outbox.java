@@ -0,0 +1,229 @@
+package offline;
+
+import model.OutboxEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, ordered queue of writes made while offline.
+ *
+ * Entries are appended to outbox.log and forced to disk before {@link #append} returns, as
+ * length + payload + CRC32 records. outbox.ack holds how many entries from the start of the log
+ * were replayed. A torn record at the end of the log (crash during append) is discarded on load.
+ * Replay is at-least-once; the database skips operation IDs it already applied, which makes it
+ * exactly-once overall.
+ */
+public class Outbox {
+    private final Path logFile;
+    private final Path ackFile;
+    private final FileChannel log;
+    private final Deque<OutboxEntry> pending = new ArrayDeque<>();
+    private long acknowledged;
+    private long end; // End of the last complete record
+
+    /**
+     * Opens the outbox, recovering the entries not yet replayed.
+     * @param dir The directory holding the outbox files.
+     * @throws IOException If the outbox cannot be read or created.
+     */
+    public Outbox(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.logFile = dir.resolve("outbox.log");
+        this.ackFile = dir.resolve("outbox.ack");
+        this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    private void load() throws IOException {
+        long skip = Files.exists(ackFile) ? Long.parseLong(Files.readString(ackFile).trim()) : 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+        long position = 0;
+        long index = 0;
+        while (true) {
+            header.clear();
+            if (log.read(header, position) < 4) {
+                break;
+            }
+            int length = header.getInt(0);
+            if (length <= 0 || position + 4 + length + 8 > log.size()) {
+                break; // Torn or corrupt tail
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + 8);
+            while (record.hasRemaining() && log.read(record, position + 4 + record.position()) > 0) {
+                // Read the whole record
+            }
+            byte[] payload = new byte[length];
+            record.flip();
+            record.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (record.getLong() != crc.getValue()) {
+                break;
+            }
+            if (index++ >= skip) {
+                pending.add(decode(payload));
+            }
+            position += 4 + length + 8;
+        }
+        if (position < log.size()) {
+            System.err.println("Outbox: discarding " + (log.size() - position) + " bytes of an incomplete record.");
+            log.truncate(position);
+            log.force(true);
+        }
+        acknowledged = Math.min(skip, index);
+        end = position;
+        log.position(position);
+    }
+
+    /**
+     * Appends an entry and forces it to disk.
+     * @param entry The entry.
+     * @throws IOException If the entry could not be written; it is then not queued, and the part written
+     *         is cut off so the entries appended after it are not lost behind a corrupt record.
+     */
+    public void append(OutboxEntry entry) throws IOException {
+        appendAll(Collections.singletonList(entry));
+    }
+
+    /**
+     * Appends several entries with one write and forces them to disk, e.g. the purchases of a basket.
+     * @param entries The entries.
+     * @throws IOException If the entries could not be written; none is then queued, as for {@link #append}.
+     */
+    public synchronized void appendAll(List<OutboxEntry> entries) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(entries.size());
+        int size = 0;
+        for (OutboxEntry entry : entries) {
+            byte[] payload = encode(entry);
+            payloads.add(payload);
+            size += 4 + payload.length + 8;
+        }
+        ByteBuffer records = ByteBuffer.allocate(size);
+        for (byte[] payload : payloads) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            records.putInt(payload.length).put(payload).putLong(crc.getValue());
+        }
+        records.flip();
+        if (log.size() > end) {
+            log.truncate(end); // An earlier append failed and could not be cut off then
+        }
+        log.position(end);
+        try {
+            while (records.hasRemaining()) {
+                log.write(records);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            try {
+                log.truncate(end);
+            } catch (IOException te) {
+                e.addSuppressed(te); // Retried by the next append
+            }
+            throw e;
+        }
+        end = log.position();
+        pending.addAll(entries);
+    }
+
+    /**
+     * @return The oldest entry not yet replayed, or null if the outbox is empty.
+     */
+    public synchronized OutboxEntry peek() {
+        return pending.peekFirst();
+    }
+
+    /**
+     * Marks the oldest entry as replayed. When the outbox becomes empty the log is truncated.
+     * @throws IOException If the acknowledgement could not be saved.
+     */
+    public synchronized void acknowledge() throws IOException {
+        if (pending.pollFirst() == null) {
+            return;
+        }
+        acknowledged++;
+        if (pending.isEmpty()) {
+            // Reset the count before truncating: a crash in between replays entries the database skips,
+            // while the reverse order could skip new entries.
+            acknowledged = 0;
+            writeAck();
+            log.truncate(0);
+            end = 0;
+            log.force(true);
+        } else {
+            writeAck();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    private void writeAck() throws IOException {
+        Path tmp = ackFile.resolveSibling("outbox.ack.tmp");
+        Files.writeString(tmp, Long.toString(acknowledged));
+        Files.move(tmp, ackFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static byte[] encode(OutboxEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(entry.getOperationId());
+            out.writeUTF(entry.getType().name());
+            out.writeInt(entry.getBookId());
+            out.writeInt(entry.getQuantity());
+            writeNullable(out, entry.getBookTitle());
+            writeNullable(out, entry.getBookImage());
+            writeNullable(out, entry.getBookPrice() != null ? entry.getBookPrice().toPlainString() : null);
+            out.writeInt(entry.getUserId());
+            out.writeLong(entry.getCreatedAt().getTime());
+        }
+        return bytes.toByteArray();
+    }
+
+    static OutboxEntry decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            OutboxEntry entry = new OutboxEntry();
+            entry.setOperationId(in.readUTF());
+            entry.setType(OutboxEntry.Type.valueOf(in.readUTF()));
+            entry.setBookId(in.readInt());
+            entry.setQuantity(in.readInt());
+            entry.setBookTitle(readNullable(in));
+            entry.setBookImage(readNullable(in));
+            String price = readNullable(in);
+            entry.setBookPrice(price != null ? new BigDecimal(price) : null);
+            entry.setUserId(in.readInt());
+            entry.setCreatedAt(new Timestamp(in.readLong()));
+            return entry;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,404 @@
+package offline;
+
+import controller.ReportController;
+import dao.OutboxReplayDAO;
+import event.EventBus;
+import event.StockChangedEvent;
+import model.OutboxEntry;
+import model.Purchase;
+import model.ReplayResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Optional write-ahead journal for purchases (-Dbookstore.journal.enabled=true).
+ *
+ * A purchase is appended to a memory-mapped file and acknowledged without a database round trip;
+ * a background drainer applies journaled purchases to the database in batches, one transaction per
+ * batch. Each record carries its operation ID, which the database records in applied_operations,
+ * so a batch replayed after a crash (committed but not yet checkpointed) is skipped: every purchase
+ * is applied exactly once.
+ *
+ * File layout: a header with two checkpoint slots, followed by records
+ * [length][sequence][payload][CRC32 of sequence + payload], terminated by a zero length. A checkpoint
+ * [drained sequence][drained offset][CRC32] is written to the slot not holding the latest one, so a crash
+ * while writing it leaves the previous checkpoint intact; recovery uses the valid slot with the highest
+ * sequence.
+ * On startup records are read from the drained offset while lengths, sequences and checksums match,
+ * which drops a torn last record and stale records left from before the journal was last reset.
+ *
+ * bookstore.journal.fsync selects durability: "always" forces every record to disk before the purchase
+ * is acknowledged, "interval" forces every bookstore.journal.fsyncIntervalMs (a crash of the machine
+ * may lose the last interval, a crash of the application loses nothing), "never" leaves it to the OS.
+ */
+public final class PurchaseJournal {
+    public enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    private static final PurchaseJournal INSTANCE = new PurchaseJournal();
+
+    private static final int MAGIC = 0x424B4A32; // "BKJ2"
+    private static final int MAGIC_V1 = 0x424B4A31; // "BKJ1": a single checkpoint, offset at 8, sequence at 16
+    private static final int CHECKPOINT_POS = 8;
+    private static final int CHECKPOINT_SIZE = 8 + 4 + 4; // sequence, offset, checksum
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_OVERHEAD = 4 + 8 + 8; // length, sequence, checksum
+
+    private static final int BATCH_SIZE = Integer.getInteger("bookstore.journal.batchSize", 200);
+    private static final long DRAIN_MILLIS = Long.getLong("bookstore.journal.drainMs", 50L);
+    private static final long RETRY_MILLIS = 1000;
+
+    private final OutboxReplayDAO replayDAO = new OutboxReplayDAO();
+    private MappedByteBuffer buffer;
+    private FsyncPolicy fsyncPolicy;
+    private int writePosition;
+    private int drainedOffset;
+    private long nextSequence;
+    private long drainedSequence;
+    private int checkpointSlot; // Slot of the latest checkpoint; the next one goes to the other
+    private final Map<Integer, Integer> pendingQuantities = new HashMap<>(); // Copies journaled, not yet in the database
+
+    private PurchaseJournal() {
+    }
+
+    public static PurchaseJournal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Opens the journal, recovers records not yet applied to the database and starts the drainer.
+     * Does nothing unless bookstore.journal.enabled is true.
+     */
+    public synchronized void start() {
+        if (buffer != null || !Boolean.getBoolean("bookstore.journal.enabled")) {
+            return;
+        }
+        fsyncPolicy = FsyncPolicy.valueOf(System.getProperty("bookstore.journal.fsync", "always").toUpperCase(Locale.ROOT));
+        Path file = Paths.get(System.getProperty("bookstore.offline.dir", "data"), "purchases.journal");
+        long size = Long.getLong("bookstore.journal.sizeMb", 16L) * 1024 * 1024;
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(Math.max(channel.size(), size), Integer.MAX_VALUE));
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening purchase journal, purchases are written directly: " + e.getMessage());
+            e.printStackTrace();
+            buffer = null;
+            return;
+        }
+        if (!recover()) {
+            System.err.println("Purchase journal " + file + " has no valid checkpoint, purchases are written directly.");
+            buffer = null;
+            return;
+        }
+
+        Thread drainer = new Thread(this::drainLoop, "purchase-journal-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "purchase-journal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = Long.getLong("bookstore.journal.fsyncIntervalMs", 10L);
+            flusher.scheduleWithFixedDelay(this::force, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * Appends a purchase to the journal.
+     * @param purchase The purchase; its stock check must already have been done.
+     * @return true if the purchase is journaled and will be applied; false if the journal is disabled,
+     *         full or failed, in which case the caller must write the purchase directly.
+     */
+    public boolean append(Purchase purchase) {
+        return appendAll(Collections.singletonList(purchase));
+    }
+
+    /**
+     * Appends the purchases of a basket to the journal, all of them or none.
+     * @param purchases The purchases; their stock checks must already have been done.
+     * @return true if the purchases are journaled and will be applied; false if the journal is disabled,
+     *         full or failed, in which case none was journaled and the caller must write them directly.
+     */
+    public synchronized boolean appendAll(List<Purchase> purchases) {
+        if (buffer == null) {
+            return false;
+        }
+        List<byte[]> payloads = new ArrayList<>(purchases.size());
+        int totalSize = 0;
+        try {
+            for (Purchase purchase : purchases) {
+                byte[] payload = Outbox.encode(OutboxEntry.forPurchase(UUID.randomUUID().toString(), purchase));
+                payloads.add(payload);
+                totalSize += RECORD_OVERHEAD + payload.length;
+            }
+        } catch (IOException e) {
+            System.err.println("Error encoding journal record: " + e.getMessage());
+            return false;
+        }
+        if (writePosition + totalSize + 4 > buffer.capacity()) {
+            return false; // Full until the drainer catches up and the journal is reset
+        }
+        buffer.putInt(writePosition + totalSize, 0); // Terminator first, so a scan never runs past these records
+        // Last record first, each with its length last: the first length makes the whole basket visible
+        int end = writePosition + totalSize;
+        for (int i = payloads.size() - 1; i >= 0; i--) {
+            byte[] payload = payloads.get(i);
+            int start = end - RECORD_OVERHEAD - payload.length;
+            long sequence = nextSequence + i;
+            buffer.putLong(start + 4, sequence);
+            buffer.put(start + 12, payload);
+            buffer.putLong(start + 12 + payload.length, checksum(sequence, payload));
+            buffer.putInt(start, payload.length);
+            end = start;
+        }
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            buffer.force(writePosition, totalSize + 4);
+        }
+        writePosition += totalSize;
+        nextSequence += payloads.size();
+        for (Purchase purchase : purchases) {
+            pendingQuantities.merge(purchase.getBookId(), purchase.getQuantity(), Integer::sum);
+        }
+        notifyAll(); // Wake the drainer
+        return true;
+    }
+
+    /**
+     * Stock read from the database (or the book cache) does not include journaled sales until they are
+     * drained; subtract this to get the stock actually left. Read it before reading the stock, so a
+     * batch drained in between is counted twice rather than not at all.
+     * @param bookId The ID of the book.
+     * @return The number of copies journaled but not yet applied to the database.
+     */
+    public synchronized int getPendingQuantity(int bookId) {
+        return pendingQuantities.getOrDefault(bookId, 0);
+    }
+
+    /**
+     * The pending quantities of all books, as {@link #getPendingQuantity} for one.
+     * @return The number of copies journaled but not yet applied to the database, by book ID.
+     */
+    public synchronized Map<Integer, Integer> getPendingQuantities() {
+        return new HashMap<>(pendingQuantities);
+    }
+
+    /**
+     * @return The number of bytes of records not yet applied to the database.
+     */
+    public synchronized int getBacklogBytes() {
+        return buffer != null ? writePosition - drainedOffset : 0;
+    }
+
+    /**
+     * @return false if neither checkpoint is valid, so the records to apply cannot be found.
+     */
+    private boolean recover() {
+        int magic = buffer.getInt(0);
+        if (magic == MAGIC_V1) {
+            long sequence = buffer.getLong(16);
+            int offset = (int) buffer.getLong(8);
+            writeCheckpoint(0, sequence, offset);
+            writeCheckpoint(1, sequence, offset);
+            buffer.putInt(0, MAGIC);
+            buffer.force(0, HEADER_SIZE);
+        } else if (magic != MAGIC) {
+            writeCheckpoint(0, 0, HEADER_SIZE);
+            writeCheckpoint(1, 0, HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        }
+        checkpointSlot = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int pos = CHECKPOINT_POS + slot * CHECKPOINT_SIZE;
+            long sequence = buffer.getLong(pos);
+            int offset = buffer.getInt(pos + 8);
+            if (buffer.getInt(pos + 12) != checkpointChecksum(sequence, offset)
+                    || offset < HEADER_SIZE || offset >= buffer.capacity()) {
+                continue; // Torn while being written: the other slot holds the previous checkpoint
+            }
+            if (checkpointSlot < 0 || sequence > drainedSequence) {
+                checkpointSlot = slot;
+                drainedSequence = sequence;
+                drainedOffset = offset;
+            }
+        }
+        if (checkpointSlot < 0) {
+            return false;
+        }
+
+        int position = drainedOffset;
+        long sequence = drainedSequence;
+        while (position + RECORD_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_OVERHEAD + length > buffer.capacity()
+                    || buffer.getLong(position + 4) != sequence) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + 12, payload);
+            if (buffer.getLong(position + 12 + length) != checksum(sequence, payload)) {
+                break; // Torn record
+            }
+            try {
+                OutboxEntry entry = Outbox.decode(payload);
+                pendingQuantities.merge(entry.getBookId(), entry.getQuantity(), Integer::sum);
+            } catch (IOException e) {
+                System.err.println("Error reading journal record " + sequence + ": " + e.getMessage());
+            }
+            position += RECORD_OVERHEAD + length;
+            sequence++;
+        }
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+        writePosition = position;
+        nextSequence = sequence;
+        if (writePosition > drainedOffset) {
+            System.out.println("Purchase journal: " + (nextSequence - drainedSequence) + " purchases to apply from the last run.");
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            try {
+                int endOffset;
+                long endSequence;
+                List<OutboxEntry> entries = new ArrayList<>();
+                synchronized (this) {
+                    while (writePosition == drainedOffset) {
+                        wait(DRAIN_MILLIS);
+                    }
+                    int position = drainedOffset;
+                    while (position < writePosition && entries.size() < BATCH_SIZE) {
+                        int length = buffer.getInt(position);
+                        byte[] payload = new byte[length];
+                        buffer.get(position + 12, payload);
+                        entries.add(Outbox.decode(payload));
+                        position += RECORD_OVERHEAD + length;
+                    }
+                    endOffset = position;
+                    endSequence = drainedSequence + entries.size();
+                }
+
+                List<ReplayResult> results = replayDAO.applyBatch(entries); // Outside the lock: tills keep appending
+                if (results == null) {
+                    Thread.sleep(RETRY_MILLIS);
+                    continue;
+                }
+                markDrained(endOffset, endSequence, entries);
+                publishCorrections(entries, results);
+                Set<LocalDate> days = new HashSet<>(); // Recovered purchases may be from past days
+                for (OutboxEntry entry : entries) {
+                    days.add(entry.getCreatedAt().toLocalDateTime().toLocalDate());
+                }
+                days.forEach(ReportController::invalidateRangesCovering);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error draining purchase journal: " + e.getMessage());
+                e.printStackTrace();
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the checkpoint after a batch was committed. When everything is drained the journal
+     * starts over at the beginning of the file; sequence numbers keep increasing across resets.
+     */
+    private synchronized void markDrained(int endOffset, long endSequence, List<OutboxEntry> entries) {
+        for (OutboxEntry entry : entries) {
+            pendingQuantities.computeIfPresent(entry.getBookId(), (bookId, pending) ->
+                    pending > entry.getQuantity() ? pending - entry.getQuantity() : null);
+        }
+        drainedSequence = endSequence;
+        if (endOffset == writePosition) {
+            endOffset = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+            buffer.putInt(HEADER_SIZE, 0);
+        }
+        drainedOffset = endOffset;
+        checkpointSlot = 1 - checkpointSlot;
+        writeCheckpoint(checkpointSlot, drainedSequence, drainedOffset);
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            buffer.force(0, HEADER_SIZE + 4);
+        }
+    }
+
+    private void writeCheckpoint(int slot, long sequence, int offset) {
+        int pos = CHECKPOINT_POS + slot * CHECKPOINT_SIZE;
+        buffer.putLong(pos, sequence);
+        buffer.putInt(pos + 8, offset);
+        buffer.putInt(pos + 12, checkpointChecksum(sequence, offset));
+    }
+
+    /**
+     * The stock shown was decremented when the purchase was journaled; only sales that turned out to
+     * exceed the database stock need a correction.
+     */
+    private void publishCorrections(List<OutboxEntry> entries, List<ReplayResult> results) {
+        for (int i = 0; i < entries.size(); i++) {
+            OutboxEntry entry = entries.get(i);
+            ReplayResult result = results.get(i);
+            if (result.getOutcome() == ReplayResult.Outcome.OVERSOLD) {
+                System.err.println("Journaled sale of book " + entry.getBookId() + " exceeded the stock by "
+                        + result.getShortfall() + " copies; recorded in stock_conflicts.");
+                EventBus.getInstance().publish(new StockChangedEvent(entry.getBookId(), result.getQuantity(), 0));
+            } else if (result.getOutcome() == ReplayResult.Outcome.BOOK_MISSING) {
+                System.err.println("Journaled sale of deleted book " + entry.getBookId() + " was not applied; recorded in stock_conflicts.");
+            }
+        }
+    }
+
+    private void force() {
+        buffer.force();
+    }
+
+    private static int checkpointChecksum(long sequence, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(12).putLong(0, sequence).putInt(8, offset));
+        return (int) crc.getValue();
+    }
+
+    private static long checksum(long sequence, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(0, sequence));
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
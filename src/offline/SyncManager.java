@@ -0,0 +1,389 @@
+package offline;
+
+import controller.ReportController;
+import dao.BookDAO;
+import dao.CategoryDAO;
+import dao.DBConnection;
+import dao.OutboxReplayDAO;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.ConnectivityChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import model.BasketLine;
+import model.Book;
+import model.Category;
+import model.CheckoutResult;
+import model.OutboxEntry;
+import model.Purchase;
+import model.ReplayResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the terminal usable while the database is unreachable.
+ *
+ * A background task probes the database. While it is reachable, the local catalogue replica is kept
+ * current from domain events (including those of other terminals) and reconciled with the database on
+ * start, when the database is back and every -Dbookstore.offline.refreshMs (10 minutes, 0 disables it).
+ * Reconciling compares book versions and reads only the books that are new or changed, so it stays
+ * cheap on a large catalogue. While the database is unreachable, controllers read the
+ * catalogue from the replica, and purchases and stock changes are queued in the durable outbox.
+ * When the database is back, queued writes are replayed in order before the terminal goes online again;
+ * sales that exceed the stock left in the database are recorded and logged as stock conflicts.
+ *
+ * Until {@link #start()} is called the manager reports online and changes nothing.
+ */
+public final class SyncManager {
+    private static final SyncManager INSTANCE = new SyncManager();
+
+    private static final long PROBE_MILLIS = Long.getLong("bookstore.offline.probeMs", 5000L);
+    private static final long REFRESH_MILLIS = Long.getLong("bookstore.offline.refreshMs", 600_000L);
+    private static final int RECONCILE_CHUNK = 1000;
+    private static final int PROBE_TIMEOUT_SECONDS = 2;
+
+    private final OutboxReplayDAO replayDAO = new OutboxReplayDAO();
+    private final BookDAO bookDAO = new BookDAO();
+    private volatile boolean online = true;
+    private LocalStore store;
+    private Outbox outbox;
+    private long lastRefresh;
+
+    private SyncManager() {
+    }
+
+    public static SyncManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Opens the local replica and outbox and starts the background probe.
+     * Writes left in the outbox by a previous run are replayed as soon as the database is reachable.
+     */
+    public synchronized void start() {
+        if (store != null) {
+            return;
+        }
+        Path dir = Paths.get(System.getProperty("bookstore.offline.dir", "data"));
+        try {
+            outbox = new Outbox(dir);
+        } catch (IOException e) {
+            System.err.println("Error opening offline outbox, offline mode disabled: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        store = new LocalStore(dir);
+        subscribeReplicaUpdates();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offline-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, 0, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return false while the database is unreachable or offline writes are still being replayed.
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * Probes the database now, e.g. after a DAO call returned no result.
+     * @return true if the database is reachable and the terminal is online.
+     */
+    public boolean checkConnectivity() {
+        if (store == null) {
+            return true;
+        }
+        if (!DBConnection.isPrimaryReachable(PROBE_TIMEOUT_SECONDS)) {
+            setOnline(false);
+        }
+        return online;
+    }
+
+    /**
+     * @return The local catalogue replica, or null if offline mode is not started.
+     */
+    public LocalStore getLocalStore() {
+        return store;
+    }
+
+    public int getPendingOperations() {
+        return outbox != null ? outbox.size() : 0;
+    }
+
+    /**
+     * Records a purchase while offline against the stock in the local replica.
+     * @param bookId The ID of the book.
+     * @param quantity The number of copies sold.
+     * @param userId The ID of the buyer.
+     * @return The purchase, or null if the book is unknown, stock is insufficient or the outbox cannot be written.
+     */
+    public synchronized Purchase recordPurchase(int bookId, int quantity, int userId) {
+        Book book = store.getBook(bookId);
+        if (book == null || book.getQuantity() < quantity) {
+            return null;
+        }
+        Purchase purchase = new Purchase(book.getId(), book.getTitle(), book.getImageUrl(), book.getPrice(), quantity,
+                book.getPrice().multiply(new BigDecimal(quantity)), new Timestamp(System.currentTimeMillis()), userId);
+        if (!enqueue(OutboxEntry.forPurchase(UUID.randomUUID().toString(), purchase))) {
+            return null;
+        }
+        store.setQuantity(bookId, book.getQuantity() - quantity);
+        return purchase;
+    }
+
+    /**
+     * Records the purchases of a basket while offline: every line is checked against the stock in the
+     * local replica before any is recorded, so either the whole basket is sold or nothing is.
+     * @param lines The basket.
+     * @param userId The ID of the buyer.
+     * @return The outcome, with the quantities left in the local replica.
+     */
+    public synchronized CheckoutResult recordPurchases(List<BasketLine> lines, int userId) {
+        Map<Integer, Integer> requested = new LinkedHashMap<>();
+        for (BasketLine line : lines) {
+            requested.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
+        Map<Integer, Book> books = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+            Book book = store.getBook(entry.getKey());
+            if (book == null) {
+                return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(),
+                        "Book " + entry.getKey() + " is not in the local catalogue.");
+            }
+            if (book.getQuantity() < entry.getValue()) {
+                return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(), "Not enough stock for \""
+                        + book.getTitle() + "\": " + entry.getValue() + " requested, " + book.getQuantity() + " available.");
+            }
+            books.put(book.getId(), book);
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Purchase> purchases = new ArrayList<>();
+        List<OutboxEntry> entries = new ArrayList<>();
+        for (BasketLine line : lines) {
+            Book book = books.get(line.getBookId());
+            Purchase purchase = new Purchase(book.getId(), book.getTitle(), book.getImageUrl(), book.getPrice(), line.getQuantity(),
+                    book.getPrice().multiply(new BigDecimal(line.getQuantity())), now, userId);
+            purchases.add(purchase);
+            entries.add(OutboxEntry.forPurchase(UUID.randomUUID().toString(), purchase));
+        }
+        try {
+            outbox.appendAll(entries);
+        } catch (IOException e) {
+            System.err.println("Error writing offline outbox: " + e.getMessage());
+            e.printStackTrace();
+            return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), 0, "The sale could not be saved. Please try again.");
+        }
+        EventBus.getInstance().publish(new ConnectivityChangedEvent(online, outbox.size()));
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+            int quantity = books.get(entry.getKey()).getQuantity() - entry.getValue();
+            store.setQuantity(entry.getKey(), quantity);
+            quantities.put(entry.getKey(), quantity);
+        }
+        return new CheckoutResult(purchases, quantities, 0, null);
+    }
+
+    /**
+     * Records a stock change while offline.
+     * @param bookId The ID of the book.
+     * @param delta The change in quantity.
+     * @return The quantity in the local replica after the change, or null if it could not be recorded.
+     */
+    public synchronized Integer recordStockAdjustment(int bookId, int delta) {
+        Book book = store.getBook(bookId);
+        if (book == null) {
+            return null;
+        }
+        OutboxEntry entry = new OutboxEntry(UUID.randomUUID().toString(), OutboxEntry.Type.STOCK_ADJUSTMENT,
+                bookId, delta, new Timestamp(System.currentTimeMillis()));
+        if (!enqueue(entry)) {
+            return null;
+        }
+        int quantity = Math.max(book.getQuantity() + delta, 0);
+        store.setQuantity(bookId, quantity);
+        return quantity;
+    }
+
+    private boolean enqueue(OutboxEntry entry) {
+        try {
+            outbox.append(entry);
+        } catch (IOException e) {
+            System.err.println("Error writing offline outbox: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        EventBus.getInstance().publish(new ConnectivityChangedEvent(online, outbox.size()));
+        return true;
+    }
+
+    private void tick() {
+        try {
+            if (!DBConnection.isPrimaryReachable(PROBE_TIMEOUT_SECONDS)) {
+                setOnline(false);
+                store.flush();
+                return;
+            }
+            if (!drainOutbox()) {
+                return; // Lost the connection again while replaying
+            }
+            boolean cameBack = !online;
+            setOnline(true);
+            if (cameBack || lastRefresh == 0
+                    || (REFRESH_MILLIS > 0 && System.currentTimeMillis() - lastRefresh >= REFRESH_MILLIS)) {
+                reconcileCatalogue();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error in offline sync: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays queued writes in order.
+     * @return true if the outbox is empty afterwards.
+     */
+    private boolean drainOutbox() {
+        OutboxEntry entry;
+        while ((entry = outbox.peek()) != null) {
+            ReplayResult result = replayDAO.apply(entry);
+            if (result == null) {
+                return false;
+            }
+            switch (result.getOutcome()) {
+                case OVERSOLD:
+                    System.err.println("Offline sale of book " + entry.getBookId() + " exceeded the stock by "
+                            + result.getShortfall() + " copies; recorded in stock_conflicts.");
+                    break;
+                case BOOK_MISSING:
+                    System.err.println("Offline " + entry.getType() + " of deleted book " + entry.getBookId()
+                            + " was not applied; recorded in stock_conflicts.");
+                    break;
+                default:
+                    break;
+            }
+            if (result.getQuantity() >= 0) {
+                int delta = entry.getType() == OutboxEntry.Type.PURCHASE ? -entry.getQuantity() : entry.getQuantity();
+                EventBus.getInstance().publish(new StockChangedEvent(entry.getBookId(), result.getQuantity(), delta));
+            }
+            if (entry.getType() == OutboxEntry.Type.PURCHASE) {
+                // Offline sales may belong to past days
+                ReportController.invalidateRangesCovering(entry.getCreatedAt().toLocalDateTime().toLocalDate());
+            }
+            try {
+                outbox.acknowledge();
+            } catch (IOException e) {
+                // The entry is replayed again later and then skipped as a duplicate
+                System.err.println("Error acknowledging outbox entry: " + e.getMessage());
+                e.printStackTrace();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Brings the replica up to date with the database: books missing from the replica or held with
+     * another version are read in chunks, books no longer in the database are removed. Stock read from
+     * the database is reduced by the sales still in the purchase journal, which the replica already shows.
+     */
+    private void reconcileCatalogue() {
+        LocalStore.BookVersions local = store.getBookVersions();
+        List<Integer> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        int[] next = {0}; // Position in local; both sides are in ID order
+        boolean complete = bookDAO.scanBookVersions((id, version) -> {
+            while (next[0] < local.size() && local.getId(next[0]) < id) {
+                deleted.add(local.getId(next[0]++));
+            }
+            if (next[0] < local.size() && local.getId(next[0]) == id) {
+                if (local.getVersion(next[0]) != version) {
+                    changed.add(id);
+                }
+                next[0]++;
+            } else {
+                changed.add(id);
+            }
+        });
+        List<Category> categories = new CategoryDAO().getAllCategories();
+        if (!complete) {
+            return; // Retried on the next tick
+        }
+        while (next[0] < local.size()) {
+            deleted.add(local.getId(next[0]++));
+        }
+
+        PurchaseJournal journal = PurchaseJournal.getInstance();
+        for (int from = 0; from < changed.size(); from += RECONCILE_CHUNK) {
+            List<Integer> ids = changed.subList(from, Math.min(from + RECONCILE_CHUNK, changed.size()));
+            Map<Integer, Integer> pending = new HashMap<>();
+            for (int id : ids) { // Before the read, see PurchaseJournal.getPendingQuantity
+                pending.put(id, journal.getPendingQuantity(id));
+            }
+            List<Book> books = bookDAO.getBooksByIds(ids);
+            if (books == null) {
+                return;
+            }
+            for (Book book : books) {
+                book.setQuantity(book.getQuantity() - pending.get(book.getId()));
+            }
+            store.putBooks(books);
+        }
+        store.removeBooks(deleted);
+        if (!categories.isEmpty()) { // Empty usually means the query failed
+            store.replaceCategories(categories);
+        }
+        store.flush();
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    private void setOnline(boolean nowOnline) {
+        if (online != nowOnline) {
+            online = nowOnline;
+            System.out.println(nowOnline ? "Database reachable again, offline writes replayed." : "Database unreachable, working offline.");
+            EventBus.getInstance().publish(new ConnectivityChangedEvent(nowOnline, outbox.size()));
+        }
+    }
+
+    private void subscribeReplicaUpdates() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(BookAddedEvent.class, e -> store.putBook(e.getBook()));
+        bus.subscribe(BookUpdatedEvent.class, e -> store.putBook(e.getBook()));
+        bus.subscribe(BookDeletedEvent.class, e -> store.removeBook(e.getBookId()));
+        bus.subscribe(BooksChangedEvent.class, e -> {
+            e.getUpdatedBooks().forEach(store::putBook);
+            e.getDeletedBookIds().forEach(store::removeBook);
+        });
+        bus.subscribe(StockChangedEvent.class, e -> store.setQuantity(e.getBookId(), e.getQuantity()));
+        bus.subscribe(PricesChangedEvent.class, e -> e.getNewPrices().forEach(store::setPrice));
+        bus.subscribe(CategoryChangedEvent.class, e -> {
+            if (e.getChangeType() == CategoryChangedEvent.ChangeType.DELETED) {
+                store.removeCategory(e.getCategory().getId());
+            } else {
+                store.putCategory(e.getCategory());
+            }
+        });
+    }
+}
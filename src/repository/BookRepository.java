@@ -0,0 +1,109 @@
+package repository;
+
+import model.Book;
+import model.BookField;
+import model.BookFilter;
+import model.BookUpdateResult;
+import model.CatalogueSnapshot;
+import model.FacetQuery;
+import model.FacetResult;
+import model.RepricePreview;
+import model.RepriceRule;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of books. Implemented by {@link dao.BookDAO} (PostgreSQL) and {@link InMemoryBookRepository}.
+ * Failures are reported like the DAOs do: false, null or an empty result.
+ */
+public interface BookRepository {
+
+    /**
+     * Adds a book and sets its generated ID.
+     * @return true if the book was added.
+     */
+    boolean addBook(Book book);
+
+    /**
+     * @return The book, or null if not found.
+     */
+    Book getBookById(int id);
+
+    /**
+     * @return The books among the given IDs that exist, in no particular order, or null on failure.
+     */
+    List<Book> getBooksByIds(List<Integer> ids);
+
+    /**
+     * @return All books sorted by title.
+     */
+    List<Book> getAllBooks();
+
+    /**
+     * @return A columnar copy of the whole catalogue, or null on failure.
+     */
+    CatalogueSnapshot loadCatalogueSnapshot();
+
+    /**
+     * @return One page of the books of a category, sorted by title.
+     */
+    List<Book> getBooksByCategory(int categoryId, int offset, int limit);
+
+    int getTotalBooksInCategory(int categoryId);
+
+    /**
+     * Writes the given fields if the book is still at the expected version.
+     * @return UPDATED, CONFLICT with the current book, NOT_FOUND or FAILED.
+     */
+    BookUpdateResult updateBookFields(int id, int expectedVersion, Map<BookField, Object> changes);
+
+    /**
+     * Overwrites every column of a book.
+     * @return true if the book was updated.
+     */
+    boolean updateBook(Book book);
+
+    boolean deleteBook(int id);
+
+    /**
+     * @return The IDs of the books actually deleted.
+     */
+    List<Integer> deleteBooks(List<Integer> ids);
+
+    /**
+     * @return The updated books.
+     */
+    List<Book> updateBooksCategory(List<Integer> ids, int categoryId);
+
+    /**
+     * Adds the amounts to price and quantity, neither going below zero.
+     * @return The updated books.
+     */
+    List<Book> adjustBooksPriceAndQuantity(List<Integer> ids, BigDecimal priceChange, int quantityChange);
+
+    RepricePreview previewReprice(BookFilter filter, RepriceRule rule, int sampleSize);
+
+    /**
+     * @return The new prices by book ID of the books whose price changed, or null on failure.
+     */
+    Map<Integer, BigDecimal> repriceBooks(BookFilter filter, RepriceRule rule);
+
+    /**
+     * @return Books whose title, author, ISBN, ID or category name contains the keyword.
+     */
+    List<Book> searchBooks(String keyword);
+
+    /**
+     * @return One page of the books matching the keyword and facet selections, with the total and facet counts.
+     */
+    FacetResult browseBooks(FacetQuery query);
+
+    boolean updateBookQuantity(int bookId, int quantityChange);
+
+    /**
+     * @return The quantity after the change, or null if the book does not exist or the update failed.
+     */
+    Integer adjustBookQuantity(int bookId, int quantityChange);
+}
@@ -0,0 +1,34 @@
+package repository;
+
+import model.Category;
+
+import java.util.List;
+
+/**
+ * Storage of categories. Implemented by {@link dao.CategoryDAO} (PostgreSQL) and {@link InMemoryCategoryRepository}.
+ */
+public interface CategoryRepository {
+
+    /**
+     * Adds a category and sets its generated ID.
+     * @return true if the category was added (names are unique).
+     */
+    boolean addCategory(Category category);
+
+    Category getCategoryById(int id);
+
+    Category getCategoryByName(String name);
+
+    /**
+     * @return All categories sorted by name.
+     */
+    List<Category> getAllCategories();
+
+    boolean updateCategory(Category category);
+
+    /**
+     * Deletes a category; its books are kept without a category.
+     * @return true if the category was deleted.
+     */
+    boolean deleteCategory(int id);
+}
@@ -0,0 +1,348 @@
+package repository;
+
+import model.Book;
+import model.BookField;
+import model.BookFilter;
+import model.BookUpdateResult;
+import model.CatalogueSnapshot;
+import model.Category;
+import model.FacetQuery;
+import model.FacetResult;
+import model.PriceBand;
+import model.RepricePreview;
+import model.RepriceRule;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link BookRepository}; category pages are served from the category index
+ * and ISBN uniqueness is checked against the ISBN index.
+ */
+public class InMemoryBookRepository implements BookRepository {
+    private static final Comparator<Book> BY_TITLE = Comparator.comparing(Book::getTitle);
+
+    private final InMemoryDatabase db;
+
+    public InMemoryBookRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean addBook(Book book) {
+        return db.write(() -> {
+            if (db.isbnTaken(book.getIsbn(), 0)) {
+                System.err.println("Error adding book: duplicate ISBN " + book.getIsbn());
+                return false;
+            }
+            book.setId(db.nextBookId++);
+            db.indexBook(new Book(book));
+            return true;
+        });
+    }
+
+    @Override
+    public Book getBookById(int id) {
+        return db.read(() -> {
+            Book book = db.books.get(id);
+            return book != null ? new Book(book) : null;
+        });
+    }
+
+    @Override
+    public List<Book> getBooksByIds(List<Integer> ids) {
+        return db.read(() -> {
+            List<Book> books = new ArrayList<>();
+            for (int id : ids) {
+                Book book = db.books.get(id);
+                if (book != null) {
+                    books.add(new Book(book));
+                }
+            }
+            return books;
+        });
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return db.read(() -> {
+            List<Book> result = InMemoryDatabase.copyBooks(db.books.values());
+            result.sort(BY_TITLE);
+            return result;
+        });
+    }
+
+    @Override
+    public CatalogueSnapshot loadCatalogueSnapshot() {
+        return db.read(() -> {
+            CatalogueSnapshot.Builder builder = new CatalogueSnapshot.Builder();
+            db.categories.forEachValue(category -> builder.addCategory(category.getId(), category.getName()));
+            db.books.forEachValue(builder::addBook);
+            return builder.build();
+        });
+    }
+
+    @Override
+    public List<Book> getBooksByCategory(int categoryId, int offset, int limit) {
+        return db.read(() -> {
+            IntMap<Book> inCategory = db.booksByCategory.get(categoryId);
+            if (inCategory == null || offset >= inCategory.size()) {
+                return new ArrayList<>();
+            }
+            List<Book> sorted = inCategory.values();
+            sorted.sort(BY_TITLE);
+            return InMemoryDatabase.copyBooks(sorted.subList(offset, Math.min(offset + limit, sorted.size())));
+        });
+    }
+
+    @Override
+    public int getTotalBooksInCategory(int categoryId) {
+        return db.read(() -> {
+            IntMap<Book> inCategory = db.booksByCategory.get(categoryId);
+            return inCategory != null ? inCategory.size() : 0;
+        });
+    }
+
+    @Override
+    public BookUpdateResult updateBookFields(int id, int expectedVersion, Map<BookField, Object> changes) {
+        return db.write(() -> {
+            Book current = db.books.get(id);
+            if (current == null) {
+                return new BookUpdateResult(BookUpdateResult.Status.NOT_FOUND, null);
+            }
+            if (current.getVersion() != expectedVersion) {
+                return new BookUpdateResult(BookUpdateResult.Status.CONFLICT, new Book(current));
+            }
+            Book updated = new Book(current);
+            for (Map.Entry<BookField, Object> change : changes.entrySet()) {
+                change.getKey().set(updated, change.getValue());
+            }
+            if (db.isbnTaken(updated.getIsbn(), id)) {
+                System.err.println("Error updating book: duplicate ISBN " + updated.getIsbn());
+                return new BookUpdateResult(BookUpdateResult.Status.FAILED, null);
+            }
+            updated.setVersion(current.getVersion() + 1);
+            replace(current, updated);
+            return new BookUpdateResult(BookUpdateResult.Status.UPDATED, new Book(updated));
+        });
+    }
+
+    @Override
+    public boolean updateBook(Book book) {
+        return db.write(() -> {
+            Book current = db.books.get(book.getId());
+            if (current == null || db.isbnTaken(book.getIsbn(), book.getId())) {
+                return false;
+            }
+            Book updated = new Book(book);
+            updated.setVersion(current.getVersion() + 1);
+            replace(current, updated);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteBook(int id) {
+        return db.write(() -> db.deleteBookCascade(id));
+    }
+
+    @Override
+    public List<Integer> deleteBooks(List<Integer> ids) {
+        return db.write(() -> {
+            List<Integer> deleted = new ArrayList<>();
+            for (int id : ids) {
+                if (db.deleteBookCascade(id)) {
+                    deleted.add(id);
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Book> updateBooksCategory(List<Integer> ids, int categoryId) {
+        return db.write(() -> {
+            List<Book> updated = new ArrayList<>();
+            for (int id : ids) {
+                Book current = db.books.get(id);
+                if (current != null) {
+                    Book book = new Book(current);
+                    book.setCategoryId(categoryId);
+                    book.setVersion(current.getVersion() + 1);
+                    replace(current, book);
+                    updated.add(new Book(book));
+                }
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public List<Book> adjustBooksPriceAndQuantity(List<Integer> ids, BigDecimal priceChange, int quantityChange) {
+        return db.write(() -> {
+            List<Book> updated = new ArrayList<>();
+            for (int id : ids) {
+                Book book = db.books.get(id);
+                if (book != null) {
+                    book.setPrice(book.getPrice().add(priceChange).max(BigDecimal.ZERO));
+                    book.setQuantity(Math.max(book.getQuantity() + quantityChange, 0));
+                    book.setVersion(book.getVersion() + 1);
+                    updated.add(new Book(book));
+                }
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public RepricePreview previewReprice(BookFilter filter, RepriceRule rule, int sampleSize) {
+        return db.read(() -> {
+            RepricePreview preview = new RepricePreview();
+            List<Book> matching = new ArrayList<>();
+            for (Book book : matching(filter)) {
+                if (rule.apply(book.getPrice()).compareTo(book.getPrice()) != 0) { // Left unchanged by repriceBooks
+                    matching.add(book);
+                }
+            }
+            preview.setMatchCount(matching.size());
+            for (Book book : matching.subList(0, Math.min(sampleSize, matching.size()))) {
+                preview.getSamples().add(new RepricePreview.Sample(book.getId(), book.getTitle(), book.getPrice(), rule.apply(book.getPrice())));
+            }
+            return preview;
+        });
+    }
+
+    @Override
+    public Map<Integer, BigDecimal> repriceBooks(BookFilter filter, RepriceRule rule) {
+        return db.write(() -> {
+            Map<Integer, BigDecimal> newPrices = new LinkedHashMap<>();
+            for (Book book : matching(filter)) {
+                BigDecimal newPrice = rule.apply(book.getPrice());
+                if (newPrice.compareTo(book.getPrice()) != 0) {
+                    book.setPrice(newPrice);
+                    book.setVersion(book.getVersion() + 1);
+                    newPrices.put(book.getId(), newPrice);
+                }
+            }
+            return newPrices;
+        });
+    }
+
+    @Override
+    public List<Book> searchBooks(String keyword) {
+        return db.read(() -> {
+            List<Book> result = new ArrayList<>();
+            db.books.forEachValue(book -> {
+                if (matchesKeyword(book, keyword)) {
+                    result.add(new Book(book));
+                }
+            });
+            return result;
+        });
+    }
+
+    @Override
+    public FacetResult browseBooks(FacetQuery query) {
+        return db.read(() -> {
+            // One pass: each facet is counted over the books matching every other facet's selection
+            List<Book> matches = new ArrayList<>();
+            Map<Integer, Integer> categoryCounts = new HashMap<>();
+            Map<String, Integer> authorCounts = new HashMap<>();
+            Map<PriceBand, Integer> priceBandCounts = new HashMap<>();
+            Map<Integer, Integer> decadeCounts = new HashMap<>();
+            db.books.forEachValue(book -> {
+                if (query.hasKeyword() && !matchesKeyword(book, query.getKeyword())) {
+                    return;
+                }
+                boolean category = query.matchesCategory(book);
+                boolean author = query.matchesAuthor(book);
+                boolean band = query.matchesPriceBand(book);
+                boolean decade = query.matchesDecade(book);
+                if (author && band && decade) {
+                    categoryCounts.merge(book.getCategoryId(), 1, Integer::sum);
+                }
+                if (category && band && decade) {
+                    authorCounts.merge(book.getAuthor(), 1, Integer::sum);
+                }
+                if (category && author && decade) {
+                    priceBandCounts.merge(PriceBand.of(book.getPrice()), 1, Integer::sum);
+                }
+                if (category && author && band) {
+                    decadeCounts.merge(FacetQuery.decadeOf(book.getPublicationDate()), 1, Integer::sum);
+                }
+                if (category && author && band && decade) {
+                    matches.add(book);
+                }
+            });
+            matches.sort(BY_TITLE.thenComparingInt(Book::getId));
+            int from = Math.min(query.getOffset(), matches.size());
+            int to = Math.min(from + query.getLimit(), matches.size());
+            List<Book> page = InMemoryDatabase.copyBooks(matches.subList(from, to));
+            return new FacetResult(page, matches.size(), query, categoryCounts, authorCounts, priceBandCounts, decadeCounts);
+        });
+    }
+
+    /**
+     * Caller holds the read lock.
+     */
+    private boolean matchesKeyword(Book book, String keyword) {
+        Category category = db.categories.get(book.getCategoryId());
+        return book.getTitle().contains(keyword) || book.getAuthor().contains(keyword)
+                || (book.getIsbn() != null && book.getIsbn().contains(keyword))
+                || String.valueOf(book.getId()).contains(keyword)
+                || (category != null && category.getName().contains(keyword));
+    }
+
+    @Override
+    public boolean updateBookQuantity(int bookId, int quantityChange) {
+        return adjustBookQuantity(bookId, quantityChange) != null;
+    }
+
+    @Override
+    public Integer adjustBookQuantity(int bookId, int quantityChange) {
+        return db.write(() -> {
+            Book book = db.books.get(bookId);
+            if (book == null) {
+                return null;
+            }
+            book.setQuantity(book.getQuantity() + quantityChange);
+            book.setVersion(book.getVersion() + 1);
+            return book.getQuantity();
+        });
+    }
+
+    /**
+     * @return The stored books matching the filter, by ID. Caller holds the lock.
+     */
+    private List<Book> matching(BookFilter filter) {
+        List<Book> result = new ArrayList<>();
+        Iterable<Book> candidates = filter.getCategoryId() != 0
+                ? valuesOrEmpty(db.booksByCategory.get(filter.getCategoryId()))
+                : db.books.values();
+        for (Book book : candidates) {
+            if (filter.matches(book)) {
+                result.add(book);
+            }
+        }
+        result.sort(Comparator.comparingInt(Book::getId));
+        return result;
+    }
+
+    private static List<Book> valuesOrEmpty(IntMap<Book> map) {
+        return map != null ? map.values() : Collections.emptyList();
+    }
+
+    /**
+     * Swaps a stored book for its new state, keeping the indexes consistent. Caller holds the write lock.
+     */
+    private void replace(Book current, Book updated) {
+        db.unindexBook(current);
+        db.indexBook(updated);
+    }
+}
@@ -0,0 +1,98 @@
+package repository;
+
+import model.Book;
+import model.Category;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory {@link CategoryRepository}; names are unique and looked up through the name index.
+ */
+public class InMemoryCategoryRepository implements CategoryRepository {
+    private final InMemoryDatabase db;
+
+    public InMemoryCategoryRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean addCategory(Category category) {
+        return db.write(() -> {
+            if (db.categoriesByName.containsKey(category.getName())) {
+                System.err.println("Error adding category: duplicate name " + category.getName());
+                return false;
+            }
+            category.setId(db.nextCategoryId++);
+            Category stored = InMemoryDatabase.copy(category);
+            db.categories.put(stored.getId(), stored);
+            db.categoriesByName.put(stored.getName(), stored);
+            return true;
+        });
+    }
+
+    @Override
+    public Category getCategoryById(int id) {
+        return db.read(() -> {
+            Category category = db.categories.get(id);
+            return category != null ? InMemoryDatabase.copy(category) : null;
+        });
+    }
+
+    @Override
+    public Category getCategoryByName(String name) {
+        return db.read(() -> {
+            Category category = db.categoriesByName.get(name);
+            return category != null ? InMemoryDatabase.copy(category) : null;
+        });
+    }
+
+    @Override
+    public List<Category> getAllCategories() {
+        return db.read(() -> {
+            List<Category> result = new ArrayList<>();
+            db.categories.forEachValue(category -> result.add(InMemoryDatabase.copy(category)));
+            result.sort(Comparator.comparing(Category::getName));
+            return result;
+        });
+    }
+
+    @Override
+    public boolean updateCategory(Category category) {
+        return db.write(() -> {
+            Category current = db.categories.get(category.getId());
+            Category sameName = db.categoriesByName.get(category.getName());
+            if (current == null || (sameName != null && sameName.getId() != category.getId())) {
+                return false;
+            }
+            db.categoriesByName.remove(current.getName());
+            Category stored = InMemoryDatabase.copy(category);
+            db.categories.put(stored.getId(), stored);
+            db.categoriesByName.put(stored.getName(), stored);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteCategory(int id) {
+        return db.write(() -> {
+            Category current = db.categories.remove(id);
+            if (current == null) {
+                return false;
+            }
+            db.categoriesByName.remove(current.getName());
+            // Like ON DELETE SET NULL: the books stay, without a category
+            IntMap<Book> inCategory = db.booksByCategory.get(id);
+            if (inCategory != null) {
+                for (Book book : inCategory.values()) {
+                    db.unindexBook(book);
+                    book.setCategoryId(0);
+                    book.setVersion(book.getVersion() + 1);
+                    db.indexBook(book);
+                }
+            }
+            return true;
+        });
+    }
+}
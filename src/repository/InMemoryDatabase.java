@@ -0,0 +1,159 @@
+package repository;
+
+import model.Book;
+import model.Category;
+import model.Purchase;
+import model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Tables and secondary indexes shared by the in-memory repositories.
+ *
+ * Rows are kept in int-keyed maps; books are also indexed by category and ISBN, categories and users
+ * by name, purchases by user and book. One read/write lock covers all tables, so operations that touch
+ * several of them (deleting a category or a book) are atomic like a database transaction, and any
+ * number of readers run in parallel. Repositories store and return copies, never shared instances.
+ */
+public final class InMemoryDatabase {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    final IntMap<Book> books = new IntMap<>();
+    final IntMap<IntMap<Book>> booksByCategory = new IntMap<>();
+    final Map<String, Book> booksByIsbn = new HashMap<>();
+    final IntMap<Category> categories = new IntMap<>();
+    final Map<String, Category> categoriesByName = new HashMap<>();
+    final IntMap<User> users = new IntMap<>();
+    final Map<String, User> usersByName = new HashMap<>();
+    final IntMap<Purchase> purchases = new IntMap<>();
+    final IntMap<List<Purchase>> purchasesByUser = new IntMap<>();
+    final IntMap<List<Purchase>> purchasesByBook = new IntMap<>();
+
+    int nextBookId = 1;
+    int nextCategoryId = 1;
+    int nextUserId = 1;
+    int nextPurchaseId = 1;
+
+    <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void indexBook(Book book) {
+        books.put(book.getId(), book);
+        IntMap<Book> inCategory = booksByCategory.get(book.getCategoryId());
+        if (inCategory == null) {
+            inCategory = new IntMap<>();
+            booksByCategory.put(book.getCategoryId(), inCategory);
+        }
+        inCategory.put(book.getId(), book);
+        if (book.getIsbn() != null) {
+            booksByIsbn.put(book.getIsbn(), book);
+        }
+    }
+
+    void unindexBook(Book book) {
+        books.remove(book.getId());
+        IntMap<Book> inCategory = booksByCategory.get(book.getCategoryId());
+        if (inCategory != null) {
+            inCategory.remove(book.getId());
+            if (inCategory.isEmpty()) {
+                booksByCategory.remove(book.getCategoryId());
+            }
+        }
+        if (book.getIsbn() != null) {
+            booksByIsbn.remove(book.getIsbn());
+        }
+    }
+
+    /**
+     * @return true if another book than the given one already uses the ISBN (ISBNs are unique).
+     */
+    boolean isbnTaken(String isbn, int bookId) {
+        Book owner = isbn != null ? booksByIsbn.get(isbn) : null;
+        return owner != null && owner.getId() != bookId;
+    }
+
+    /**
+     * Deletes a book and, like ON DELETE CASCADE, its purchases.
+     */
+    boolean deleteBookCascade(int bookId) {
+        Book book = books.get(bookId);
+        if (book == null) {
+            return false;
+        }
+        unindexBook(book);
+        List<Purchase> ofBook = purchasesByBook.remove(bookId);
+        if (ofBook != null) {
+            for (Purchase purchase : ofBook) {
+                purchases.remove(purchase.getId());
+                List<Purchase> ofUser = purchasesByUser.get(purchase.getUserId());
+                if (ofUser != null) {
+                    ofUser.remove(purchase);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a user and, like ON DELETE CASCADE, their purchases.
+     */
+    boolean deleteUserCascade(int userId) {
+        User user = users.remove(userId);
+        if (user == null) {
+            return false;
+        }
+        usersByName.remove(user.getUsername());
+        List<Purchase> ofUser = purchasesByUser.remove(userId);
+        if (ofUser != null) {
+            for (Purchase purchase : ofUser) {
+                purchases.remove(purchase.getId());
+                List<Purchase> ofBook = purchasesByBook.get(purchase.getBookId());
+                if (ofBook != null) {
+                    ofBook.remove(purchase);
+                }
+            }
+        }
+        return true;
+    }
+
+    static Purchase copy(Purchase p) {
+        return new Purchase(p.getId(), p.getBookId(), p.getBookTitle(), p.getBookImage(), p.getBookPrice(),
+                p.getQuantity(), p.getTotalPrice(), p.getPurchaseDate(), p.getUserId());
+    }
+
+    static User copy(User u) {
+        return new User(u.getId(), u.getUsername(), u.getPassword(), u.getRole());
+    }
+
+    static Category copy(Category c) {
+        return new Category(c.getId(), c.getName());
+    }
+
+    static List<Book> copyBooks(List<Book> source) {
+        List<Book> result = new ArrayList<>(source.size());
+        for (Book book : source) {
+            result.add(new Book(book));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package repository;
+
+import model.BasketLine;
+import model.Book;
+import model.CheckoutResult;
+import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory {@link PurchaseRepository}; a user's purchases are served from the per-user index.
+ */
+public class InMemoryPurchaseRepository implements PurchaseRepository {
+    private static final Comparator<Purchase> NEWEST_FIRST =
+            Comparator.comparing(Purchase::getPurchaseDate, Comparator.nullsLast(Comparator.reverseOrder()));
+    private static final Comparator<Purchase> NEWEST_FIRST_BY_ID =
+            NEWEST_FIRST.thenComparing(Comparator.comparingInt(Purchase::getId).reversed());
+
+    private final InMemoryDatabase db;
+
+    public InMemoryPurchaseRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean addPurchase(Purchase purchase) {
+        return db.write(() -> {
+            if (!db.books.containsKey(purchase.getBookId()) || !db.users.containsKey(purchase.getUserId())) {
+                System.err.println("Error adding purchase: unknown book or user");
+                return false; // Foreign keys
+            }
+            purchase.setId(db.nextPurchaseId++);
+            Purchase stored = InMemoryDatabase.copy(purchase);
+            if (stored.getPurchaseDate() == null) {
+                stored.setPurchaseDate(new Timestamp(System.currentTimeMillis())); // DEFAULT CURRENT_TIMESTAMP
+            }
+            db.purchases.put(stored.getId(), stored);
+            listOf(db.purchasesByUser, stored.getUserId()).add(stored);
+            listOf(db.purchasesByBook, stored.getBookId()).add(stored);
+            return true;
+        });
+    }
+
+    @Override
+    public CheckoutResult checkout(List<BasketLine> lines, int userId) {
+        Map<Integer, Integer> requested = new TreeMap<>();
+        for (BasketLine line : lines) {
+            requested.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
+        return db.write(() -> {
+            // Check every line before changing anything, so a failed checkout writes nothing
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                Book book = db.books.get(entry.getKey());
+                if (book == null) {
+                    return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(),
+                            "Book " + entry.getKey() + " no longer exists.");
+                }
+                if (book.getQuantity() < entry.getValue()) {
+                    return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), entry.getKey(), "Not enough stock for \""
+                            + book.getTitle() + "\": " + entry.getValue() + " requested, " + book.getQuantity() + " available.");
+                }
+            }
+            if (!db.users.containsKey(userId)) {
+                return new CheckoutResult(new ArrayList<>(), new TreeMap<>(), 0, "Unknown user " + userId + ".");
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            List<Purchase> purchases = new ArrayList<>();
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                Book book = db.books.get(entry.getKey());
+                int quantity = entry.getValue();
+                book.setQuantity(book.getQuantity() - quantity);
+                book.setVersion(book.getVersion() + 1);
+                quantities.put(book.getId(), book.getQuantity());
+                Purchase purchase = new Purchase(book.getId(), book.getTitle(), book.getImageUrl(), book.getPrice(), quantity,
+                        book.getPrice().multiply(new BigDecimal(quantity)), now, userId);
+                addPurchase(purchase); // The write lock is reentrant
+                purchases.add(purchase);
+            }
+            return new CheckoutResult(purchases, quantities, 0, null);
+        });
+    }
+
+    @Override
+    public Purchase getPurchaseById(int id) {
+        return db.read(() -> {
+            Purchase purchase = db.purchases.get(id);
+            return purchase != null ? InMemoryDatabase.copy(purchase) : null;
+        });
+    }
+
+    @Override
+    public List<Purchase> getAllPurchases() {
+        return db.read(() -> newestFirst(db.purchases.values()));
+    }
+
+    @Override
+    public List<Purchase> getPurchasesByUserId(int userId) {
+        return db.read(() -> {
+            List<Purchase> ofUser = db.purchasesByUser.get(userId);
+            return ofUser != null ? newestFirst(ofUser) : new ArrayList<>();
+        });
+    }
+
+    @Override
+    public PurchasePage findPurchases(PurchaseQuery query) {
+        List<Purchase> matching = db.read(() -> {
+            // Scan the narrowest index the query allows
+            List<Purchase> candidates;
+            if (query.getUserId() != 0) {
+                candidates = db.purchasesByUser.get(query.getUserId());
+            } else if (query.getBookId() != 0) {
+                candidates = db.purchasesByBook.get(query.getBookId());
+            } else {
+                candidates = db.purchases.values();
+            }
+            List<Purchase> result = new ArrayList<>();
+            if (candidates != null) {
+                for (Purchase purchase : candidates) {
+                    if (query.matches(purchase) && query.isAfterPosition(purchase)) {
+                        result.add(purchase);
+                    }
+                }
+            }
+            result.sort(NEWEST_FIRST_BY_ID);
+            List<Purchase> page = new ArrayList<>();
+            for (int i = 0; i < result.size() && i <= query.getPageSize(); i++) {
+                page.add(InMemoryDatabase.copy(result.get(i)));
+            }
+            return page;
+        });
+        if (matching.size() > query.getPageSize()) {
+            matching.remove(matching.size() - 1);
+            return new PurchasePage(matching, query.after(matching.get(matching.size() - 1)));
+        }
+        return new PurchasePage(matching, null);
+    }
+
+    private static List<Purchase> newestFirst(List<Purchase> source) {
+        List<Purchase> result = new ArrayList<>(source.size());
+        for (Purchase purchase : source) {
+            result.add(InMemoryDatabase.copy(purchase));
+        }
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    private static List<Purchase> listOf(IntMap<List<Purchase>> index, int key) {
+        List<Purchase> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            index.put(key, list);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,80 @@
+package repository;
+
+import model.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory {@link UserRepository}; usernames are unique and looked up through the name index.
+ */
+public class InMemoryUserRepository implements UserRepository {
+    private final InMemoryDatabase db;
+
+    public InMemoryUserRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean addUser(User user) {
+        return db.write(() -> {
+            if (db.usersByName.containsKey(user.getUsername())) {
+                System.err.println("Error adding user: duplicate username " + user.getUsername());
+                return false;
+            }
+            user.setId(db.nextUserId++);
+            User stored = InMemoryDatabase.copy(user);
+            db.users.put(stored.getId(), stored);
+            db.usersByName.put(stored.getUsername(), stored);
+            return true;
+        });
+    }
+
+    @Override
+    public User getUserById(int id) {
+        return db.read(() -> {
+            User user = db.users.get(id);
+            return user != null ? InMemoryDatabase.copy(user) : null;
+        });
+    }
+
+    @Override
+    public User getUserByUsername(String username) {
+        return db.read(() -> {
+            User user = db.usersByName.get(username);
+            return user != null ? InMemoryDatabase.copy(user) : null;
+        });
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return db.read(() -> {
+            List<User> result = new ArrayList<>();
+            db.users.forEachValue(user -> result.add(InMemoryDatabase.copy(user)));
+            result.sort(Comparator.comparingInt(User::getId));
+            return result;
+        });
+    }
+
+    @Override
+    public boolean updateUser(User user) {
+        return db.write(() -> {
+            User current = db.users.get(user.getId());
+            User sameName = db.usersByName.get(user.getUsername());
+            if (current == null || (sameName != null && sameName.getId() != user.getId())) {
+                return false;
+            }
+            db.usersByName.remove(current.getUsername());
+            User stored = InMemoryDatabase.copy(user);
+            db.users.put(stored.getId(), stored);
+            db.usersByName.put(stored.getUsername(), stored);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean deleteUser(int id) {
+        return db.write(() -> db.deleteUserCascade(id));
+    }
+}
@@ -0,0 +1,157 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hash map from primitive int keys to values, with open addressing and linear probing.
+ * Keys are never boxed, which keeps lookups by ID allocation-free. Not thread-safe;
+ * {@link InMemoryDatabase} guards all maps with its lock.
+ * @param <V> The value type.
+ */
+final class IntMap<V> {
+    private static final int FREE = 0;      // slot state: never used
+    private static final int USED = 1;
+    private static final int DELETED = 2;   // tombstone, keeps probe chains intact
+
+    private int[] keys;
+    private Object[] values;
+    private byte[] states;
+    private int size;
+    private int occupied; // USED + DELETED slots
+
+    IntMap() {
+        this(16);
+    }
+
+    IntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 16) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int slot = find(key);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return The previous value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        if ((occupied + 1) * 4 > keys.length * 3) { // Load factor 0.75, tombstones included
+            rehash(size + 1 > keys.length / 2 ? keys.length * 2 : keys.length);
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (states[i] == USED) {
+            i = (i + 1) & mask;
+        }
+        if (states[i] == FREE) {
+            occupied++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        states[i] = USED;
+        size++;
+        return null;
+    }
+
+    /**
+     * @return The removed value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        values[slot] = null;
+        states[slot] = DELETED;
+        size--;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == USED) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The values in unspecified order.
+     */
+    List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEachValue(result::add);
+        return result;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(states, (byte) FREE);
+        size = 0;
+        occupied = 0;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (states[i] != FREE) {
+            if (states[i] == USED && keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+        size = 0;
+        occupied = 0;
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == USED) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9; // Spread sequential IDs over the table
+        return h ^ (h >>> 16);
+    }
+}
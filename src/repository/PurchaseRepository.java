@@ -0,0 +1,45 @@
+package repository;
+
+import model.BasketLine;
+import model.CheckoutResult;
+import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+
+import java.util.List;
+
+/**
+ * Storage of purchases. Implemented by {@link dao.PurchaseDAO} (PostgreSQL) and {@link InMemoryPurchaseRepository}.
+ */
+public interface PurchaseRepository {
+
+    /**
+     * Adds a purchase and sets its generated ID.
+     * @return true if the purchase was added.
+     */
+    boolean addPurchase(Purchase purchase);
+
+    /**
+     * Sells every line of a basket in one transaction: each book's stock is decremented only if it
+     * covers the line, and the purchases are recorded at the stored prices. Nothing is written if any line fails.
+     * @return The recorded purchases and new stock, or the line that failed.
+     */
+    CheckoutResult checkout(List<BasketLine> lines, int userId);
+
+    Purchase getPurchaseById(int id);
+
+    /**
+     * @return All purchases, newest first.
+     */
+    List<Purchase> getAllPurchases();
+
+    /**
+     * @return The purchases of a user, newest first.
+     */
+    List<Purchase> getPurchasesByUserId(int userId);
+
+    /**
+     * @return One page of the purchases matching the query, newest first (purchase date, then ID).
+     */
+    PurchasePage findPurchases(PurchaseQuery query);
+}
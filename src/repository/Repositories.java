@@ -0,0 +1,99 @@
+package repository;
+
+import dao.BookDAO;
+import dao.CategoryDAO;
+import dao.PurchaseDAO;
+import dao.UserDAO;
+import model.Book;
+import model.Category;
+import model.User;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * Selects the storage engine used by controllers and panels.
+ * -Dbookstore.storage=memory runs without PostgreSQL against an in-memory engine seeded with the
+ * demo catalogue (kiosks, demos); the default "postgres" uses the DAOs. Sales reports and the dashboard
+ * revenue figure come from PostgreSQL rollups and are only available with the default engine.
+ */
+public final class Repositories {
+    private static final boolean IN_MEMORY = "memory".equalsIgnoreCase(System.getProperty("bookstore.storage", "postgres"));
+
+    private static final BookRepository BOOKS;
+    private static final CategoryRepository CATEGORIES;
+    private static final UserRepository USERS;
+    private static final PurchaseRepository PURCHASES;
+
+    static {
+        if (IN_MEMORY) {
+            InMemoryDatabase db = new InMemoryDatabase();
+            BOOKS = new InMemoryBookRepository(db);
+            CATEGORIES = new InMemoryCategoryRepository(db);
+            USERS = new InMemoryUserRepository(db);
+            PURCHASES = new InMemoryPurchaseRepository(db);
+            seedDemoData();
+        } else {
+            BOOKS = new BookDAO();
+            CATEGORIES = new CategoryDAO();
+            USERS = new UserDAO();
+            PURCHASES = new PurchaseDAO();
+        }
+    }
+
+    private Repositories() {
+    }
+
+    public static boolean isInMemory() {
+        return IN_MEMORY;
+    }
+
+    public static BookRepository books() {
+        return BOOKS;
+    }
+
+    public static CategoryRepository categories() {
+        return CATEGORIES;
+    }
+
+    public static UserRepository users() {
+        return USERS;
+    }
+
+    public static PurchaseRepository purchases() {
+        return PURCHASES;
+    }
+
+    /**
+     * Loads the same initial data that DBConnection inserts into an empty database.
+     */
+    private static void seedDemoData() {
+        Category fiction = new Category("Fiction");
+        Category science = new Category("Science");
+        Category history = new Category("History");
+        Category programming = new Category("Programming");
+        for (Category category : new Category[]{fiction, science, history, programming}) {
+            CATEGORIES.addCategory(category);
+        }
+
+        USERS.addUser(new User("owner", "ownerpass", "Owner")); // Insecure, for demo only
+        USERS.addUser(new User("user", "userpass", "User"));    // Insecure, for demo only
+
+        addBook("The Great Gatsby", "F. Scott Fitzgerald", fiction, "12.99", 50, "978-0743273565", "1925-04-10", "A classic novel of the Jazz Age.", "Gatsby");
+        addBook("To Kill a Mockingbird", "Harper Lee", fiction, "10.50", 45, "978-0446310789", "1960-07-11", "A powerful story about racial injustice.", "Mockingbird");
+        addBook("1984", "George Orwell", fiction, "9.75", 60, "978-0451524935", "1949-06-08", "Dystopian social science fiction novel.", "1984");
+        addBook("Pride and Prejudice", "Jane Austen", fiction, "8.99", 55, "978-0141439518", "1813-01-28", "A romantic novel of manners.", "Pride");
+        addBook("The Hobbit", "J.R.R. Tolkien", fiction, "14.25", 70, "978-0345339683", "1937-09-21", "A fantasy novel and prelude to The Lord of the Rings.", "Hobbit");
+        addBook("Clean Code", "Robert C. Martin", programming, "35.00", 30, "978-0132350884", "2008-08-01", "A handbook of agile software craftsmanship.", "CleanCode");
+        addBook("Effective Java", "Joshua Bloch", programming, "42.00", 25, "978-0321356680", "2008-05-28", "Programming practices for the Java platform.", "EffectiveJava");
+        addBook("The Pragmatic Programmer", "Andrew Hunt, David Thomas", programming, "30.00", 40, "978-0201616224", "1999-10-20", "From journeyman to master.", "Pragmatic");
+        addBook("Cosmos", "Carl Sagan", science, "15.99", 35, "978-0345539434", "1980-09-01", "A personal journey into the universe.", "Cosmos");
+        addBook("Sapiens: A Brief History of Humankind", "Yuval Noah Harari", history, "20.00", 40, "978-0062316097", "2015-02-10", "A global bestseller about the history of our species.", "Sapiens");
+    }
+
+    private static void addBook(String title, String author, Category category, String price, int quantity,
+                                String isbn, String publicationDate, String description, String imageText) {
+        BOOKS.addBook(new Book(title, author, category.getId(), new BigDecimal(price), quantity, isbn,
+                Date.valueOf(publicationDate), description, "https://placehold.co/100x150/000/FFF?text=" + imageText));
+    }
+}
@@ -0,0 +1,31 @@
+package repository;
+
+import model.User;
+
+import java.util.List;
+
+/**
+ * Storage of users. Implemented by {@link dao.UserDAO} (PostgreSQL) and {@link InMemoryUserRepository}.
+ */
+public interface UserRepository {
+
+    /**
+     * Adds a user and sets its generated ID.
+     * @return true if the user was added (usernames are unique).
+     */
+    boolean addUser(User user);
+
+    User getUserById(int id);
+
+    User getUserByUsername(String username);
+
+    List<User> getAllUsers();
+
+    boolean updateUser(User user);
+
+    /**
+     * Deletes a user together with their purchases.
+     * @return true if the user was deleted.
+     */
+    boolean deleteUser(int id);
+}
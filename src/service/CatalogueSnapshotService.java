@@ -0,0 +1,109 @@
+package service;
+
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import model.CatalogueSnapshot;
+import repository.BookRepository;
+import repository.Repositories;
+
+/**
+ * Holds a resident {@link CatalogueSnapshot} for analytics and in-memory search.
+ *
+ * Stock and price changes are patched into the current snapshot as they are published. Added, edited
+ * and deleted books mark it stale; the next {@link #get()} rebuilds it, but not more often than every
+ * -Dbookstore.snapshot.minRebuildMs (10 seconds), so a burst of catalogue edits costs one rebuild.
+ */
+public final class CatalogueSnapshotService {
+    private static final CatalogueSnapshotService INSTANCE = new CatalogueSnapshotService();
+
+    private static final long MIN_REBUILD_MILLIS = Long.getLong("bookstore.snapshot.minRebuildMs", 10_000L);
+
+    private final BookRepository bookRepository = Repositories.books();
+    private volatile CatalogueSnapshot snapshot;
+    private volatile boolean stale = true;
+    private volatile boolean loading;
+
+    private CatalogueSnapshotService() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(StockChangedEvent.class, e -> {
+            CatalogueSnapshot current = snapshot;
+            if (current != null) {
+                current.updateQuantity(e.getBookId(), e.getQuantity());
+            }
+            if (loading) {
+                stale = true; // The snapshot being loaded may have read the old value
+            }
+        });
+        bus.subscribe(PricesChangedEvent.class, e -> {
+            CatalogueSnapshot current = snapshot;
+            if (current != null) {
+                e.getNewPrices().forEach(current::updatePrice);
+            }
+            if (loading) {
+                stale = true;
+            }
+        });
+        bus.subscribe(BookAddedEvent.class, e -> stale = true);
+        bus.subscribe(BookUpdatedEvent.class, e -> stale = true);
+        bus.subscribe(BookDeletedEvent.class, e -> stale = true);
+        bus.subscribe(BooksChangedEvent.class, e -> stale = true);
+        bus.subscribe(CategoryChangedEvent.class, e -> stale = true);
+    }
+
+    public static CatalogueSnapshotService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The current snapshot as it is, never rebuilt by this call; null if none was built yet.
+     *         For callers that must not wait for a rebuild and follow catalogue edits themselves.
+     */
+    public CatalogueSnapshot peek() {
+        return snapshot;
+    }
+
+    /**
+     * @return true if catalogue edits were published since the current snapshot started loading,
+     *         so the next {@link #get()} that may rebuild will.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * @return The current snapshot, rebuilt first if it is stale and old enough; null only if
+     *         no snapshot could be built yet.
+     */
+    public CatalogueSnapshot get() {
+        CatalogueSnapshot current = snapshot;
+        if (current != null && (!stale || System.currentTimeMillis() - current.getBuiltAt() < MIN_REBUILD_MILLIS)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || (stale && System.currentTimeMillis() - current.getBuiltAt() >= MIN_REBUILD_MILLIS)) {
+                stale = false; // Cleared before loading, so changes during the load mark the new snapshot stale
+                loading = true;
+                CatalogueSnapshot rebuilt;
+                try {
+                    rebuilt = bookRepository.loadCatalogueSnapshot();
+                } finally {
+                    loading = false;
+                }
+                if (rebuilt != null) {
+                    snapshot = rebuilt;
+                    current = rebuilt;
+                } else {
+                    stale = true;
+                }
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package service;
+
+import dao.BookCache;
+import dao.PgNotifyTransport;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.ChangeTransport;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import event.Subscription;
+import model.Book;
+import model.Category;
+import offline.PurchaseJournal;
+import repository.BookRepository;
+import repository.Repositories;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the caches and views of all terminals coherent with each other.
+ *
+ * Book, stock, price and category events published on this terminal are sent to the other terminals
+ * over a {@link ChangeTransport}. Messages from other terminals drop the changed books from the
+ * {@link BookCache} and are published again on the local {@link EventBus}, so the snapshot, the ISBN
+ * index, the offline replica and the open panels follow them as they follow local changes. Changed and
+ * added books are read back from the database, and so is the stock of a book whose stock changed:
+ * messages from several terminals do not arrive in commit order, so a quantity carried by a message could
+ * be older than one already applied. Messages are applied one at a time, so each read is at least as
+ * recent as the one before. Price and deletion messages carry their values.
+ *
+ * Messages are sent after the write committed, by a background thread. A terminal that misses some
+ * (its listening connection dropped) clears its book cache; other views catch up on their next refresh.
+ *
+ * Configuration (system properties):
+ *   bookstore.changes.transport - postgres | none (default postgres)
+ *   bookstore.changes.channel   - LISTEN/NOTIFY channel (default bookstore_changes)
+ */
+public final class ChangeNotifier {
+    private static final ChangeNotifier INSTANCE = new ChangeNotifier();
+
+    private final String origin = UUID.randomUUID().toString().substring(0, 8);
+    private final BookRepository bookRepository = Repositories.books();
+    private final ThreadLocal<Boolean> applyingRemote = ThreadLocal.withInitial(() -> false);
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private volatile ChangeTransport transport;
+    private ExecutorService sender;
+
+    private ChangeNotifier() {
+    }
+
+    public static ChangeNotifier getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts exchanging changes over the configured transport.
+     */
+    public void start() {
+        if ("none".equalsIgnoreCase(System.getProperty("bookstore.changes.transport", "postgres"))) {
+            return;
+        }
+        start(new PgNotifyTransport(System.getProperty("bookstore.changes.channel", "bookstore_changes")));
+    }
+
+    /**
+     * Starts exchanging changes over the given transport.
+     * @param transport The transport, e.g. a {@link event.LocalChangeTransport} in tests.
+     */
+    public synchronized void start(ChangeTransport transport) {
+        if (this.transport != null) {
+            return;
+        }
+        this.transport = transport;
+        sender = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "change-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        subscribe();
+        transport.start(new ChangeTransport.Receiver() {
+            @Override
+            public void messageReceived(String message) {
+                apply(message);
+            }
+
+            @Override
+            public void messagesLost() {
+                System.out.println("Change notifications may have been missed, cached books dropped.");
+                BookCache.getInstance().invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Stops sending and receiving changes.
+     */
+    public synchronized void stop() {
+        if (transport == null) {
+            return;
+        }
+        subscriptions.forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+        sender.shutdown();
+        transport.close();
+        transport = null;
+    }
+
+    private void subscribe() {
+        EventBus bus = EventBus.getInstance();
+        subscriptions.add(bus.subscribe(BookAddedEvent.class, e -> send("book.added", e.getBook().getId())));
+        subscriptions.add(bus.subscribe(BookUpdatedEvent.class, e -> send("book.updated", e.getBook().getId())));
+        subscriptions.add(bus.subscribe(BookDeletedEvent.class, e -> send("book.deleted", e.getBookId())));
+        subscriptions.add(bus.subscribe(BooksChangedEvent.class, e -> {
+            List<String> updatedIds = new ArrayList<>();
+            for (Book book : e.getUpdatedBooks()) {
+                updatedIds.add(String.valueOf(book.getId()));
+            }
+            sendList("books.updated", updatedIds);
+            sendList("books.deleted", toStrings(e.getDeletedBookIds()));
+        }));
+        subscriptions.add(bus.subscribe(StockChangedEvent.class,
+                e -> send("stock", e.getBookId(), e.getQuantity(), e.getDelta())));
+        subscriptions.add(bus.subscribe(PricesChangedEvent.class, e -> {
+            List<String> prices = new ArrayList<>();
+            e.getNewPrices().forEach((bookId, price) -> prices.add(bookId + "=" + price.toPlainString()));
+            sendList("prices", prices);
+        }));
+        subscriptions.add(bus.subscribe(CategoryChangedEvent.class, e -> {
+            Category category = e.getCategory();
+            String name = category.getName() != null ? category.getName().replaceAll("[\\t\\r\\n]", " ") : "";
+            send("category", e.getChangeType(), category.getId(), name);
+        }));
+    }
+
+    private void send(String kind, Object... values) {
+        StringBuilder message = new StringBuilder(origin).append('\t').append(kind);
+        for (Object value : values) {
+            message.append('\t').append(value);
+        }
+        enqueue(message.toString());
+    }
+
+    /**
+     * Sends a list of values, split into as many messages as the transport's size limit requires.
+     */
+    private void sendList(String kind, List<String> values) {
+        ChangeTransport target = transport;
+        if (target == null || applyingRemote.get()) {
+            return;
+        }
+        String head = origin + "\t" + kind + "\t";
+        int limit = target.getMaxMessageBytes();
+        StringBuilder message = new StringBuilder(head);
+        for (String value : values) {
+            if (message.length() > head.length() && message.length() + 1 + value.length() > limit) {
+                enqueue(message.toString());
+                message.setLength(head.length());
+            }
+            if (message.length() > head.length()) {
+                message.append(',');
+            }
+            message.append(value);
+        }
+        if (message.length() > head.length()) {
+            enqueue(message.toString());
+        }
+    }
+
+    private synchronized void enqueue(String message) {
+        if (applyingRemote.get() || transport == null) {
+            return; // Published by apply(): the change came from another terminal
+        }
+        ChangeTransport target = transport;
+        sender.execute(() -> target.send(message));
+    }
+
+    private void apply(String message) {
+        String[] fields = message.split("\t", -1);
+        if (fields.length < 3 || fields[0].equals(origin)) {
+            return;
+        }
+        BookCache cache = BookCache.getInstance();
+        EventBus bus = EventBus.getInstance();
+        applyingRemote.set(true);
+        try {
+            switch (fields[1]) {
+                case "book.added": {
+                    int id = Integer.parseInt(fields[2]);
+                    cache.invalidate(id);
+                    Book book = bookRepository.getBookById(id);
+                    if (book != null) {
+                        bus.publish(new BookAddedEvent(book));
+                    }
+                    break;
+                }
+                case "book.updated": {
+                    int id = Integer.parseInt(fields[2]);
+                    cache.invalidate(id);
+                    Book book = bookRepository.getBookById(id);
+                    if (book != null) {
+                        bus.publish(new BookUpdatedEvent(book));
+                    }
+                    break;
+                }
+                case "book.deleted": {
+                    int id = Integer.parseInt(fields[2]);
+                    cache.invalidate(id);
+                    bus.publish(new BookDeletedEvent(id));
+                    break;
+                }
+                case "books.updated": {
+                    List<Integer> ids = parseIds(fields[2]);
+                    cache.invalidate(ids);
+                    List<Book> books = new ArrayList<>();
+                    for (int id : ids) {
+                        Book book = bookRepository.getBookById(id);
+                        if (book != null) {
+                            books.add(book);
+                        }
+                    }
+                    bus.publish(new BooksChangedEvent(books, Collections.emptyList()));
+                    break;
+                }
+                case "books.deleted": {
+                    List<Integer> ids = parseIds(fields[2]);
+                    cache.invalidate(ids);
+                    bus.publish(new BooksChangedEvent(Collections.emptyList(), ids));
+                    break;
+                }
+                case "stock": {
+                    int id = Integer.parseInt(fields[2]);
+                    int pending = PurchaseJournal.getInstance().getPendingQuantity(id); // Before the read
+                    cache.invalidate(id);
+                    Book book = bookRepository.getBookById(id); // The quantity in the message may be stale
+                    if (book != null) {
+                        bus.publish(new StockChangedEvent(id, book.getQuantity() - pending, Integer.parseInt(fields[4])));
+                    }
+                    break;
+                }
+                case "prices": {
+                    Map<Integer, BigDecimal> prices = new LinkedHashMap<>();
+                    for (String entry : fields[2].split(",")) {
+                        int separator = entry.indexOf('=');
+                        prices.put(Integer.parseInt(entry.substring(0, separator)), new BigDecimal(entry.substring(separator + 1)));
+                    }
+                    cache.invalidate(prices.keySet());
+                    bus.publish(new PricesChangedEvent(prices));
+                    break;
+                }
+                case "category": {
+                    CategoryChangedEvent.ChangeType type = CategoryChangedEvent.ChangeType.valueOf(fields[2]);
+                    if (type == CategoryChangedEvent.ChangeType.DELETED) {
+                        cache.invalidateAll(); // Its books lost their category
+                    }
+                    bus.publish(new CategoryChangedEvent(new Category(Integer.parseInt(fields[3]), fields[4]), type));
+                    break;
+                }
+                default:
+                    break; // Sent by a newer version
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error applying change notification \"" + message + "\": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            applyingRemote.set(false);
+        }
+    }
+
+    private static List<Integer> parseIds(String values) {
+        List<Integer> ids = new ArrayList<>();
+        for (String value : values.split(",")) {
+            ids.add(Integer.parseInt(value));
+        }
+        return ids;
+    }
+
+    private static List<String> toStrings(List<Integer> ids) {
+        List<String> values = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            values.add(String.valueOf(id));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,271 @@
+package service;
+
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import model.Book;
+import model.CatalogueSnapshot;
+import utils.BkTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Typo-tolerant matching of titles and authors, for "did you mean" results when a search finds nothing.
+ *
+ * The distinct words of all titles and authors are indexed in a {@link BkTree} built from the resident
+ * {@link CatalogueSnapshot}; each word keeps the rows it occurs in. A query word matches index words within
+ * a Levenshtein distance that grows with its length (none up to 3 letters, 1 up to 5, else 2), so
+ * "Tolkein" finds "Tolkien" and "Orwel" finds "Orwell" without comparing against every word. Matching
+ * ignores case. Stock and price changes do not affect the index.
+ *
+ * Catalogue edits rebuild the index on a background thread, -Dbookstore.fuzzy.rebuildDelayMs (2 seconds)
+ * after the last edit of a burst; searches keep using the previous index until the new one replaces it.
+ * Only the very first index is built by the search that needs it.
+ */
+public final class FuzzyMatcher {
+    private static final FuzzyMatcher INSTANCE = new FuzzyMatcher();
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private static final long REBUILD_DELAY_MILLIS = Long.getLong("bookstore.fuzzy.rebuildDelayMs", 2000L);
+
+    private volatile Index index;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fuzzy-index");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> scheduledRebuild;
+
+    private FuzzyMatcher() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(BookAddedEvent.class, e -> scheduleRebuild());
+        bus.subscribe(BookUpdatedEvent.class, e -> scheduleRebuild());
+        bus.subscribe(BookDeletedEvent.class, e -> scheduleRebuild());
+        bus.subscribe(BooksChangedEvent.class, e -> scheduleRebuild());
+        bus.subscribe(CategoryChangedEvent.class, e -> scheduleRebuild());
+    }
+
+    public static FuzzyMatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the books whose title and author words are closest to the words of the query: books matching
+     * more query words first, then those with the smaller total distance, then by title.
+     * @param query The search text, possibly misspelt.
+     * @param limit The maximum number of books.
+     * @return The books, best match first; empty if nothing is close.
+     */
+    public List<Book> findBooks(String query, int limit) {
+        List<String> words = words(query);
+        Index current = index();
+        List<Book> books = new ArrayList<>();
+        if (words.isEmpty() || current == null) {
+            return books;
+        }
+
+        // Per row: index of the last query word that matched it, number of words matched, total distance
+        Map<Integer, int[]> scores = new HashMap<>();
+        for (int w = 0; w < words.size(); w++) {
+            for (BkTree.Match match : current.tree.search(words.get(w), maxDistance(words.get(w)))) {
+                Term term = current.terms.get(match.getTerm());
+                for (int i = 0; i < term.rowCount; i++) {
+                    int[] score = scores.computeIfAbsent(term.rows[i], row -> new int[]{-1, 0, 0});
+                    if (score[0] != w) { // Matches come closest first, so the first one per word is its best
+                        score[0] = w;
+                        score[1]++;
+                        score[2] += match.getDistance();
+                    }
+                }
+            }
+        }
+
+        CatalogueSnapshot snapshot = current.snapshot;
+        List<Map.Entry<Integer, int[]>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byWords = Integer.compare(b.getValue()[1], a.getValue()[1]);
+            if (byWords != 0) {
+                return byWords;
+            }
+            int byDistance = Integer.compare(a.getValue()[2], b.getValue()[2]);
+            return byDistance != 0 ? byDistance : snapshot.getTitle(a.getKey()).compareTo(snapshot.getTitle(b.getKey()));
+        });
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            books.add(snapshot.toBook(ranked.get(i).getKey()));
+        }
+        return books;
+    }
+
+    /**
+     * Replaces each misspelt word of the query by the closest indexed word, in the spelling used in the
+     * catalogue; among equally close words the most frequent wins.
+     * @param query The search text.
+     * @return The corrected text, or null if no word was corrected.
+     */
+    public String suggestCorrection(String query) {
+        Index current = index();
+        if (query == null || current == null) {
+            return null;
+        }
+        StringBuffer corrected = new StringBuffer();
+        boolean changed = false;
+        Matcher matcher = WORD.matcher(query);
+        while (matcher.find()) {
+            String word = matcher.group().toLowerCase(Locale.ROOT);
+            String replacement = matcher.group();
+            if (word.length() >= MIN_WORD_LENGTH && !current.terms.containsKey(word)) {
+                Term best = null;
+                int bestDistance = Integer.MAX_VALUE;
+                for (BkTree.Match match : current.tree.search(word, maxDistance(word))) {
+                    Term term = current.terms.get(match.getTerm());
+                    if (match.getDistance() < bestDistance || (match.getDistance() == bestDistance && term.rowCount > best.rowCount)) {
+                        best = term;
+                        bestDistance = match.getDistance();
+                    }
+                }
+                if (best != null) {
+                    replacement = best.spelling;
+                    changed = true;
+                }
+            }
+            matcher.appendReplacement(corrected, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(corrected);
+        return changed ? corrected.toString() : null;
+    }
+
+    private static int maxDistance(String word) {
+        return word.length() <= 3 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                if (matcher.end() - matcher.start() >= MIN_WORD_LENGTH) {
+                    words.add(matcher.group().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return The current index, possibly older than the latest edits; built first if there is none yet.
+     *         Null if there is no snapshot to build it from.
+     */
+    private Index index() {
+        Index current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null) {
+                CatalogueSnapshot snapshot = CatalogueSnapshotService.getInstance().get();
+                if (snapshot != null) {
+                    index = new Index(snapshot);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Schedules a rebuild after the rebuild delay, replacing one scheduled earlier: a burst of edits
+     * costs one rebuild.
+     */
+    private synchronized void scheduleRebuild() {
+        if (scheduledRebuild != null) {
+            scheduledRebuild.cancel(false);
+        }
+        scheduledRebuild = rebuilder.schedule(this::rebuild, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void rebuild() {
+        try {
+            CatalogueSnapshotService snapshots = CatalogueSnapshotService.getInstance();
+            CatalogueSnapshot snapshot = snapshots.get();
+            if (snapshot == null) {
+                return; // Database unreachable: kept until the next edit
+            }
+            Index current = index;
+            if (current == null || current.snapshot != snapshot) {
+                Index rebuilt = new Index(snapshot);
+                synchronized (this) {
+                    index = rebuilt;
+                }
+            }
+            if (snapshots.isStale()) {
+                scheduleRebuild(); // Edited again, or the snapshot is too recent to be rebuilt yet
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error rebuilding the fuzzy search index: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Index {
+        final CatalogueSnapshot snapshot;
+        final BkTree tree = new BkTree();
+        final Map<String, Term> terms = new HashMap<>();
+
+        Index(CatalogueSnapshot snapshot) {
+            this.snapshot = snapshot;
+            for (int row = 0; row < snapshot.size(); row++) {
+                addWords(snapshot.getTitle(row), row);
+                addWords(snapshot.getAuthor(row), row);
+            }
+            terms.keySet().forEach(tree::add);
+        }
+
+        private void addWords(String text, int row) {
+            Matcher matcher = WORD.matcher(text);
+            while (matcher.find()) {
+                if (matcher.end() - matcher.start() >= MIN_WORD_LENGTH) {
+                    String spelling = matcher.group();
+                    terms.computeIfAbsent(spelling.toLowerCase(Locale.ROOT), word -> new Term(spelling)).add(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * An indexed word: its spelling as first seen in the catalogue and the rows it occurs in.
+     */
+    private static final class Term {
+        final String spelling;
+        int[] rows = new int[2];
+        int rowCount;
+
+        Term(String spelling) {
+            this.spelling = spelling;
+        }
+
+        void add(int row) {
+            if (rowCount > 0 && rows[rowCount - 1] == row) {
+                return; // The word occurs twice in the same book
+            }
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, rowCount * 2);
+            }
+            rows[rowCount++] = row;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package service;
+
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import model.Book;
+import model.CatalogueSnapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves scanned ISBNs to books in memory, for checkout at scanner speed without a query per scan.
+ *
+ * ISBNs are normalized: separators are dropped and ISBN-10s are converted to ISBN-13, so "0-13-235088-2",
+ * "0132350882" and the EAN-13 barcode 9780132350884 all find the same book. The index is built from the
+ * resident {@link CatalogueSnapshot} (an open-addressing table of packed numeric keys, about 12 bytes per
+ * slot) and rebuilt when a newer snapshot exists. Books added or edited since that snapshot are kept
+ * aside from their events, so a book is scannable as soon as it is saved.
+ */
+public final class IsbnIndex {
+    private static final IsbnIndex INSTANCE = new IsbnIndex();
+
+    private volatile Table table;
+    // Changes newer than the table's snapshot; guarded by this
+    private final Map<Integer, Book> recentBooks = new HashMap<>();
+    private final Map<String, Integer> recentIsbns = new HashMap<>();
+    private final Set<Integer> deletedBookIds = new HashSet<>();
+
+    private IsbnIndex() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(BookAddedEvent.class, e -> remember(e.getBook()));
+        bus.subscribe(BookUpdatedEvent.class, e -> remember(e.getBook()));
+        bus.subscribe(BookDeletedEvent.class, e -> forget(e.getBookId()));
+        bus.subscribe(BooksChangedEvent.class, e -> {
+            e.getUpdatedBooks().forEach(this::remember);
+            e.getDeletedBookIds().forEach(this::forget);
+        });
+        bus.subscribe(StockChangedEvent.class, e -> {
+            synchronized (this) {
+                Book book = recentBooks.get(e.getBookId());
+                if (book != null) {
+                    book.setQuantity(e.getQuantity());
+                }
+            }
+        });
+        bus.subscribe(PricesChangedEvent.class, e -> {
+            synchronized (this) {
+                e.getNewPrices().forEach((bookId, price) -> {
+                    Book book = recentBooks.get(bookId);
+                    if (book != null) {
+                        book.setPrice(price);
+                    }
+                });
+            }
+        });
+    }
+
+    public static IsbnIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Builds the index now rather than on the first scan.
+     */
+    public void prepare() {
+        table();
+    }
+
+    /**
+     * @param scanned An ISBN as typed or scanned, with or without separators.
+     * @return The book, with its current stock and price, or null if no book has that ISBN.
+     */
+    public Book find(String scanned) {
+        String key = normalize(scanned);
+        if (key.isEmpty()) {
+            return null;
+        }
+        Table current = table();
+        synchronized (this) {
+            Integer recentId = recentIsbns.get(key);
+            if (recentId != null) {
+                return new Book(recentBooks.get(recentId));
+            }
+            int bookId = current != null ? current.get(key) : 0;
+            if (bookId == 0 || deletedBookIds.contains(bookId) || recentBooks.containsKey(bookId)) {
+                return null; // Unknown, deleted, or edited to another ISBN since the snapshot
+            }
+            int row = current.snapshot.rowOf(bookId);
+            return row >= 0 ? current.snapshot.toBook(row) : null;
+        }
+    }
+
+    /**
+     * Reduces an ISBN to a canonical form: digits (and a trailing X of an ISBN-10) only, ISBN-10 converted to ISBN-13.
+     * @param isbn The ISBN, or null.
+     * @return The canonical form; empty if there are no digits.
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            } else if (c == 'X' || c == 'x') {
+                sb.append('X');
+            }
+        }
+        String digits = sb.toString();
+        if (digits.length() == 10 && (digits.indexOf('X') < 0 || digits.indexOf('X') == 9)) {
+            // ISBN-10: prefix 978, drop its check digit and compute the ISBN-13 one
+            String body = "978" + digits.substring(0, 9);
+            int sum = 0;
+            for (int i = 0; i < 12; i++) {
+                sum += (body.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return body + (10 - sum % 10) % 10;
+        }
+        return digits;
+    }
+
+    private Table table() {
+        CatalogueSnapshot snapshot = CatalogueSnapshotService.getInstance().peek();
+        if (snapshot == null) {
+            snapshot = CatalogueSnapshotService.getInstance().get(); // First use: build one
+        }
+        Table current = table;
+        if (snapshot == null || (current != null && current.snapshot == snapshot)) {
+            return current;
+        }
+        synchronized (this) {
+            current = table;
+            if (current == null || current.snapshot != snapshot) {
+                current = new Table(snapshot);
+                table = current;
+                prune(snapshot);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Drops the changes the new snapshot already contains. Caller holds the lock.
+     */
+    private void prune(CatalogueSnapshot snapshot) {
+        Iterator<Map.Entry<Integer, Book>> it = recentBooks.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Book> entry = it.next();
+            if (snapshot.rowOf(entry.getKey()) >= 0 && !isNewer(entry.getValue(), snapshot)) {
+                recentIsbns.values().remove(entry.getKey());
+                it.remove();
+            }
+        }
+        deletedBookIds.removeIf(bookId -> snapshot.rowOf(bookId) < 0);
+    }
+
+    /**
+     * @return true if the snapshot still has an older ISBN or title for the book.
+     */
+    private static boolean isNewer(Book book, CatalogueSnapshot snapshot) {
+        int row = snapshot.rowOf(book.getId());
+        return !normalize(book.getIsbn()).equals(normalize(snapshot.getIsbn(row)))
+                || !book.getTitle().equals(snapshot.getTitle(row));
+    }
+
+    private synchronized void remember(Book book) {
+        recentIsbns.values().remove(book.getId());
+        recentBooks.put(book.getId(), new Book(book));
+        deletedBookIds.remove(book.getId());
+        String key = normalize(book.getIsbn());
+        if (!key.isEmpty()) {
+            recentIsbns.put(key, book.getId());
+        }
+    }
+
+    private synchronized void forget(int bookId) {
+        recentBooks.remove(bookId);
+        recentIsbns.values().remove(bookId);
+        deletedBookIds.add(bookId);
+    }
+
+    /**
+     * Normalized ISBN to book ID for one snapshot. Numeric keys of up to 16 digits (every ISBN) are packed
+     * with their length into a long and stored in open-addressing arrays; anything else goes to a map.
+     */
+    private static final class Table {
+        private static final long EMPTY = -1;
+
+        final CatalogueSnapshot snapshot;
+        private final long[] keys;
+        private final int[] bookIds;
+        private final int mask;
+        private final Map<String, Integer> otherKeys = new HashMap<>();
+
+        Table(CatalogueSnapshot snapshot) {
+            this.snapshot = snapshot;
+            int capacity = Integer.highestOneBit(Math.max(snapshot.size(), 8) * 2 - 1) << 1; // Load factor at most 0.5
+            keys = new long[capacity];
+            bookIds = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+            for (int row = 0; row < snapshot.size(); row++) {
+                String key = normalize(snapshot.getIsbn(row));
+                if (!key.isEmpty()) {
+                    put(key, snapshot.getId(row));
+                }
+            }
+        }
+
+        int get(String key) {
+            long packed = pack(key);
+            if (packed == EMPTY) {
+                Integer bookId = otherKeys.get(key);
+                return bookId != null ? bookId : 0;
+            }
+            for (int slot = slot(packed); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == packed) {
+                    return bookIds[slot];
+                }
+            }
+            return 0;
+        }
+
+        private void put(String key, int bookId) {
+            long packed = pack(key);
+            if (packed == EMPTY) {
+                otherKeys.put(key, bookId);
+                return;
+            }
+            int slot = slot(packed);
+            while (keys[slot] != EMPTY && keys[slot] != packed) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = packed;
+            bookIds[slot] = bookId;
+        }
+
+        private int slot(long packed) {
+            return (int) ((packed * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+
+        /**
+         * @return The digits and the length (so leading zeros count), or EMPTY if the key does not fit.
+         */
+        private static long pack(String key) {
+            if (key.length() > 16 || key.indexOf('X') >= 0) {
+                return EMPTY;
+            }
+            return Long.parseLong(key) * 32 + key.length();
+        }
+    }
+}
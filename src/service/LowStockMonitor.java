@@ -0,0 +1,339 @@
+package service;
+
+import dao.StockThresholdDAO;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.ConnectivityChangedEvent;
+import event.EventBus;
+import event.LowStockAlertEvent;
+import event.StockChangedEvent;
+import model.Book;
+import model.LowStockAlert;
+import offline.SyncManager;
+import repository.BookRepository;
+import repository.Repositories;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the set of books below their low-stock threshold current without scanning the catalogue.
+ *
+ * The threshold of a book is its own threshold if set, else its category's, else the default
+ * (-Dbookstore.lowStock.threshold, 10). The alert set is loaded once by a query that lets the database
+ * do the filtering; after that every purchase, stock adjustment, edit and batch change re-evaluates only
+ * the books it touched, from the values carried by the event. Changes to the alert set are published as
+ * {@link LowStockAlertEvent}s.
+ *
+ * Stock events carry no title or category, so the first stock change of a book not yet seen costs one
+ * lookup by ID; title and category are remembered after that and kept current by the book events.
+ */
+public final class LowStockMonitor {
+    private static final LowStockMonitor INSTANCE = new LowStockMonitor();
+
+    private static final int DEFAULT_THRESHOLD = Integer.getInteger("bookstore.lowStock.threshold", 10);
+
+    private final StockThresholdDAO thresholdDAO = new StockThresholdDAO();
+    private final BookRepository bookRepository = Repositories.books();
+    private final Map<Integer, Integer> bookThresholds = new HashMap<>();
+    private final Map<Integer, Integer> categoryThresholds = new HashMap<>();
+    private final Map<Integer, KnownBook> knownBooks = new HashMap<>();
+    private final Map<Integer, LowStockAlert> alerts = new HashMap<>();
+    private boolean started;
+
+    private LowStockMonitor() {
+    }
+
+    public static LowStockMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the thresholds and the current alert set and starts following stock changes.
+     */
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+            if (!Repositories.isInMemory()) {
+                bookThresholds.putAll(thresholdDAO.getBookThresholds());
+                categoryThresholds.putAll(thresholdDAO.getCategoryThresholds());
+            }
+        }
+        subscribe();
+        reload();
+    }
+
+    public int getDefaultThreshold() {
+        return DEFAULT_THRESHOLD;
+    }
+
+    /**
+     * @return The books below their threshold, lowest stock first.
+     */
+    public synchronized List<LowStockAlert> getAlerts() {
+        List<LowStockAlert> result = new ArrayList<>(alerts.values());
+        result.sort(Comparator.comparingInt(LowStockAlert::getQuantity).thenComparing(LowStockAlert::getTitle));
+        return result;
+    }
+
+    public synchronized int getAlertCount() {
+        return alerts.size();
+    }
+
+    /**
+     * @return The threshold set for the book itself, or null if it uses its category's or the default.
+     */
+    public synchronized Integer getBookThreshold(int bookId) {
+        return bookThresholds.get(bookId);
+    }
+
+    /**
+     * @return The threshold set for the category, or null if its books use the default.
+     */
+    public synchronized Integer getCategoryThreshold(int categoryId) {
+        return categoryThresholds.get(categoryId);
+    }
+
+    /**
+     * Sets or removes the threshold of a book and re-evaluates the book.
+     * @param bookId The book.
+     * @param threshold The threshold, or null to use the category or default threshold.
+     * @return true if the threshold was saved.
+     */
+    public boolean setBookThreshold(int bookId, Integer threshold) {
+        if (!Repositories.isInMemory() && !thresholdDAO.setBookThreshold(bookId, threshold)) {
+            return false;
+        }
+        synchronized (this) {
+            putOrRemove(bookThresholds, bookId, threshold);
+        }
+        Book book = lookupBook(bookId);
+        if (book != null) {
+            evaluate(book.getId(), book.getTitle(), book.getCategoryId(), book.getQuantity());
+        }
+        return true;
+    }
+
+    /**
+     * Sets or removes the threshold of a category and re-evaluates the books of that category.
+     * @param categoryId The category.
+     * @param threshold The threshold, or null to use the default threshold.
+     * @return true if the threshold was saved.
+     */
+    public boolean setCategoryThreshold(int categoryId, Integer threshold) {
+        if (!Repositories.isInMemory() && !thresholdDAO.setCategoryThreshold(categoryId, threshold)) {
+            return false;
+        }
+        synchronized (this) {
+            putOrRemove(categoryThresholds, categoryId, threshold);
+        }
+        // Only this category's books can change state
+        for (Book book : bookRepository.getBooksByCategory(categoryId, 0, Integer.MAX_VALUE)) {
+            evaluate(book.getId(), book.getTitle(), book.getCategoryId(), book.getQuantity());
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the alert set from storage and publishes the differences. Used at startup and when
+     * the database becomes reachable again; the PostgreSQL engine filters in the database.
+     */
+    public void reload() {
+        List<LowStockAlert> loaded;
+        if (Repositories.isInMemory()) {
+            loaded = new ArrayList<>();
+            for (Book book : bookRepository.getAllBooks()) {
+                int threshold = thresholdFor(book.getId(), book.getCategoryId());
+                if (book.getQuantity() < threshold) {
+                    loaded.add(new LowStockAlert(book.getId(), book.getTitle(), book.getCategoryId(), book.getQuantity(), threshold));
+                }
+            }
+        } else {
+            loaded = thresholdDAO.getBooksBelowThreshold(DEFAULT_THRESHOLD);
+            if (loaded == null) {
+                return; // Keep the current set; retried when the database is reachable again
+            }
+        }
+
+        List<LowStockAlertEvent> events = new ArrayList<>();
+        synchronized (this) {
+            Set<Integer> stillLow = new HashSet<>();
+            for (LowStockAlert alert : loaded) {
+                stillLow.add(alert.getBookId());
+                knownBooks.put(alert.getBookId(), new KnownBook(alert.getTitle(), alert.getCategoryId()));
+                LowStockAlertEvent event = putAlert(alert);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            for (LowStockAlert alert : new ArrayList<>(alerts.values())) {
+                if (!stillLow.contains(alert.getBookId())) {
+                    alerts.remove(alert.getBookId());
+                    events.add(new LowStockAlertEvent(alert, LowStockAlertEvent.Kind.CLEARED));
+                }
+            }
+        }
+        events.forEach(EventBus.getInstance()::publish);
+    }
+
+    private void subscribe() {
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(StockChangedEvent.class, e -> {
+            KnownBook known = knownBook(e.getBookId());
+            if (known != null) {
+                evaluate(e.getBookId(), known.title, known.categoryId, e.getQuantity());
+            }
+        });
+        bus.subscribe(BookAddedEvent.class, e -> evaluate(e.getBook()));
+        bus.subscribe(BookUpdatedEvent.class, e -> evaluate(e.getBook()));
+        bus.subscribe(BookDeletedEvent.class, e -> forget(e.getBookId()));
+        bus.subscribe(BooksChangedEvent.class, e -> {
+            e.getUpdatedBooks().forEach(this::evaluate);
+            e.getDeletedBookIds().forEach(this::forget);
+        });
+        bus.subscribe(CategoryChangedEvent.class, e -> {
+            if (e.getChangeType() == CategoryChangedEvent.ChangeType.DELETED) {
+                categoryDeleted(e.getCategory().getId());
+            }
+        });
+        bus.subscribe(ConnectivityChangedEvent.class, e -> {
+            if (e.isOnline()) {
+                reload(); // Stock may have changed on other terminals meanwhile
+            }
+        });
+    }
+
+    private void evaluate(Book book) {
+        evaluate(book.getId(), book.getTitle(), book.getCategoryId(), book.getQuantity());
+    }
+
+    private void evaluate(int bookId, String title, int categoryId, int quantity) {
+        LowStockAlertEvent event;
+        synchronized (this) {
+            knownBooks.put(bookId, new KnownBook(title, categoryId));
+            int threshold = thresholdFor(bookId, categoryId);
+            if (quantity < threshold) {
+                event = putAlert(new LowStockAlert(bookId, title, categoryId, quantity, threshold));
+            } else {
+                LowStockAlert cleared = alerts.remove(bookId);
+                event = cleared != null ? new LowStockAlertEvent(cleared, LowStockAlertEvent.Kind.CLEARED) : null;
+            }
+        }
+        if (event != null) {
+            EventBus.getInstance().publish(event);
+        }
+    }
+
+    private void forget(int bookId) {
+        LowStockAlert cleared;
+        synchronized (this) {
+            knownBooks.remove(bookId);
+            bookThresholds.remove(bookId); // Its row is deleted with the book
+            cleared = alerts.remove(bookId);
+        }
+        if (cleared != null) {
+            EventBus.getInstance().publish(new LowStockAlertEvent(cleared, LowStockAlertEvent.Kind.CLEARED));
+        }
+    }
+
+    /**
+     * The books of a deleted category are left without a category and fall back to the default threshold.
+     */
+    private void categoryDeleted(int categoryId) {
+        Integer removed;
+        List<LowStockAlert> affected = new ArrayList<>();
+        synchronized (this) {
+            removed = categoryThresholds.remove(categoryId);
+            for (Map.Entry<Integer, KnownBook> entry : knownBooks.entrySet()) {
+                if (entry.getValue().categoryId == categoryId) {
+                    entry.setValue(new KnownBook(entry.getValue().title, 0));
+                }
+            }
+            for (LowStockAlert alert : alerts.values()) {
+                if (alert.getCategoryId() == categoryId) {
+                    affected.add(alert);
+                }
+            }
+        }
+        if (removed != null && removed < DEFAULT_THRESHOLD) {
+            // Books that were fine under the lower category threshold may now be low; they are unknown here
+            reload();
+            return;
+        }
+        for (LowStockAlert alert : affected) {
+            evaluate(alert.getBookId(), alert.getTitle(), 0, alert.getQuantity());
+        }
+    }
+
+    /**
+     * Stores an alert. Caller holds the lock.
+     * @return The event to publish, or null if the alert did not change.
+     */
+    private LowStockAlertEvent putAlert(LowStockAlert alert) {
+        LowStockAlert previous = alerts.put(alert.getBookId(), alert);
+        if (previous == null) {
+            return new LowStockAlertEvent(alert, LowStockAlertEvent.Kind.RAISED);
+        }
+        if (previous.getQuantity() != alert.getQuantity() || previous.getThreshold() != alert.getThreshold()
+                || !previous.getTitle().equals(alert.getTitle())) {
+            return new LowStockAlertEvent(alert, LowStockAlertEvent.Kind.UPDATED);
+        }
+        return null;
+    }
+
+    /**
+     * Caller holds the lock.
+     */
+    private int thresholdFor(int bookId, int categoryId) {
+        Integer threshold = bookThresholds.get(bookId);
+        if (threshold == null) {
+            threshold = categoryThresholds.get(categoryId);
+        }
+        return threshold != null ? threshold : DEFAULT_THRESHOLD;
+    }
+
+    private KnownBook knownBook(int bookId) {
+        synchronized (this) {
+            KnownBook known = knownBooks.get(bookId);
+            if (known != null) {
+                return known;
+            }
+        }
+        Book book = lookupBook(bookId);
+        return book != null ? new KnownBook(book.getTitle(), book.getCategoryId()) : null;
+    }
+
+    private Book lookupBook(int bookId) {
+        SyncManager sync = SyncManager.getInstance();
+        return sync.isOnline() ? bookRepository.getBookById(bookId) : sync.getLocalStore().getBook(bookId);
+    }
+
+    private static void putOrRemove(Map<Integer, Integer> map, int key, Integer value) {
+        if (value == null) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    private static final class KnownBook {
+        final String title;
+        final int categoryId;
+
+        KnownBook(String title, int categoryId) {
+            this.title = title;
+            this.categoryId = categoryId;
+        }
+    }
+}
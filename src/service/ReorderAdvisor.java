@@ -0,0 +1,231 @@
+package service;
+
+import dao.SalesRollupDAO;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.EventBus;
+import event.PurchaseRecordedEvent;
+import event.StockChangedEvent;
+import model.Book;
+import model.Purchase;
+import model.ReorderSuggestion;
+import model.SalesVelocity;
+import offline.PurchaseJournal;
+import repository.Repositories;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggests which books to reorder from their sales velocity.
+ *
+ * The velocity of a book is an exponentially weighted moving average of its daily units
+ * (half-life -Dbookstore.reorder.halfLifeDays, 14). It is computed once a day in a single aggregate pass
+ * over the sales_daily rollup; during the day purchases made on this terminal are added as they are
+ * recorded, and every -Dbookstore.reorder.refreshMs (5 minutes) today's rollup rows are read to include
+ * sales of other terminals, plus the sales still in the purchase journal. A book is suggested when its stock does not cover the lead time plus the
+ * coverage period (-Dbookstore.reorder.leadDays, 7; -Dbookstore.reorder.coverDays, 30) at that velocity.
+ */
+public final class ReorderAdvisor {
+    private static final ReorderAdvisor INSTANCE = new ReorderAdvisor();
+
+    private static final double HALF_LIFE_DAYS = Double.parseDouble(System.getProperty("bookstore.reorder.halfLifeDays", "14"));
+    private static final double ALPHA = 1 - Math.pow(0.5, 1 / HALF_LIFE_DAYS);
+    private static final int WINDOW_DAYS = (int) Math.ceil(HALF_LIFE_DAYS * 6); // Older days weigh less than 2%
+    private static final int LEAD_DAYS = Integer.getInteger("bookstore.reorder.leadDays", 7);
+    private static final int COVER_DAYS = Integer.getInteger("bookstore.reorder.coverDays", 30);
+    private static final long REFRESH_MILLIS = Long.getLong("bookstore.reorder.refreshMs", 300_000L);
+
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final Map<Integer, SalesVelocity> velocities = new HashMap<>(); // Books sold within the window
+    private LocalDate today;
+    private boolean started;
+
+    private ReorderAdvisor() {
+    }
+
+    public static ReorderAdvisor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the velocities and starts following purchases and stock changes.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        recompute();
+
+        EventBus bus = EventBus.getInstance();
+        bus.subscribe(PurchaseRecordedEvent.class, e -> recordSale(e.getPurchase()));
+        bus.subscribe(StockChangedEvent.class, e -> updateBook(e.getBookId(), null, e.getQuantity()));
+        bus.subscribe(BookUpdatedEvent.class, e -> updateBook(e.getBook().getId(), e.getBook().getTitle(), e.getBook().getQuantity()));
+        bus.subscribe(BookDeletedEvent.class, e -> removeBook(e.getBookId()));
+        bus.subscribe(BooksChangedEvent.class, e -> {
+            for (Book book : e.getUpdatedBooks()) {
+                updateBook(book.getId(), book.getTitle(), book.getQuantity());
+            }
+            e.getDeletedBookIds().forEach(this::removeBook);
+        });
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reorder-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, REFRESH_MILLIS, REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ranks the books whose stock will not last through the lead time plus the coverage period,
+     * soonest stockout first. One pass over the books sold within the window; no database access.
+     * @param limit The maximum number of suggestions.
+     * @return The suggestions.
+     */
+    public synchronized List<ReorderSuggestion> getSuggestions(int limit) {
+        List<ReorderSuggestion> suggestions = new ArrayList<>();
+        for (SalesVelocity velocity : velocities.values()) {
+            double unitsPerDay = unitsPerDay(velocity);
+            if (unitsPerDay <= 0) {
+                continue;
+            }
+            int quantity = Math.max(velocity.getQuantity(), 0);
+            int target = (int) Math.ceil(unitsPerDay * (LEAD_DAYS + COVER_DAYS));
+            if (quantity < target) {
+                suggestions.add(new ReorderSuggestion(velocity.getBookId(), velocity.getTitle(), quantity,
+                        unitsPerDay, quantity / unitsPerDay, target - quantity));
+            }
+        }
+        suggestions.sort(Comparator.comparingDouble(ReorderSuggestion::getDaysUntilStockout)
+                .thenComparing(Comparator.comparingDouble(ReorderSuggestion::getUnitsPerDay).reversed()));
+        return suggestions.size() > limit ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+    }
+
+    /**
+     * Today's sales count once they raise the estimate; a partial day alone never lowers it.
+     */
+    private static double unitsPerDay(SalesVelocity velocity) {
+        double rate = velocity.getDailyRate();
+        return Math.max(rate, ALPHA * velocity.getTodayUnits() + (1 - ALPHA) * rate);
+    }
+
+    /**
+     * Replaces all velocities with a fresh pass over the rollup (PostgreSQL) or the purchases (in-memory engine).
+     */
+    private synchronized void recompute() {
+        LocalDate now = LocalDate.now();
+        List<SalesVelocity> computed = Repositories.isInMemory()
+                ? computeFromPurchases(now)
+                : salesRollupDAO.getSalesVelocities(now, now.minusDays(WINDOW_DAYS), ALPHA);
+        if (computed == null) {
+            return; // Keep the previous figures; retried on the next refresh
+        }
+        velocities.clear();
+        for (SalesVelocity velocity : computed) {
+            velocities.put(velocity.getBookId(), velocity);
+        }
+        today = now;
+    }
+
+    private List<SalesVelocity> computeFromPurchases(LocalDate now) {
+        LocalDate since = now.minusDays(WINDOW_DAYS);
+        Map<Integer, SalesVelocity> computed = new HashMap<>();
+        for (Purchase purchase : Repositories.purchases().getAllPurchases()) {
+            LocalDate day = purchase.getPurchaseDate() != null ? purchase.getPurchaseDate().toLocalDateTime().toLocalDate() : now;
+            if (day.isBefore(since)) {
+                continue;
+            }
+            SalesVelocity velocity = computed.computeIfAbsent(purchase.getBookId(),
+                    id -> new SalesVelocity(id, purchase.getBookTitle(), 0, 0, 0));
+            if (day.isBefore(now)) {
+                long age = ChronoUnit.DAYS.between(day, now) - 1;
+                velocity.setDailyRate(velocity.getDailyRate() + ALPHA * purchase.getQuantity() * Math.pow(1 - ALPHA, age));
+            } else {
+                velocity.setTodayUnits(velocity.getTodayUnits() + purchase.getQuantity());
+            }
+        }
+        for (Book book : Repositories.books().getAllBooks()) {
+            SalesVelocity velocity = computed.get(book.getId());
+            if (velocity != null) {
+                velocity.setTitle(book.getTitle());
+                velocity.setQuantity(book.getQuantity());
+            }
+        }
+        return new ArrayList<>(computed.values());
+    }
+
+    /**
+     * Recomputes after midnight; otherwise reads only today's rollup rows, which are authoritative
+     * for sales of all terminals.
+     */
+    private void refresh() {
+        try {
+            synchronized (this) {
+                if (!LocalDate.now().equals(today) || Repositories.isInMemory()) {
+                    recompute();
+                    return;
+                }
+            }
+            // Journaled sales are not in the rollup yet; read before it, so a batch drained in between
+            // is counted twice rather than not at all
+            Map<Integer, Integer> pending = PurchaseJournal.getInstance().getPendingQuantities();
+            List<SalesVelocity> soldToday = salesRollupDAO.getUnitsSoldOn(today);
+            if (soldToday == null) {
+                return;
+            }
+            synchronized (this) {
+                for (SalesVelocity sold : soldToday) {
+                    int journaled = pending.getOrDefault(sold.getBookId(), 0);
+                    sold.setTodayUnits(sold.getTodayUnits() + journaled);
+                    sold.setQuantity(sold.getQuantity() - journaled);
+                    SalesVelocity velocity = velocities.get(sold.getBookId());
+                    if (velocity == null) {
+                        velocities.put(sold.getBookId(), sold);
+                    } else {
+                        velocity.setTitle(sold.getTitle());
+                        velocity.setQuantity(sold.getQuantity());
+                        velocity.setTodayUnits(sold.getTodayUnits());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error refreshing reorder suggestions: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized void recordSale(Purchase purchase) {
+        SalesVelocity velocity = velocities.get(purchase.getBookId());
+        if (velocity == null) {
+            // The stock follows in the StockChangedEvent published with the purchase
+            velocity = new SalesVelocity(purchase.getBookId(), purchase.getBookTitle(), 0, 0, 0);
+            velocities.put(purchase.getBookId(), velocity);
+        }
+        velocity.setTodayUnits(velocity.getTodayUnits() + purchase.getQuantity());
+    }
+
+    private synchronized void updateBook(int bookId, String title, int quantity) {
+        SalesVelocity velocity = velocities.get(bookId);
+        if (velocity != null) {
+            velocity.setQuantity(quantity);
+            if (title != null) {
+                velocity.setTitle(title);
+            }
+        }
+    }
+
+    private synchronized void removeBook(int bookId) {
+        velocities.remove(bookId);
+    }
+}
@@ -0,0 +1,415 @@
+package tools;
+
+import dao.DBConnection;
+import dao.SalesRollupDAO;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import repository.Repositories;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the database with a synthetic catalogue at production scale, for benchmarking.
+ *
+ * Rows are generated in chunks of {@value #CHUNK_ROWS} and streamed with COPY by several workers, each on
+ * its own connection. Every chunk draws from a random generator seeded by the seed, the table and the
+ * chunk number only, so the same seed produces the same data whatever the number of threads. Rows get
+ * explicit IDs after the highest existing ones (the sequences are moved past them at the end), so a run
+ * on a fresh schema is fully reproducible. Purchases follow a Zipf distribution over a shuffled
+ * bestseller ranking and their dates rise with their IDs over the configured period, as in a live shop.
+ *
+ * When the database user may set session_replication_role, the load skips foreign key checks and the
+ * per-row sales rollup trigger; the generated references are valid by construction, and the rollup is
+ * rebuilt in one pass at the end. Only runs against a local database. Configured with system properties:
+ * bookstore.gen.books (default 1000000), bookstore.gen.categories (1000), bookstore.gen.users (100000),
+ * bookstore.gen.purchases (50000000), bookstore.gen.seed (42), bookstore.gen.threads (processors),
+ * bookstore.gen.skew (Zipf exponent, 1.0), bookstore.gen.days (period covered by purchases, 730) and
+ * bookstore.gen.endDate (last purchase day, default today).
+ * Usage: java -Dbookstore.gen.purchases=1000000 tools.DataGenerator
+ */
+public class DataGenerator {
+    private static final int CHUNK_ROWS = 50_000;
+    private static final int CATEGORIES = 1;
+    private static final int USERS = 2;
+    private static final int BOOKS = 3;
+    private static final int PURCHASES = 4;
+
+    private static final String[] ADJECTIVES = {"Silent", "Hidden", "Lost", "Broken", "Golden", "Last", "Secret",
+            "Distant", "Burning", "Frozen", "Crimson", "Forgotten", "Endless", "Wild", "Quiet", "Dark", "Bright",
+            "Little", "Modern", "Ancient", "Practical", "Applied", "Complete", "Essential", "Invisible", "Fragile"};
+    private static final String[] NOUNS = {"River", "Garden", "Empire", "Kingdom", "Island", "Machine", "Mountain",
+            "Letter", "Winter", "Summer", "Harbor", "Forest", "Engine", "Library", "Ocean", "Promise", "Storm",
+            "Shadow", "Mirror", "Journey", "Algorithm", "Universe", "Memory", "Frontier", "Lantern", "Compass"};
+    private static final String[] SUBJECTS = {"Fiction", "History", "Science", "Programming", "Poetry", "Travel",
+            "Cooking", "Philosophy", "Economics", "Biography", "Mathematics", "Art", "Music", "Psychology",
+            "Politics", "Medicine", "Engineering", "Religion", "Law", "Sports", "Nature", "Fantasy", "Mystery",
+            "Romance", "Thrillers", "Horror", "Drama", "Design", "Business", "Education"};
+    private static final String[] CATEGORY_QUALIFIERS = {"Modern", "Classic", "Applied", "Popular", "Illustrated",
+            "Introductory", "Advanced", "Contemporary", "Children's", "Young Adult", "Historical", "Reference",
+            "Regional", "Academic", "Graphic", "Short", "Collected", "Translated", "Comparative", "Practical"};
+    private static final String[] FIRST_NAMES = {"Anna", "James", "Maria", "Chen", "Sokha", "David", "Elena",
+            "Omar", "Yuki", "Peter", "Laura", "Ahmed", "Sofia", "Daniel", "Grace", "Ivan", "Mei", "Lucas",
+            "Nora", "Samuel", "Dara", "Hannah", "Victor", "Amara", "Felix", "Rosa", "Thomas", "Lina"};
+    private static final String[] LAST_NAMES = {"Smith", "Garcia", "Wang", "Kim", "Sok", "Muller", "Rossi",
+            "Novak", "Tanaka", "Silva", "Cohen", "Okafor", "Larsen", "Dubois", "Chan", "Ivanova", "Patel",
+            "Nguyen", "Brown", "Kowalski", "Haddad", "Meng", "Jensen", "Moreau", "Santos", "Fischer"};
+
+    private final long seed;
+    private final int threads;
+    private final int categoryCount;
+    private final int userCount;
+    private final int bookCount;
+    private final int purchaseCount;
+    private final double skew;
+    private final long periodStart;   // Epoch seconds of the first purchase
+    private final long periodSeconds;
+    private final int endYear;
+    private final AtomicBoolean checksBypassed = new AtomicBoolean();
+
+    private int categoryBase; // Highest ID already present in each table; generated IDs follow
+    private int userBase;
+    private int bookBase;
+    private int purchaseBase;
+
+    // Generated books by index, needed again for their purchases
+    private String[] bookTitles;
+    private int[] bookPriceCents;
+    private double[] bestsellerCdf; // Cumulative share of sales by bestseller rank
+    private int[] bookAtRank;
+
+    public static void main(String[] args) throws Exception {
+        if (Repositories.isInMemory()) {
+            System.out.println("The data generator loads PostgreSQL; the in-memory engine only holds the demo catalogue.");
+            System.exit(2);
+        }
+        if (!DBConnection.isLocalDatabase()) {
+            System.out.println("Refusing to run: the generator bulk-loads test data and needs a local database (bookstore.db.url).");
+            System.exit(2);
+        }
+        LocalDate endDate = LocalDate.parse(System.getProperty("bookstore.gen.endDate", LocalDate.now().toString()));
+        DataGenerator generator = new DataGenerator(
+                Long.getLong("bookstore.gen.seed", 42L),
+                Integer.getInteger("bookstore.gen.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("bookstore.gen.categories", 1000),
+                Integer.getInteger("bookstore.gen.users", 100_000),
+                Integer.getInteger("bookstore.gen.books", 1_000_000),
+                Integer.getInteger("bookstore.gen.purchases", 50_000_000),
+                Double.parseDouble(System.getProperty("bookstore.gen.skew", "1.0")),
+                endDate,
+                Integer.getInteger("bookstore.gen.days", 730));
+        if (generator.purchaseCount > 0 && (generator.bookCount == 0 || generator.userCount == 0)) {
+            System.out.println("Purchases are generated for the books and users of the same run; set both above zero.");
+            System.exit(2);
+        }
+        DBConnection.initializeDatabase();
+        generator.run();
+    }
+
+    private DataGenerator(long seed, int threads, int categoryCount, int userCount, int bookCount, int purchaseCount,
+                          double skew, LocalDate endDate, int days) {
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+        this.categoryCount = categoryCount;
+        this.userCount = userCount;
+        this.bookCount = bookCount;
+        this.purchaseCount = purchaseCount;
+        this.skew = skew;
+        this.periodStart = endDate.plusDays(1).minusDays(Math.max(1, days)).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        this.periodSeconds = Math.max(1, days) * 86_400L;
+        this.endYear = endDate.getYear();
+    }
+
+    private void run() throws Exception {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            categoryBase = maxId(stmt, "Categories");
+            userBase = maxId(stmt, "Users");
+            bookBase = maxId(stmt, "Books");
+            purchaseBase = maxId(stmt, "Purchases");
+        }
+        System.out.printf("Generating %d categories, %d users, %d books and %d purchases (seed %d, %d threads)%n",
+                categoryCount, userCount, bookCount, purchaseCount, seed, threads);
+
+        load("Categories", "id, name", categoryCount, CATEGORIES, this::writeCategories);
+        load("Users", "id, username, password, role", userCount, USERS, this::writeUsers);
+        bookTitles = new String[bookCount];
+        bookPriceCents = new int[bookCount];
+        load("Books", "id, title, author, category_id, price, quantity, isbn, publication_date, description, image_url",
+                bookCount, BOOKS, this::writeBooks);
+        rankBestsellers();
+        load("Purchases", "id, book_id, book_title, book_image, book_price, quantity, total_price, purchase_date, user_id",
+                purchaseCount, PURCHASES, this::writePurchases);
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String table : new String[]{"Categories", "Users", "Books", "Purchases"}) {
+                stmt.executeQuery("SELECT setval(pg_get_serial_sequence('" + table.toLowerCase() + "', 'id'), "
+                        + "GREATEST((SELECT MAX(id) FROM " + table + "), 1))").close();
+            }
+            if (checksBypassed.get() && purchaseCount > 0) {
+                System.out.println("Rebuilding the sales rollup...");
+                new SalesRollupDAO().rebuild();
+            }
+            System.out.println("Analyzing...");
+            stmt.execute("ANALYZE");
+        }
+        System.out.println("Done.");
+    }
+
+    private static int maxId(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Writes rows [from, to) of a table in COPY text format.
+     */
+    private interface ChunkWriter {
+        void write(StringBuilder out, int from, int to, SplittableRandom random);
+    }
+
+    /**
+     * Generates and copies a table in chunks, spread over the worker threads.
+     */
+    private void load(String table, String columns, int rows, int tableNo, ChunkWriter writer) throws Exception {
+        if (rows <= 0) {
+            return;
+        }
+        int chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicLong loaded = new AtomicLong();
+        String sql = "COPY " + table + " (" + columns + ") FROM STDIN";
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks));
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(threads, chunks); i++) {
+                workers.add(executor.submit(() -> {
+                    try (Connection conn = DBConnection.getConnection()) {
+                        bypassChecks(conn);
+                        CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                        StringBuilder out = new StringBuilder(CHUNK_ROWS * 128);
+                        int chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                            int from = chunk * CHUNK_ROWS;
+                            int to = Math.min(rows, from + CHUNK_ROWS);
+                            out.setLength(0);
+                            writer.write(out, from, to, randomFor(tableNo, chunk));
+                            copy.copyIn(sql, new StringReader(out.toString()));
+                            long done = loaded.addAndGet(to - from);
+                            if (chunk % 20 == 19) {
+                                System.out.printf("  %s: %d / %d%n", table, done, rows);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d rows in %.1f s (%.0f rows/s)%n", table, rows, seconds, rows / seconds);
+    }
+
+    /**
+     * Skips foreign key checks and row triggers for this session when the user is allowed to.
+     */
+    private void bypassChecks(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET session_replication_role = replica");
+            checksBypassed.set(true);
+        } catch (SQLException e) {
+            // Not permitted: foreign keys are checked and the rollup trigger runs for every purchase
+        }
+    }
+
+    private SplittableRandom randomFor(int tableNo, int chunk) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + tableNo * 0xBF58476D1CE4E5B9L + chunk);
+    }
+
+    private void writeCategories(StringBuilder out, int from, int to, SplittableRandom random) {
+        int combinations = CATEGORY_QUALIFIERS.length * SUBJECTS.length;
+        for (int i = from; i < to; i++) {
+            int id = categoryBase + 1 + i;
+            // Named after the ID, so names stay unique when a later run adds more categories
+            int k = id - 1;
+            out.append(id).append('\t')
+                    .append(CATEGORY_QUALIFIERS[k % CATEGORY_QUALIFIERS.length]).append(' ')
+                    .append(SUBJECTS[(k / CATEGORY_QUALIFIERS.length) % SUBJECTS.length]);
+            if (k >= combinations) {
+                out.append(' ').append(k / combinations + 1);
+            }
+            out.append('\n');
+        }
+    }
+
+    private void writeUsers(StringBuilder out, int from, int to, SplittableRandom random) {
+        for (int i = from; i < to; i++) {
+            int id = userBase + 1 + i;
+            out.append(id).append("\treader").append(id).append("\tpass").append(random.nextInt(1_000_000))
+                    .append("\tUser\n");
+        }
+    }
+
+    private void writeBooks(StringBuilder out, int from, int to, SplittableRandom random) {
+        for (int i = from; i < to; i++) {
+            int id = bookBase + 1 + i;
+            String title = title(random);
+            String author = pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random);
+            // Prices are log-normal around 15, ending in .99 or .50
+            int dollars = (int) Math.min(199, Math.max(3, Math.round(Math.exp(2.7 + 0.6 * random.nextGaussian()))));
+            int cents = dollars * 100 - (random.nextInt(4) == 0 ? 50 : 1);
+            int quantity = random.nextInt(20) == 0 ? 0 : random.nextInt(1, 200);
+            // Publication years lean towards recent ones
+            int year = Math.max(1800, endYear - (int) Math.abs(random.nextGaussian() * 25));
+            LocalDate published = LocalDate.of(year, 1, 1).plusDays(random.nextInt(365));
+            bookTitles[i] = title;
+            bookPriceCents[i] = cents;
+
+            out.append(id).append('\t').append(title).append('\t').append(author).append('\t');
+            if (categoryCount > 0) {
+                out.append(categoryBase + 1 + random.nextInt(categoryCount));
+            } else {
+                out.append("\\N");
+            }
+            out.append('\t');
+            appendMoney(out, cents);
+            out.append('\t').append(quantity)
+                    .append('\t').append(isbn(id))
+                    .append('\t').append(published)
+                    .append('\t').append(pick(ADJECTIVES, random)).append(" tales of ")
+                    .append(pick(NOUNS, random).toLowerCase()).append("s and ").append(pick(NOUNS, random).toLowerCase())
+                    .append("s.\t").append(imageUrl(id)).append('\n');
+        }
+    }
+
+    private void writePurchases(StringBuilder out, int from, int to, SplittableRandom random) {
+        for (int i = from; i < to; i++) {
+            int id = purchaseBase + 1 + i;
+            int book = bookAtRank[rank(random.nextDouble())];
+            int roll = random.nextInt(100);
+            int quantity = roll < 80 ? 1 : roll < 95 ? 2 : random.nextInt(3, 6);
+            int price = bookPriceCents[book];
+            // Dates rise with the purchase ID, as in a shop that has been selling for the whole period
+            long at = periodStart + (long) ((i + random.nextDouble()) * periodSeconds / purchaseCount);
+
+            out.append(id).append('\t').append(bookBase + 1 + book)
+                    .append('\t').append(bookTitles[book])
+                    .append('\t').append(imageUrl(bookBase + 1 + book)).append('\t');
+            appendMoney(out, price);
+            out.append('\t').append(quantity).append('\t');
+            appendMoney(out, (long) price * quantity);
+            out.append('\t').append(LocalDateTime.ofEpochSecond(at, 0, ZoneOffset.UTC))
+                    .append('\t').append(userBase + 1 + random.nextInt(userCount)).append('\n');
+        }
+    }
+
+    /**
+     * Shuffles the books into a bestseller ranking and computes the Zipf share of sales up to each rank.
+     */
+    private void rankBestsellers() {
+        if (bookCount == 0) {
+            return;
+        }
+        bookAtRank = new int[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            bookAtRank[i] = i;
+        }
+        SplittableRandom random = randomFor(0, 0);
+        for (int i = bookCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = bookAtRank[i];
+            bookAtRank[i] = bookAtRank[j];
+            bookAtRank[j] = swap;
+        }
+        bestsellerCdf = new double[bookCount];
+        double total = 0;
+        for (int rank = 0; rank < bookCount; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            bestsellerCdf[rank] = total;
+        }
+        for (int rank = 0; rank < bookCount; rank++) {
+            bestsellerCdf[rank] /= total;
+        }
+    }
+
+    /**
+     * @return The first rank whose cumulative share reaches u.
+     */
+    private int rank(double u) {
+        int low = 0;
+        int high = bestsellerCdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bestsellerCdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String title(SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "The " + pick(ADJECTIVES, random) + " " + pick(NOUNS, random);
+            case 1:
+                return "The " + pick(NOUNS, random) + " of " + pick(NOUNS, random) + "s";
+            case 2:
+                return pick(ADJECTIVES, random) + " " + pick(NOUNS, random) + "s";
+            default:
+                return pick(SUBJECTS, random) + ": " + pick(ADJECTIVES, random) + " " + pick(NOUNS, random) + "s";
+        }
+    }
+
+    /**
+     * @return An ISBN-13 in the 979 range derived from the ID, so unique and never one of the demo books.
+     */
+    private static String isbn(int id) {
+        String body = "979" + String.format("%09d", id);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (body.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return "979-" + body.substring(3) + (10 - sum % 10) % 10;
+    }
+
+    private static String imageUrl(int bookId) {
+        return "https://placehold.co/100x150/000/FFF?text=Book" + bookId;
+    }
+
+    private static void appendMoney(StringBuilder out, long cents) {
+        out.append(cents / 100).append('.');
+        if (cents % 100 < 10) {
+            out.append('0');
+        }
+        out.append(cents % 100);
+    }
+
+    private static String pick(String[] words, SplittableRandom random) {
+        return words[random.nextInt(words.length)];
+    }
+}
@@ -0,0 +1,620 @@
+package tools;
+
+import dao.BookCache;
+import dao.BookDAO;
+import dao.CategoryDAO;
+import dao.DBConnection;
+import dao.OutboxReplayDAO;
+import dao.PurchaseDAO;
+import dao.SalesReportDAO;
+import dao.SalesRollupDAO;
+import dao.SlowQueryLog;
+import dao.StockThresholdDAO;
+import dao.UserDAO;
+import model.BasketLine;
+import model.Book;
+import model.BookField;
+import model.BookFilter;
+import model.Category;
+import model.FacetQuery;
+import model.OutboxEntry;
+import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+import model.RepriceRule;
+import model.User;
+import repository.Repositories;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verifies the query plans PostgreSQL picks for the statements the DAOs issue, so that a dropped index
+ * or a rewritten query that falls back to scanning a large table is caught before it reaches the stores.
+ *
+ * Each check calls one DAO method with realistic arguments taken from the database, while
+ * {@link SlowQueryLog#setCaptureListener} collects every statement it runs with its bound parameters.
+ * Each collected statement is then run again under EXPLAIN (ANALYZE, BUFFERS) in a transaction that is
+ * rolled back, and its plan is checked: no sequential scan on a large table unless the check allows it
+ * (full listings, substring search), and the indexes the check expects are used. Estimated and actual
+ * rows and costs are reported, with the worst row misestimate of each plan. Writes run against scratch
+ * rows the tool creates and deletes itself; DAO methods that no check reaches are listed at the end.
+ *
+ * Run it against a local database seeded by tools.DataGenerator: plans on a demo-sized catalogue are
+ * all sequential scans and prove nothing. Exits with status 1 if a check fails.
+ * Configuration (system properties):
+ *   bookstore.planCheck.largeRows      - tables with at least this many rows must not be scanned (default 10000)
+ *   bookstore.planCheck.maxMisestimate - warn when a node's actual rows differ from the estimate by more than this factor (default 100)
+ * Usage: java tools.QueryPlanCheck
+ */
+public class QueryPlanCheck {
+    private static final long LARGE_ROWS = Long.getLong("bookstore.planCheck.largeRows", 10_000L);
+    private static final double MAX_MISESTIMATE = Double.parseDouble(System.getProperty("bookstore.planCheck.maxMisestimate", "100"));
+
+    // "->  Index Scan using books_pkey on books b  (cost=0.42..8.44 rows=1 width=96) (actual time=0.02..0.02 rows=1 loops=1)"
+    private static final Pattern PLAN_NODE = Pattern.compile(
+            "^\\s*(?:->\\s+)?(.+?)\\s+\\(cost=([\\d.]+)\\.\\.([\\d.]+) rows=(\\d+) width=\\d+\\)"
+                    + "(?:\\s+\\(actual time=([\\d.]+)\\.\\.([\\d.]+) rows=(\\d+) loops=(\\d+)\\))?");
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\S+)");
+    private static final Pattern INDEX_USED = Pattern.compile("(?:using|Bitmap Index Scan on) (\\S+)");
+    private static final Pattern EXECUTION_TIME = Pattern.compile("Execution Time: ([\\d.]+) ms");
+
+    // DAO methods the checks deliberately leave alone
+    private static final Map<String, String> NOT_EXERCISED = new LinkedHashMap<>();
+
+    static {
+        NOT_EXERCISED.put("PurchaseDAO.getAllPurchases", "loads every purchase into memory; a full scan by design");
+        NOT_EXERCISED.put("SalesRollupDAO.rebuild", "rewrites the whole rollup; a full aggregation by design");
+    }
+
+    private final BookDAO books = new BookDAO();
+    private final CategoryDAO categories = new CategoryDAO();
+    private final UserDAO users = new UserDAO();
+    private final PurchaseDAO purchases = new PurchaseDAO();
+    private final SalesReportDAO reports = new SalesReportDAO();
+    private final SalesRollupDAO rollup = new SalesRollupDAO();
+    private final StockThresholdDAO thresholds = new StockThresholdDAO();
+    private final OutboxReplayDAO outbox = new OutboxReplayDAO();
+
+    private final Map<String, Long> tableRows = new HashMap<>();
+    private final Set<String> covered = new TreeSet<>();
+    private Check pending; // Ran, its plans not evaluated yet
+    private int failed;
+    private int warned;
+    private int statements;
+
+    // Sample values from the seeded data
+    private Book sampleBook;
+    private String sampleWord;
+    private Category sampleCategory;
+    private User sampleUser;
+    private int samplePurchaseId;
+    private LocalDate lastSaleDay;
+
+    // Scratch rows created by the write checks
+    private final String tag = "plan-" + UUID.randomUUID().toString().substring(0, 8);
+    private Category scratchCategory;
+    private User scratchUser;
+    private Book scratchBook;
+    private Book secondScratchBook;
+
+    public static void main(String[] args) throws SQLException {
+        if (Repositories.isInMemory()) {
+            System.out.println("Query plans are a PostgreSQL matter; run without -Dbookstore.storage=memory.");
+            System.exit(2);
+        }
+        if (!DBConnection.isLocalDatabase()) {
+            System.out.println("Refusing to run: the check creates and deletes scratch rows and needs a local database (bookstore.db.url).");
+            System.exit(2);
+        }
+        DBConnection.initializeDatabase();
+        QueryPlanCheck check = new QueryPlanCheck();
+        check.prepare();
+        check.runChecks();
+        System.exit(check.failed > 0 ? 1 : 0);
+    }
+
+    /**
+     * Refreshes the planner statistics and picks sample values from the data.
+     */
+    private void prepare() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+            try (ResultSet rs = stmt.executeQuery("SELECT relname, GREATEST(reltuples, 0) FROM pg_class "
+                    + "WHERE relkind = 'r' AND relnamespace = 'public'::regnamespace")) {
+                while (rs.next()) {
+                    tableRows.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+            int bookId = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM Books WHERE category_id IS NOT NULL "
+                    + "AND id >= (SELECT (MIN(id) + MAX(id)) / 2 FROM Books) ORDER BY id LIMIT 1")) {
+                if (rs.next()) {
+                    bookId = rs.getInt(1);
+                }
+            }
+            int userId = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT id, user_id FROM Purchases ORDER BY purchase_date DESC, id DESC LIMIT 1")) {
+                if (rs.next()) {
+                    samplePurchaseId = rs.getInt(1);
+                    userId = rs.getInt(2);
+                }
+            }
+            if (userId == 0) {
+                try (ResultSet rs = stmt.executeQuery("SELECT MIN(id) FROM Users")) {
+                    rs.next();
+                    userId = rs.getInt(1);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT MAX(sale_date) FROM sales_daily")) {
+                rs.next();
+                Date day = rs.getDate(1);
+                lastSaleDay = day != null ? day.toLocalDate() : LocalDate.now();
+            }
+            sampleBook = books.getBookById(bookId);
+            sampleUser = users.getUserById(userId);
+        }
+        if (sampleBook == null || sampleUser == null) {
+            System.out.println("The database needs books with a category and users; seed it with tools.DataGenerator.");
+            System.exit(2);
+        }
+        sampleCategory = categories.getCategoryById(sampleBook.getCategoryId());
+        String[] words = sampleBook.getTitle().split("\\s+");
+        sampleWord = words[words.length - 1]; // As written: the keyword search is case-sensitive
+
+        long largest = Collections.max(tableRows.values());
+        System.out.printf("Tables: books %d, purchases %d, users %d, sales_daily %d rows; large from %d rows%n",
+                tableRows.getOrDefault("books", 0L), tableRows.getOrDefault("purchases", 0L),
+                tableRows.getOrDefault("users", 0L), tableRows.getOrDefault("sales_daily", 0L), LARGE_ROWS);
+        if (largest < LARGE_ROWS) {
+            System.out.println("Warning: no table is large; every plan will be a sequential scan. Seed the database with tools.DataGenerator.");
+        }
+    }
+
+    private void runChecks() {
+        BookFilter inSampleCategory = new BookFilter(sampleCategory.getId(), null, null, null);
+        LocalDate weekStart = lastSaleDay.minusDays(6);
+
+        // Books
+        check("book by id", () -> books.getBookById(sampleBook.getId())).expectIndex("books_pkey");
+        check("all books", books::getAllBooks).allowSeqScan("books");
+        check("catalogue snapshot", books::loadCatalogueSnapshot).allowSeqScan("books");
+        check("book versions", () -> books.scanBookVersions((id, version) -> { })).allowSeqScan("books");
+        check("books by ids", () -> books.getBooksByIds(Collections.singletonList(sampleBook.getId()))).expectIndex("books_pkey");
+        check("category page", () -> books.getBooksByCategory(sampleCategory.getId(), 0, 50)).expectIndex("idx_books_category_title");
+        check("category count", () -> books.getTotalBooksInCategory(sampleCategory.getId())).expectIndex("idx_books_category_title");
+        // Substring matching cannot use a b-tree index
+        check("keyword search", () -> books.searchBooks(sampleWord)).allowSeqScan("books", "categories");
+        check("faceted browse", () -> books.browseBooks(new FacetQuery(sampleWord))).allowSeqScan("books", "categories");
+        check("reprice preview", () -> books.previewReprice(inSampleCategory,
+                new RepriceRule(RepriceRule.Mode.PERCENT, BigDecimal.TEN, RepriceRule.Rounding.ENDING_99), 20))
+                .expectIndex("idx_books_category_title");
+
+        // Categories and users
+        check("category by id", () -> categories.getCategoryById(sampleCategory.getId())).expectIndex("categories_pkey");
+        check("category by name", () -> categories.getCategoryByName(sampleCategory.getName())).expectIndex("categories_name_key");
+        check("all categories", categories::getAllCategories).allowSeqScan("categories");
+        check("user by id", () -> users.getUserById(sampleUser.getId())).expectIndex("users_pkey");
+        check("user by name", () -> users.getUserByUsername(sampleUser.getUsername())).expectIndex("users_username_key");
+        check("all users", users::getAllUsers).allowSeqScan("users");
+
+        // Purchases
+        check("purchase by id", () -> purchases.getPurchaseById(samplePurchaseId)).expectIndex("purchases_pkey");
+        check("purchases of a user", () -> purchases.getPurchasesByUserId(sampleUser.getId())).expectIndex("idx_purchases_user_date_id");
+        check("history by user, two pages", () -> twoPages(new PurchaseQuery(sampleUser.getId(), 0, null, null)))
+                .expectIndex("idx_purchases_user_date_id");
+        check("history by book, two pages", () -> twoPages(new PurchaseQuery(0, sampleBook.getId(), null, null)))
+                .expectIndex("idx_purchases_book_date_id");
+        check("history by date, two pages", () -> twoPages(new PurchaseQuery(0, 0, weekStart, lastSaleDay)))
+                .expectIndex("idx_purchases_date_id");
+
+        // Reports and the rollup; a week of sales touches many books, so joining them by scan is fine
+        check("top sellers", () -> reports.getTopSellers(weekStart, lastSaleDay, 10)).expectIndex("sales_daily_pkey").allowSeqScan("books");
+        check("revenue by category", () -> reports.getRevenueByCategory(weekStart, lastSaleDay)).expectIndex("sales_daily_pkey").allowSeqScan("categories");
+        check("units by author", () -> reports.getUnitsByAuthor(weekStart, lastSaleDay, 10)).expectIndex("sales_daily_pkey").allowSeqScan("books");
+        check("daily revenue", () -> reports.getDailyRevenue(weekStart, lastSaleDay)).expectIndex("sales_daily_pkey");
+        check("total revenue", rollup::getTotalRevenue).allowSeqScan("sales_daily");
+        check("revenue in range", () -> rollup.getRevenue(weekStart, lastSaleDay)).expectIndex("sales_daily_pkey");
+        check("units in range", () -> rollup.getUnitsSold(weekStart, lastSaleDay)).expectIndex("sales_daily_pkey");
+        check("sales velocities", () -> rollup.getSalesVelocities(lastSaleDay, lastSaleDay.minusDays(28), 0.3))
+                .expectIndex("sales_daily_pkey").allowSeqScan("books");
+        check("units sold on a day", () -> rollup.getUnitsSoldOn(lastSaleDay)).expectIndex("sales_daily_pkey");
+
+        // Low stock: the threshold tables are read whole, books only below the highest threshold
+        check("book thresholds", thresholds::getBookThresholds).allowSeqScan("book_stock_thresholds");
+        check("category thresholds", thresholds::getCategoryThresholds).allowSeqScan("category_stock_thresholds");
+        check("books below threshold", () -> thresholds.getBooksBelowThreshold(5))
+                .expectIndex("idx_books_quantity").allowSeqScan("book_stock_thresholds", "category_stock_thresholds");
+
+        // Writes, on scratch rows
+        check("add category", () -> {
+            scratchCategory = new Category(tag);
+            categories.addCategory(scratchCategory);
+        });
+        check("rename category", () -> {
+            scratchCategory.setName(tag + "-renamed");
+            categories.updateCategory(scratchCategory);
+        }).expectIndex("categories_pkey");
+        check("add user", () -> {
+            scratchUser = new User(tag, tag, "User");
+            users.addUser(scratchUser);
+        });
+        check("update user", () -> users.updateUser(scratchUser)).expectIndex("users_pkey");
+        check("add books", () -> {
+            scratchBook = scratch("a");
+            secondScratchBook = scratch("b");
+        });
+        check("update book", () -> {
+            scratchBook.setDescription("Updated by the query plan check");
+            books.updateBook(scratchBook);
+        }).expectIndex("books_pkey");
+        check("update book fields", () -> {
+            Book latest = books.getBookById(scratchBook.getId());
+            Map<BookField, Object> changes = new EnumMap<>(BookField.class);
+            changes.put(BookField.PRICE, new BigDecimal("11.99"));
+            books.updateBookFields(latest.getId(), latest.getVersion(), changes);
+        }).expectIndex("books_pkey");
+        check("adjust quantity", () -> {
+            books.adjustBookQuantity(scratchBook.getId(), 5);
+            books.updateBookQuantity(scratchBook.getId(), -1);
+        }).expectIndex("books_pkey");
+        check("bulk edits", () -> {
+            List<Integer> ids = Arrays.asList(scratchBook.getId(), secondScratchBook.getId());
+            books.updateBooksCategory(ids, scratchCategory.getId());
+            books.adjustBooksPriceAndQuantity(ids, BigDecimal.ZERO, 1);
+        }).expectIndex("books_pkey");
+        check("reprice", () -> books.repriceBooks(new BookFilter(scratchCategory.getId(), null, null, null),
+                new RepriceRule(RepriceRule.Mode.ABSOLUTE, BigDecimal.ZERO, RepriceRule.Rounding.CENT)))
+                .expectIndex("idx_books_category_title");
+        check("set thresholds", () -> {
+            thresholds.setBookThreshold(scratchBook.getId(), 3);
+            thresholds.setCategoryThreshold(scratchCategory.getId(), 3);
+            thresholds.setBookThreshold(scratchBook.getId(), null);
+            thresholds.setCategoryThreshold(scratchCategory.getId(), null);
+        });
+        check("record purchase", () -> purchases.addPurchase(scratchPurchase()));
+        check("checkout", () -> purchases.checkout(Collections.singletonList(new BasketLine(scratchBook.getId(),
+                scratchBook.getIsbn(), scratchBook.getTitle(), scratchBook.getPrice(), 1)), scratchUser.getId()))
+                .expectIndex("books_pkey");
+        check("replay outbox entry", () -> {
+            outbox.apply(OutboxEntry.forPurchase(tag + "-1", scratchPurchase()));
+            outbox.applyBatch(Collections.singletonList(OutboxEntry.forPurchase(tag + "-2", scratchPurchase())));
+        }).expectIndex("books_pkey");
+        check("delete book", () -> books.deleteBook(secondScratchBook.getId())).expectIndex("books_pkey");
+        check("delete books", () -> books.deleteBooks(Collections.singletonList(scratchBook.getId()))).expectIndex("books_pkey");
+        check("delete user", () -> users.deleteUser(scratchUser.getId())).expectIndex("users_pkey");
+        check("delete category", () -> categories.deleteCategory(scratchCategory.getId())).expectIndex("categories_pkey");
+        removeAppliedOperations();
+
+        reportCoverage();
+        System.out.printf("%d statements checked: %d failed, %d with warnings%n", statements, failed, warned);
+    }
+
+    private void twoPages(PurchaseQuery query) {
+        PurchasePage page = purchases.findPurchases(query);
+        if (page != null && page.getNextQuery() != null) {
+            purchases.findPurchases(page.getNextQuery());
+        }
+    }
+
+    private Book scratch(String suffix) {
+        Book book = new Book(tag + "-" + suffix, "Query Plan Check", sampleCategory.getId(), new BigDecimal("9.99"), 10,
+                tag + suffix, null, null, null);
+        books.addBook(book);
+        return book;
+    }
+
+    private Purchase scratchPurchase() {
+        return new Purchase(scratchBook.getId(), scratchBook.getTitle(), null, scratchBook.getPrice(), 1,
+                scratchBook.getPrice(), new Timestamp(System.currentTimeMillis()), scratchUser.getId());
+    }
+
+    /**
+     * The outbox keeps the IDs of replayed operations; those of the scratch entries go with the scratch rows.
+     */
+    private void removeAppliedOperations() {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM applied_operations WHERE operation_id LIKE ?")) {
+            pstmt.setString(1, tag + "-%");
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error removing scratch operations: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs one DAO call, capturing its statements, and checks their plans.
+     * The expectations are added to the returned check before its plans are evaluated,
+     * so evaluation happens when the next check starts or at the end.
+     */
+    private Check check(String name, Runnable action) {
+        finishPending();
+        BookCache.getInstance().invalidateAll(); // So lookups by ID reach the database
+        Check check = new Check(name);
+        SlowQueryLog.setCaptureListener((sql, params) -> {
+            check.statements.add(new CapturedStatement(sql, params));
+            String method = callingDaoMethod();
+            if (method != null) {
+                covered.add(method);
+            }
+        });
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            check.problems.add("the DAO call threw " + e);
+        } finally {
+            SlowQueryLog.setCaptureListener(null);
+        }
+        pending = check;
+        return check;
+    }
+
+    private void finishPending() {
+        if (pending != null) {
+            evaluate(pending);
+            pending = null;
+        }
+    }
+
+    private void reportCoverage() {
+        finishPending();
+        Set<String> missing = new TreeSet<>();
+        for (Class<?> dao : new Class<?>[]{BookDAO.class, CategoryDAO.class, UserDAO.class, PurchaseDAO.class,
+                SalesReportDAO.class, SalesRollupDAO.class, StockThresholdDAO.class, OutboxReplayDAO.class}) {
+            for (Method method : dao.getDeclaredMethods()) {
+                String name = dao.getSimpleName() + "." + method.getName();
+                if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+                        && !method.isSynthetic() && !covered.contains(name) && !NOT_EXERCISED.containsKey(name)) {
+                    missing.add(name);
+                }
+            }
+        }
+        NOT_EXERCISED.forEach((method, reason) -> System.out.println("[SKIP] " + method + ": " + reason));
+        for (String method : missing) {
+            System.out.println("[WARN] " + method + " issued no statement in any check; add a check for it");
+            warned++;
+        }
+    }
+
+    /**
+     * @return "BookDAO.getBookById" for the outermost DAO method on the current stack, or null.
+     */
+    private static String callingDaoMethod() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("dao.") && f.getClassName().endsWith("DAO"))
+                .reduce((inner, outer) -> outer)
+                .map(f -> f.getClassName().substring(4) + "." + f.getMethodName())
+                .orElse(null));
+    }
+
+    private void evaluate(Check check) {
+        Set<String> indexesUsed = new LinkedHashSet<>();
+        List<String> lines = new ArrayList<>();
+        boolean warning = false;
+        for (CapturedStatement statement : check.statements) {
+            String verb = statement.sql.trim().split("\\s+")[0].toUpperCase(Locale.ROOT);
+            if (!Arrays.asList("SELECT", "WITH", "INSERT", "UPDATE", "DELETE").contains(verb)) {
+                continue; // LOCK, SET and the like have no plan
+            }
+            statements++;
+            Plan plan = explain(statement);
+            lines.add("    " + abbreviate(statement.sql));
+            if (plan.error != null) {
+                check.problems.add("EXPLAIN failed: " + plan.error);
+                continue;
+            }
+            indexesUsed.addAll(plan.indexes);
+            for (String table : plan.seqScans) {
+                if (tableRows.getOrDefault(table, 0L) >= LARGE_ROWS && !check.seqScanAllowed.contains(table)) {
+                    check.problems.add("sequential scan on " + table + " (" + tableRows.get(table) + " rows)");
+                }
+            }
+            lines.add("      " + plan.summary());
+            if (!plan.analyzed) {
+                lines.add("      estimate only, the statement could not be re-run: " + plan.analyzeError);
+                warning = true;
+            } else if (plan.worstMisestimate > MAX_MISESTIMATE) {
+                lines.add(String.format(Locale.ROOT, "      rows misestimated %.0fx at: %s", plan.worstMisestimate, plan.worstNode));
+                warning = true;
+            }
+        }
+        for (String index : check.expectedIndexes) {
+            if (!indexesUsed.contains(index)) {
+                check.problems.add("expected index " + index + " is not used");
+            }
+        }
+        String status = !check.problems.isEmpty() ? "FAIL" : warning ? "WARN" : "OK";
+        if (!check.problems.isEmpty()) {
+            failed++;
+        } else if (warning) {
+            warned++;
+        }
+        System.out.println("[" + status + "] " + check.name);
+        for (String problem : check.problems) {
+            System.out.println("    ! " + problem);
+        }
+        lines.forEach(System.out::println);
+    }
+
+    /**
+     * Runs EXPLAIN (ANALYZE, BUFFERS) in a transaction that is rolled back, so writes are not applied twice.
+     * A statement that cannot be re-run (a unique key it inserted is now taken) is explained without ANALYZE.
+     */
+    private static Plan explain(CapturedStatement statement) {
+        Plan plan = new Plan();
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                plan.parse(runExplain(conn, "EXPLAIN (ANALYZE, BUFFERS) ", statement));
+                plan.analyzed = true;
+            } catch (SQLException e) {
+                conn.rollback();
+                plan.analyzeError = e.getMessage();
+                plan.parse(runExplain(conn, "EXPLAIN ", statement));
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plan.error = e.getMessage();
+        }
+        return plan;
+    }
+
+    private static List<String> runExplain(Connection conn, String prefix, CapturedStatement statement) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(prefix + statement.sql)) {
+            int count = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                pstmt.setObject(i, i < statement.params.length ? statement.params[i] : null);
+            }
+            List<String> lines = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+            return lines;
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        String flat = sql.replaceAll("\\s+", " ").trim();
+        return flat.length() > 160 ? flat.substring(0, 157) + "..." : flat;
+    }
+
+    private static final class Check {
+        final String name;
+        final List<CapturedStatement> statements = new ArrayList<>();
+        final Set<String> seqScanAllowed = new LinkedHashSet<>();
+        final Set<String> expectedIndexes = new LinkedHashSet<>();
+        final List<String> problems = new ArrayList<>();
+
+        Check(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param tables Tables (lower case, as in plans) this check may scan whatever their size.
+         */
+        Check allowSeqScan(String... tables) {
+            seqScanAllowed.addAll(Arrays.asList(tables));
+            return this;
+        }
+
+        /**
+         * @param indexes Indexes at least one statement of this check must use.
+         */
+        Check expectIndex(String... indexes) {
+            expectedIndexes.addAll(Arrays.asList(indexes));
+            return this;
+        }
+    }
+
+    private static final class CapturedStatement {
+        final String sql;
+        final Object[] params;
+
+        CapturedStatement(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * What the checks need from an EXPLAIN output in text format.
+     */
+    private static final class Plan {
+        final List<String> seqScans = new ArrayList<>();
+        final Set<String> indexes = new LinkedHashSet<>();
+        boolean analyzed;
+        String analyzeError;
+        String error;
+        String root;
+        double estimatedCost;
+        long estimatedRows;
+        long actualRows = -1;
+        double executionMs = -1;
+        double worstMisestimate = 1;
+        String worstNode;
+
+        void parse(List<String> lines) {
+            for (String line : lines) {
+                Matcher time = EXECUTION_TIME.matcher(line);
+                if (time.find()) {
+                    executionMs = Double.parseDouble(time.group(1));
+                    continue;
+                }
+                Matcher node = PLAN_NODE.matcher(line);
+                if (!node.find()) {
+                    continue;
+                }
+                String description = node.group(1);
+                Matcher seq = SEQ_SCAN.matcher(description);
+                if (seq.find()) {
+                    seqScans.add(seq.group(1));
+                }
+                Matcher index = INDEX_USED.matcher(description);
+                if (index.find()) {
+                    indexes.add(index.group(1));
+                }
+                long estimated = Long.parseLong(node.group(4));
+                long actual = node.group(7) != null ? Long.parseLong(node.group(7)) : -1;
+                if (root == null) {
+                    root = description;
+                    estimatedCost = Double.parseDouble(node.group(3));
+                    estimatedRows = estimated;
+                    actualRows = actual;
+                }
+                if (actual >= 0) {
+                    // Both are per loop; a node that returns nothing against an estimate of 1 is not a misestimate
+                    double factor = (double) Math.max(Math.max(estimated, actual), 1) / Math.max(Math.min(estimated, actual), 1);
+                    if (factor > worstMisestimate) {
+                        worstMisestimate = factor;
+                        worstNode = description + " (estimated " + estimated + ", actual " + actual + " rows)";
+                    }
+                }
+            }
+        }
+
+        String summary() {
+            StringBuilder sb = new StringBuilder(root != null ? root : "?");
+            sb.append(String.format(Locale.ROOT, "; estimated cost %.2f, rows %d", estimatedCost, estimatedRows));
+            if (actualRows >= 0) {
+                sb.append(String.format(Locale.ROOT, "; actual rows %d, %.3f ms", actualRows, executionMs));
+            }
+            if (!indexes.isEmpty()) {
+                sb.append("; indexes ").append(String.join(", ", indexes));
+            }
+            if (!seqScans.isEmpty()) {
+                sb.append("; scans ").append(String.join(", ", seqScans));
+            }
+            return sb.toString();
+        }
+    }
+}
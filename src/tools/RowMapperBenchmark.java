@@ -0,0 +1,95 @@
+package tools;
+
+import dao.DBConnection;
+import dao.Projections;
+import dao.RowMapper;
+import model.Book;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the per-row cost of mapping a large book listing by column name (SELECT * and
+ * rs.getString("title") per field and row, as the DAOs used to) with a precompiled projection mapper.
+ *
+ * The PostgreSQL driver reads the whole result into memory on executeQuery, so the time measured after
+ * it is the mapping itself. Usage: java tools.RowMapperBenchmark [rows (default 100000)] [rounds (default 10)]
+ * against the database configured with the usual bookstore.db.* properties.
+ */
+public class RowMapperBenchmark {
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String byNameSql = "SELECT * FROM Books ORDER BY id LIMIT " + rows;
+        String projectedSql = "SELECT " + Projections.BOOK.columns() + " FROM Books ORDER BY id LIMIT " + rows;
+
+        try (Connection conn = DBConnection.getReadConnection()) {
+            for (int warmup = 0; warmup < 3; warmup++) {
+                run(conn, byNameSql, false);
+                run(conn, projectedSql, true);
+            }
+            long byName = 0;
+            long projected = 0;
+            long mapped = 0;
+            for (int round = 0; round < rounds; round++) {
+                long[] result = run(conn, byNameSql, false);
+                byName += result[0];
+                mapped += result[1];
+                projected += run(conn, projectedSql, true)[0];
+            }
+            if (mapped == 0) {
+                System.out.println("The Books table is empty; generate a catalogue first.");
+                return;
+            }
+            System.out.printf("%d rows x %d rounds%n", mapped / rounds, rounds);
+            System.out.printf("by column name:     %8.1f ns/row%n", (double) byName / mapped);
+            System.out.printf("projection mapper:  %8.1f ns/row%n", (double) projected / mapped);
+        }
+    }
+
+    /**
+     * @return The nanoseconds spent mapping and the number of rows mapped.
+     */
+    private static long[] run(Connection conn, String sql, boolean projected) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            List<Book> books = new ArrayList<>();
+            long start = System.nanoTime();
+            if (projected) {
+                RowMapper<Book> mapper = Projections.BOOK.mapperFor(rs);
+                while (rs.next()) {
+                    books.add(mapper.map(rs));
+                }
+            } else {
+                while (rs.next()) {
+                    books.add(mapByName(rs));
+                }
+            }
+            return new long[]{System.nanoTime() - start, books.size()};
+        }
+    }
+
+    /**
+     * The name-based extraction the DAOs used before projections, kept as the baseline.
+     */
+    private static Book mapByName(ResultSet rs) throws SQLException {
+        Book book = new Book();
+        book.setId(rs.getInt("id"));
+        book.setTitle(rs.getString("title"));
+        book.setAuthor(rs.getString("author"));
+        book.setCategoryId(rs.getInt("category_id"));
+        book.setPrice(rs.getBigDecimal("price"));
+        book.setQuantity(rs.getInt("quantity"));
+        book.setIsbn(rs.getString("isbn"));
+        book.setPublicationDate(rs.getDate("publication_date"));
+        book.setDescription(rs.getString("description"));
+        book.setImageUrl(rs.getString("image_url"));
+        book.setVersion(rs.getInt("version"));
+        return book;
+    }
+}
@@ -0,0 +1,433 @@
+package tools;
+
+import controller.BookController;
+import dao.DBConnection;
+import model.BasketLine;
+import model.Book;
+import model.CheckoutResult;
+import model.FacetQuery;
+import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+import model.User;
+import repository.Repositories;
+
+import javax.swing.table.DefaultTableModel;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs many simulated tills against one database and checks that stock stays correct.
+ *
+ * Each till is a virtual thread issuing a random mix of browse, search, single purchase and basket
+ * checkout calls through {@link BookController}, the same code paths the application uses. Purchases
+ * are skewed towards a few hot books so they sell out while tills are still buying them. Afterwards the
+ * tool reports throughput and latency percentiles per operation, lock waits sampled from
+ * pg_stat_activity, and checks the invariants: no book has negative stock, every book's stock fell by
+ * exactly the quantity its new purchase rows record, and every sale a till was told succeeded is recorded.
+ *
+ * It writes real sales, so it only runs against a local database (or -Dbookstore.storage=memory);
+ * nothing else should be writing to it meanwhile. The purchase journal is not started, so sales go
+ * straight to the database. Exits with status 1 if an invariant is violated.
+ * Usage: java tools.TillSimulation [tills (default 32)] [seconds (default 30)] [seed (default 42)] [hot books (default 8)]
+ */
+public class TillSimulation {
+    private static final String[] OPERATIONS = {"browse", "search", "purchase", "checkout"};
+    private static final int[] MIX = {45, 30, 15, 10}; // Percent of operations, in the order above
+    private static final int HOT_PERCENT = 70;         // Share of purchased lines that go to the hot books
+    private static final long LOCK_SAMPLE_MS = 50;
+
+    private final List<Book> books;
+    private final List<Book> hotBooks;
+    private final List<Integer> categoryIds;
+    private final List<String> keywords;
+    private final List<Integer> userIds;
+
+    public static void main(String[] args) throws Exception {
+        int tills = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int hot = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        if (!Repositories.isInMemory() && !DBConnection.isLocalDatabase()) {
+            System.out.println("Refusing to run: the simulation records real sales and needs a local database (bookstore.db.url).");
+            System.exit(2);
+        }
+        List<Book> before = Repositories.books().getAllBooks();
+        List<User> users = Repositories.users().getAllUsers();
+        if (before.isEmpty() || users.isEmpty()) {
+            System.out.println("The database needs at least one book and one user.");
+            System.exit(2);
+        }
+        TillSimulation simulation = new TillSimulation(before, users, hot, new SplittableRandom(seed));
+        LocalDate startDay = LocalDate.now();
+        Set<Integer> earlierPurchaseIds = purchaseIdsSince(startDay);
+
+        System.out.printf("%d tills, %d s, seed %d, %d hot books (%s)%n", tills, seconds, seed,
+                simulation.hotBooks.size(), Repositories.isInMemory() ? "in-memory engine" : "PostgreSQL");
+        LockSampler sampler = Repositories.isInMemory() ? null : new LockSampler();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        List<Till> results = new ArrayList<>();
+        double elapsed;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (sampler != null) {
+                executor.submit(sampler);
+            }
+            List<Future<Till>> futures = new ArrayList<>();
+            for (int i = 0; i < tills; i++) {
+                Till till = new Till(simulation, new SplittableRandom(seed + 1 + i));
+                futures.add(executor.submit(() -> till.run(deadline)));
+            }
+            for (Future<Till> future : futures) {
+                results.add(future.get());
+            }
+            elapsed = (System.nanoTime() - start) / 1e9;
+            if (sampler != null) {
+                sampler.stop();
+            }
+        }
+
+        simulation.report(results, elapsed);
+        if (sampler != null) {
+            sampler.report();
+        }
+        List<String> violations = simulation.checkInvariants(before, results, startDay, earlierPurchaseIds);
+        if (violations.isEmpty()) {
+            System.out.println("Invariants hold: no negative stock, every decrement matches its purchase rows.");
+        } else {
+            System.out.println(violations.size() + " invariant violations:");
+            violations.forEach(v -> System.out.println("  " + v));
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    private TillSimulation(List<Book> books, List<User> users, int hot, SplittableRandom random) {
+        this.books = books;
+        List<Book> inStock = new ArrayList<>();
+        Set<Integer> categories = new HashSet<>();
+        Set<String> words = new HashSet<>();
+        for (Book book : books) {
+            if (book.getQuantity() > 0) {
+                inStock.add(book);
+            }
+            categories.add(book.getCategoryId());
+            for (String word : book.getTitle().toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= 4) {
+                    words.add(word);
+                }
+            }
+        }
+        // Sorted first so the same seed picks the same books
+        inStock.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        for (int i = inStock.size() - 1; i > 0; i--) {
+            Collections.swap(inStock, i, random.nextInt(i + 1));
+        }
+        this.hotBooks = new ArrayList<>(inStock.subList(0, Math.min(hot, inStock.size())));
+        this.categoryIds = new ArrayList<>(categories);
+        Collections.sort(categoryIds);
+        this.keywords = new ArrayList<>(words);
+        Collections.sort(keywords);
+        this.userIds = new ArrayList<>();
+        for (User user : users) {
+            userIds.add(user.getId());
+        }
+    }
+
+    private Book pickBook(SplittableRandom random) {
+        if (!hotBooks.isEmpty() && random.nextInt(100) < HOT_PERCENT) {
+            return hotBooks.get(random.nextInt(hotBooks.size()));
+        }
+        return books.get(random.nextInt(books.size()));
+    }
+
+    /**
+     * One till: a controller of its own and its counters. Runs on one virtual thread.
+     */
+    private static final class Till {
+        private final TillSimulation simulation;
+        private final SplittableRandom random;
+        private final BookController controller = new BookController();
+        private final DefaultTableModel searchResults = new DefaultTableModel();
+        private final LatencyLog[] latencies = new LatencyLog[OPERATIONS.length];
+        private final int[] declined = new int[OPERATIONS.length];
+        private final Map<Integer, Integer> unitsSold = new HashMap<>(); // As reported successful to the till
+
+        Till(TillSimulation simulation, SplittableRandom random) {
+            this.simulation = simulation;
+            this.random = random;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyLog();
+            }
+        }
+
+        Till run(long deadline) {
+            while (System.nanoTime() < deadline) {
+                int operation = pickOperation();
+                long start = System.nanoTime();
+                boolean done = execute(operation);
+                latencies[operation].add(System.nanoTime() - start);
+                if (!done) {
+                    declined[operation]++;
+                }
+            }
+            return this;
+        }
+
+        private int pickOperation() {
+            int roll = random.nextInt(100);
+            for (int i = 0; i < MIX.length; i++) {
+                roll -= MIX[i];
+                if (roll < 0) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return false if a purchase or checkout was declined.
+         */
+        private boolean execute(int operation) {
+            int userId = simulation.userIds.get(random.nextInt(simulation.userIds.size()));
+            switch (operation) {
+                case 0:
+                    FacetQuery query = new FacetQuery();
+                    query.setCategoryIds(Collections.singleton(
+                            simulation.categoryIds.get(random.nextInt(simulation.categoryIds.size()))));
+                    controller.browseBooks(query);
+                    return true;
+                case 1:
+                    String keyword = simulation.keywords.isEmpty() ? ""
+                            : simulation.keywords.get(random.nextInt(simulation.keywords.size()));
+                    controller.searchBooks(searchResults, keyword);
+                    return true;
+                case 2:
+                    Book book = simulation.pickBook(random);
+                    int quantity = 1 + random.nextInt(3);
+                    if (controller.processPurchase(book.getId(), quantity, userId)) {
+                        unitsSold.merge(book.getId(), quantity, Integer::sum);
+                        return true;
+                    }
+                    return false;
+                default:
+                    List<BasketLine> lines = new ArrayList<>();
+                    int size = 2 + random.nextInt(3);
+                    for (int i = 0; i < size; i++) {
+                        Book line = simulation.pickBook(random);
+                        lines.add(new BasketLine(line.getId(), line.getIsbn(), line.getTitle(), line.getPrice(), 1 + random.nextInt(2)));
+                    }
+                    CheckoutResult result = controller.checkout(lines, userId);
+                    if (result.isSuccess()) {
+                        for (BasketLine line : lines) {
+                            unitsSold.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+                        }
+                    }
+                    return result.isSuccess();
+            }
+        }
+    }
+
+    private void report(List<Till> tills, double elapsed) {
+        long total = 0;
+        System.out.printf("%-9s %8s %8s %9s %9s %9s %9s %9s%n", "operation", "count", "declined", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            LatencyLog merged = new LatencyLog();
+            int declined = 0;
+            for (Till till : tills) {
+                merged.addAll(till.latencies[op]);
+                declined += till.declined[op];
+            }
+            long[] sorted = merged.sorted();
+            total += sorted.length;
+            System.out.printf("%-9s %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", OPERATIONS[op], sorted.length, declined,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), percentile(sorted, 1.0));
+        }
+        System.out.printf("%d operations in %.1f s: %.0f ops/s%n", total, elapsed, total / elapsed);
+    }
+
+    /**
+     * @return The latency at the given fraction, in milliseconds.
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private List<String> checkInvariants(List<Book> before, List<Till> tills, LocalDate startDay, Set<Integer> earlierPurchaseIds) {
+        List<String> violations = new ArrayList<>();
+        Map<Integer, Integer> recorded = new HashMap<>();
+        for (Purchase purchase : purchasesSince(startDay)) {
+            if (!earlierPurchaseIds.contains(purchase.getId())) {
+                recorded.merge(purchase.getBookId(), purchase.getQuantity(), Integer::sum);
+            }
+        }
+        Map<Integer, Integer> reported = new HashMap<>();
+        for (Till till : tills) {
+            till.unitsSold.forEach((bookId, units) -> reported.merge(bookId, units, Integer::sum));
+        }
+
+        Map<Integer, Book> after = new HashMap<>();
+        for (Book book : Repositories.books().getAllBooks()) {
+            after.put(book.getId(), book);
+        }
+        for (Book old : before) {
+            Book now = after.get(old.getId());
+            if (now == null) {
+                violations.add("book " + old.getId() + " disappeared during the run");
+                continue;
+            }
+            int decrement = old.getQuantity() - now.getQuantity();
+            int sold = recorded.getOrDefault(old.getId(), 0);
+            int told = reported.getOrDefault(old.getId(), 0);
+            if (now.getQuantity() < 0) {
+                violations.add("book " + old.getId() + " has negative stock: " + now.getQuantity());
+            }
+            if (sold != decrement) {
+                violations.add("book " + old.getId() + ": purchase rows record " + sold + " sold but stock fell by " + decrement);
+            }
+            if (told != sold) {
+                violations.add("book " + old.getId() + ": tills were told " + told + " sold but purchase rows record " + sold);
+            }
+        }
+        return violations;
+    }
+
+    private static Set<Integer> purchaseIdsSince(LocalDate from) {
+        Set<Integer> ids = new HashSet<>();
+        for (Purchase purchase : purchasesSince(from)) {
+            ids.add(purchase.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Pages through all purchases dated on or after a day.
+     */
+    private static List<Purchase> purchasesSince(LocalDate from) {
+        List<Purchase> purchases = new ArrayList<>();
+        PurchaseQuery query = new PurchaseQuery(0, 0, from, null);
+        query.setPageSize(1000);
+        while (query != null) {
+            PurchasePage page = Repositories.purchases().findPurchases(query);
+            purchases.addAll(page.getPurchases());
+            query = page.getNextQuery();
+        }
+        return purchases;
+    }
+
+    /**
+     * Latencies in nanoseconds, appended by one till and merged at the end.
+     */
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        void addAll(LatencyLog other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Samples the sessions of this database that are waiting for a lock, and counts the deadlocks
+     * PostgreSQL detected during the run.
+     */
+    private static final class LockSampler implements Runnable {
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private int samples;
+        private int samplesWithWaits;
+        private long waitingSessions;
+        private int maxWaiting;
+        private long deadlocksBefore = -1;
+        private long deadlocksAfter = -1;
+
+        @Override
+        public void run() {
+            String waitingSql = "SELECT count(*) FROM pg_stat_activity WHERE datname = current_database() AND wait_event_type = 'Lock'";
+            String deadlockSql = "SELECT deadlocks FROM pg_stat_database WHERE datname = current_database()";
+            try (Connection conn = DBConnection.getPrimaryReadConnection();
+                 Statement stmt = conn.createStatement()) {
+                deadlocksBefore = count(stmt, deadlockSql);
+                while (running.get()) {
+                    int waiting = (int) count(stmt, waitingSql);
+                    synchronized (this) {
+                        samples++;
+                        waitingSessions += waiting;
+                        maxWaiting = Math.max(maxWaiting, waiting);
+                        if (waiting > 0) {
+                            samplesWithWaits++;
+                        }
+                    }
+                    Thread.sleep(LOCK_SAMPLE_MS);
+                }
+                // pg_stat_database is refreshed by the stats collector; allow it to catch up
+                Thread.sleep(1000);
+                synchronized (this) {
+                    deadlocksAfter = count(stmt, deadlockSql);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error sampling lock waits: " + e.getMessage());
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static long count(Statement stmt, String sql) throws SQLException {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+
+        void stop() {
+            running.set(false);
+        }
+
+        synchronized void report() {
+            if (samples == 0) {
+                System.out.println("Lock waits: not sampled");
+                return;
+            }
+            System.out.printf("Lock waits: sessions waiting in %d of %d samples (%.1f%%), %.2f on average, %d at most%n",
+                    samplesWithWaits, samples, 100.0 * samplesWithWaits / samples, (double) waitingSessions / samples, maxWaiting);
+            if (deadlocksBefore >= 0 && deadlocksAfter >= 0) {
+                System.out.println("Deadlocks detected: " + (deadlocksAfter - deadlocksBefore));
+            }
+        }
+    }
+}
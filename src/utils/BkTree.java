@@ -0,0 +1,129 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A BK-tree: a set of terms arranged by Levenshtein distance so that all terms within a small
+ * distance of a query are found without comparing the query to every term.
+ *
+ * Each child hangs off its parent at its distance from the parent. By the triangle inequality a match
+ * within maxDistance of the query can only lie under children at distance d - maxDistance to
+ * d + maxDistance, where d is the query's distance from the parent; all other subtrees are skipped.
+ * Not thread-safe while terms are added; searches may run concurrently once it is built.
+ */
+public class BkTree {
+    private Node root;
+    private int size;
+
+    /**
+     * Adds a term; adding a term already present has no effect.
+     * @param term The term.
+     */
+    public void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = EditDistance.levenshtein(term, node.term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds the terms within a distance of the query.
+     * @param query The query.
+     * @param maxDistance The largest distance accepted.
+     * @return The matching terms, closest first.
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Beyond this distance neither the node nor any of its children can match
+            int limit = maxDistance + (node.children != null ? node.children.length - 1 : 0);
+            int distance = EditDistance.levenshtein(query, node.term, limit);
+            if (distance <= maxDistance) {
+                matches.add(new Match(node.term, distance));
+            }
+            if (node.children != null && distance <= limit) {
+                int to = Math.min(distance + maxDistance, node.children.length - 1);
+                for (int d = Math.max(distance - maxDistance, 1); d <= to; d++) {
+                    if (node.children[d] != null) {
+                        pending.push(node.children[d]);
+                    }
+                }
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(a.distance, b.distance));
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A term found by a search and its distance from the query.
+     */
+    public static final class Match {
+        private final String term;
+        private final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    private static final class Node {
+        final String term;
+        Node[] children; // Indexed by distance from this node; most terms are short, so this stays small
+
+        Node(String term) {
+            this.term = term;
+        }
+
+        Node child(int distance) {
+            return children != null && distance < children.length ? children[distance] : null;
+        }
+
+        void setChild(int distance, Node child) {
+            if (children == null || distance >= children.length) {
+                Node[] grown = new Node[Math.max(distance + 1, 4)];
+                if (children != null) {
+                    System.arraycopy(children, 0, grown, 0, children.length);
+                }
+                children = grown;
+            }
+            children[distance] = child;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package utils;
+
+/**
+ * Edit distance between strings.
+ */
+public final class EditDistance {
+
+    private EditDistance() {
+    }
+
+    /**
+     * Computes the Levenshtein distance: the number of single character insertions, deletions and
+     * substitutions turning one string into the other. Uses two rows of the matrix, O(|b|) memory.
+     * @param a The first string.
+     * @param b The second string.
+     * @return The distance.
+     */
+    public static int levenshtein(CharSequence a, CharSequence b) {
+        int n = b.length();
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    /**
+     * Computes the Levenshtein distance, giving up as soon as it is known to exceed a limit.
+     * @param a The first string.
+     * @param b The second string.
+     * @param limit The largest distance of interest.
+     * @return The distance, or limit + 1 if it is larger than the limit.
+     */
+    public static int levenshtein(CharSequence a, CharSequence b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1; // Every extra character costs an insertion
+        }
+        int n = b.length();
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1; // Distances never decrease from one row to the next
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[n], limit + 1);
+    }
+}
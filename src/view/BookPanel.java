@@ -2,12 +2,22 @@ package view;
 
 import controller.BookController;
 import controller.CategoryController;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import event.Subscription;
 import model.Book;
+import model.BookField;
+import model.BookUpdateResult;
 import model.Category;
 import utils.ImageUtils;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -15,8 +25,9 @@ import java.math.BigDecimal;
 import java.sql.Date;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector; // Import Vector for DefaultTableModel
+import java.util.Map;
 
 /**
  * Panel for managing books (add, edit, delete, view).
@@ -24,7 +35,7 @@ import java.util.Vector; // Import Vector for DefaultTableModel
  */
 public class BookPanel extends JPanel {
     private JTable bookTable;
-    private DefaultTableModel tableModel;
+    private BookTableModel tableModel;
     private BookController bookController;
     private CategoryController categoryController;
 
@@ -40,12 +51,23 @@ public class BookPanel extends JPanel {
     private JTextArea descriptionArea;
     private JTextField imageUrlField;
     private JLabel imagePreviewLabel;
+    private Book editingBook; // The book as it was when loaded into the form
 
     private JButton addButton;
     private JButton updateButton;
     private JButton deleteButton;
     private JButton clearButton;
 
+    // Batch operations on the selected rows
+    private JLabel selectionLabel;
+    private JButton batchDeleteButton;
+    private JButton batchCategoryButton;
+    private JButton batchAdjustButton;
+    private JButton batchThresholdButton;
+    private JButton repriceButton;
+
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
     public BookPanel() {
         bookController = new BookController();
         categoryController = new CategoryController();
@@ -62,15 +84,9 @@ public class BookPanel extends JPanel {
 
     private void initComponents() {
         // Table Panel
-        String[] columnNames = {"ID", "Title", "Author", "Category", "Price", "Quantity", "ISBN", "Pub. Date", "Description", "Image URL"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table cells non-editable
-            }
-        };
+        tableModel = new BookTableModel(); // Cells are not editable
         bookTable = new JTable(tableModel);
-        bookTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        bookTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION); // Ctrl/Shift-click for batch operations
         bookTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         bookTable.setRowHeight(25);
         bookTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
@@ -78,6 +94,33 @@ public class BookPanel extends JPanel {
         scrollPane.setPreferredSize(new Dimension(800, 300));
         add(scrollPane, BorderLayout.CENTER);
 
+        // Batch operations toolbar
+        JPanel batchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        selectionLabel = new JLabel("0 books selected");
+        batchDeleteButton = new JButton("Delete Selected");
+        batchCategoryButton = new JButton("Set Category");
+        batchAdjustButton = new JButton("Adjust Price/Qty");
+        batchThresholdButton = new JButton("Stock Alert...");
+        styleButton(batchDeleteButton, new Color(220, 20, 60)); // Crimson
+        styleButton(batchCategoryButton, new Color(30, 144, 255)); // DodgerBlue
+        styleButton(batchAdjustButton, new Color(30, 144, 255)); // DodgerBlue
+        styleButton(batchThresholdButton, new Color(30, 144, 255)); // DodgerBlue
+        batchDeleteButton.setPreferredSize(new Dimension(130, 30));
+        batchCategoryButton.setPreferredSize(new Dimension(130, 30));
+        batchAdjustButton.setPreferredSize(new Dimension(130, 30));
+        batchThresholdButton.setPreferredSize(new Dimension(130, 30));
+        batchPanel.add(selectionLabel);
+        batchPanel.add(batchDeleteButton);
+        batchPanel.add(batchCategoryButton);
+        batchPanel.add(batchAdjustButton);
+        batchPanel.add(batchThresholdButton);
+        repriceButton = new JButton("Bulk Reprice...");
+        styleButton(repriceButton, new Color(105, 105, 105)); // DimGray
+        repriceButton.setPreferredSize(new Dimension(130, 30));
+        batchPanel.add(repriceButton);
+        add(batchPanel, BorderLayout.NORTH);
+        updateBatchButtons();
+
         // Form Panel
         JPanel formPanel = new JPanel(new GridBagLayout());
         formPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Book Details"));
@@ -240,6 +283,17 @@ public class BookPanel extends JPanel {
             }
         });
 
+        bookTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                updateBatchButtons();
+            }
+        });
+        batchDeleteButton.addActionListener(e -> batchDeleteBooks());
+        batchCategoryButton.addActionListener(e -> batchChangeCategory());
+        batchAdjustButton.addActionListener(e -> batchAdjustPriceAndQuantity());
+        batchThresholdButton.addActionListener(e -> batchSetLowStockThreshold());
+        repriceButton.addActionListener(e -> new RepriceDialog(SwingUtilities.getWindowAncestor(this), bookController).setVisible(true));
+
         addButton.addActionListener(e -> addNewBook());
         updateButton.addActionListener(e -> updateExistingBook());
         deleteButton.addActionListener(e -> deleteSelectedBook());
@@ -253,6 +307,38 @@ public class BookPanel extends JPanel {
         });
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // Patch individual rows when books change instead of reloading the whole table
+        EventBus bus = EventBus.getInstance();
+        subscriptions.add(bus.subscribeOnEdt(BookAddedEvent.class, e -> tableModel.upsertBook(e.getBook())));
+        subscriptions.add(bus.subscribeOnEdt(BookUpdatedEvent.class, e -> tableModel.upsertBook(e.getBook())));
+        subscriptions.add(bus.subscribeOnEdt(BookDeletedEvent.class, e -> tableModel.removeBook(e.getBookId())));
+        subscriptions.add(bus.subscribeOnEdt(StockChangedEvent.class, e -> tableModel.updateQuantity(e.getBookId(), e.getQuantity())));
+        subscriptions.add(bus.subscribeOnEdt(PricesChangedEvent.class, e -> tableModel.updatePrices(e.getNewPrices())));
+        subscriptions.add(bus.subscribeOnEdt(BooksChangedEvent.class, e -> {
+            tableModel.applyBatch(e.getUpdatedBooks(), e.getDeletedBookIds());
+            resetForm();
+        }));
+        subscriptions.add(bus.subscribeOnEdt(CategoryChangedEvent.class, e -> {
+            populateCategoryComboBox();
+            Category category = e.getCategory();
+            if (e.getChangeType() == CategoryChangedEvent.ChangeType.DELETED) {
+                tableModel.removeCategory(category.getId());
+            } else {
+                tableModel.putCategoryName(category.getId(), category.getName());
+            }
+        }));
+    }
+
+    @Override
+    public void removeNotify() {
+        subscriptions.forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+        super.removeNotify();
+    }
+
     private void populateCategoryComboBox() {
         DefaultComboBoxModel<Category> model = new DefaultComboBoxModel<>();
         List<Category> categories = categoryController.getAllCategories();
@@ -267,7 +353,14 @@ public class BookPanel extends JPanel {
      * and resets the form to a state ready for adding new books.
      */
     public void refreshBookTable() {
-        bookController.populateBookTable(tableModel);
+        tableModel.setBooks(bookController.getAllBooks(), bookController.getCategoryNamesById());
+        resetForm();
+    }
+
+    /**
+     * Resets the form to a state ready for adding new books.
+     */
+    private void resetForm() {
         clearForm(); // Clear form after refresh
         setFormEditable(false); // Disable form fields
         addButton.setEnabled(true); // Enable add button
@@ -280,25 +373,31 @@ public class BookPanel extends JPanel {
      * @param selectedRow The index of the selected row.
      */
     private void displayBookDetails(int selectedRow) {
-        idField.setText(tableModel.getValueAt(selectedRow, 0).toString());
-        titleField.setText(tableModel.getValueAt(selectedRow, 1).toString());
-        authorField.setText(tableModel.getValueAt(selectedRow, 2).toString());
-        String categoryName = tableModel.getValueAt(selectedRow, 3).toString();
-        // Set selected category in combo box
+        Book book = tableModel.getBookAt(selectedRow);
+        editingBook = new Book(book); // Snapshot the edit is based on
+        idField.setText(String.valueOf(book.getId()));
+        titleField.setText(book.getTitle());
+        authorField.setText(book.getAuthor());
+        selectCategory(book.getCategoryId());
+        priceField.setText(book.getPrice().toString());
+        quantityField.setText(String.valueOf(book.getQuantity()));
+        isbnField.setText(book.getIsbn() != null ? book.getIsbn() : "");
+        publicationDateField.setText(book.getPublicationDate() != null ? book.getPublicationDate().toString() : "");
+        descriptionArea.setText(book.getDescription() != null ? book.getDescription() : "");
+        imageUrlField.setText(book.getImageUrl() != null ? book.getImageUrl() : "");
+
+        loadImagePreview();
+    }
+
+    private void selectCategory(int categoryId) {
+        categoryComboBox.setSelectedIndex(-1);
         for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
-            if (categoryComboBox.getItemAt(i).getName().equals(categoryName)) {
-                categoryComboBox.setSelectedIndex(i);
+            Category category = categoryComboBox.getItemAt(i);
+            if (category != null && category.getId() == categoryId) {
+                categoryComboBox.setSelectedItem(category);
                 break;
             }
         }
-        priceField.setText(tableModel.getValueAt(selectedRow, 4).toString());
-        quantityField.setText(tableModel.getValueAt(selectedRow, 5).toString());
-        isbnField.setText(tableModel.getValueAt(selectedRow, 6) != null ? tableModel.getValueAt(selectedRow, 6).toString() : "");
-        publicationDateField.setText(tableModel.getValueAt(selectedRow, 7) != null ? tableModel.getValueAt(selectedRow, 7).toString() : "");
-        descriptionArea.setText(tableModel.getValueAt(selectedRow, 8) != null ? tableModel.getValueAt(selectedRow, 8).toString() : "");
-        imageUrlField.setText(tableModel.getValueAt(selectedRow, 9) != null ? tableModel.getValueAt(selectedRow, 9).toString() : "");
-
-        loadImagePreview();
     }
 
     /**
@@ -311,17 +410,11 @@ public class BookPanel extends JPanel {
             clearForm();
             return;
         }
+        editingBook = new Book(book); // Snapshot the edit is based on
         idField.setText(String.valueOf(book.getId()));
         titleField.setText(book.getTitle());
         authorField.setText(book.getAuthor());
-        // Set selected category in combo box
-        for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
-            Category category = categoryComboBox.getItemAt(i);
-            if (category != null && category.getId() == book.getCategoryId()) {
-                categoryComboBox.setSelectedItem(category);
-                break;
-            }
-        }
+        selectCategory(book.getCategoryId());
         priceField.setText(book.getPrice().toPlainString());
         quantityField.setText(String.valueOf(book.getQuantity()));
         isbnField.setText(book.getIsbn());
@@ -350,6 +443,7 @@ public class BookPanel extends JPanel {
     }
 
     private void clearForm() {
+        editingBook = null;
         idField.setText("");
         titleField.setText("");
         authorField.setText("");
@@ -398,35 +492,79 @@ public class BookPanel extends JPanel {
 
         if (bookController.addBook(title, author, categoryName, price, quantity, isbn, pubDate, description, imageUrl)) {
             JOptionPane.showMessageDialog(this, "Book added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            refreshBookTable();
+            resetForm(); // The table row is patched by the book event
         } else {
             JOptionPane.showMessageDialog(this, "Failed to add book. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
     private void updateExistingBook() {
-        if (!validateForm() || idField.getText().isEmpty()) {
+        if (!validateForm() || editingBook == null) {
             JOptionPane.showMessageDialog(this, "Select a book to update or fill all fields.", "Validation Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        int id = Integer.parseInt(idField.getText());
-        String title = titleField.getText();
-        String author = authorField.getText();
+        Book edited = new Book(editingBook);
+        edited.setTitle(titleField.getText());
+        edited.setAuthor(authorField.getText());
         Category selectedCategory = (Category) categoryComboBox.getSelectedItem();
-        String categoryName = (selectedCategory != null) ? selectedCategory.getName() : null;
-        BigDecimal price = new BigDecimal(priceField.getText());
-        int quantity = Integer.parseInt(quantityField.getText());
-        String isbn = isbnField.getText();
-        Date pubDate = parseDate(publicationDateField.getText());
-        String description = descriptionArea.getText();
-        String imageUrl = imageUrlField.getText();
+        edited.setCategoryId(selectedCategory != null ? selectedCategory.getId() : 0);
+        edited.setPrice(new BigDecimal(priceField.getText()));
+        edited.setQuantity(Integer.parseInt(quantityField.getText()));
+        edited.setIsbn(isbnField.getText());
+        edited.setPublicationDate(parseDate(publicationDateField.getText()));
+        edited.setDescription(descriptionArea.getText());
+        edited.setImageUrl(imageUrlField.getText());
+
+        saveBook(editingBook, edited);
+    }
 
-        if (bookController.updateBook(id, title, author, categoryName, price, quantity, isbn, pubDate, description, imageUrl)) {
-            JOptionPane.showMessageDialog(this, "Book updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            refreshBookTable();
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to update book. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Saves an edit and lets the user resolve a conflict with a concurrent change
+     * that touched the same fields (non-overlapping changes are merged by the controller).
+     */
+    private void saveBook(Book original, Book edited) {
+        BookUpdateResult result = bookController.updateBook(original, edited);
+        switch (result.getStatus()) {
+            case UPDATED:
+                JOptionPane.showMessageDialog(this, "Book updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                resetForm(); // The table row is patched by the book event
+                break;
+            case CONFLICT:
+                resolveConflict(edited, result.getBook());
+                break;
+            case NOT_FOUND:
+                JOptionPane.showMessageDialog(this, "This book was deleted by another user.", "Book Deleted", JOptionPane.WARNING_MESSAGE);
+                resetForm();
+                break;
+            default:
+                JOptionPane.showMessageDialog(this, "Failed to update book. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void resolveConflict(Book edited, Book latest) {
+        Map<BookField, Object> mine = BookField.diff(editingBook, edited);
+        Map<BookField, Object> theirs = BookField.diff(editingBook, latest);
+        StringBuilder message = new StringBuilder("This book was changed by someone else while you were editing it.\n\n");
+        for (Map.Entry<BookField, Object> change : theirs.entrySet()) {
+            BookField field = change.getKey();
+            message.append(field.getColumn()).append(": theirs = ").append(change.getValue());
+            if (mine.containsKey(field)) {
+                message.append(", yours = ").append(mine.get(field));
+            }
+            message.append("\n");
+        }
+        message.append("\nKeep your changes on top of theirs, or discard yours and reload their version?");
+
+        Object[] options = {"Keep Mine", "Keep Theirs", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this, message.toString(), "Edit Conflict",
+                JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (choice == 0) {
+            Book original = editingBook;
+            editingBook = new Book(latest);
+            saveBook(latest, BookController.rebase(original, edited, latest));
+        } else if (choice == 1) {
+            displayBookDetails(latest);
         }
     }
 
@@ -455,13 +593,134 @@ public class BookPanel extends JPanel {
         if (confirm == JOptionPane.YES_OPTION) {
             if (bookController.deleteBook(bookId)) {
                 JOptionPane.showMessageDialog(this, "Book deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshBookTable();
+                resetForm(); // The table row is patched by the book event
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete book. It might be referenced by purchases.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
+    private void updateBatchButtons() {
+        int selected = bookTable.getSelectedRowCount();
+        selectionLabel.setText(selected + (selected == 1 ? " book selected" : " books selected"));
+        batchDeleteButton.setEnabled(selected > 0);
+        batchCategoryButton.setEnabled(selected > 0);
+        batchAdjustButton.setEnabled(selected > 0);
+        batchThresholdButton.setEnabled(selected > 0);
+    }
+
+    private List<Integer> getSelectedBookIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int row : bookTable.getSelectedRows()) {
+            ids.add(tableModel.getBookAt(row).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Deletes all selected books with one statement.
+     */
+    private void batchDeleteBooks() {
+        List<Integer> ids = getSelectedBookIds();
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Delete " + ids.size() + " books? Their purchase records are deleted as well.",
+                "Confirm Batch Delete", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        int deleted = bookController.deleteBooks(ids); // The table is updated once by the BooksChangedEvent
+        if (deleted > 0) {
+            JOptionPane.showMessageDialog(this, deleted + " books deleted.", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to delete books. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Moves all selected books to one category with one statement.
+     */
+    private void batchChangeCategory() {
+        List<Integer> ids = getSelectedBookIds();
+        List<Category> categories = categoryController.getAllCategories();
+        if (categories.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "There are no categories.", "No Categories", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Category category = (Category) JOptionPane.showInputDialog(this,
+                "Move " + ids.size() + " books to category:", "Set Category",
+                JOptionPane.QUESTION_MESSAGE, null, categories.toArray(), categories.get(0));
+        if (category == null) {
+            return;
+        }
+        int updated = bookController.changeBooksCategory(ids, category.getName());
+        if (updated > 0) {
+            JOptionPane.showMessageDialog(this, updated + " books moved to " + category.getName() + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to update books. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Adds a price and/or quantity change to all selected books with one statement.
+     */
+    private void batchAdjustPriceAndQuantity() {
+        List<Integer> ids = getSelectedBookIds();
+        JTextField priceChangeField = new JTextField("0.00", 10);
+        JTextField quantityChangeField = new JTextField("0", 10);
+        JPanel inputPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        inputPanel.add(new JLabel("Price change (+/-):"));
+        inputPanel.add(priceChangeField);
+        inputPanel.add(new JLabel("Quantity change (+/-):"));
+        inputPanel.add(quantityChangeField);
+
+        int result = JOptionPane.showConfirmDialog(this, inputPanel,
+                "Adjust " + ids.size() + " books", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        BigDecimal priceChange;
+        int quantityChange;
+        try {
+            priceChange = new BigDecimal(priceChangeField.getText().trim());
+            quantityChange = Integer.parseInt(quantityChangeField.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Price and Quantity changes must be valid numbers.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int updated = bookController.adjustBooksPriceAndQuantity(ids, priceChange, quantityChange);
+        if (updated > 0) {
+            JOptionPane.showMessageDialog(this, updated + " books updated.", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to update books. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Sets the low-stock threshold of all selected books; an empty value restores the category or default threshold.
+     */
+    private void batchSetLowStockThreshold() {
+        List<Integer> ids = getSelectedBookIds();
+        String input = JOptionPane.showInputDialog(this,
+                "Alert when fewer copies than this are in stock (empty = category or default threshold):",
+                "Low-Stock Threshold for " + ids.size() + " books", JOptionPane.QUESTION_MESSAGE);
+        if (input == null) {
+            return;
+        }
+        Integer threshold;
+        try {
+            threshold = input.trim().isEmpty() ? null : Integer.valueOf(input.trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Threshold must be a whole number.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int saved = bookController.setLowStockThreshold(ids, threshold);
+        if (saved > 0) {
+            JOptionPane.showMessageDialog(this, "Low-stock threshold saved for " + saved + " books.", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to save the threshold. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private boolean validateForm() {
         if (titleField.getText().isEmpty() || authorField.getText().isEmpty() ||
                 categoryComboBox.getSelectedItem() == null || priceField.getText().isEmpty() ||
@@ -0,0 +1,211 @@
+package view;
+
+import model.Book;
+
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table model for books keyed by book ID.
+ * Rows can be inserted, updated and removed individually, so a single edit only repaints
+ * the affected row instead of reloading the whole table from the database.
+ */
+public class BookTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "Title", "Author", "Category", "Price", "Quantity", "ISBN", "Pub. Date", "Description", "Image URL"};
+    public static final int QUANTITY_COLUMN = 5;
+
+    private final List<Book> books = new ArrayList<>();
+    private final Map<Integer, Integer> rowByBookId = new HashMap<>();
+    private final Map<Integer, String> categoryNames = new HashMap<>();
+
+    /**
+     * Replaces all rows.
+     * @param newBooks The books to display.
+     * @param newCategoryNames Category names by category ID, used for the Category column.
+     */
+    public void setBooks(List<Book> newBooks, Map<Integer, String> newCategoryNames) {
+        books.clear();
+        books.addAll(newBooks);
+        categoryNames.clear();
+        categoryNames.putAll(newCategoryNames);
+        reindexFrom(0);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Inserts a book, or updates its row if it is already displayed.
+     * @param book The book.
+     */
+    public void upsertBook(Book book) {
+        Integer row = rowByBookId.get(book.getId());
+        if (row == null) {
+            books.add(book);
+            int newRow = books.size() - 1;
+            rowByBookId.put(book.getId(), newRow);
+            fireTableRowsInserted(newRow, newRow);
+        } else {
+            books.set(row, book);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Removes the row of a book, if displayed.
+     * @param bookId The ID of the book.
+     */
+    public void removeBook(int bookId) {
+        Integer row = rowByBookId.remove(bookId);
+        if (row != null) {
+            books.remove((int) row);
+            reindexFrom(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * Applies the result of a batch operation with a single table notification.
+     * @param updatedBooks Books to insert or update.
+     * @param deletedBookIds IDs of books to remove.
+     */
+    public void applyBatch(List<Book> updatedBooks, List<Integer> deletedBookIds) {
+        for (Book book : updatedBooks) {
+            Integer row = rowByBookId.get(book.getId());
+            if (row == null) {
+                books.add(book);
+                rowByBookId.put(book.getId(), books.size() - 1);
+            } else {
+                books.set(row, book);
+            }
+        }
+        if (!deletedBookIds.isEmpty()) {
+            Set<Integer> deleted = new HashSet<>(deletedBookIds);
+            books.removeIf(book -> deleted.contains(book.getId()));
+            reindexFrom(0);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Updates the prices of displayed books with a single table notification.
+     * @param newPrices New prices by book ID.
+     */
+    public void updatePrices(Map<Integer, BigDecimal> newPrices) {
+        for (Map.Entry<Integer, BigDecimal> entry : newPrices.entrySet()) {
+            Integer row = rowByBookId.get(entry.getKey());
+            if (row != null) {
+                books.get(row).setPrice(entry.getValue());
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Updates the quantity of a displayed book.
+     * @param bookId The ID of the book.
+     * @param quantity The new quantity.
+     */
+    public void updateQuantity(int bookId, int quantity) {
+        Integer row = rowByBookId.get(bookId);
+        if (row != null) {
+            books.get(row).setQuantity(quantity);
+            fireTableCellUpdated(row, QUANTITY_COLUMN);
+        }
+    }
+
+    /**
+     * Adds or renames a category used by the Category column.
+     * @param categoryId The ID of the category.
+     * @param name The category name.
+     */
+    public void putCategoryName(int categoryId, String name) {
+        categoryNames.put(categoryId, name);
+        fireCategoryRowsUpdated(categoryId);
+    }
+
+    /**
+     * Removes a category; its books are shown without a category, as the database sets their category_id to NULL.
+     * @param categoryId The ID of the deleted category.
+     */
+    public void removeCategory(int categoryId) {
+        categoryNames.remove(categoryId);
+        for (int row = 0; row < books.size(); row++) {
+            if (books.get(row).getCategoryId() == categoryId) {
+                books.get(row).setCategoryId(0);
+                fireTableCellUpdated(row, 3);
+            }
+        }
+    }
+
+    /**
+     * @param row The row index.
+     * @return The book displayed in a row.
+     */
+    public Book getBookAt(int row) {
+        return books.get(row);
+    }
+
+    /**
+     * @param bookId The ID of a book.
+     * @return The row index of the book, or -1 if it is not displayed.
+     */
+    public int findRow(int bookId) {
+        Integer row = rowByBookId.get(bookId);
+        return row != null ? row : -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return books.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Book book = books.get(rowIndex);
+        switch (columnIndex) {
+            case 0: return book.getId();
+            case 1: return book.getTitle();
+            case 2: return book.getAuthor();
+            case 3: return categoryNames.getOrDefault(book.getCategoryId(), "N/A");
+            case 4: return book.getPrice();
+            case 5: return book.getQuantity();
+            case 6: return book.getIsbn();
+            case 7: return book.getPublicationDate();
+            case 8: return book.getDescription();
+            case 9: return book.getImageUrl();
+            default: return null;
+        }
+    }
+
+    private void fireCategoryRowsUpdated(int categoryId) {
+        for (int row = 0; row < books.size(); row++) {
+            if (books.get(row).getCategoryId() == categoryId) {
+                fireTableCellUpdated(row, 3);
+            }
+        }
+    }
+
+    private void reindexFrom(int firstRow) {
+        if (firstRow == 0) {
+            rowByBookId.clear();
+        }
+        for (int row = firstRow; row < books.size(); row++) {
+            rowByBookId.put(books.get(row).getId(), row);
+        }
+    }
+}
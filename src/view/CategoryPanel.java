@@ -2,14 +2,15 @@ package view;
 
 
 import controller.CategoryController;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import event.Subscription;
 import model.Category;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Vector;
 
 /**
  * Panel for managing book categories (add, edit, delete, view).
@@ -17,7 +18,7 @@ import java.util.Vector;
  */
 public class CategoryPanel extends JPanel {
     private JTable categoryTable;
-    private DefaultTableModel tableModel;
+    private CategoryTableModel tableModel;
     private CategoryController categoryController;
 
     // Form components
@@ -28,6 +29,9 @@ public class CategoryPanel extends JPanel {
     private JButton updateButton;
     private JButton deleteButton;
     private JButton clearButton;
+    private JButton thresholdButton;
+
+    private Subscription categorySubscription;
 
     public CategoryPanel() {
         categoryController = new CategoryController();
@@ -43,13 +47,7 @@ public class CategoryPanel extends JPanel {
 
     private void initComponents() {
         // Table Panel
-        String[] columnNames = {"ID", "Category Name"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table cells non-editable
-            }
-        };
+        tableModel = new CategoryTableModel(); // Cells are not editable
         categoryTable = new JTable(tableModel);
         categoryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         categoryTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -89,17 +87,20 @@ public class CategoryPanel extends JPanel {
         updateButton = new JButton("Update");
         deleteButton = new JButton("Delete");
         clearButton = new JButton("Clear Form");
+        thresholdButton = new JButton("Stock Alert");
 
         // Style buttons
         styleButton(addButton, new Color(46, 139, 87)); // SeaGreen
         styleButton(updateButton, new Color(30, 144, 255)); // DodgerBlue
         styleButton(deleteButton, new Color(220, 20, 60)); // Crimson
         styleButton(clearButton, new Color(105, 105, 105)); // DimGray
+        styleButton(thresholdButton, new Color(30, 144, 255)); // DodgerBlue
 
         buttonPanel.add(addButton);
         buttonPanel.add(updateButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(thresholdButton);
 
         gbc.gridx = 0; gbc.gridy = row++;
         gbc.gridwidth = 2;
@@ -133,6 +134,7 @@ public class CategoryPanel extends JPanel {
                     addButton.setEnabled(false); // Disable add when editing
                     updateButton.setEnabled(true);
                     deleteButton.setEnabled(true);
+                    thresholdButton.setEnabled(true);
                 }
             }
         });
@@ -141,10 +143,45 @@ public class CategoryPanel extends JPanel {
         updateButton.addActionListener(e -> updateExistingCategory());
         deleteButton.addActionListener(e -> deleteSelectedCategory());
         clearButton.addActionListener(e -> clearForm());
+        thresholdButton.addActionListener(e -> setLowStockThreshold());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        categorySubscription = EventBus.getInstance().subscribeOnEdt(CategoryChangedEvent.class, this::applyCategoryChange);
+    }
+
+    @Override
+    public void removeNotify() {
+        if (categorySubscription != null) {
+            categorySubscription.unsubscribe();
+            categorySubscription = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Patches the single table row affected by a category change.
+     * @param event The category change.
+     */
+    private void applyCategoryChange(CategoryChangedEvent event) {
+        if (event.getChangeType() == CategoryChangedEvent.ChangeType.DELETED) {
+            tableModel.removeCategory(event.getCategory().getId());
+        } else {
+            tableModel.upsertCategory(event.getCategory());
+        }
     }
 
     private void refreshCategoryTable() {
-        categoryController.populateCategoryTable(tableModel);
+        tableModel.setCategories(categoryController.getAllCategories());
+        resetForm();
+    }
+
+    /**
+     * Resets the form to a state ready for adding new categories.
+     */
+    private void resetForm() {
         clearForm(); // Clear form after refresh
         setFormEditable(false); // Disable form fields
         addButton.setEnabled(true); // Enable add button
@@ -165,6 +202,7 @@ public class CategoryPanel extends JPanel {
         addButton.setEnabled(true);
         updateButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        thresholdButton.setEnabled(false);
     }
 
     private void setFormEditable(boolean editable) {
@@ -179,7 +217,7 @@ public class CategoryPanel extends JPanel {
         String name = nameField.getText();
         if (categoryController.addCategory(name)) {
             JOptionPane.showMessageDialog(this, "Category added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            refreshCategoryTable();
+            resetForm(); // The table row is patched by the category event
         } else {
             JOptionPane.showMessageDialog(this, "Failed to add category. It might already exist.", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -194,7 +232,7 @@ public class CategoryPanel extends JPanel {
         String name = nameField.getText();
         if (categoryController.updateCategory(id, name)) {
             JOptionPane.showMessageDialog(this, "Category updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            refreshCategoryTable();
+            resetForm(); // The table row is patched by the category event
         } else {
             JOptionPane.showMessageDialog(this, "Failed to update category. It might already exist.", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -213,11 +251,41 @@ public class CategoryPanel extends JPanel {
         if (confirm == JOptionPane.YES_OPTION) {
             if (categoryController.deleteCategory(categoryId)) {
                 JOptionPane.showMessageDialog(this, "Category deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshCategoryTable();
+                resetForm(); // The table row is patched by the category event
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete category. It might be referenced by books.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
-}
 
+    /**
+     * Sets the low-stock threshold of the selected category; an empty value restores the default.
+     */
+    private void setLowStockThreshold() {
+        int selectedRow = categoryTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a category.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int categoryId = (int) tableModel.getValueAt(selectedRow, 0);
+        Integer current = categoryController.getLowStockThreshold(categoryId);
+        String input = (String) JOptionPane.showInputDialog(this,
+                "Alert when fewer copies of a book in this category are in stock (empty = default threshold):",
+                "Low-Stock Threshold", JOptionPane.QUESTION_MESSAGE, null, null, current != null ? current.toString() : "");
+        if (input == null) {
+            return;
+        }
+        Integer threshold;
+        try {
+            threshold = input.trim().isEmpty() ? null : Integer.valueOf(input.trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Threshold must be a whole number.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (categoryController.setLowStockThreshold(categoryId, threshold)) {
+            JOptionPane.showMessageDialog(this, "Low-stock threshold saved.", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to save the threshold. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
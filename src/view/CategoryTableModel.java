@@ -0,0 +1,98 @@
+package view;
+
+import model.Category;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table model for categories keyed by category ID, supporting single-row inserts, updates and removals.
+ */
+public class CategoryTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "Category Name"};
+
+    private final List<Category> categories = new ArrayList<>();
+    private final Map<Integer, Integer> rowByCategoryId = new HashMap<>();
+
+    /**
+     * Replaces all rows.
+     * @param newCategories The categories to display.
+     */
+    public void setCategories(List<Category> newCategories) {
+        categories.clear();
+        categories.addAll(newCategories);
+        reindexFrom(0);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Inserts a category, or updates its row if it is already displayed.
+     * @param category The category.
+     */
+    public void upsertCategory(Category category) {
+        Integer row = rowByCategoryId.get(category.getId());
+        if (row == null) {
+            categories.add(category);
+            int newRow = categories.size() - 1;
+            rowByCategoryId.put(category.getId(), newRow);
+            fireTableRowsInserted(newRow, newRow);
+        } else {
+            categories.set(row, category);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Removes the row of a category, if displayed.
+     * @param categoryId The ID of the category.
+     */
+    public void removeCategory(int categoryId) {
+        Integer row = rowByCategoryId.remove(categoryId);
+        if (row != null) {
+            categories.remove((int) row);
+            reindexFrom(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * @param row The row index.
+     * @return The category displayed in a row.
+     */
+    public Category getCategoryAt(int row) {
+        return categories.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return categories.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Category category = categories.get(rowIndex);
+        return columnIndex == 0 ? (Object) category.getId() : category.getName();
+    }
+
+    private void reindexFrom(int firstRow) {
+        if (firstRow == 0) {
+            rowByCategoryId.clear();
+        }
+        for (int row = firstRow; row < categories.size(); row++) {
+            rowByCategoryId.put(categories.get(row).getId(), row);
+        }
+    }
+}
@@ -1,14 +1,28 @@
 package view;
-import dao.BookDAO;
-import dao.PurchaseDAO;
-import dao.UserDAO;
-import model.Book;
+import dao.SalesRollupDAO;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import event.LowStockAlertEvent;
+import event.PurchaseRecordedEvent;
+import event.Subscription;
+import model.CatalogueSnapshot;
+import model.LowStockAlert;
 import model.Purchase;
 import model.User;
+import repository.CategoryRepository;
+import repository.Repositories;
+import repository.UserRepository;
+import service.CatalogueSnapshotService;
+import service.LowStockMonitor;
 
 import javax.swing.*;
 import java.awt.*;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,17 +36,22 @@ public class DashboardPanel extends JPanel {
     private JLabel totalUsersLabel;
     private JLabel totalSalesLabel;
     private JLabel lowStockBooksLabel;
+    private JLabel stockValueLabel;
     private User loggedInUser;
 
-    private BookDAO bookDAO;
-    private PurchaseDAO purchaseDAO;
-    private UserDAO userDAO;
+    private DefaultListModel<LowStockAlert> lowStockListModel;
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    private CategoryRepository categoryRepository;
+    private SalesRollupDAO salesRollupDAO;
+    private UserRepository userRepository;
 
     public DashboardPanel(User user) {
         this.loggedInUser = user;
-        bookDAO = new BookDAO();
-        purchaseDAO = new PurchaseDAO();
-        userDAO = new UserDAO();
+        categoryRepository = Repositories.categories();
+        salesRollupDAO = new SalesRollupDAO();
+        userRepository = Repositories.users();
 
         setLayout(new BorderLayout(20, 20));
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -55,7 +74,8 @@ public class DashboardPanel extends JPanel {
         totalCategoriesLabel = createStatLabel("Total Categories: ");
         totalUsersLabel = createStatLabel("Total Users: ");
         totalSalesLabel = createStatLabel("Total Sales Revenue: ");
-        lowStockBooksLabel = createStatLabel("Low Stock Books (<10): ");
+        lowStockBooksLabel = createStatLabel("Low Stock Books: ");
+        stockValueLabel = createStatLabel("Stock Value: ");
 
         statsPanel.add(totalBooksLabel);
         statsPanel.add(totalCategoriesLabel);
@@ -66,9 +86,18 @@ public class DashboardPanel extends JPanel {
         }
         statsPanel.add(totalSalesLabel);
         statsPanel.add(lowStockBooksLabel);
-        statsPanel.add(new JLabel()); // Placeholder
+        statsPanel.add(stockValueLabel);
 
         add(statsPanel, BorderLayout.CENTER);
+
+        // Low-stock alerts, kept current by the low-stock monitor
+        lowStockListModel = new DefaultListModel<>();
+        JList<LowStockAlert> lowStockList = new JList<>(lowStockListModel);
+        lowStockList.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        lowStockList.setVisibleRowCount(6);
+        JScrollPane lowStockScrollPane = new JScrollPane(lowStockList);
+        lowStockScrollPane.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Low Stock Alerts"));
+        add(lowStockScrollPane, BorderLayout.SOUTH);
     }
 
     private JLabel createStatLabel(String prefix) {
@@ -83,31 +112,88 @@ public class DashboardPanel extends JPanel {
         return label;
     }
 
+    private BigDecimal sumPurchases() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Purchase purchase : Repositories.purchases().getAllPurchases()) {
+            total = total.add(purchase.getTotalPrice());
+        }
+        return total;
+    }
+
     private void loadDashboardData() {
-        // Total Books
-        List<Book> allBooks = bookDAO.getAllBooks();
-        totalBooksLabel.setText("Total Books: " + allBooks.size());
+        // Total Books and Stock Value, from the resident columnar snapshot instead of loading every book
+        CatalogueSnapshot snapshot = CatalogueSnapshotService.getInstance().get();
+        if (snapshot != null) {
+            totalBooksLabel.setText("Total Books: " + snapshot.size());
+            stockValueLabel.setText("Stock Value: $" + String.format("%.2f", snapshot.stockValueCents() / 100.0));
+        }
 
         // Total Categories
-        totalCategoriesLabel.setText("Total Categories: " + new dao.CategoryDAO().getAllCategories().size());
+        totalCategoriesLabel.setText("Total Categories: " + categoryRepository.getAllCategories().size());
 
         // Total Users (only for Owner)
         if ("Owner".equals(loggedInUser.getRole())) {
-            totalUsersLabel.setText("Total Users: " + userDAO.getAllUsers().size());
+            totalUsersLabel.setText("Total Users: " + userRepository.getAllUsers().size());
         }
 
-        // Total Sales Revenue
-        List<Purchase> allPurchases = purchaseDAO.getAllPurchases();
-        BigDecimal totalRevenue = allPurchases.stream()
-                .map(Purchase::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Total Sales Revenue (answered from the daily rollup, not by summing every purchase)
+        totalRevenue = Repositories.isInMemory() ? sumPurchases() : salesRollupDAO.getTotalRevenue();
         totalSalesLabel.setText("Total Sales Revenue: $" + String.format("%.2f", totalRevenue));
 
-        // Low Stock Books
-        long lowStockCount = allBooks.stream()
-                .filter(book -> book.getQuantity() < 10)
-                .count();
-        lowStockBooksLabel.setText("Low Stock Books (<10): " + lowStockCount);
+        // Low Stock Books (maintained incrementally by the monitor, no catalogue scan)
+        lowStockListModel.clear();
+        LowStockMonitor.getInstance().getAlerts().forEach(lowStockListModel::addElement);
+        updateLowStockLabel();
+    }
+
+    private void updateLowStockLabel() {
+        lowStockBooksLabel.setText("Low Stock Books: " + lowStockListModel.size());
+    }
+
+    /**
+     * Patches the alert list; alerts are kept lowest stock first.
+     */
+    private void applyLowStockAlert(LowStockAlertEvent event) {
+        LowStockAlert alert = event.getAlert();
+        for (int i = 0; i < lowStockListModel.size(); i++) {
+            if (lowStockListModel.get(i).getBookId() == alert.getBookId()) {
+                lowStockListModel.remove(i);
+                break;
+            }
+        }
+        if (event.getKind() != LowStockAlertEvent.Kind.CLEARED) {
+            int index = 0;
+            while (index < lowStockListModel.size() && lowStockListModel.get(index).getQuantity() <= alert.getQuantity()) {
+                index++;
+            }
+            lowStockListModel.add(index, alert);
+        }
+        updateLowStockLabel();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus bus = EventBus.getInstance();
+        // Purchases and stock changes are applied to the displayed figures without re-querying
+        subscriptions.add(bus.subscribeOnEdt(PurchaseRecordedEvent.class, e -> {
+            totalRevenue = totalRevenue.add(e.getPurchase().getTotalPrice());
+            totalSalesLabel.setText("Total Sales Revenue: $" + String.format("%.2f", totalRevenue));
+        }));
+        subscriptions.add(bus.subscribeOnEdt(LowStockAlertEvent.class, this::applyLowStockAlert));
+        // Catalogue edits are rare owner operations; their old values are unknown, so reload
+        subscriptions.add(bus.subscribeOnEdt(BookAddedEvent.class, e -> loadDashboardData()));
+        subscriptions.add(bus.subscribeOnEdt(BookUpdatedEvent.class, e -> loadDashboardData()));
+        subscriptions.add(bus.subscribeOnEdt(BookDeletedEvent.class, e -> loadDashboardData()));
+        subscriptions.add(bus.subscribeOnEdt(BooksChangedEvent.class, e -> loadDashboardData()));
+        subscriptions.add(bus.subscribeOnEdt(CategoryChangedEvent.class, e -> loadDashboardData()));
+    }
+
+    @Override
+    public void removeNotify() {
+        subscriptions.forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+        super.removeNotify();
     }
 }
 
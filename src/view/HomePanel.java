@@ -2,6 +2,15 @@ package view;
 
 import controller.BookController;
 import controller.CategoryController;
+import event.BookAddedEvent;
+import event.BookDeletedEvent;
+import event.BookUpdatedEvent;
+import event.BooksChangedEvent;
+import event.CategoryChangedEvent;
+import event.EventBus;
+import event.PricesChangedEvent;
+import event.StockChangedEvent;
+import event.Subscription;
 import model.Book;
 import model.Category;
 import model.User;
@@ -13,9 +22,12 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Home Panel for users to browse books by category and make purchases.
@@ -32,6 +44,8 @@ public class HomePanel extends JPanel {
     private final int PAGE_SIZE = BOOKS_PER_ROW;
 
     private Map<Integer, Integer> categoryOffsets;
+    private Map<Integer, JPanel> bookCards; // Displayed card per book ID, patched by stock events
+    private final List<Subscription> subscriptions = new ArrayList<>();
 
     public HomePanel(User user, MainFrame mainFrame) { // Constructor now accepts MainFrame
         this.loggedInUser = user;
@@ -39,6 +53,7 @@ public class HomePanel extends JPanel {
         bookController = new BookController();
         categoryController = new CategoryController();
         categoryOffsets = new HashMap<>();
+        bookCards = new HashMap<>();
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -58,6 +73,63 @@ public class HomePanel extends JPanel {
         add(categoryTabbedPane, BorderLayout.CENTER);
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        EventBus bus = EventBus.getInstance();
+        subscriptions.add(bus.subscribeOnEdt(StockChangedEvent.class, e -> updateBookCardStock(e.getBookId(), e.getQuantity())));
+        subscriptions.add(bus.subscribeOnEdt(BookAddedEvent.class, e -> refreshCategoryPanel(e.getBook().getCategoryId())));
+        subscriptions.add(bus.subscribeOnEdt(BookUpdatedEvent.class, e -> {
+            // The book may have moved to another category, so reload both tabs
+            JPanel card = bookCards.get(e.getBook().getId());
+            if (card != null) {
+                Book shown = (Book) card.getClientProperty("book");
+                if (shown.getCategoryId() != e.getBook().getCategoryId()) {
+                    refreshCategoryPanel(shown.getCategoryId());
+                }
+            }
+            refreshCategoryPanel(e.getBook().getCategoryId());
+        }));
+        subscriptions.add(bus.subscribeOnEdt(BookDeletedEvent.class, e -> removeBookCard(e.getBookId())));
+        subscriptions.add(bus.subscribeOnEdt(BooksChangedEvent.class, e -> {
+            e.getDeletedBookIds().forEach(this::removeBookCard);
+            // Reload each affected category tab once for the whole batch
+            Set<Integer> categoryIds = new HashSet<>();
+            for (Book book : e.getUpdatedBooks()) {
+                categoryIds.add(book.getCategoryId());
+                JPanel card = bookCards.get(book.getId());
+                if (card != null) {
+                    categoryIds.add(((Book) card.getClientProperty("book")).getCategoryId());
+                }
+            }
+            categoryIds.forEach(this::refreshCategoryPanel);
+        }));
+        subscriptions.add(bus.subscribeOnEdt(PricesChangedEvent.class, e -> {
+            for (Map.Entry<Integer, BigDecimal> entry : e.getNewPrices().entrySet()) {
+                JPanel card = bookCards.get(entry.getKey());
+                if (card != null) {
+                    ((Book) card.getClientProperty("book")).setPrice(entry.getValue());
+                    ((JLabel) card.getClientProperty("priceLabel")).setText("Price: $" + String.format("%.2f", entry.getValue()));
+                }
+            }
+        }));
+        subscriptions.add(bus.subscribeOnEdt(CategoryChangedEvent.class, e -> reloadCategoryTabs()));
+    }
+
+    @Override
+    public void removeNotify() {
+        subscriptions.forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+        super.removeNotify();
+    }
+
+    private void reloadCategoryTabs() {
+        categoryTabbedPane.removeAll();
+        categoryOffsets.clear();
+        bookCards.clear();
+        loadCategoriesAndBooks();
+    }
+
     private void loadCategoriesAndBooks() {
         List<Category> categories = categoryController.getAllCategories();
         if (categories.isEmpty()) {
@@ -129,12 +201,18 @@ public class HomePanel extends JPanel {
 
         // If this is the first load (offset is 0), clear existing cards
         if (currentOffset == 0) {
+            for (Component oldCard : booksContainer.getComponents()) {
+                Book shown = (Book) ((JComponent) oldCard).getClientProperty("book");
+                bookCards.remove(shown.getId(), oldCard);
+            }
             booksContainer.removeAll();
         }
 
         // Add new book cards to the container
         for (Book book : books) {
-            booksContainer.add(createBookCard(book));
+            JPanel card = createBookCard(book);
+            bookCards.put(book.getId(), card);
+            booksContainer.add(card);
         }
 
         // Update the offset for the next load
@@ -197,6 +275,9 @@ public class HomePanel extends JPanel {
         detailsPanel.add(priceLabel);
 
         JLabel quantityLabel = new JLabel("Stock: " + book.getQuantity());
+        card.putClientProperty("book", book);
+        card.putClientProperty("quantityLabel", quantityLabel);
+        card.putClientProperty("priceLabel", priceLabel);
         quantityLabel.setFont(new Font("Arial", Font.PLAIN, 11));
         detailsPanel.add(quantityLabel);
 
@@ -211,6 +292,7 @@ public class HomePanel extends JPanel {
             styleCardButton(buyButton, new Color(60, 179, 113)); // MediumSeaGreen
             buyButton.setEnabled(book.getQuantity() > 0); // Disable if out of stock
             buyButton.addActionListener(e -> showPurchaseDialog(book));
+            card.putClientProperty("buyButton", buyButton);
             buttonPanel.add(buyButton);
         } else if ("Owner".equals(loggedInUser.getRole())) {
             // For Owner, enable direct Edit/Delete from Home tab
@@ -236,12 +318,8 @@ public class HomePanel extends JPanel {
                         "Confirm Delete", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
                     if (bookController.deleteBook(book.getId())) {
+                        // The card and the BookPanel row are removed by the BookDeletedEvent
                         JOptionPane.showMessageDialog(this, "'" + book.getTitle() + "' deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        refreshCurrentCategoryPanel(); // Refresh the home panel after deletion
-                        // Also refresh the BookPanel table if it's open
-                        if (mainFrame != null) {
-                            mainFrame.getBookPanel().refreshBookTable();
-                        }
                     } else {
                         JOptionPane.showMessageDialog(this, "Failed to delete '" + book.getTitle() + "'. It might be referenced by purchases.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
@@ -301,8 +379,8 @@ public class HomePanel extends JPanel {
                 if (confirm == JOptionPane.YES_OPTION) {
                     // Process the purchase through the BookController
                     if (bookController.processPurchase(book.getId(), quantityToBuy, loggedInUser.getId())) {
+                        // The stock label is updated by the StockChangedEvent
                         JOptionPane.showMessageDialog(this, "Purchase successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                        refreshCurrentCategoryPanel(); // Refresh the display after successful purchase
                     } else {
                         JOptionPane.showMessageDialog(this, "Purchase failed. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
@@ -314,31 +392,57 @@ public class HomePanel extends JPanel {
     }
 
     /**
-     * Refreshes the currently active category panel to reflect updated book quantities
-     * or newly loaded books.
+     * Updates the stock label and buy button of a displayed book card.
+     * @param bookId The ID of the book.
+     * @param quantity The new stock quantity.
      */
-    private void refreshCurrentCategoryPanel() {
-        int selectedIndex = categoryTabbedPane.getSelectedIndex();
-        if (selectedIndex != -1) {
-            // Get the JScrollPane which is the component for the selected tab
-            JComponent selectedTabComponent = (JComponent) categoryTabbedPane.getComponentAt(selectedIndex);
-
-            // Retrieve the Category object directly from the JScrollPane's client property
-            Category category = (Category) selectedTabComponent.getClientProperty("categoryObject");
+    private void updateBookCardStock(int bookId, int quantity) {
+        JPanel card = bookCards.get(bookId);
+        if (card == null) {
+            return; // Not displayed
+        }
+        ((Book) card.getClientProperty("book")).setQuantity(quantity);
+        ((JLabel) card.getClientProperty("quantityLabel")).setText("Stock: " + quantity);
+        JButton buyButton = (JButton) card.getClientProperty("buyButton");
+        if (buyButton != null) {
+            buyButton.setEnabled(quantity > 0);
+        }
+    }
 
-            // Ensure we have a valid category and the component is a JScrollPane
-            if (category != null && selectedTabComponent instanceof JScrollPane) {
-                JScrollPane scrollPane = (JScrollPane) selectedTabComponent;
-                Component viewportView = scrollPane.getViewport().getView();
+    /**
+     * Removes a displayed book card, e.g. after the book was deleted.
+     * @param bookId The ID of the book.
+     */
+    private void removeBookCard(int bookId) {
+        JPanel card = bookCards.remove(bookId);
+        if (card == null) {
+            return;
+        }
+        Book book = (Book) card.getClientProperty("book");
+        // One less book is loaded, so "Show More" must continue one position earlier
+        categoryOffsets.computeIfPresent(book.getCategoryId(), (id, offset) -> Math.max(0, offset - 1));
+        Container booksContainer = card.getParent();
+        booksContainer.remove(card);
+        booksContainer.revalidate();
+        booksContainer.repaint();
+    }
 
-                // Ensure the viewport view is the JPanel containing the book cards
+    /**
+     * Reloads the first page of a category's tab, e.g. after a book was added to it.
+     * @param categoryId The ID of the category.
+     */
+    private void refreshCategoryPanel(int categoryId) {
+        for (int i = 0; i < categoryTabbedPane.getTabCount(); i++) {
+            JComponent tabComponent = (JComponent) categoryTabbedPane.getComponentAt(i);
+            Category category = (Category) tabComponent.getClientProperty("categoryObject");
+            if (category != null && category.getId() == categoryId && tabComponent instanceof JScrollPane) {
+                Component viewportView = ((JScrollPane) tabComponent).getViewport().getView();
                 if (viewportView instanceof JPanel) {
-                    JPanel categoryPanel = (JPanel) viewportView;
-                    // Reset the offset for the current category to reload from the beginning
-                    categoryOffsets.put(category.getId(), 0);
-                    // Reload books for this category. This will clear existing cards and add fresh ones.
-                    loadBooksForCategory(category, categoryPanel, INITIAL_ROWS_PER_CATEGORY * BOOKS_PER_ROW);
+                    // Reset the offset to reload from the beginning
+                    categoryOffsets.put(categoryId, 0);
+                    loadBooksForCategory(category, (JPanel) viewportView, INITIAL_ROWS_PER_CATEGORY * BOOKS_PER_ROW);
                 }
+                return;
             }
         }
     }
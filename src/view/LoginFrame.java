@@ -1,7 +1,8 @@
 package view;
 
-import dao.UserDAO;
 import model.User;
+import repository.Repositories;
+import repository.UserRepository;
 
 import javax.swing.*;
 import java.awt.*;
@@ -15,7 +16,7 @@ public class LoginFrame extends JFrame {
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JButton loginButton;
-    private UserDAO userDAO;
+    private UserRepository userRepository;
 
     public LoginFrame() {
         setTitle("Login - Book Stock Management");
@@ -24,7 +25,7 @@ public class LoginFrame extends JFrame {
         setLocationRelativeTo(null); // Center the window
         setResizable(false);
 
-        userDAO = new UserDAO();
+        userRepository = Repositories.users();
 
         initComponents();
         addListeners();
@@ -107,7 +108,7 @@ public class LoginFrame extends JFrame {
         String username = usernameField.getText();
         String password = new String(passwordField.getPassword());
 
-        User user = userDAO.getUserByUsername(username);
+        User user = userRepository.getUserByUsername(username);
 
         if (user != null && user.getPassword().equals(password)) { // In a real app, compare hashed passwords
             JOptionPane.showMessageDialog(this, "Login Successful! Welcome, " + user.getUsername() + " (" + user.getRole() + ")", "Success", JOptionPane.INFORMATION_MESSAGE);
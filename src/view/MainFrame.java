@@ -1,6 +1,10 @@
 package view;
 
+import event.ConnectivityChangedEvent;
+import event.EventBus;
+import event.Subscription;
 import model.User;
+import offline.SyncManager;
 
 import javax.swing.*;
 import java.awt.*;
@@ -15,6 +19,8 @@ public class MainFrame extends JFrame {
     private User loggedInUser;
     private JTabbedPane tabbedPane;
     private BookPanel bookPanel; // Keep a reference to BookPanel
+    private JLabel connectivityLabel;
+    private Subscription connectivitySubscription;
 
     public MainFrame(User user) {
         this.loggedInUser = user;
@@ -50,11 +56,14 @@ public class MainFrame extends JFrame {
         tabbedPane.addTab("Home", new HomePanel(loggedInUser, this));
         tabbedPane.addTab("Dashboard", new DashboardPanel(loggedInUser));
         tabbedPane.addTab("Search Books", new SearchPanel());
+        tabbedPane.addTab("Scanner Checkout", new ScannerCheckoutPanel(loggedInUser));
+        tabbedPane.addTab("Purchase History", new PurchaseHistoryPanel(loggedInUser));
 
         if ("Owner".equals(loggedInUser.getRole())) {
             tabbedPane.addTab("Books", bookPanel); // Use the initialized bookPanel
             tabbedPane.addTab("Categories", new CategoryPanel());
             tabbedPane.addTab("Users", new UserPanel());
+            tabbedPane.addTab("Reports", new ReportPanel());
         }
 
         add(tabbedPane, BorderLayout.CENTER);
@@ -80,10 +89,43 @@ public class MainFrame extends JFrame {
         JLabel userLabel = new JLabel("  Logged in as: " + loggedInUser.getUsername() + " (" + loggedInUser.getRole() + ")  ");
         userLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         topPanel.add(userLabel, BorderLayout.WEST);
+        connectivityLabel = new JLabel("", SwingConstants.CENTER);
+        connectivityLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        SyncManager sync = SyncManager.getInstance();
+        updateConnectivityLabel(sync.isOnline(), sync.getPendingOperations());
+        topPanel.add(connectivityLabel, BorderLayout.CENTER);
         topPanel.add(logoutButton, BorderLayout.EAST);
         add(topPanel, BorderLayout.NORTH);
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        connectivitySubscription = EventBus.getInstance().subscribeOnEdt(ConnectivityChangedEvent.class,
+                e -> updateConnectivityLabel(e.isOnline(), e.getPendingOperations()));
+    }
+
+    @Override
+    public void removeNotify() {
+        if (connectivitySubscription != null) {
+            connectivitySubscription.unsubscribe();
+            connectivitySubscription = null;
+        }
+        super.removeNotify();
+    }
+
+    private void updateConnectivityLabel(boolean online, int pendingOperations) {
+        if (!online) {
+            connectivityLabel.setText("OFFLINE - " + pendingOperations + " change(s) waiting to sync");
+            connectivityLabel.setForeground(new Color(220, 20, 60));
+        } else if (pendingOperations > 0) {
+            connectivityLabel.setText("Syncing " + pendingOperations + " offline change(s)...");
+            connectivityLabel.setForeground(new Color(255, 140, 0));
+        } else {
+            connectivityLabel.setText("");
+        }
+    }
+
     /**
      * Returns the instance of the BookPanel. This allows other panels (like HomePanel)
      * to interact with the BookPanel's methods.
@@ -0,0 +1,193 @@
+package view;
+
+import controller.PurchaseController;
+import event.EventBus;
+import event.PurchaseRecordedEvent;
+import event.Subscription;
+import model.Purchase;
+import model.PurchasePage;
+import model.PurchaseQuery;
+import model.User;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Panel for browsing purchase history by date range, book and (for the owner) user.
+ * Loads one page at a time and fetches the next page when the table is scrolled near its end,
+ * so opening the history of a busy store reads 50 rows instead of every purchase.
+ */
+public class PurchaseHistoryPanel extends JPanel {
+    private static final String[] COLUMNS = {"ID", "Date", "Book ID", "Title", "Price", "Qty", "Total", "User ID"};
+    private static final int PREFETCH_ROWS = 10; // Load the next page when this close to the last row
+
+    private final User loggedInUser;
+    private final boolean owner;
+    private PurchaseController purchaseController;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    private JTextField fromField; // YYYY-MM-DD, empty = no lower bound
+    private JTextField toField;   // YYYY-MM-DD, empty = no upper bound
+    private JTextField bookIdField;
+    private JTextField userIdField;
+    private JButton searchButton;
+    private JLabel statusLabel;
+    private JTable purchaseTable;
+    private DefaultTableModel tableModel;
+
+    private PurchaseQuery currentQuery; // Criteria of the rows shown
+    private PurchaseQuery nextQuery;    // Null when the last page is loaded
+
+    public PurchaseHistoryPanel(User loggedInUser) {
+        this.loggedInUser = loggedInUser;
+        this.owner = "Owner".equals(loggedInUser.getRole());
+        purchaseController = new PurchaseController();
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        initComponents();
+        searchButton.addActionListener(e -> search());
+        search();
+    }
+
+    private void initComponents() {
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        fromField = new JTextField(10);
+        toField = new JTextField(10);
+        bookIdField = new JTextField(6);
+        userIdField = new JTextField(6);
+        searchButton = new JButton("Search");
+        searchButton.setFont(new Font("Arial", Font.BOLD, 12));
+        searchButton.setBackground(new Color(70, 130, 180)); // SteelBlue
+        searchButton.setForeground(Color.WHITE);
+        searchButton.setFocusPainted(false);
+
+        topPanel.add(new JLabel("From (YYYY-MM-DD):"));
+        topPanel.add(fromField);
+        topPanel.add(new JLabel("To:"));
+        topPanel.add(toField);
+        topPanel.add(new JLabel("Book ID:"));
+        topPanel.add(bookIdField);
+        if (owner) {
+            topPanel.add(new JLabel("User ID:"));
+            topPanel.add(userIdField);
+        }
+        topPanel.add(searchButton);
+        add(topPanel, BorderLayout.NORTH);
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Make table cells non-editable
+            }
+        };
+        purchaseTable = new JTable(tableModel);
+        purchaseTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        purchaseTable.setRowHeight(25);
+        purchaseTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        purchaseTable.getColumnModel().getColumn(3).setPreferredWidth(300);
+        JScrollPane scrollPane = new JScrollPane(purchaseTable);
+        // Fetch the next page as the user scrolls towards the end of the loaded rows
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting() && nextQuery != null) {
+                JScrollBar bar = (JScrollBar) e.getAdjustable();
+                int remaining = bar.getMaximum() - (bar.getValue() + bar.getVisibleAmount());
+                if (remaining <= PREFETCH_ROWS * purchaseTable.getRowHeight()) {
+                    loadNextPage();
+                }
+            }
+        });
+        add(scrollPane, BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ");
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    private void search() {
+        PurchaseQuery query = new PurchaseQuery();
+        try {
+            query.setFrom(parseDate(fromField.getText()));
+            query.setTo(parseDate(toField.getText()));
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Dates must be in YYYY-MM-DD format.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (query.getFrom() != null && query.getTo() != null && query.getTo().isBefore(query.getFrom())) {
+            JOptionPane.showMessageDialog(this, "The end date must not be before the start date.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        try {
+            query.setBookId(parseId(bookIdField.getText()));
+            query.setUserId(owner ? parseId(userIdField.getText()) : loggedInUser.getId());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Book ID and User ID must be numbers.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        currentQuery = query;
+        nextQuery = query;
+        tableModel.setRowCount(0);
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        PurchaseQuery query = nextQuery;
+        nextQuery = null; // Also keeps scroll events fired by the new rows from loading the same page again
+        long start = System.nanoTime();
+        PurchasePage page = purchaseController.findPurchases(query, loggedInUser);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        for (Purchase purchase : page.getPurchases()) {
+            tableModel.addRow(toRow(purchase));
+        }
+        nextQuery = page.getNextQuery();
+        statusLabel.setText(tableModel.getRowCount() + (page.hasMore() ? "+" : "") + " purchases (page loaded in "
+                + elapsedMillis + " ms)");
+    }
+
+    private Vector<Object> toRow(Purchase purchase) {
+        Vector<Object> row = new Vector<>();
+        row.add(purchase.getId());
+        row.add(purchase.getPurchaseDate());
+        row.add(purchase.getBookId());
+        row.add(purchase.getBookTitle());
+        row.add(purchase.getBookPrice());
+        row.add(purchase.getQuantity());
+        row.add(purchase.getTotalPrice());
+        row.add(purchase.getUserId());
+        return row;
+    }
+
+    private static LocalDate parseDate(String text) {
+        return text.trim().isEmpty() ? null : LocalDate.parse(text.trim());
+    }
+
+    private static int parseId(String text) {
+        return text.trim().isEmpty() ? 0 : Integer.parseInt(text.trim());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // New purchases matching the current criteria go on top; the loaded pages stay valid below them
+        subscriptions.add(EventBus.getInstance().subscribeOnEdt(PurchaseRecordedEvent.class, e -> {
+            Purchase purchase = e.getPurchase();
+            if (currentQuery != null && currentQuery.matches(purchase)) {
+                tableModel.insertRow(0, toRow(purchase));
+            }
+        }));
+    }
+
+    @Override
+    public void removeNotify() {
+        subscriptions.forEach(Subscription::unsubscribe);
+        subscriptions.clear();
+        super.removeNotify();
+    }
+}
@@ -0,0 +1,168 @@
+package view;
+
+import controller.ReportController;
+import model.ReorderSuggestion;
+import model.SalesSummary;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Panel for sales analytics: top sellers, revenue by category, units by author and daily revenue
+ * for an arbitrary date range. This panel is typically accessible only by Owner users.
+ */
+public class ReportPanel extends JPanel {
+    private static final String TOP_SELLERS = "Top Sellers";
+    private static final String REVENUE_BY_CATEGORY = "Revenue by Category";
+    private static final String UNITS_BY_AUTHOR = "Units by Author";
+    private static final String DAILY_REVENUE = "Daily Revenue";
+    private static final String REORDER = "Reorder Suggestions";
+    private static final String[] SUMMARY_COLUMNS = {"#", "Name", "Units Sold", "Revenue"};
+    private static final String[] REORDER_COLUMNS = {"#", "Title", "In Stock", "Sold per Day", "Days Left", "Order Qty"};
+
+    private ReportController reportController;
+
+    private JComboBox<String> reportComboBox;
+    private JTextField fromField; // YYYY-MM-DD
+    private JTextField toField;   // YYYY-MM-DD
+    private JSpinner limitSpinner;
+    private JButton runButton;
+    private JLabel statusLabel;
+    private JTable reportTable;
+    private DefaultTableModel tableModel;
+
+    public ReportPanel() {
+        reportController = new ReportController();
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        initComponents();
+        runButton.addActionListener(e -> runReport());
+    }
+
+    private void initComponents() {
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        reportComboBox = new JComboBox<>(new String[]{TOP_SELLERS, REVENUE_BY_CATEGORY, UNITS_BY_AUTHOR, DAILY_REVENUE, REORDER});
+        fromField = new JTextField(LocalDate.now().withDayOfMonth(1).toString(), 10);
+        toField = new JTextField(LocalDate.now().toString(), 10);
+        limitSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 1000, 5));
+        runButton = new JButton("Run Report");
+        runButton.setFont(new Font("Arial", Font.BOLD, 12));
+        runButton.setBackground(new Color(70, 130, 180)); // SteelBlue
+        runButton.setForeground(Color.WHITE);
+        runButton.setFocusPainted(false);
+
+        topPanel.add(new JLabel("Report:"));
+        topPanel.add(reportComboBox);
+        topPanel.add(new JLabel("From (YYYY-MM-DD):"));
+        topPanel.add(fromField);
+        topPanel.add(new JLabel("To:"));
+        topPanel.add(toField);
+        topPanel.add(new JLabel("Top N:"));
+        topPanel.add(limitSpinner);
+        topPanel.add(runButton);
+        add(topPanel, BorderLayout.NORTH);
+
+        tableModel = new DefaultTableModel(SUMMARY_COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Make table cells non-editable
+            }
+        };
+        reportTable = new JTable(tableModel);
+        reportTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        reportTable.setRowHeight(25);
+        reportTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        setColumns(SUMMARY_COLUMNS);
+        add(new JScrollPane(reportTable), BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ");
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    private void setColumns(String[] columnNames) {
+        tableModel.setColumnIdentifiers(columnNames);
+        reportTable.getColumnModel().getColumn(0).setPreferredWidth(30);
+        reportTable.getColumnModel().getColumn(1).setPreferredWidth(300);
+    }
+
+    private void runReport() {
+        if (REORDER.equals(reportComboBox.getSelectedItem())) {
+            runReorderReport(); // Not date-based: uses current stock and recent sales velocity
+            return;
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(fromField.getText().trim());
+            to = LocalDate.parse(toField.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Dates must be in YYYY-MM-DD format.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "The end date must not be before the start date.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int limit = (Integer) limitSpinner.getValue();
+        String report = (String) reportComboBox.getSelectedItem();
+        long start = System.nanoTime();
+        List<SalesSummary> rows;
+        if (TOP_SELLERS.equals(report)) {
+            rows = reportController.getTopSellers(from, to, limit);
+        } else if (REVENUE_BY_CATEGORY.equals(report)) {
+            rows = reportController.getRevenueByCategory(from, to);
+        } else if (UNITS_BY_AUTHOR.equals(report)) {
+            rows = reportController.getUnitsByAuthor(from, to, limit);
+        } else {
+            rows = reportController.getDailyRevenue(from, to);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (rows == null) {
+            statusLabel.setText("Report failed");
+            JOptionPane.showMessageDialog(this, "Failed to load the report. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        setColumns(SUMMARY_COLUMNS);
+        tableModel.setRowCount(0);
+        int rank = 1;
+        for (SalesSummary summary : rows) {
+            Vector<Object> row = new Vector<>();
+            row.add(rank++);
+            row.add(summary.getLabel());
+            row.add(summary.getUnits());
+            row.add(summary.getRevenue());
+            tableModel.addRow(row);
+        }
+        statusLabel.setText(rows.size() + " rows in " + elapsedMillis + " ms");
+    }
+
+    private void runReorderReport() {
+        int limit = (Integer) limitSpinner.getValue();
+        long start = System.nanoTime();
+        List<ReorderSuggestion> suggestions = reportController.getReorderSuggestions(limit);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        setColumns(REORDER_COLUMNS);
+        tableModel.setRowCount(0);
+        int rank = 1;
+        for (ReorderSuggestion suggestion : suggestions) {
+            Vector<Object> row = new Vector<>();
+            row.add(rank++);
+            row.add(suggestion.getTitle());
+            row.add(suggestion.getQuantity());
+            row.add(String.format("%.2f", suggestion.getUnitsPerDay()));
+            row.add(String.format("%.1f", suggestion.getDaysUntilStockout()));
+            row.add(suggestion.getSuggestedQuantity());
+            tableModel.addRow(row);
+        }
+        statusLabel.setText(suggestions.size() + " books to reorder in " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,191 @@
+package view;
+
+import controller.BookController;
+import controller.CategoryController;
+import model.BookFilter;
+import model.Category;
+import model.RepricePreview;
+import model.RepriceResult;
+import model.RepriceRule;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.math.BigDecimal;
+
+/**
+ * Dialog for repricing all books that match a filter (category, author, price range) at once.
+ * The owner previews the number of matching books and a sample before applying the change.
+ */
+public class RepriceDialog extends JDialog {
+    private BookController bookController;
+    private CategoryController categoryController;
+
+    private JComboBox<Category> categoryComboBox;
+    private JTextField authorField;
+    private JTextField minPriceField;
+    private JTextField maxPriceField;
+    private JComboBox<RepriceRule.Mode> modeComboBox;
+    private JTextField amountField;
+    private JComboBox<RepriceRule.Rounding> roundingComboBox;
+    private JTextArea previewArea;
+    private JButton applyButton;
+    private BookFilter previewedFilter; // What Apply changes: the books and rule of the last preview
+    private RepriceRule previewedRule;
+
+    public RepriceDialog(Window owner, BookController bookController) {
+        super(owner, "Bulk Reprice", ModalityType.APPLICATION_MODAL);
+        this.bookController = bookController;
+        this.categoryController = new CategoryController();
+        setLayout(new BorderLayout(10, 10));
+
+        initComponents();
+        setSize(600, 500);
+        setLocationRelativeTo(owner);
+    }
+
+    private void initComponents() {
+        JPanel formPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        formPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Books and Rule"));
+
+        DefaultComboBoxModel<Category> categoryModel = new DefaultComboBoxModel<>();
+        categoryModel.addElement(new Category(0, "Any Category"));
+        for (Category category : categoryController.getAllCategories()) {
+            categoryModel.addElement(category);
+        }
+        categoryComboBox = new JComboBox<>(categoryModel);
+        authorField = new JTextField();
+        minPriceField = new JTextField();
+        maxPriceField = new JTextField();
+        modeComboBox = new JComboBox<>(RepriceRule.Mode.values());
+        amountField = new JTextField("5");
+        roundingComboBox = new JComboBox<>(RepriceRule.Rounding.values());
+
+        formPanel.add(new JLabel("Category:"));
+        formPanel.add(categoryComboBox);
+        formPanel.add(new JLabel("Author contains:"));
+        formPanel.add(authorField);
+        formPanel.add(new JLabel("Min. price:"));
+        formPanel.add(minPriceField);
+        formPanel.add(new JLabel("Max. price:"));
+        formPanel.add(maxPriceField);
+        formPanel.add(new JLabel("Change (PERCENT = %, ABSOLUTE = amount):"));
+        formPanel.add(modeComboBox);
+        formPanel.add(new JLabel("Amount (+/-):"));
+        formPanel.add(amountField);
+        formPanel.add(new JLabel("Rounding:"));
+        formPanel.add(roundingComboBox);
+        add(formPanel, BorderLayout.NORTH);
+
+        previewArea = new JTextArea();
+        previewArea.setEditable(false);
+        previewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(previewArea), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 5));
+        JButton previewButton = new JButton("Preview");
+        applyButton = new JButton("Apply");
+        JButton closeButton = new JButton("Close");
+        applyButton.setEnabled(false); // Only after a preview
+        buttonPanel.add(previewButton);
+        buttonPanel.add(applyButton);
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        previewButton.addActionListener(e -> preview());
+        applyButton.addActionListener(e -> apply());
+        closeButton.addActionListener(e -> dispose());
+
+        // Any change after a preview needs a new one before applying
+        DocumentListener fieldListener = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                formChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                formChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                formChanged();
+            }
+        };
+        for (JTextField field : new JTextField[]{authorField, minPriceField, maxPriceField, amountField}) {
+            field.getDocument().addDocumentListener(fieldListener);
+        }
+        for (JComboBox<?> comboBox : new JComboBox<?>[]{categoryComboBox, modeComboBox, roundingComboBox}) {
+            comboBox.addActionListener(e -> formChanged());
+        }
+    }
+
+    private void formChanged() {
+        previewedFilter = null;
+        previewedRule = null;
+        applyButton.setEnabled(false);
+    }
+
+    private BookFilter readFilter() {
+        Category category = (Category) categoryComboBox.getSelectedItem();
+        return new BookFilter(
+                category != null ? category.getId() : 0,
+                authorField.getText().trim(),
+                parseOptionalPrice(minPriceField.getText()),
+                parseOptionalPrice(maxPriceField.getText()));
+    }
+
+    private RepriceRule readRule() {
+        return new RepriceRule(
+                (RepriceRule.Mode) modeComboBox.getSelectedItem(),
+                new BigDecimal(amountField.getText().trim()),
+                (RepriceRule.Rounding) roundingComboBox.getSelectedItem());
+    }
+
+    private BigDecimal parseOptionalPrice(String text) {
+        return text.trim().isEmpty() ? null : new BigDecimal(text.trim());
+    }
+
+    private void preview() {
+        BookFilter filter;
+        RepriceRule rule;
+        RepricePreview preview;
+        try {
+            filter = readFilter();
+            rule = readRule();
+            preview = bookController.previewReprice(filter, rule);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Prices and amount must be valid numbers.", "Validation Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(preview.getMatchCount()).append(" books get a new price.\n\n");
+        for (RepricePreview.Sample sample : preview.getSamples()) {
+            text.append(String.format("%6d  %-40.40s %10s -> %10s%n",
+                    sample.getBookId(), sample.getTitle(), sample.getOldPrice(), sample.getNewPrice()));
+        }
+        if (preview.getMatchCount() > preview.getSamples().size()) {
+            text.append("...\n");
+        }
+        previewArea.setText(text.toString());
+        previewedFilter = filter;
+        previewedRule = rule;
+        applyButton.setEnabled(preview.getMatchCount() > 0);
+    }
+
+    private void apply() {
+        int confirm = JOptionPane.showConfirmDialog(this, "Apply the new prices?", "Confirm Reprice", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION || previewedFilter == null) {
+            return;
+        }
+        RepriceResult result = bookController.repriceBooks(previewedFilter, previewedRule);
+        if (result.isSuccess()) {
+            previewArea.append("\nUpdated " + result.getUpdatedCount() + " books in " + result.getElapsedMillis() + " ms.\n");
+            formChanged(); // Applying the rule again would change the prices again
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to reprice books. Check logs.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
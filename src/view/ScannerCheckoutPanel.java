@@ -0,0 +1,254 @@
+package view;
+
+import controller.BookController;
+import model.BasketLine;
+import model.Book;
+import model.CheckoutResult;
+import model.Purchase;
+import model.User;
+import service.IsbnIndex;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapid checkout with a barcode scanner. A keyboard-wedge scanner types the ISBN followed by Enter into
+ * the scan field; each scan is resolved from the in-memory ISBN index and added to the basket without
+ * a database query. "3*9780132350884" adds three copies. The basket is sold in one transaction.
+ */
+public class ScannerCheckoutPanel extends JPanel {
+    private static final String[] COLUMNS = {"ISBN", "Title", "Unit Price", "Qty", "Line Total"};
+    private static final Color OK_COLOR = new Color(34, 139, 34);  // ForestGreen
+    private static final Color ERROR_COLOR = new Color(178, 34, 34); // FireBrick
+
+    private final User loggedInUser;
+    private BookController bookController;
+    private final List<BasketLine> lines = new ArrayList<>(); // Parallel to the table rows
+
+    private JTextField scanField;
+    private JLabel scanStatusLabel;
+    private JTable basketTable;
+    private DefaultTableModel tableModel;
+    private JLabel totalLabel;
+    private JButton removeButton;
+    private JButton clearButton;
+    private JButton completeButton;
+
+    public ScannerCheckoutPanel(User loggedInUser) {
+        this.loggedInUser = loggedInUser;
+        bookController = new BookController();
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        initComponents();
+        addListeners();
+        IsbnIndex.getInstance().prepare(); // Build the index now, not on the first scan
+    }
+
+    private void initComponents() {
+        JPanel topPanel = new JPanel(new BorderLayout(10, 5));
+        JLabel scanLabel = new JLabel("Scan or type ISBN:");
+        scanLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        scanField = new JTextField(20);
+        scanField.setFont(new Font("Monospaced", Font.PLAIN, 20));
+        scanStatusLabel = new JLabel("Ready to scan.");
+        scanStatusLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        topPanel.add(scanLabel, BorderLayout.WEST);
+        topPanel.add(scanField, BorderLayout.CENTER);
+        topPanel.add(scanStatusLabel, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Make table cells non-editable
+            }
+        };
+        basketTable = new JTable(tableModel);
+        basketTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        basketTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        basketTable.setRowHeight(28);
+        basketTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        basketTable.getColumnModel().getColumn(1).setPreferredWidth(350);
+        basketTable.setFocusable(false); // Keep the keyboard on the scan field
+        add(new JScrollPane(basketTable), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 5));
+        totalLabel = new JLabel("Total: $0.00");
+        totalLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        removeButton = new JButton("Remove Line (F8)");
+        clearButton = new JButton("Clear Basket");
+        completeButton = new JButton("Complete Sale (F12)");
+        completeButton.setFont(new Font("Arial", Font.BOLD, 14));
+        completeButton.setBackground(new Color(60, 179, 113)); // MediumSeaGreen
+        completeButton.setForeground(Color.WHITE);
+        completeButton.setFocusPainted(false);
+        for (JButton button : new JButton[]{removeButton, clearButton, completeButton}) {
+            button.setFocusable(false);
+            buttonPanel.add(button);
+        }
+        bottomPanel.add(totalLabel, BorderLayout.WEST);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void addListeners() {
+        scanField.addActionListener(e -> scan(scanField.getText()));
+        removeButton.addActionListener(e -> removeSelectedLine());
+        clearButton.addActionListener(e -> clearBasket());
+        completeButton.addActionListener(e -> completeSale());
+
+        InputMap inputMap = getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0), "completeSale");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F8, 0), "removeLine");
+        getActionMap().put("completeSale", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                completeSale();
+            }
+        });
+        getActionMap().put("removeLine", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                removeSelectedLine();
+            }
+        });
+
+        // Ready for the next scan whenever the tab is shown
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                scanField.requestFocusInWindow();
+            }
+        });
+    }
+
+    private void scan(String input) {
+        scanField.setText("");
+        String code = input.trim();
+        if (code.isEmpty()) {
+            return;
+        }
+        int quantity = 1;
+        int star = code.indexOf('*');
+        if (star > 0) {
+            try {
+                quantity = Integer.parseInt(code.substring(0, star).trim());
+            } catch (NumberFormatException e) {
+                quantity = 0;
+            }
+            code = code.substring(star + 1).trim();
+            if (quantity <= 0) {
+                reject("Invalid quantity in \"" + input.trim() + "\".");
+                return;
+            }
+        }
+
+        Book book = bookController.findBookByIsbn(code);
+        if (book == null) {
+            reject("Unknown ISBN: " + code);
+            return;
+        }
+        int row = rowOf(book.getId());
+        int inBasket = row >= 0 ? lines.get(row).getQuantity() : 0;
+        if (inBasket + quantity > book.getQuantity()) {
+            reject("Only " + book.getQuantity() + " of \"" + book.getTitle() + "\" in stock.");
+            return;
+        }
+
+        if (row >= 0) {
+            BasketLine line = lines.get(row);
+            line.setQuantity(inBasket + quantity);
+            tableModel.setValueAt(line.getQuantity(), row, 3);
+            tableModel.setValueAt(line.getLineTotal(), row, 4);
+        } else {
+            BasketLine line = new BasketLine(book.getId(), book.getIsbn(), book.getTitle(), book.getPrice(), quantity);
+            lines.add(line);
+            tableModel.addRow(new Object[]{line.getIsbn(), line.getTitle(), line.getUnitPrice(), line.getQuantity(), line.getLineTotal()});
+            row = lines.size() - 1;
+        }
+        basketTable.setRowSelectionInterval(row, row);
+        basketTable.scrollRectToVisible(basketTable.getCellRect(row, 0, true));
+        updateTotal();
+        scanStatusLabel.setForeground(OK_COLOR);
+        scanStatusLabel.setText("Added " + quantity + " x " + book.getTitle());
+    }
+
+    private void reject(String message) {
+        Toolkit.getDefaultToolkit().beep();
+        scanStatusLabel.setForeground(ERROR_COLOR);
+        scanStatusLabel.setText(message);
+    }
+
+    private int rowOf(int bookId) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).getBookId() == bookId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeSelectedLine() {
+        int row = basketTable.getSelectedRow();
+        if (row < 0) {
+            row = lines.size() - 1; // Nothing selected: remove the last scan
+        }
+        if (row >= 0) {
+            lines.remove(row);
+            tableModel.removeRow(row);
+            updateTotal();
+        }
+        scanField.requestFocusInWindow();
+    }
+
+    private void clearBasket() {
+        lines.clear();
+        tableModel.setRowCount(0);
+        updateTotal();
+        scanField.requestFocusInWindow();
+    }
+
+    private void updateTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        int items = 0;
+        for (BasketLine line : lines) {
+            total = total.add(line.getLineTotal());
+            items += line.getQuantity();
+        }
+        totalLabel.setText("Total: $" + String.format("%.2f", total) + " (" + items + " items)");
+    }
+
+    private void completeSale() {
+        if (lines.isEmpty()) {
+            return;
+        }
+        CheckoutResult result = bookController.checkout(new ArrayList<>(lines), loggedInUser.getId());
+        if (!result.isSuccess()) {
+            reject("Sale not completed.");
+            JOptionPane.showMessageDialog(this, result.getMessage(), "Checkout Failed", JOptionPane.ERROR_MESSAGE);
+            scanField.requestFocusInWindow();
+            return;
+        }
+
+        // Report what was charged, which may differ from the scanned price if it changed meanwhile
+        BigDecimal charged = BigDecimal.ZERO;
+        int items = 0;
+        for (Purchase purchase : result.getPurchases()) {
+            charged = charged.add(purchase.getTotalPrice());
+            items += purchase.getQuantity();
+        }
+        clearBasket();
+        scanStatusLabel.setForeground(OK_COLOR);
+        scanStatusLabel.setText("Sale complete: " + items + " items, $" + String.format("%.2f", charged) + ". Ready to scan.");
+    }
+}
@@ -1,9 +1,13 @@
 package view;
 
 import controller.BookController;
-import dao.CategoryDAO;
 import model.Book;
 import model.Category;
+import model.FacetQuery;
+import model.FacetResult;
+import model.PriceBand;
+import repository.CategoryRepository;
+import repository.Repositories;
 import utils.ImageUtils;
 
 import javax.swing.*;
@@ -12,10 +16,15 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.function.Function;
 
 /**
  * Panel for searching books and displaying results.
+ * A sidebar narrows the results by category, author, price band and publication decade; each
+ * value shows how many books it would match, and the counts follow every change of the filters.
  */
 public class SearchPanel extends JPanel {
     private JTextField searchField;
@@ -23,17 +32,27 @@ public class SearchPanel extends JPanel {
     private JTable searchResultsTable;
     private DefaultTableModel tableModel;
     private BookController bookController;
-    private CategoryDAO categoryDAO; // To get category names
+    private CategoryRepository categoryRepository; // To get category names
+
+    // Facet sidebar
+    private JPanel facetPanel;
+    private JLabel resultCountLabel;
+    private JButton moreButton;
+    private JButton didYouMeanButton;
+    private FacetQuery facetQuery = new FacetQuery();
+    private Map<Integer, String> categoryNames;
 
     public SearchPanel() {
         bookController = new BookController();
-        categoryDAO = new CategoryDAO();
+        categoryRepository = Repositories.categories();
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         initComponents();
         setupTable();
         addListeners();
+        categoryNames = bookController.getCategoryNamesById();
+        browse(false);
     }
 
     private void initComponents() {
@@ -52,6 +71,14 @@ public class SearchPanel extends JPanel {
         topPanel.add(searchLabel);
         topPanel.add(searchField);
         topPanel.add(searchButton);
+        // Offered when a search finds nothing but a corrected spelling would
+        didYouMeanButton = new JButton();
+        didYouMeanButton.setBorderPainted(false);
+        didYouMeanButton.setContentAreaFilled(false);
+        didYouMeanButton.setForeground(new Color(0, 102, 204));
+        didYouMeanButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        didYouMeanButton.setVisible(false);
+        topPanel.add(didYouMeanButton);
         add(topPanel, BorderLayout.NORTH);
 
         // Table for search results
@@ -68,7 +95,25 @@ public class SearchPanel extends JPanel {
         searchResultsTable.setRowHeight(25);
         searchResultsTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
         JScrollPane scrollPane = new JScrollPane(searchResultsTable);
-        add(scrollPane, BorderLayout.CENTER);
+        JPanel resultsPanel = new JPanel(new BorderLayout(5, 5));
+        resultsPanel.add(scrollPane, BorderLayout.CENTER);
+        JPanel resultsFooter = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        resultCountLabel = new JLabel(" ");
+        moreButton = new JButton("Show More");
+        moreButton.setVisible(false);
+        resultsFooter.add(resultCountLabel);
+        resultsFooter.add(moreButton);
+        resultsPanel.add(resultsFooter, BorderLayout.SOUTH);
+        add(resultsPanel, BorderLayout.CENTER);
+
+        // Facet sidebar, rebuilt with fresh counts after every browse
+        facetPanel = new JPanel();
+        facetPanel.setLayout(new BoxLayout(facetPanel, BoxLayout.Y_AXIS));
+        JScrollPane facetScrollPane = new JScrollPane(facetPanel);
+        facetScrollPane.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), "Narrow Results"));
+        facetScrollPane.setPreferredSize(new Dimension(220, 300));
+        facetScrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        add(facetScrollPane, BorderLayout.WEST);
 
         // Book details display at the bottom
         JPanel detailsPanel = new JPanel(new BorderLayout());
@@ -161,6 +206,13 @@ public class SearchPanel extends JPanel {
             }
         });
 
+        moreButton.addActionListener(e -> browse(true));
+
+        didYouMeanButton.addActionListener(e -> {
+            searchField.setText((String) didYouMeanButton.getClientProperty("suggestion"));
+            performSearch();
+        });
+
         searchResultsTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 int selectedRow = searchResultsTable.getSelectedRow();
@@ -174,16 +226,116 @@ public class SearchPanel extends JPanel {
     }
 
     private void performSearch() {
-        String keyword = searchField.getText().trim();
-        if (keyword.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Please enter a search keyword.", "Search Error", JOptionPane.WARNING_MESSAGE);
+        // An empty keyword browses the whole catalogue; the facet selections are kept
+        facetQuery.setKeyword(searchField.getText().trim());
+        categoryNames = bookController.getCategoryNamesById();
+        browse(false);
+        didYouMeanButton.setVisible(false);
+        if (tableModel.getRowCount() == 0 && !facetQuery.getKeyword().isEmpty() && !showCloseMatches(facetQuery.getKeyword())) {
+            JOptionPane.showMessageDialog(this, "No books found matching your criteria.", "Search Results", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    /**
+     * Shows the books closest to a keyword that matched nothing, typically a misspelling, and
+     * offers the corrected keyword.
+     * @return true if there were close matches.
+     */
+    private boolean showCloseMatches(String keyword) {
+        List<Book> books = bookController.findSimilarBooks(keyword, FacetQuery.DEFAULT_PAGE_SIZE);
+        if (books.isEmpty()) {
+            return false;
+        }
+        for (Book book : books) {
+            tableModel.addRow(toRow(book));
+        }
+        resultCountLabel.setText("No exact matches for \"" + keyword + "\"; showing " + books.size() + " close matches");
+        moreButton.setVisible(false);
+
+        String suggestion = bookController.suggestCorrection(keyword);
+        if (suggestion != null) {
+            didYouMeanButton.putClientProperty("suggestion", suggestion);
+            didYouMeanButton.setText("Did you mean: " + suggestion + "?");
+            didYouMeanButton.setVisible(true);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the current query; the page and all facet counts come back in one call.
+     * @param append true to add the next page to the table, false to start from the first page.
+     */
+    private void browse(boolean append) {
+        facetQuery.setOffset(append ? tableModel.getRowCount() : 0);
+        FacetResult result = bookController.browseBooks(facetQuery);
+
+        if (!append) {
+            tableModel.setRowCount(0);
+            clearBookDetails(); // Clear details when new search is performed
+        }
+        for (Book book : result.getBooks()) {
+            tableModel.addRow(toRow(book));
+        }
+        resultCountLabel.setText("Showing " + tableModel.getRowCount() + " of " + result.getTotalMatches() + " books");
+        moreButton.setVisible(tableModel.getRowCount() < result.getTotalMatches());
+
+        facetPanel.removeAll();
+        addFacet("Category", result.getCategoryCounts(), facetQuery.getCategoryIds(), this::categoryName);
+        addFacet("Author", result.getAuthorCounts(), facetQuery.getAuthors(), author -> author);
+        addFacet("Price", result.getPriceBandCounts(), facetQuery.getPriceBands(), PriceBand::toString);
+        addFacet("Decade", result.getDecadeCounts(), facetQuery.getDecades(),
+                decade -> decade == FacetQuery.UNKNOWN_DECADE ? "Unknown" : decade + "s");
+        facetPanel.add(Box.createVerticalGlue());
+        facetPanel.revalidate();
+        facetPanel.repaint();
+    }
+
+    /**
+     * Adds one facet to the sidebar: a check box per value, toggling the value in the selection.
+     */
+    private <K> void addFacet(String title, Map<K, Integer> counts, Set<K> selected, Function<K, String> label) {
+        if (counts.isEmpty()) {
             return;
         }
-        bookController.searchBooks(tableModel, keyword);
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this, "No books found matching your criteria.", "Search Results", JOptionPane.INFORMATION_MESSAGE);
+        JLabel titleLabel = new JLabel(title);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 13));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(8, 2, 2, 2));
+        facetPanel.add(titleLabel);
+        for (Map.Entry<K, Integer> entry : counts.entrySet()) {
+            K value = entry.getKey();
+            JCheckBox checkBox = new JCheckBox(label.apply(value) + " (" + entry.getValue() + ")", selected.contains(value));
+            checkBox.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            checkBox.addActionListener(e -> {
+                if (!selected.remove(value)) {
+                    selected.add(value);
+                }
+                browse(false);
+            });
+            facetPanel.add(checkBox);
+        }
+    }
+
+    private Vector<Object> toRow(Book book) {
+        Vector<Object> row = new Vector<>();
+        row.add(book.getId());
+        row.add(book.getTitle());
+        row.add(book.getAuthor());
+        row.add(categoryName(book.getCategoryId()));
+        row.add(book.getPrice());
+        row.add(book.getQuantity());
+        row.add(book.getIsbn());
+        row.add(book.getPublicationDate());
+        row.add(book.getDescription());
+        row.add(book.getImageUrl());
+        return row;
+    }
+
+    private String categoryName(int categoryId) {
+        if (categoryId == 0) {
+            return "N/A";
         }
-        clearBookDetails(); // Clear details when new search is performed
+        String name = categoryNames.get(categoryId);
+        return name != null ? name : "Category #" + categoryId;
     }
 
     private void displaySelectedBookDetails(int selectedRow) {
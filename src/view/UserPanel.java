@@ -1,7 +1,8 @@
 package view;
 
-import dao.UserDAO;
 import model.User;
+import repository.Repositories;
+import repository.UserRepository;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -17,7 +18,7 @@ import java.util.Vector;
 public class UserPanel extends JPanel {
     private JTable userTable;
     private DefaultTableModel tableModel;
-    private UserDAO userDAO;
+    private UserRepository userRepository;
 
     // Form components
     private JTextField idField;
@@ -31,7 +32,7 @@ public class UserPanel extends JPanel {
     private JButton clearButton;
 
     public UserPanel() {
-        userDAO = new UserDAO();
+        userRepository = Repositories.users();
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -161,7 +162,7 @@ public class UserPanel extends JPanel {
 
     private void refreshUserTable() {
         tableModel.setRowCount(0); // Clear existing data
-        java.util.List<User> users = userDAO.getAllUsers();
+        java.util.List<User> users = userRepository.getAllUsers();
 
         for (User user : users) {
             Vector<Object> row = new Vector<>();
@@ -210,13 +211,13 @@ public class UserPanel extends JPanel {
         String password = new String(passwordField.getPassword());
         String role = (String) roleComboBox.getSelectedItem();
 
-        if (userDAO.getUserByUsername(username) != null) {
+        if (userRepository.getUserByUsername(username) != null) {
             JOptionPane.showMessageDialog(this, "Username already exists. Please choose a different one.", "Validation Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
         User user = new User(username, password, role);
-        if (userDAO.addUser(user)) {
+        if (userRepository.addUser(user)) {
             JOptionPane.showMessageDialog(this, "User added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             refreshUserTable();
         } else {
@@ -237,7 +238,7 @@ public class UserPanel extends JPanel {
 
         // If password field is empty, keep existing password (not ideal, but for simplicity)
         // In a real app, you'd fetch the old hash or force password change.
-        User existingUser = userDAO.getUserById(id);
+        User existingUser = userRepository.getUserById(id);
         if (existingUser == null) {
             JOptionPane.showMessageDialog(this, "User not found for update.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
@@ -247,7 +248,7 @@ public class UserPanel extends JPanel {
         }
 
         User user = new User(id, username, password, role);
-        if (userDAO.updateUser(user)) {
+        if (userRepository.updateUser(user)) {
             JOptionPane.showMessageDialog(this, "User updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             refreshUserTable();
         } else {
@@ -268,7 +269,7 @@ public class UserPanel extends JPanel {
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete user: " + usernameToDelete + "?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            if (userDAO.deleteUser(userId)) {
+            if (userRepository.deleteUser(userId)) {
                 JOptionPane.showMessageDialog(this, "User deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 refreshUserTable();
             } else {